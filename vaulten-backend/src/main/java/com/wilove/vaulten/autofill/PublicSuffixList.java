@@ -0,0 +1,145 @@
+package com.wilove.vaulten.autofill;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.IDN;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Public suffix rules (https://publicsuffix.org/list/) read from
+ * {@code vault.autofill.public-suffix-list}, by default the subset bundled
+ * with the application.
+ *
+ * The public suffix of a host is given by the longest matching rule, where
+ * {@code *.x} matches any label under {@code x}, an exception {@code !y.x}
+ * takes {@code y.x} back out of a wildcard, and a host no rule matches has
+ * its last label as suffix. The registrable domain is the suffix plus one
+ * label: {@code mail.google.co.uk} and {@code google.co.uk} share
+ * {@code google.co.uk}, while {@code alice.github.io} and {@code bob.github.io}
+ * do not share anything.
+ */
+@Component
+public class PublicSuffixList {
+
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+
+    private final Set<String> rules = new HashSet<>();
+    private final Set<String> wildcards = new HashSet<>();
+    private final Set<String> exceptions = new HashSet<>();
+
+    public PublicSuffixList(
+            @Value("${vault.autofill.public-suffix-list:classpath:public_suffix_list.dat}") Resource list) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(list.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                addRule(line.strip());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read public suffix list " + list, e);
+        }
+    }
+
+    /**
+     * Domain an entry with this URL is matched on: the registrable domain of
+     * its host, or the host itself for IP addresses and single-label hosts
+     * such as {@code localhost}. Null when the URL has no usable host or the
+     * host is a public suffix.
+     */
+    public String domainOf(String url) {
+        String host = hostOf(url);
+        if (host == null) {
+            return null;
+        }
+        if (host.indexOf('.') < 0 || host.indexOf(':') >= 0 || IPV4.matcher(host).matches()) {
+            return host;
+        }
+        return registrableDomain(host);
+    }
+
+    /**
+     * Registrable domain of a lowercase ASCII host, or null when the host is
+     * itself a public suffix.
+     */
+    public String registrableDomain(String host) {
+        String[] labels = host.split("\\.");
+        int suffixStart = labels.length - 1;
+        for (int i = 0; i < labels.length; i++) {
+            String candidate = join(labels, i);
+            if (exceptions.contains(candidate)) {
+                suffixStart = i + 1;
+                break;
+            }
+            if (rules.contains(candidate) || (i + 1 < labels.length && wildcards.contains(join(labels, i + 1)))) {
+                suffixStart = i;
+                break;
+            }
+        }
+        return suffixStart == 0 ? null : join(labels, suffixStart - 1);
+    }
+
+    /**
+     * Lowercase ASCII host of a URL as users type them: the scheme may be
+     * missing, internationalized names are converted to punycode and a
+     * trailing dot is dropped.
+     */
+    public static String hostOf(String url) {
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        String trimmed = url.strip();
+        try {
+            URI uri = URI.create(trimmed.contains("://") ? trimmed : "https://" + trimmed);
+            String host = uri.getHost();
+            if (host == null && uri.getAuthority() != null) {
+                // URI only parses ASCII host names; take an internationalized one from the authority
+                host = uri.getAuthority().replaceFirst("^.*@", "").replaceFirst(":\\d*$", "");
+            }
+            if (host == null) {
+                return null;
+            }
+            if (host.startsWith("[")) {
+                return host.substring(1, host.length() - 1).toLowerCase(Locale.ROOT);
+            }
+            host = IDN.toASCII(host, IDN.ALLOW_UNASSIGNED).toLowerCase(Locale.ROOT);
+            host = host.endsWith(".") ? host.substring(0, host.length() - 1) : host;
+            return host.isEmpty() || host.startsWith(".") || host.contains("..") ? null : host;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void addRule(String line) {
+        if (line.isEmpty() || line.startsWith("//")) {
+            return;
+        }
+        String rule = line.split("\\s", 2)[0];
+        if (rule.startsWith("!")) {
+            exceptions.add(toAscii(rule.substring(1)));
+        } else if (rule.startsWith("*.")) {
+            wildcards.add(toAscii(rule.substring(2)));
+        } else {
+            rules.add(toAscii(rule));
+        }
+    }
+
+    private static String toAscii(String rule) {
+        return IDN.toASCII(rule, IDN.ALLOW_UNASSIGNED).toLowerCase(Locale.ROOT);
+    }
+
+    private static String join(String[] labels, int from) {
+        return String.join(".", Arrays.asList(labels).subList(from, labels.length));
+    }
+}
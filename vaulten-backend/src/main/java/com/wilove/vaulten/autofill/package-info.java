@@ -0,0 +1,4 @@
+package com.wilove.vaulten.autofill;
+
+// Matching vault entries to the site being filled
+// This package contains the public suffix rules used to derive entry domains
@@ -0,0 +1,275 @@
+package com.wilove.vaulten.breach;
+
+import com.wilove.vaulten.datasource.DataSourceRoutingContext;
+import com.wilove.vaulten.datasource.ShardRouter;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultPasswordCount;
+import com.wilove.vaulten.repository.VaultPasswordCountRepository;
+import com.wilove.vaulten.repository.VaultRevisionRepository;
+import com.wilove.vaulten.service.EncryptionService;
+import com.wilove.vaulten.service.VaultRevisionService;
+import com.wilove.vaulten.service.VaultStatsService;
+import com.wilove.vaulten.store.VaultEntryStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Checks stored passwords against a local corpus of breached password hashes
+ * ({@code vault.breach.corpus}, see {@link HashCorpus}), with no network
+ * access. Results are kept per distinct password of a user, on the rows
+ * behind the reuse statistics, and counted in the vault statistics.
+ *
+ * Passwords are checked in the background once the write that stored them
+ * commits; only their SHA-1 is kept until then. Checks that do not fit the
+ * queue, and passwords stored before the corpus was loaded or updated, are
+ * picked up by the audit job. A new corpus is loaded on restart.
+ */
+@Slf4j
+@Service
+public class BreachCheckService {
+
+    private final VaultStatsService vaultStatsService;
+    private final VaultPasswordCountRepository passwordCountRepository;
+    private final VaultRevisionRepository revisionRepository;
+    private final VaultRevisionService vaultRevisionService;
+    private final VaultEntryStore vaultEntryStore;
+    private final EncryptionService encryptionService;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final Path corpusFile;
+    private final Path indexFile;
+    private final int bloomBitsPerHash;
+    private final int auditBatchSize;
+    private final Executor executor;
+    private volatile HashCorpus corpus;
+    private volatile LocalDateTime corpusModifiedAt;
+
+    @Autowired
+    public BreachCheckService(VaultStatsService vaultStatsService,
+            VaultPasswordCountRepository passwordCountRepository,
+            VaultRevisionRepository revisionRepository,
+            VaultRevisionService vaultRevisionService,
+            VaultEntryStore vaultEntryStore,
+            EncryptionService encryptionService,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${vault.breach.corpus:}") String corpusFile,
+            @Value("${vault.breach.index-file:}") String indexFile,
+            @Value("${vault.breach.bloom-bits-per-hash:10}") int bloomBitsPerHash,
+            @Value("${vault.breach.audit-batch-size:100}") int auditBatchSize,
+            @Value("${vault.breach.queue-capacity:10000}") int queueCapacity) {
+        this(vaultStatsService, passwordCountRepository, revisionRepository, vaultRevisionService, vaultEntryStore,
+                encryptionService, shardRouter, transactionManager, corpusFile, indexFile, bloomBitsPerHash,
+                auditBatchSize,
+                // One thread: it loads the corpus first, so checks queued at startup wait for it.
+                // A full queue drops checks, which the audit job catches up on.
+                new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "vault-breach-check");
+                            thread.setDaemon(true);
+                            return thread;
+                        }, new ThreadPoolExecutor.DiscardPolicy()));
+    }
+
+    BreachCheckService(VaultStatsService vaultStatsService, VaultPasswordCountRepository passwordCountRepository,
+            VaultRevisionRepository revisionRepository, VaultRevisionService vaultRevisionService,
+            VaultEntryStore vaultEntryStore, EncryptionService encryptionService, ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager, String corpusFile, String indexFile,
+            int bloomBitsPerHash, int auditBatchSize, Executor executor) {
+        this.vaultStatsService = vaultStatsService;
+        this.passwordCountRepository = passwordCountRepository;
+        this.revisionRepository = revisionRepository;
+        this.vaultRevisionService = vaultRevisionService;
+        this.vaultEntryStore = vaultEntryStore;
+        this.encryptionService = encryptionService;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.corpusFile = corpusFile.isBlank() ? null : Path.of(corpusFile);
+        this.indexFile = indexFile.isBlank() && this.corpusFile != null
+                ? this.corpusFile.resolveSibling(this.corpusFile.getFileName() + ".idx")
+                : indexFile.isBlank() ? null : Path.of(indexFile);
+        this.bloomBitsPerHash = bloomBitsPerHash;
+        this.auditBatchSize = auditBatchSize;
+        this.executor = executor;
+        if (this.corpusFile != null) {
+            executor.execute(this::load);
+        }
+    }
+
+    static byte[] sha1(String password) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    /**
+     * Whether the corpus is loaded and passwords are being checked.
+     */
+    public boolean isEnabled() {
+        return corpus != null;
+    }
+
+    /**
+     * Queues a check of the passwords of entries being written, to run once
+     * the transaction commits. Entries must still hold the plaintext password
+     * and its fingerprint; only the hashes are kept.
+     */
+    public void checkAfterCommit(Long userId, Collection<VaultEntry> entries) {
+        if (corpusFile == null) {
+            return;
+        }
+        Map<String, byte[]> hashes = new HashMap<>();
+        for (VaultEntry entry : entries) {
+            if (entry.getPassword() != null && entry.getPasswordFingerprint() != null) {
+                hashes.computeIfAbsent(entry.getPasswordFingerprint(), fingerprint -> sha1(entry.getPassword()));
+            }
+        }
+        if (hashes.isEmpty()) {
+            return;
+        }
+        Runnable check = () -> check(userId, hashes);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    executor.execute(check);
+                }
+            });
+        } else {
+            executor.execute(check);
+        }
+    }
+
+    /**
+     * Checks the passwords of every user with entries that were not checked
+     * against the loaded corpus yet, a batch of users at a time.
+     */
+    @Scheduled(fixedDelayString = "${vault.breach.audit-interval:PT6H}",
+            initialDelayString = "${vault.breach.audit-initial-delay:PT5M}")
+    public void auditAll() {
+        if (corpus == null) {
+            return;
+        }
+        shardRouter.forEachShard(() -> {
+            int checked = 0;
+            long afterUserId = 0;
+            List<Long> userIds;
+            while (!(userIds = revisionRepository.findUserIdsAfter(afterUserId, Limit.of(auditBatchSize)))
+                    .isEmpty()) {
+                for (Long userId : userIds) {
+                    checked += audit(userId);
+                }
+                afterUserId = userIds.get(userIds.size() - 1);
+            }
+            if (checked > 0) {
+                log.info("Checked {} passwords against the breached password corpus", checked);
+            }
+        });
+    }
+
+    /**
+     * Checks the user's passwords not yet checked against the loaded corpus,
+     * decrypting one entry per distinct password.
+     *
+     * @return the number of passwords checked
+     */
+    public int audit(Long userId) {
+        HashCorpus loaded = corpus;
+        LocalDateTime loadedVersion = corpusModifiedAt;
+        if (loaded == null || passwordCountRepository.findUncheckedForBreach(userId, loadedVersion).isEmpty()) {
+            return 0;
+        }
+        Integer checked = transactionTemplate.execute(status -> {
+            vaultRevisionService.reserveRevisions(userId, 0);
+            Map<String, VaultPasswordCount> unchecked = passwordCountRepository
+                    .findUncheckedForBreach(userId, loadedVersion).stream()
+                    .collect(Collectors.toMap(VaultPasswordCount::getFingerprint, Function.identity()));
+            Map<String, VaultEntry> entries = vaultEntryStore
+                    .findByUserIdAndPasswordFingerprintIn(userId, unchecked.keySet()).stream()
+                    .filter(entry -> entry.getPassword() != null)
+                    .collect(Collectors.toMap(VaultEntry::getPasswordFingerprint, Function.identity(),
+                            (first, second) -> first));
+            LocalDateTime now = LocalDateTime.now();
+            int count = 0;
+            for (Map.Entry<String, VaultEntry> entry : entries.entrySet()) {
+                byte[] hash = sha1(encryptionService.decrypt(entry.getValue().getPassword()));
+                vaultStatsService.markBreached(userId, entry.getKey(), loaded.contains(hash), now);
+                count++;
+            }
+            return count;
+        });
+        return checked == null ? 0 : checked;
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+        if (corpus != null) {
+            corpus.close();
+        }
+    }
+
+    void load() {
+        try {
+            LocalDateTime modifiedAt = LocalDateTime.ofInstant(Files.getLastModifiedTime(corpusFile).toInstant(),
+                    ZoneId.systemDefault());
+            corpus = HashCorpus.open(corpusFile, indexFile, bloomBitsPerHash);
+            corpusModifiedAt = modifiedAt;
+            log.info("Breached password corpus {} loaded", corpusFile);
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Breached password checks are disabled: cannot load {}", corpusFile, e);
+        }
+    }
+
+    private void check(Long userId, Map<String, byte[]> hashes) {
+        HashCorpus loaded = corpus;
+        if (loaded == null) {
+            return;
+        }
+        Map<String, Boolean> results = new HashMap<>();
+        hashes.forEach((fingerprint, hash) -> results.put(fingerprint, loaded.contains(hash)));
+        try {
+            DataSourceRoutingContext.runAs(userId, () -> transactionTemplate.executeWithoutResult(status -> {
+                vaultRevisionService.reserveRevisions(userId, 0);
+                LocalDateTime now = LocalDateTime.now();
+                results.forEach((fingerprint, breached) ->
+                        vaultStatsService.markBreached(userId, fingerprint, breached, now));
+            }));
+        } catch (RuntimeException e) {
+            log.warn("Could not record breached password checks for user {}; the audit will retry", userId, e);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.wilove.vaulten.breach;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Sorted corpus of breached password hashes, as published by Have I Been
+ * Pwned: one upper-case hex SHA-1 per line, ordered by hash, optionally
+ * followed by {@code :count}. Both the corpus and its index are memory-mapped,
+ * so neither occupies the Java heap however large they are.
+ *
+ * The index is a sidecar file built by one sequential pass over the corpus
+ * and reused while the corpus keeps its size and modification time. It holds
+ * the offset of the first line of each 16-bit hash prefix and a Bloom filter
+ * over all hashes. A lookup that the filter rules out touches no corpus page;
+ * otherwise it is a binary search within one prefix range, about 1/65536 of
+ * the file.
+ */
+@Slf4j
+public final class HashCorpus implements Closeable {
+
+    public static final int HASH_BYTES = 20;
+
+    private static final long MAGIC = 0x564c544252434831L; // "VLTBRCH1"
+    private static final int HEX_LENGTH = HASH_BYTES * 2;
+    private static final int MIN_LINE_LENGTH = HEX_LENGTH + 1;
+    private static final int PREFIXES = 1 << 16;
+    private static final long HEADER_BYTES = 5 * 8;
+    private static final long PREFIX_OFFSETS = HEADER_BYTES;
+    private static final long BLOOM_OFFSET = PREFIX_OFFSETS + (PREFIXES + 1) * 8L;
+
+    private final MappedFile corpus;
+    private final MappedFile index;
+    private final long bloomBits;
+    private final int bloomHashes;
+
+    private HashCorpus(MappedFile corpus, MappedFile index) {
+        this.corpus = corpus;
+        this.index = index;
+        this.bloomBits = index.getLong(24);
+        this.bloomHashes = (int) index.getLong(32);
+    }
+
+    /**
+     * Maps the corpus, building its index at {@code indexFile} first when it
+     * is missing or was built for another version of the corpus.
+     *
+     * @param bitsPerHash Bloom filter size; 10 bits give about 1% false positives
+     * @throws IllegalArgumentException when the corpus is malformed or unsorted
+     */
+    public static HashCorpus open(Path corpusFile, Path indexFile, int bitsPerHash) throws IOException {
+        long corpusSize = Files.size(corpusFile);
+        long corpusModified = Files.getLastModifiedTime(corpusFile).toMillis();
+        long bloomBits = Math.max(64, (corpusSize / MIN_LINE_LENGTH * bitsPerHash + 63) / 64 * 64);
+        int bloomHashes = Math.max(1, (int) Math.round(bitsPerHash * Math.log(2)));
+
+        MappedFile corpus = MappedFile.readOnly(corpusFile);
+        try {
+            if (!isCurrent(indexFile, corpusSize, corpusModified, bloomBits)) {
+                build(corpus, indexFile, corpusModified, bloomBits, bloomHashes);
+            }
+            return new HashCorpus(corpus, MappedFile.readOnly(indexFile));
+        } catch (IOException | RuntimeException e) {
+            corpus.close();
+            throw e;
+        }
+    }
+
+    public boolean contains(byte[] hash) {
+        if (!mightContain(hash)) {
+            return false;
+        }
+        int prefix = ((hash[0] & 0xff) << 8) | (hash[1] & 0xff);
+        long low = index.getLong(PREFIX_OFFSETS + prefix * 8L);
+        long high = index.getLong(PREFIX_OFFSETS + (prefix + 1) * 8L);
+        // low is always the start of a line; high the start of one or the end of the file
+        while (low < high) {
+            long line = lineStart((low + high) >>> 1, low);
+            int comparison = compareLine(line, hash);
+            if (comparison == 0) {
+                return true;
+            } else if (comparison < 0) {
+                low = nextLine(line);
+            } else {
+                high = line;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            index.close();
+        } finally {
+            corpus.close();
+        }
+    }
+
+    private boolean mightContain(byte[] hash) {
+        long h1 = hashLong(hash, 4);
+        long h2 = hashLong(hash, 12);
+        for (int i = 0; i < bloomHashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bloomBits);
+            if ((index.get(BLOOM_OFFSET + (bit >>> 3)) & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCurrent(Path indexFile, long corpusSize, long corpusModified, long bloomBits)
+            throws IOException {
+        if (!Files.exists(indexFile) || Files.size(indexFile) != BLOOM_OFFSET + bloomBits / 8) {
+            return false;
+        }
+        try (MappedFile index = MappedFile.readOnly(indexFile)) {
+            return index.getLong(0) == MAGIC && index.getLong(8) == corpusSize
+                    && index.getLong(16) == corpusModified && index.getLong(24) == bloomBits;
+        }
+    }
+
+    /**
+     * Writes the index to a temporary file next to {@code indexFile} and
+     * moves it into place, so an interrupted build leaves no usable index.
+     */
+    private static void build(MappedFile corpus, Path indexFile, long corpusModified, long bloomBits,
+            int bloomHashes) throws IOException {
+        log.info("Indexing breached password corpus ({} bytes)", corpus.size());
+        long started = System.nanoTime();
+        Path building = indexFile.resolveSibling(indexFile.getFileName() + ".building");
+        long hashes = 0;
+        try (MappedFile index = MappedFile.create(building, BLOOM_OFFSET + bloomBits / 8)) {
+            byte[] hash = new byte[HASH_BYTES];
+            byte[] previous = null;
+            int nextPrefix = 0;
+            long position = 0;
+            long end = corpus.size();
+            while (position < corpus.size()) {
+                if (corpus.get(position) == '\n' || corpus.get(position) == '\r') {
+                    // Lookups land on arbitrary lines, so blank lines are only allowed at the end
+                    long blank = position;
+                    while (position < corpus.size()
+                            && (corpus.get(position) == '\n' || corpus.get(position) == '\r')) {
+                        position++;
+                    }
+                    if (position < corpus.size()) {
+                        throw new IllegalArgumentException("Blank line in corpus at offset " + blank);
+                    }
+                    end = blank;
+                    break;
+                }
+                parseHash(corpus, position, hash);
+                if (previous != null && Arrays.compareUnsigned(previous, hash) > 0) {
+                    throw new IllegalArgumentException("Corpus is not sorted by hash at offset " + position);
+                }
+                int prefix = ((hash[0] & 0xff) << 8) | (hash[1] & 0xff);
+                while (nextPrefix <= prefix) {
+                    index.putLong(PREFIX_OFFSETS + nextPrefix++ * 8L, position);
+                }
+                long h1 = hashLong(hash, 4);
+                long h2 = hashLong(hash, 12);
+                for (int i = 0; i < bloomHashes; i++) {
+                    long bit = Long.remainderUnsigned(h1 + i * h2, bloomBits);
+                    long at = BLOOM_OFFSET + (bit >>> 3);
+                    index.put(at, (byte) (index.get(at) | (1 << (bit & 7))));
+                }
+                previous = previous == null ? new byte[HASH_BYTES] : previous;
+                System.arraycopy(hash, 0, previous, 0, HASH_BYTES);
+                hashes++;
+                position = nextLine(corpus, position);
+            }
+            while (nextPrefix <= PREFIXES) {
+                index.putLong(PREFIX_OFFSETS + nextPrefix++ * 8L, end);
+            }
+            index.putLong(8, corpus.size());
+            index.putLong(16, corpusModified);
+            index.putLong(24, bloomBits);
+            index.putLong(32, bloomHashes);
+            index.putLong(0, MAGIC);
+            index.force();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(building);
+            throw e;
+        }
+        Files.move(building, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Indexed {} breached password hashes in {} ms", hashes, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static void parseHash(MappedFile corpus, long position, byte[] hash) {
+        if (position + HEX_LENGTH > corpus.size()) {
+            throw new IllegalArgumentException("Truncated hash at offset " + position);
+        }
+        for (int i = 0; i < HASH_BYTES; i++) {
+            int high = nibble(corpus.get(position + 2 * i));
+            int low = nibble(corpus.get(position + 2 * i + 1));
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Invalid SHA-1 hex at offset " + position);
+            }
+            hash[i] = (byte) (high << 4 | low);
+        }
+        if (position + HEX_LENGTH < corpus.size()) {
+            byte after = corpus.get(position + HEX_LENGTH);
+            if (after != ':' && after != '\r' && after != '\n') {
+                throw new IllegalArgumentException("Invalid SHA-1 hex at offset " + position);
+            }
+        }
+    }
+
+    /**
+     * Compares the hash on the line at {@code line} with {@code hash}, nibble
+     * by nibble, stopping at the first difference.
+     */
+    private int compareLine(long line, byte[] hash) {
+        for (int i = 0; i < HASH_BYTES; i++) {
+            int stored = nibble(corpus.get(line + 2 * i)) << 4 | nibble(corpus.get(line + 2 * i + 1));
+            int wanted = hash[i] & 0xff;
+            if (stored != wanted) {
+                return stored < wanted ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    private long lineStart(long position, long floor) {
+        while (position > floor && corpus.get(position - 1) != '\n') {
+            position--;
+        }
+        return position;
+    }
+
+    private long nextLine(long line) {
+        return nextLine(corpus, line);
+    }
+
+    private static long nextLine(MappedFile file, long position) {
+        while (position < file.size() && file.get(position) != '\n') {
+            position++;
+        }
+        return position + 1;
+    }
+
+    private static int nibble(byte c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    private static long hashLong(byte[] hash, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | (hash[offset + i] & 0xff);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,99 @@
+package com.wilove.vaulten.breach;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file mapped into memory in 1 GiB chunks, since a single mapping cannot
+ * exceed 2 GiB. Pages are loaded by the OS on access and evicted under
+ * memory pressure; nothing is copied onto the Java heap.
+ */
+final class MappedFile implements Closeable {
+
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long size;
+
+    private MappedFile(FileChannel channel, FileChannel.MapMode mode, long size) throws IOException {
+        this.channel = channel;
+        this.size = size;
+        this.chunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_BITS)];
+        for (int i = 0; i < chunks.length; i++) {
+            long start = (long) i << CHUNK_BITS;
+            chunks[i] = channel.map(mode, start, Math.min(CHUNK_SIZE, size - start));
+        }
+    }
+
+    static MappedFile readOnly(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new MappedFile(channel, FileChannel.MapMode.READ_ONLY, channel.size());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates (or truncates) the file at {@code size} zero bytes and maps it
+     * for writing.
+     */
+    static MappedFile create(Path path, long size) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            if (size > 0) {
+                channel.position(size - 1);
+                channel.write(ByteBuffer.wrap(new byte[1]));
+            }
+            return new MappedFile(channel, FileChannel.MapMode.READ_WRITE, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    byte get(long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].get((int) (position & CHUNK_MASK));
+    }
+
+    void put(long position, byte value) {
+        chunks[(int) (position >>> CHUNK_BITS)].put((int) (position & CHUNK_MASK), value);
+    }
+
+    /**
+     * Reads a big-endian long; {@code position} must be a multiple of 8 so
+     * that it never straddles two chunks.
+     */
+    long getLong(long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].getLong((int) (position & CHUNK_MASK));
+    }
+
+    void putLong(long position, long value) {
+        chunks[(int) (position >>> CHUNK_BITS)].putLong((int) (position & CHUNK_MASK), value);
+    }
+
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,4 @@
+package com.wilove.vaulten.breach;
+
+// Offline checks of stored passwords against known breach corpora
+// This package contains the memory-mapped hash corpus and the service checking passwords against it
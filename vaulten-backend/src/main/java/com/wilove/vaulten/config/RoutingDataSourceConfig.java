@@ -0,0 +1,139 @@
+package com.wilove.vaulten.config;
+
+import com.wilove.vaulten.datasource.DataSourceRole;
+import com.wilove.vaulten.datasource.ReadWriteRoutingDataSource;
+import com.wilove.vaulten.datasource.RecentWriteTracker;
+import com.wilove.vaulten.datasource.ShardRebalancer;
+import com.wilove.vaulten.datasource.ShardRouter;
+import com.wilove.vaulten.datasource.ShardRoutingDataSource;
+import com.wilove.vaulten.datasource.ShardSchemaIntegrator;
+import com.wilove.vaulten.datasource.ShardingProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the routing DataSource when read replicas (vault.datasource.replica.*)
+ * or extra shards (vault.sharding.shards[*]) are configured. Without either,
+ * Spring Boot's single pooled DataSource is used unchanged.
+ *
+ * Layout: LazyConnectionDataSourceProxy -> ShardRoutingDataSource (only with
+ * more than one shard) -> per shard: ReadWriteRoutingDataSource (only with a
+ * replica) -> pooled DataSources.
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+@Slf4j
+public class RoutingDataSourceConfig {
+
+    private static final String ROUTING_ENABLED = "'${vault.datasource.replica.url:}' != '' "
+            + "or '${vault.sharding.shards[0].url:}' != ''";
+    private static final String SHARDING_ENABLED = "'${vault.sharding.shards[0].url:}' != ''";
+
+    @Bean
+    @Primary
+    @ConditionalOnExpression(ROUTING_ENABLED)
+    public DataSource dataSource(DataSourceProperties primaryProperties,
+            ShardingProperties shardingProperties,
+            ShardRouter shardRouter,
+            RecentWriteTracker recentWriteTracker,
+            @Value("${vault.datasource.replica.url:}") String replicaUrl,
+            @Value("${vault.datasource.replica.username:${spring.datasource.username:}}") String replicaUsername,
+            @Value("${vault.datasource.replica.password:${spring.datasource.password:}}") String replicaPassword) {
+
+        String driverClassName = primaryProperties.determineDriverClassName();
+        DataSource firstShard = withReplica(primaryProperties.initializeDataSourceBuilder().build(),
+                replicaUrl, replicaUsername, replicaPassword, driverClassName, recentWriteTracker);
+
+        List<ShardingProperties.Shard> extraShards = shardingProperties.getShards();
+        if (extraShards.isEmpty()) {
+            return new LazyConnectionDataSourceProxy(firstShard);
+        }
+
+        Map<Object, Object> shards = new HashMap<>();
+        shards.put(0, firstShard);
+        for (int i = 0; i < extraShards.size(); i++) {
+            ShardingProperties.Shard shard = extraShards.get(i);
+            DataSource shardPrimary = DataSourceBuilder.create()
+                    .driverClassName(driverClassName)
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .build();
+            shards.put(i + 1, withReplica(shardPrimary, shard.getReplicaUrl(), shard.getUsername(),
+                    shard.getPassword(), driverClassName, recentWriteTracker));
+        }
+        log.info("Vault storage sharded across {} data sources", shards.size());
+
+        ShardRoutingDataSource shardRoutingDataSource = new ShardRoutingDataSource(shardRouter);
+        shardRoutingDataSource.setTargetDataSources(shards);
+        shardRoutingDataSource.setDefaultTargetDataSource(firstShard);
+        shardRoutingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    @ConditionalOnExpression(SHARDING_ENABLED)
+    public HibernatePropertiesCustomizer shardSchemaCustomizer(ShardRouter shardRouter, DataSource dataSource) {
+        ShardSchemaIntegrator integrator = new ShardSchemaIntegrator(shardRouter, dataSource);
+        return properties -> properties.put("hibernate.integrator_provider",
+                (IntegratorProvider) () -> List.of(integrator));
+    }
+
+    @Bean
+    @ConditionalOnExpression(SHARDING_ENABLED)
+    public ShardRebalancer shardRebalancer(DataSource dataSource, PlatformTransactionManager transactionManager,
+            ShardRouter shardRouter) {
+        return new ShardRebalancer(dataSource, transactionManager, shardRouter);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "vault.sharding", name = "rebalance-from")
+    public ApplicationRunner shardRebalanceRunner(ShardRebalancer shardRebalancer,
+            ShardingProperties shardingProperties, ApplicationContext context) {
+        return args -> {
+            shardRebalancer.rebalance(shardingProperties.getRebalanceFrom());
+            System.exit(SpringApplication.exit(context, () -> 0));
+        };
+    }
+
+    private DataSource withReplica(DataSource primary, String replicaUrl, String username, String password,
+            String driverClassName, RecentWriteTracker recentWriteTracker) {
+        if (replicaUrl == null || replicaUrl.isBlank()) {
+            return primary;
+        }
+        DataSource replica = DataSourceBuilder.create()
+                .driverClassName(driverClassName)
+                .url(replicaUrl)
+                .username(username)
+                .password(password)
+                .build();
+
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(recentWriteTracker);
+        routingDataSource.setTargetDataSources(Map.of(
+                DataSourceRole.PRIMARY, primary,
+                DataSourceRole.REPLICA, replica));
+        routingDataSource.setDefaultTargetDataSource(primary);
+        routingDataSource.afterPropertiesSet();
+        return routingDataSource;
+    }
+}
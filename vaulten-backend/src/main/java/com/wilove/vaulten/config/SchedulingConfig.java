@@ -0,0 +1,12 @@
+package com.wilove.vaulten.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled maintenance jobs (history and tombstone purges, etc.)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,25 +1,61 @@
 package com.wilove.vaulten.controller;
 
+import com.wilove.vaulten.dto.BatchRequest;
+import com.wilove.vaulten.dto.BatchResponse;
+import com.wilove.vaulten.dto.EntryHistoryResponse;
+import com.wilove.vaulten.dto.PasswordStrengthEntry;
+import com.wilove.vaulten.dto.ReconcileRequest;
+import com.wilove.vaulten.dto.ReconcileResponse;
+import com.wilove.vaulten.dto.ReuseGroup;
 import com.wilove.vaulten.dto.SyncResponse;
 import com.wilove.vaulten.dto.VaultEntryRequest;
+import com.wilove.vaulten.dto.VaultStatsResponse;
+import com.wilove.vaulten.event.VaultEventBroadcaster;
 import com.wilove.vaulten.model.User;
 import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.search.VaultSearchService;
+import com.wilove.vaulten.service.VaultBatchService;
+import com.wilove.vaulten.service.VaultHashTreeService;
 import com.wilove.vaulten.service.VaultService;
+import com.wilove.vaulten.service.VaultStatsService;
+import com.wilove.vaulten.snapshot.OpenVaultSnapshot;
+import com.wilove.vaulten.snapshot.VaultSnapshot;
+import com.wilove.vaulten.snapshot.VaultSnapshotService;
+import com.wilove.vaulten.transfer.ImportJob;
+import com.wilove.vaulten.transfer.TransferFormat;
+import com.wilove.vaulten.transfer.VaultExportService;
+import com.wilove.vaulten.transfer.VaultImportService;
+import com.wilove.vaulten.usage.EntryUsageService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/vault")
@@ -29,74 +65,394 @@ import java.util.List;
 @Slf4j
 public class VaultController {
 
+    private static final String SNAPSHOT_KEY_HEADER = "X-Vault-Snapshot-Key";
+    private static final String SNAPSHOT_CURSOR_HEADER = "X-Vault-Snapshot-Cursor";
+    private static final int DEFAULT_SYNC_PAGE_SIZE = 200;
+    private static final int MAX_SYNC_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_IDS = 100;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_SEARCH_QUERY_LENGTH = 100;
+    private static final String EXPORT_PASSPHRASE_HEADER = "X-Export-Passphrase";
+    private static final int MIN_EXPORT_PASSPHRASE_LENGTH = 8;
+    private static final String IMPORT_PASSPHRASE_HEADER = "X-Import-Passphrase";
+    private static final String SORT_FRECENCY = "frecency";
+
     private final VaultService vaultService;
+    private final VaultEventBroadcaster vaultEventBroadcaster;
+    private final VaultSnapshotService vaultSnapshotService;
+    private final VaultBatchService vaultBatchService;
+    private final VaultExportService vaultExportService;
+    private final VaultImportService vaultImportService;
+    private final VaultSearchService vaultSearchService;
+    private final VaultStatsService vaultStatsService;
+    private final EntryUsageService entryUsageService;
 
     @GetMapping
-    @Operation(summary = "Get all vault entries for the current user")
-    public ResponseEntity<List<VaultEntry>> getAllEntries() {
-        return ResponseEntity.ok(vaultService.getEntriesForUser(getCurrentUser()));
+    @Operation(summary = "Get all vault entries for the current user (supports If-None-Match)")
+    public ResponseEntity<List<VaultEntry>> getAllEntries(
+            @Parameter(description = "Include entry notes (fetched from the payload table)") @RequestParam(defaultValue = "true") boolean includeNotes,
+            @Parameter(description = "\"frecency\" to list the most used entries first") @RequestParam(required = false) String sort,
+            WebRequest webRequest) {
+        User user = getCurrentUser();
+        if (SORT_FRECENCY.equals(sort)) {
+            // Uses change the order without changing the vault, so no ETag
+            return ResponseEntity.ok(vaultService.getEntriesByFrecency(user, includeNotes));
+        } else if (sort != null) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (webRequest.checkNotModified(vaultService.getVaultETag(user, includeNotes ? null : "summary"))) {
+            return null;
+        }
+        return ResponseEntity.ok(vaultService.getEntriesForUser(user, includeNotes));
     }
 
     @GetMapping("/sync")
-    @Operation(summary = "Get modified entries since last sync")
+    @Operation(summary = "Get changes since the last sync (supports If-None-Match)")
     public ResponseEntity<SyncResponse> sync(
-            @Parameter(description = "Last sync timestamp (ISO 8601)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+            @Parameter(description = "Cursor returned by the previous sync") @RequestParam(required = false) Long cursor,
+            @Parameter(description = "Last sync timestamp (ISO 8601); superseded by cursor") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @Parameter(description = "Page size; enables paging with nextPageToken") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Token returned by the previous page") @RequestParam(required = false) String pageToken,
+            @Parameter(description = "Return only the fields changed after the cursor (changedEntries)") @RequestParam(defaultValue = "false") boolean delta,
+            WebRequest webRequest) {
+
+        User user = getCurrentUser();
+        // The response for a given cursor (or since), page size and mode only changes when the revision does;
+        // later pages share the revision, so they are never answered from the client's copy
+        if (pageToken == null
+                && webRequest.checkNotModified(vaultService.getVaultETag(user, syncETagVariant(cursor, since, limit, delta)))) {
+            return null;
+        }
+        if (limit != null || pageToken != null) {
+            int pageSize = limit == null ? DEFAULT_SYNC_PAGE_SIZE : limit;
+            if (pageSize < 1 || pageSize > MAX_SYNC_PAGE_SIZE) {
+                return ResponseEntity.badRequest().build();
+            }
+            try {
+                return ResponseEntity.ok(vaultService.syncPage(user, cursor, pageToken, pageSize, delta));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        if (cursor != null || since == null) {
+            return ResponseEntity.ok(vaultService.sync(user, cursor, delta));
+        }
 
+        // Legacy timestamp sync, kept for clients that have not moved to cursors
         LocalDateTime serverTime = LocalDateTime.now();
-        List<VaultEntry> entries = (since == null)
-                ? vaultService.getEntriesForUser(getCurrentUser())
-                : vaultService.getEntriesModifiedSince(getCurrentUser(), since);
+        long highWater = vaultService.getCurrentRevision(user);
+        boolean fullResync = vaultService.requiresFullResync(since);
+        List<VaultEntry> entries = fullResync
+                ? vaultService.getEntriesForUser(user)
+                : vaultService.getEntriesModifiedSince(user, since);
+        List<Long> deletedIds = fullResync
+                ? List.of()
+                : vaultService.getDeletedEntryIdsSince(user, since);
 
         return ResponseEntity.ok(SyncResponse.builder()
                 .updatedEntries(entries)
+                .deletedIds(deletedIds)
+                .fullResync(fullResync)
+                .cursor(highWater)
                 .serverTime(serverTime)
                 .build());
     }
 
+    @GetMapping("/snapshot")
+    @Operation(summary = "Download the precomputed full sync for a new device (404 while not built yet)")
+    public ResponseEntity<StreamingResponseBody> snapshot(HttpServletRequest request) {
+        Long userId = getCurrentUser().getId();
+        // Let Tomcat send the file with sendfile() once the handler returns, without copying it through the JVM;
+        // it opens the file by name then, so it gets a link of its own that a write dropping the snapshot keeps
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            VaultSnapshot snapshot = vaultSnapshotService.linkSnapshot(userId);
+            if (snapshot == null) {
+                return ResponseEntity.notFound().build();
+            }
+            request.setAttribute("org.apache.tomcat.sendfile.filename", snapshot.file().toAbsolutePath().toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+            request.setAttribute("org.apache.tomcat.sendfile.end", snapshot.size());
+            return snapshotResponse(snapshot).build();
+        }
+        // Opened before returning, so that a write dropping the snapshot meanwhile cannot delete it mid-send
+        OpenVaultSnapshot open = vaultSnapshotService.openSnapshot(userId);
+        if (open == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return snapshotResponse(open.snapshot()).body(open::transferTo);
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Download the whole vault as JSON or CSV, optionally encrypted with a passphrase")
+    public ResponseEntity<StreamingResponseBody> export(
+            @Parameter(description = "json (default) or csv") @RequestParam(defaultValue = "json") String format,
+            @Parameter(description = "Encrypts the file with this passphrase (at least 8 characters)") @RequestHeader(value = EXPORT_PASSPHRASE_HEADER, required = false) String passphrase) {
+        TransferFormat exportFormat = TransferFormat.parse(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (passphrase != null && passphrase.length() < MIN_EXPORT_PASSPHRASE_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        User user = getCurrentUser();
+        String fileName = "vaulten-export." + exportFormat.getExtension() + (passphrase == null ? "" : ".enc");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .cacheControl(CacheControl.noStore())
+                .contentType(passphrase == null
+                        ? MediaType.parseMediaType(exportFormat.getContentType())
+                        : MediaType.APPLICATION_OCTET_STREAM)
+                .body(out -> vaultExportService.export(user, exportFormat, passphrase, out));
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Start importing a CSV or JSON export from Vaulten or another password manager")
+    public ResponseEntity<ImportJob> startImport(
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = "json or csv; taken from the file name when omitted") @RequestParam(required = false) String format,
+            @Parameter(description = "Passphrase of an encrypted Vaulten export") @RequestHeader(value = IMPORT_PASSPHRASE_HEADER, required = false) String passphrase)
+            throws IOException {
+        TransferFormat importFormat = TransferFormat.parse(format != null ? format : extensionOf(file));
+        if (importFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try (InputStream content = file.getInputStream()) {
+            ImportJob job = vaultImportService.start(getCurrentUser(), content, importFormat, passphrase);
+            return ResponseEntity.accepted().body(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @GetMapping("/import/{jobId}")
+    @Operation(summary = "Get the progress of an import")
+    public ResponseEntity<ImportJob> getImport(@PathVariable String jobId) {
+        return vaultImportService.getJob(getCurrentUser(), jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/reconcile")
+    @Operation(summary = "Compare the client's vault hash tree and get the content of differing buckets")
+    public ResponseEntity<ReconcileResponse> reconcile(@RequestBody ReconcileRequest request) {
+        Long root;
+        Map<Integer, Long> buckets = new HashMap<>();
+        try {
+            root = request.getRoot() == null ? null : Long.parseUnsignedLong(request.getRoot(), 16);
+            if (request.getBuckets() != null) {
+                for (Map.Entry<Integer, String> bucket : request.getBuckets().entrySet()) {
+                    if (bucket.getKey() < 0 || bucket.getKey() >= VaultHashTreeService.BUCKETS) {
+                        return ResponseEntity.badRequest().build();
+                    }
+                    buckets.put(bucket.getKey(), Long.parseUnsignedLong(bucket.getValue(), 16));
+                }
+            }
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(vaultService.reconcile(getCurrentUser(), root, buckets));
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream change notifications (entry id, kind, revision) as server-sent events")
+    public ResponseEntity<SseEmitter> events() {
+        User user = getCurrentUser();
+        SseEmitter emitter = vaultEventBroadcaster.subscribe(user.getId(), vaultService.getCurrentRevision(user));
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
     @PostMapping
     @Operation(summary = "Create a new vault entry")
     public ResponseEntity<VaultEntry> createEntry(@Valid @RequestBody VaultEntryRequest request) {
-        VaultEntry entry = VaultEntry.builder()
-                .name(request.getName())
-                .username(request.getUsername())
-                .password(request.getPassword())
-                .url(request.getUrl())
-                .notes(request.getNotes())
-                .type(request.getType())
-                .category(request.getCategory())
-                .build();
-        return ResponseEntity.ok(vaultService.createEntry(entry, getCurrentUser()));
+        return withETag(vaultService.createEntry(request.toEntry(), getCurrentUser()));
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Apply creates, updates and deletes in one transaction (all-or-nothing or best-effort)")
+    public ResponseEntity<BatchResponse> applyBatch(@Valid @RequestBody BatchRequest request) {
+        return ResponseEntity.ok(vaultBatchService.apply(getCurrentUser(), request));
+    }
+
+    @GetMapping("/batch")
+    @Operation(summary = "Get several vault entries by ID in one request (unknown IDs are left out)")
+    public ResponseEntity<List<VaultEntry>> getEntries(
+            @Parameter(description = "Comma-separated entry IDs (at most 100)") @RequestParam List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(vaultService.getEntries(getCurrentUser(), ids));
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search entries by name, username, URL and category (substring match, best first)")
+    public ResponseEntity<List<VaultEntry>> search(
+            @Parameter(description = "Terms that must all occur, case-insensitively") @RequestParam String q,
+            @Parameter(description = "Maximum number of results (default 20, at most 100)") @RequestParam(required = false) Integer limit) {
+        int maxResults = limit == null ? DEFAULT_SEARCH_LIMIT : limit;
+        if (q.isBlank() || q.length() > MAX_SEARCH_QUERY_LENGTH || maxResults < 1 || maxResults > MAX_SEARCH_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(vaultSearchService.search(getCurrentUser(), q, maxResults));
+    }
+
+    @GetMapping("/match")
+    @Operation(summary = "Get the entries for a site (same registrable domain as the URL), for autofill")
+    public ResponseEntity<List<VaultEntry>> getMatchingEntries(
+            @Parameter(description = "URL or host of the site being filled") @RequestParam String url) {
+        if (url.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(vaultService.getMatchingEntries(getCurrentUser(), url));
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Get counts of entries by type and category, and of stale, weak and reused passwords")
+    public ResponseEntity<VaultStatsResponse> getStats() {
+        return ResponseEntity.ok(vaultStatsService.getStats(getCurrentUser().getId()));
+    }
+
+    @GetMapping("/reuse")
+    @Operation(summary = "Get groups of entries sharing a password, as security alerts (no passwords returned)")
+    public ResponseEntity<List<ReuseGroup>> getReuseGroups() {
+        return ResponseEntity.ok(vaultService.getReuseGroups(getCurrentUser()));
+    }
+
+    @GetMapping("/strength")
+    @Operation(summary = "Get entries by password strength, weakest first (scores 0-4; no passwords returned)")
+    public ResponseEntity<List<PasswordStrengthEntry>> getPasswordStrengths(
+            @Parameter(description = "Highest score to include (default 1: weak passwords)") @RequestParam(defaultValue = "1") int maxScore) {
+        if (maxScore < 0 || maxScore > 4) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(vaultService.getPasswordStrengths(getCurrentUser(), maxScore));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get a specific vault entry by ID")
     public ResponseEntity<VaultEntry> getEntryById(@PathVariable Long id) {
-        return ResponseEntity.ok(vaultService.getEntryById(id, getCurrentUser()));
+        User user = getCurrentUser();
+        VaultEntry entry = vaultService.getEntryById(id, user);
+        entryUsageService.recordUse(user.getId(), id);
+        return withETag(entry);
+    }
+
+    @PostMapping("/{id}/use")
+    @Operation(summary = "Record a use of an entry (e.g. an autofill), for sort=frecency")
+    public ResponseEntity<Void> recordUse(@PathVariable Long id) {
+        vaultService.recordUse(id, getCurrentUser());
+        return ResponseEntity.noContent().build();
     }
 
     @PutMapping("/{id}")
-    @Operation(summary = "Update an existing vault entry")
+    @Operation(summary = "Update an existing vault entry (If-Match makes it conditional, 409 with the current copy)")
     public ResponseEntity<VaultEntry> updateEntry(@PathVariable Long id,
-            @Valid @RequestBody VaultEntryRequest request) {
-        VaultEntry entry = VaultEntry.builder()
-                .name(request.getName())
-                .username(request.getUsername())
-                .password(request.getPassword())
-                .url(request.getUrl())
-                .notes(request.getNotes())
-                .type(request.getType())
-                .category(request.getCategory())
-                .build();
-        return ResponseEntity.ok(vaultService.updateEntry(id, entry, getCurrentUser()));
+            @Valid @RequestBody VaultEntryRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return withETag(vaultService.updateEntry(id, request.toEntry(), getCurrentUser(), parseIfMatch(ifMatch)));
+    }
+
+    @GetMapping("/{id}/history")
+    @Operation(summary = "Get previous versions of a vault entry, newest first")
+    public ResponseEntity<EntryHistoryResponse> getEntryHistory(@PathVariable Long id,
+            @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Versions per page") @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > 100) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(vaultService.getEntryHistory(id, getCurrentUser(), page, size));
     }
 
     @DeleteMapping("/{id}")
-    @Operation(summary = "Delete a vault entry")
-    public ResponseEntity<Void> deleteEntry(@PathVariable Long id) {
-        vaultService.deleteEntry(id, getCurrentUser());
+    @Operation(summary = "Delete a vault entry (If-Match makes it conditional, 409 with the current copy)")
+    public ResponseEntity<Void> deleteEntry(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        vaultService.deleteEntry(id, getCurrentUser(), parseIfMatch(ifMatch));
         return ResponseEntity.noContent().build();
     }
 
+    private ResponseEntity<VaultEntry> withETag(VaultEntry entry) {
+        if (entry.getVersion() == null) {
+            return ResponseEntity.ok(entry);
+        }
+        return ResponseEntity.ok().eTag("\"" + entry.getVersion() + "\"").body(entry);
+    }
+
+    /**
+     * ETag variant of a sync request. A revision gives a different body for
+     * each cursor, since, page size and mode, and none of them may be answered
+     * with another's copy.
+     */
+    private static String syncETagVariant(Long cursor, LocalDateTime since, Integer limit, boolean delta) {
+        StringBuilder variant = new StringBuilder("sync");
+        if (cursor != null) {
+            variant.append(".c").append(cursor);
+        }
+        if (since != null) {
+            variant.append(".s").append(since);
+        }
+        if (limit != null) {
+            variant.append(".l").append(limit);
+        }
+        if (delta) {
+            variant.append(".delta");
+        }
+        return variant.toString();
+    }
+
+    /**
+     * Expected entry version from an If-Match header, or null for an
+     * unconditional write (no header, or "*"). A tag that is not one of ours
+     * can never match, so it maps to a version no entry has.
+     */
+    private static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Extension of the uploaded file, ignoring a trailing ".enc".
+     */
+    private static String extensionOf(MultipartFile file) {
+        String name = file.getOriginalFilename();
+        if (name == null) {
+            return null;
+        }
+        if (name.endsWith(".enc")) {
+            name = name.substring(0, name.length() - ".enc".length());
+        }
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? null : name.substring(dot + 1);
+    }
+
+    /**
+     * A snapshot download with what the client needs to use it: the key to
+     * decrypt it and the cursor to continue syncing from.
+     */
+    private static ResponseEntity.BodyBuilder snapshotResponse(VaultSnapshot snapshot) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(snapshot.size())
+                .cacheControl(CacheControl.noStore())
+                .header(SNAPSHOT_KEY_HEADER, Base64.getEncoder().encodeToString(snapshot.key()))
+                .header(SNAPSHOT_CURSOR_HEADER, Long.toString(snapshot.cursor()));
+    }
+
     private User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.getPrincipal() instanceof User) {
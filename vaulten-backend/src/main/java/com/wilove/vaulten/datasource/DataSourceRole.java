@@ -0,0 +1,9 @@
+package com.wilove.vaulten.datasource;
+
+/**
+ * Lookup keys for the read/write routing DataSource.
+ */
+public enum DataSourceRole {
+    PRIMARY,
+    REPLICA
+}
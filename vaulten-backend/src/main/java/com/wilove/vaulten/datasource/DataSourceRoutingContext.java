@@ -0,0 +1,83 @@
+package com.wilove.vaulten.datasource;
+
+import com.wilove.vaulten.model.User;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.function.Supplier;
+
+/**
+ * Resolves the user on whose behalf the current thread talks to the database.
+ * Request threads use the authenticated principal; background work can bind a
+ * user explicitly with {@link #callAs(Long, Supplier)} or a whole shard with
+ * {@link #runOnShard(int, Runnable)}.
+ *
+ * Bind before entering a transaction: the routing happens when the transaction
+ * first touches the database.
+ */
+public final class DataSourceRoutingContext {
+
+    private static final ThreadLocal<Long> BOUND_USER = new ThreadLocal<>();
+    private static final ThreadLocal<Integer> BOUND_SHARD = new ThreadLocal<>();
+
+    private DataSourceRoutingContext() {
+    }
+
+    public static Long currentUserId() {
+        Long boundUser = BOUND_USER.get();
+        if (boundUser != null) {
+            return boundUser;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        return null;
+    }
+
+    public static <T> T callAs(Long userId, Supplier<T> action) {
+        Long previous = BOUND_USER.get();
+        BOUND_USER.set(userId);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                BOUND_USER.remove();
+            } else {
+                BOUND_USER.set(previous);
+            }
+        }
+    }
+
+    public static void runAs(Long userId, Runnable action) {
+        callAs(userId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public static Integer boundShard() {
+        return BOUND_SHARD.get();
+    }
+
+    public static <T> T callOnShard(int shard, Supplier<T> action) {
+        Integer previous = BOUND_SHARD.get();
+        BOUND_SHARD.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                BOUND_SHARD.remove();
+            } else {
+                BOUND_SHARD.set(previous);
+            }
+        }
+    }
+
+    public static void runOnShard(int shard, Runnable action) {
+        callOnShard(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
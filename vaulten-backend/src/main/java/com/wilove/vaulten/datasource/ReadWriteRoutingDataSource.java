@@ -0,0 +1,50 @@
+package com.wilove.vaulten.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the
+ * primary. A user who committed a write within the read-your-writes window is
+ * kept on the primary so they never read an older copy of their own change.
+ *
+ * Must be wrapped in a LazyConnectionDataSourceProxy: the read-only flag is only
+ * known once the transaction has started, after the connection is requested.
+ * Connections taken outside a transaction (startup, metadata probes) go to the
+ * primary and do not count as writes.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final RecentWriteTracker recentWriteTracker;
+
+    public ReadWriteRoutingDataSource(RecentWriteTracker recentWriteTracker) {
+        this.recentWriteTracker = recentWriteTracker;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Long userId = DataSourceRoutingContext.currentUserId();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (userId != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                recordWriteOnCommit(userId);
+            }
+            return DataSourceRole.PRIMARY;
+        }
+
+        if (userId != null && recentWriteTracker.isRecentWriter(userId)) {
+            return DataSourceRole.PRIMARY;
+        }
+        return DataSourceRole.REPLICA;
+    }
+
+    private void recordWriteOnCommit(Long userId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriteTracker.recordWrite(userId);
+            }
+        });
+    }
+}
@@ -0,0 +1,45 @@
+package com.wilove.vaulten.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which users committed writes recently so their reads can stay on
+ * the primary until the replica has had time to catch up (read-your-writes).
+ */
+@Component
+public class RecentWriteTracker {
+
+    private static final int PURGE_THRESHOLD = 10_000;
+
+    private final long windowNanos;
+    private final Map<Long, Long> lastWriteNanos = new ConcurrentHashMap<>();
+
+    public RecentWriteTracker(@Value("${vault.datasource.read-your-writes-window:5s}") Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    public void recordWrite(Long userId) {
+        long now = System.nanoTime();
+        lastWriteNanos.put(userId, now);
+        if (lastWriteNanos.size() > PURGE_THRESHOLD) {
+            lastWriteNanos.values().removeIf(writtenAt -> now - writtenAt > windowNanos);
+        }
+    }
+
+    public boolean isRecentWriter(Long userId) {
+        Long writtenAt = lastWriteNanos.get(userId);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - writtenAt > windowNanos) {
+            lastWriteNanos.remove(userId, writtenAt);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,52 @@
+package com.wilove.vaulten.datasource;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.OptimizerFactory;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pooled sequence generator that keeps one block of ids per database.
+ *
+ * Hibernate holds a single in-memory block per generator, but with sharding
+ * one session factory writes to several databases whose sequences start in
+ * different id ranges. A block fetched from one shard must never be used on
+ * another, so blocks are keyed by the JDBC URL the insert runs against.
+ *
+ * Blocks use the pooled-lo scheme: a sequence value is the first id of its
+ * block, which is what {@link ShardSchemaIntegrator} restarts the sequence at.
+ */
+public class ShardAwareSequenceGenerator extends SequenceStyleGenerator {
+
+    private final Map<String, Optimizer> optimizers = new ConcurrentHashMap<>();
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        Optimizer optimizer = optimizers.computeIfAbsent(databaseOf(session),
+                database -> OptimizerFactory.buildOptimizer(StandardOptimizerDescriptor.POOLED_LO,
+                        getIdentifierType().getReturnedClass(), getDatabaseStructure().getIncrementSize(),
+                        getDatabaseStructure().getInitialValue()));
+        return optimizer.generate(getDatabaseStructure().buildCallback(session));
+    }
+
+    private static String databaseOf(SharedSessionContractImplementor session) {
+        Connection connection = session.getJdbcCoordinator().getLogicalConnection().getPhysicalConnection();
+        try {
+            // LazyConnectionDataSourceProxy only picks the shard when the target connection is needed
+            if (connection instanceof ConnectionProxy proxy) {
+                connection = proxy.getTargetConnection();
+            }
+            return connection.getMetaData().getURL();
+        } catch (SQLException e) {
+            throw new HibernateException("Could not determine the database for id generation", e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.wilove.vaulten.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.support.rowset.SqlRowSetMetaData;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Offline tool that moves every user whose shard changes after shards were
+ * added. Run it with the application's traffic stopped, e.g.
+ * {@code --vault.sharding.rebalance-from=2 --spring.main.web-application-type=none}.
+ *
+ * Each user is copied to the target shard (after clearing any partial copy
+ * from an earlier interrupted run) and only then removed from the source, so
+ * the tool can simply be re-run after a failure.
+ */
+@Slf4j
+public class ShardRebalancer {
+
+    /**
+     * Per-user tables in parent-to-child order. Deletes run in reverse order.
+     */
+    static final List<UserScopedTable> USER_SCOPED_TABLES = List.of(
+            new UserScopedTable("vault_entries", "user_id", "user_id = ?", null, "vault_entries_seq"),
+            new UserScopedTable("vault_entry_payloads", null,
+                    "entry_id IN (SELECT id FROM vault_entries WHERE user_id = ?)", null, null),
+            new UserScopedTable("vault_entry_revisions", "user_id", "user_id = ?", "id", null),
+            new UserScopedTable("vault_entry_tombstones", "user_id", "user_id = ?", null, null),
+            new UserScopedTable("vault_revisions", "user_id", "user_id = ?", null, null),
+            new UserScopedTable("vault_entry_buckets", "user_id", "user_id = ?", null, null),
+            new UserScopedTable("vault_stats", "user_id", "user_id = ?", null, null),
+            new UserScopedTable("vault_password_counts", "user_id", "user_id = ?", null, null),
+            new UserScopedTable("vault_entry_usage", "user_id", "user_id = ?", null, null));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+
+    public ShardRebalancer(DataSource dataSource, PlatformTransactionManager transactionManager,
+            ShardRouter shardRouter) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Moves users laid out for {@code previousShardCount} shards to the current
+     * (larger) layout.
+     *
+     * @return number of users moved
+     */
+    public int rebalance(int previousShardCount) {
+        int currentShardCount = shardRouter.getShardCount();
+        if (previousShardCount < 1 || previousShardCount > currentShardCount) {
+            throw new IllegalArgumentException("Rebalancing only supports growing from " + previousShardCount
+                    + " to " + currentShardCount + " shards");
+        }
+
+        int moved = 0;
+        for (int source = 0; source < previousShardCount; source++) {
+            for (Long userId : usersOnShard(source)) {
+                int target = ShardRouter.shardFor(userId, currentShardCount);
+                if (target != source) {
+                    moveUser(userId, source, target);
+                    moved++;
+                }
+            }
+        }
+        log.info("Shard rebalance from {} to {} shards moved {} users", previousShardCount, currentShardCount, moved);
+        return moved;
+    }
+
+    void moveUser(Long userId, int source, int target) {
+        Map<UserScopedTable, List<Map<String, Object>>> rows = DataSourceRoutingContext.callOnShard(source,
+                () -> transactionTemplate.execute(status -> readUser(userId)));
+
+        DataSourceRoutingContext.runOnShard(target, () -> transactionTemplate.executeWithoutResult(status -> {
+            deleteUser(userId);
+            rows.forEach((table, tableRows) -> insertRows(table, tableRows));
+        }));
+
+        DataSourceRoutingContext.runOnShard(source,
+                () -> transactionTemplate.executeWithoutResult(status -> deleteUser(userId)));
+        log.debug("Moved user {} from shard {} to shard {}", userId, source, target);
+    }
+
+    private Set<Long> usersOnShard(int shard) {
+        String sql = USER_SCOPED_TABLES.stream()
+                .filter(table -> table.userIdColumn() != null)
+                .map(table -> "SELECT DISTINCT " + table.userIdColumn() + " FROM " + table.name())
+                .collect(Collectors.joining(" UNION "));
+        return DataSourceRoutingContext.callOnShard(shard,
+                () -> new TreeSet<>(jdbcTemplate.queryForList(sql, Long.class)));
+    }
+
+    private Map<UserScopedTable, List<Map<String, Object>>> readUser(Long userId) {
+        Map<UserScopedTable, List<Map<String, Object>>> rows = new LinkedHashMap<>();
+        for (UserScopedTable table : USER_SCOPED_TABLES) {
+            SqlRowSet rowSet = jdbcTemplate.queryForRowSet(
+                    "SELECT * FROM " + table.name() + " WHERE " + table.userFilter(), userId);
+            SqlRowSetMetaData metaData = rowSet.getMetaData();
+            List<Map<String, Object>> tableRows = new ArrayList<>();
+            while (rowSet.next()) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                    row.put(metaData.getColumnName(column), rowSet.getObject(column));
+                }
+                tableRows.add(row);
+            }
+            rows.put(table, tableRows);
+        }
+        return rows;
+    }
+
+    private void insertRows(UserScopedTable table, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        String sql = "INSERT INTO " + table.name() + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        jdbcTemplate.batchUpdate(sql, rows.stream()
+                .map(row -> columns.stream().map(row::get).toArray())
+                .collect(Collectors.toList()));
+    }
+
+    private void deleteUser(Long userId) {
+        List<UserScopedTable> reversed = new ArrayList<>(USER_SCOPED_TABLES);
+        Collections.reverse(reversed);
+        for (UserScopedTable table : reversed) {
+            jdbcTemplate.update("DELETE FROM " + table.name() + " WHERE " + table.userFilter(), userId);
+        }
+    }
+
+    /**
+     * A table whose rows belong to exactly one user.
+     *
+     * @param userIdColumn column holding the owner id, or null when ownership is
+     *                     derived through a parent table
+     * @param userFilter   WHERE clause selecting one user's rows, with a single
+     *                     user id parameter
+     * @param identityColumn generated id column, restarted in each shard's id
+     *                     range so moved rows keep their ids; null if none
+     * @param idSequence   sequence generating the ids, restarted the same way;
+     *                     null if none
+     */
+    record UserScopedTable(String name, String userIdColumn, String userFilter, String identityColumn,
+            String idSequence) {
+    }
+}
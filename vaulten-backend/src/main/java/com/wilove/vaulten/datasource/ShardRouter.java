@@ -0,0 +1,58 @@
+package com.wilove.vaulten.datasource;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps users to shards by hashing the user id. Every per-user table lives on
+ * the user's shard, so a single-user operation only ever touches one database.
+ */
+@Component
+public class ShardRouter {
+
+    /**
+     * Each shard allocates ids from its own range so rows keep their ids when a
+     * user is moved to another shard.
+     */
+    private static final int SHARD_ID_BITS = 48;
+
+    private final int shardCount;
+
+    public ShardRouter(ShardingProperties shardingProperties) {
+        this.shardCount = 1 + shardingProperties.getShards().size();
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int shardFor(Long userId) {
+        return shardFor(userId, shardCount);
+    }
+
+    /**
+     * Murmur3 finalizer so that sequential ids spread evenly across shards.
+     */
+    public static int shardFor(Long userId, int shardCount) {
+        long hash = userId;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) shardCount);
+    }
+
+    public static long idRangeStart(int shard) {
+        return ((long) shard << SHARD_ID_BITS) + 1;
+    }
+
+    /**
+     * Runs the action once per shard with that shard bound, for background jobs
+     * that work across all users.
+     */
+    public void forEachShard(Runnable action) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            DataSourceRoutingContext.runOnShard(shard, action);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.wilove.vaulten.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Picks the shard for the current connection: an explicitly bound shard wins,
+ * otherwise the shard of the current user, otherwise shard 0 (users table,
+ * startup and anonymous traffic).
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ShardRouter shardRouter;
+
+    public ShardRoutingDataSource(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer boundShard = DataSourceRoutingContext.boundShard();
+        if (boundShard != null) {
+            return boundShard;
+        }
+        Long userId = DataSourceRoutingContext.currentUserId();
+        return userId == null ? 0 : shardRouter.shardFor(userId);
+    }
+}
@@ -0,0 +1,66 @@
+package com.wilove.vaulten.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Set;
+
+/**
+ * Hibernate only runs its schema action (spring.jpa.hibernate.ddl-auto) against
+ * the connection it gets at startup, which is shard 0. This integrator repeats
+ * the same action on every other shard and, for freshly created schemas, moves
+ * each shard's id sequences into its own range. Sequences are read
+ * with {@link ShardAwareSequenceGenerator}, whose first id is the restart value.
+ */
+@Slf4j
+public class ShardSchemaIntegrator implements Integrator {
+
+    private static final Set<String> CREATE_ACTIONS = Set.of("create", "create-drop", "create-only");
+
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+
+    public ShardSchemaIntegrator(ShardRouter shardRouter, DataSource dataSource) {
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+            SessionFactoryImplementor sessionFactory) {
+        Object action = sessionFactory.getProperties().get(AvailableSettings.HBM2DDL_AUTO);
+        for (int shard = 1; shard < shardRouter.getShardCount(); shard++) {
+            int currentShard = shard;
+            DataSourceRoutingContext.runOnShard(shard, () -> {
+                SchemaManagementToolCoordinator.process(metadata, sessionFactory.getServiceRegistry(),
+                        sessionFactory.getProperties(), dropAction -> {
+                        });
+                if (action != null && CREATE_ACTIONS.contains(action.toString())) {
+                    long rangeStart = ShardRouter.idRangeStart(currentShard);
+                    for (ShardRebalancer.UserScopedTable table : ShardRebalancer.USER_SCOPED_TABLES) {
+                        if (table.identityColumn() != null) {
+                            jdbcTemplate.execute("ALTER TABLE " + table.name() + " ALTER COLUMN "
+                                    + table.identityColumn() + " RESTART WITH " + rangeStart);
+                        }
+                        if (table.idSequence() != null) {
+                            jdbcTemplate.execute("ALTER SEQUENCE " + table.idSequence() + " RESTART WITH " + rangeStart);
+                        }
+                    }
+                }
+            });
+            log.debug("Applied schema action '{}' to shard {}", action, shard);
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.wilove.vaulten.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shard layout. Shard 0 is always the primary spring.datasource (it also holds
+ * the users table); {@code vault.sharding.shards[i]} configures shard i + 1.
+ */
+@Data
+@ConfigurationProperties(prefix = "vault.sharding")
+public class ShardingProperties {
+
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * When set, the application moves vault data laid out for this many shards to
+     * the current layout and exits (see ShardRebalancer).
+     */
+    private Integer rebalanceFrom;
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+        private String replicaUrl;
+    }
+}
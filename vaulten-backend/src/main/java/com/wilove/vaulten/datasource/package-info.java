@@ -0,0 +1,4 @@
+package com.wilove.vaulten.datasource;
+
+// DataSource routing (read replicas, user-hash shards) lives here
+// This package contains data source infrastructure below the repositories
@@ -0,0 +1,32 @@
+package com.wilove.vaulten.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One create, update or delete within a batch request
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOperation {
+
+    public enum Type {
+        CREATE, UPDATE, DELETE
+    }
+
+    @NotNull(message = "Operation type is required")
+    private Type type;
+
+    private Long id; // Required for UPDATE and DELETE
+
+    private Long expectedVersion; // Optional, like If-Match on the single-entry endpoints
+
+    @Valid
+    private VaultEntryRequest entry; // Required for CREATE and UPDATE
+}
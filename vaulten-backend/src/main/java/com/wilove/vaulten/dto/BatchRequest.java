@@ -0,0 +1,29 @@
+package com.wilove.vaulten.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for applying several vault mutations in one transaction
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRequest {
+
+    @NotEmpty(message = "At least one operation is required")
+    @Size(max = 100, message = "At most 100 operations per batch")
+    private List<@Valid BatchOperation> operations;
+
+    // true: nothing is applied unless every operation succeeds; false: the valid ones are applied
+    @Builder.Default
+    private boolean atomic = true;
+}
@@ -0,0 +1,15 @@
+package com.wilove.vaulten.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class BatchResponse {
+    private boolean applied; // Whether any operation was committed
+    private List<BatchResult> results; // One per operation, in request order
+}
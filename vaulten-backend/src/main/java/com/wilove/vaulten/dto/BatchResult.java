@@ -0,0 +1,18 @@
+package com.wilove.vaulten.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.wilove.vaulten.model.VaultEntry;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult {
+    private int index; // Position of the operation in the request
+    private int status; // HTTP status the single-entry endpoint would have answered; 424 when not applied
+    private Long id;
+    private VaultEntry entry; // Created or updated entry
+    private VaultEntry current; // Current server copy on 409
+    private String message;
+}
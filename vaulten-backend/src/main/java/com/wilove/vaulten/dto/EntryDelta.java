@@ -0,0 +1,33 @@
+package com.wilove.vaulten.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.wilove.vaulten.model.VaultEntryType;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The fields of an entry that changed after the client's cursor, decrypted.
+ * Unchanged fields are left out; a field listed in changedFields but absent
+ * was cleared.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EntryDelta {
+    private Long id;
+    private Long revision;
+    private Long version;
+    private Integer bucket;
+    private List<String> changedFields;
+    private String name;
+    private String username;
+    private String password;
+    private String url;
+    private String notes;
+    private VaultEntryType type;
+    private String category;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,16 @@
+package com.wilove.vaulten.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class EntryHistoryResponse {
+    private Long entryId;
+    private List<EntryVersion> versions; // Newest first
+    private int page;
+    private int size;
+    private long totalVersions;
+}
@@ -0,0 +1,24 @@
+package com.wilove.vaulten.dto;
+
+import com.wilove.vaulten.model.VaultEntryType;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * A previous version of a vault entry, decrypted.
+ */
+@Data
+@Builder
+public class EntryVersion {
+    private Long revisionId;
+    private LocalDateTime replacedAt;
+    private String name;
+    private String username;
+    private String password;
+    private String url;
+    private String notes;
+    private VaultEntryType type;
+    private String category;
+}
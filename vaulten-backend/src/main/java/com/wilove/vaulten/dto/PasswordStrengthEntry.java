@@ -0,0 +1,19 @@
+package com.wilove.vaulten.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * An entry with the strength of its password, which itself is not returned.
+ */
+@Data
+@Builder
+public class PasswordStrengthEntry {
+    private Long id;
+    private String name;
+    private String username;
+    private String url;
+    private int score; // 0 (weakest) to 4
+    private double crackSeconds; // Estimated offline crack time
+    private String crackTime; // crackSeconds in words, e.g. "3 hours"
+}
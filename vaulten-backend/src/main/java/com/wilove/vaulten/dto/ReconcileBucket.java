@@ -0,0 +1,16 @@
+package com.wilove.vaulten.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ReconcileBucket {
+    private int bucket;
+    private String hash; // Server's bucket hash
+    // Every entry of the server's bucket: fetch those missing or at another revision
+    // through GET /vault/batch, and drop cached entries not listed
+    private List<ReconcileEntry> entries;
+}
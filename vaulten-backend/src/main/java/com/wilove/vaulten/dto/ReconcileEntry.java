@@ -0,0 +1,20 @@
+package com.wilove.vaulten.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An entry of a differing hash tree bucket, by id and revision only; the
+ * client fetches those it lacks or holds at another revision.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconcileEntry {
+    private Long id;
+    private Long revision;
+    @JsonIgnore
+    private Integer bucket; // Implied by the enclosing ReconcileBucket
+}
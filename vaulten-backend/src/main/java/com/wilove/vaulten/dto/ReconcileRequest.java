@@ -0,0 +1,17 @@
+package com.wilove.vaulten.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconcileRequest {
+    private String root; // Client's root hash (16 hex digits); when it matches, buckets are not compared
+    private Map<Integer, String> buckets; // Bucket number -> client's bucket hash; omitted buckets are empty
+}
@@ -0,0 +1,15 @@
+package com.wilove.vaulten.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ReconcileResponse {
+    private String root; // Server's root hash
+    private boolean inSync;
+    private List<ReconcileBucket> buckets; // Only the buckets whose hash differs
+    private Long cursor; // Revision high-water mark to resume incremental sync from
+}
@@ -0,0 +1,29 @@
+package com.wilove.vaulten.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Entries sharing one password, shaped as a client SecurityAlert (id,
+ * message, severity, timestamp) with the affected entries attached.
+ */
+@Data
+@Builder
+public class ReuseGroup {
+    private String id; // Stable while the entries keep sharing the same password
+    private String message;
+    private String severity; // WARNING, or CRITICAL when more than two entries share the password
+    private long timestamp; // Epoch millis of the latest change among the entries
+    private List<Entry> entries;
+
+    @Data
+    @Builder
+    public static class Entry {
+        private Long id;
+        private String name;
+        private String username;
+        private String url;
+    }
+}
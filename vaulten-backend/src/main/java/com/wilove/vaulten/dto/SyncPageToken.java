@@ -0,0 +1,39 @@
+package com.wilove.vaulten.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position within a paged sync: the last revision already sent and the
+ * high-water mark the whole paging run is bounded by, plus the cursor the run
+ * started from (field deltas are relative to it). Handed to clients as an
+ * opaque string.
+ */
+public record SyncPageToken(long afterRevision, long highWater, boolean fullResync, long baseRevision) {
+
+    private static final String VERSION = "2";
+
+    public String encode() {
+        String raw = VERSION + ":" + afterRevision + ":" + highWater + ":" + (fullResync ? 1 : 0) + ":" + baseRevision;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @throws IllegalArgumentException when the token was not issued by {@link #encode()}
+     */
+    public static SyncPageToken decode(String token) {
+        String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII).split(":");
+        // Version 1 tokens had no base revision; deltas from them carry every field
+        boolean versionOne = parts.length == 4 && parts[0].equals("1");
+        if (!versionOne && (parts.length != 5 || !parts[0].equals(VERSION))) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        long afterRevision = Long.parseLong(parts[1]);
+        long highWater = Long.parseLong(parts[2]);
+        long baseRevision = versionOne ? 0 : Long.parseLong(parts[4]);
+        if (afterRevision < 0 || afterRevision > highWater || baseRevision < 0 || baseRevision > afterRevision) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        return new SyncPageToken(afterRevision, highWater, parts[3].equals("1"), baseRevision);
+    }
+}
@@ -11,5 +11,10 @@ import java.util.List;
 @Builder
 public class SyncResponse {
     private List<VaultEntry> updatedEntries;
+    private List<EntryDelta> changedEntries; // With ?delta=true on an incremental sync, instead of updatedEntries
+    private List<Long> deletedIds;
+    private boolean fullResync; // updatedEntries is the whole vault; drop anything not in it
+    private Long cursor; // Revision high-water mark; send back as ?cursor= on the next sync (last page only)
+    private String nextPageToken; // Set while a paged sync has more pages; send back as ?pageToken=
     private LocalDateTime serverTime;
 }
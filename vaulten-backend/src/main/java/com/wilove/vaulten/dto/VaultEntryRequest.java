@@ -1,5 +1,6 @@
 package com.wilove.vaulten.dto;
 
+import com.wilove.vaulten.model.VaultEntry;
 import com.wilove.vaulten.model.VaultEntryType;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -32,4 +33,16 @@ public class VaultEntryRequest {
     private VaultEntryType type;
 
     private String category;
+
+    public VaultEntry toEntry() {
+        return VaultEntry.builder()
+                .name(name)
+                .username(username)
+                .password(password)
+                .url(url)
+                .notes(notes)
+                .type(type)
+                .category(category)
+                .build();
+    }
 }
@@ -0,0 +1,22 @@
+package com.wilove.vaulten.dto;
+
+import com.wilove.vaulten.model.VaultEntryType;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+@Builder
+public class VaultStatsResponse {
+    private long total;
+    private Map<VaultEntryType, Long> byType; // Every type, including those with no entries
+    private Map<String, Long> byCategory; // Categories in use, by name
+    private long uncategorized;
+    private long stale; // Entries whose password was last changed before staleBefore
+    private LocalDate staleBefore; // First day of the month the stale cutoff falls in
+    private long weak;
+    private long reused; // Entries whose password is also used by another entry
+    private long breached; // Entries whose password is in the breached password corpus
+}
@@ -0,0 +1,14 @@
+package com.wilove.vaulten.event;
+
+/**
+ * Published by VaultService for every entry write. Listeners that need the
+ * change to be durable use {@code @TransactionalEventListener(phase = AFTER_COMMIT)}.
+ */
+public record VaultChangeEvent(Long userId, Long entryId, Kind kind, long revision) {
+
+    public enum Kind {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
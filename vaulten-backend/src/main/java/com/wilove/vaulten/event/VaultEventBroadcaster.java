@@ -0,0 +1,315 @@
+package com.wilove.vaulten.event;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans committed vault changes out to the user's open {@code /vault/events}
+ * streams.
+ *
+ * Each subscription has a bounded queue drained by a small sender pool, so a
+ * commit never waits on a client socket. A client that lets its queue fill up,
+ * or whose socket blocks a send for longer than {@code vault.events.send-timeout},
+ * is disconnected; it reconnects and catches up with {@code /vault/sync}.
+ * A send blocked on the socket cannot be interrupted and only ends with the
+ * container's write timeout, so the pool gets a thread in place of each such
+ * send until then, and the other streams keep flowing. Only changes committed
+ * on this instance are broadcast.
+ */
+@Slf4j
+@Component
+public class VaultEventBroadcaster {
+
+    private final Map<Long, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriptionCount = new AtomicInteger();
+    private final Executor sender;
+    private final int maxSubscriptions;
+    private final int maxSubscriptionsPerUser;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+
+    @Autowired
+    public VaultEventBroadcaster(
+            @Value("${vault.events.max-subscriptions:10000}") int maxSubscriptions,
+            @Value("${vault.events.max-subscriptions-per-user:5}") int maxSubscriptionsPerUser,
+            @Value("${vault.events.queue-capacity:64}") int queueCapacity,
+            @Value("${vault.events.timeout:PT30M}") Duration timeout,
+            @Value("${vault.events.sender-threads:4}") int senderThreads,
+            @Value("${vault.events.send-timeout:PT10S}") Duration sendTimeout) {
+        this(maxSubscriptions, maxSubscriptionsPerUser, queueCapacity, timeout, sendTimeout,
+                new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(), runnable -> {
+                            Thread thread = new Thread(runnable, "vault-events-sender");
+                            thread.setDaemon(true);
+                            return thread;
+                        }));
+    }
+
+    VaultEventBroadcaster(int maxSubscriptions, int maxSubscriptionsPerUser, int queueCapacity, Duration timeout,
+            Duration sendTimeout, Executor sender) {
+        this.maxSubscriptions = maxSubscriptions;
+        this.maxSubscriptionsPerUser = maxSubscriptionsPerUser;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeout.toMillis();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.sender = sender;
+    }
+
+    /**
+     * Opens a stream for the user. The first event ("ready") carries the
+     * current revision so the client can sync anything it missed while
+     * disconnected. When the user already has the maximum number of streams,
+     * the oldest one is closed.
+     *
+     * @return the emitter, or null when the server is at capacity
+     */
+    public SseEmitter subscribe(Long userId, long currentRevision) {
+        if (subscriptionCount.incrementAndGet() > maxSubscriptions) {
+            subscriptionCount.decrementAndGet();
+            return null;
+        }
+
+        Subscription subscription = new Subscription(userId, createEmitter(timeoutMillis));
+        List<Subscription> userSubscriptions = List.copyOf(subscriptions.compute(userId, (id, existing) -> {
+            List<Subscription> list = existing != null ? existing : new CopyOnWriteArrayList<>();
+            list.add(subscription);
+            return list;
+        }));
+        for (int i = 0; i < userSubscriptions.size() - maxSubscriptionsPerUser; i++) {
+            userSubscriptions.get(i).close();
+        }
+
+        SseEmitter emitter = subscription.emitter;
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+        subscription.enqueue(SseEmitter.event()
+                .name("ready")
+                .data(Map.of("revision", currentRevision), MediaType.APPLICATION_JSON));
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onVaultChange(VaultChangeEvent event) {
+        List<Subscription> userSubscriptions = subscriptions.get(event.userId());
+        if (userSubscriptions == null) {
+            return;
+        }
+        for (Subscription subscription : userSubscriptions) {
+            subscription.enqueue(SseEmitter.event()
+                    .id(Long.toString(event.revision()))
+                    .name("change")
+                    .data(Map.of(
+                            "entryId", event.entryId(),
+                            "kind", event.kind(),
+                            "revision", event.revision()), MediaType.APPLICATION_JSON));
+        }
+    }
+
+    /**
+     * Keeps idle streams open through proxies and detects dead clients.
+     */
+    @Scheduled(fixedRateString = "${vault.events.heartbeat-interval:PT20S}",
+            initialDelayString = "${vault.events.heartbeat-interval:PT20S}")
+    public void sendHeartbeats() {
+        subscriptions.values().forEach(userSubscriptions -> userSubscriptions
+                .forEach(subscription -> subscription.enqueue(SseEmitter.event().comment("heartbeat"))));
+    }
+
+    /**
+     * Disconnects clients whose socket has blocked a send for longer than the
+     * send timeout, and gives the sender pool a thread in place of each.
+     */
+    @Scheduled(fixedDelayString = "${vault.events.send-timeout:PT10S}",
+            initialDelayString = "${vault.events.send-timeout:PT10S}")
+    public void evictStalledSenders() {
+        long now = System.nanoTime();
+        subscriptions.values().forEach(userSubscriptions -> userSubscriptions.forEach(subscription -> {
+            if (subscription.evictIfSendingSince(now - sendTimeoutNanos)) {
+                log.debug("Disconnecting stalled event consumer for user {}", subscription.userId);
+                resizeSender(1);
+            }
+        }));
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptionCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.values().forEach(userSubscriptions -> userSubscriptions.forEach(Subscription::close));
+        if (sender instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    /**
+     * Grows or shrinks the sender pool by {@code delta} threads; other
+     * executors, as used in tests, are left alone.
+     */
+    private synchronized void resizeSender(int delta) {
+        if (sender instanceof ThreadPoolExecutor pool) {
+            if (delta > 0) {
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+            } else {
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+            }
+        }
+    }
+
+    private final class Subscription {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        // Guarded by this: whether a send is in flight, since when, and whether it was evicted for it
+        private boolean sending;
+        private long sendingSince;
+        private boolean evicted;
+
+        private Subscription(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                log.debug("Disconnecting slow event consumer for user {}", userId);
+                close();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                SseEmitter.SseEventBuilder event;
+                while ((event = queue.poll()) != null) {
+                    synchronized (this) {
+                        if (closed.get()) {
+                            break;
+                        }
+                        sending = true;
+                        sendingSince = System.nanoTime();
+                    }
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        close();
+                    } finally {
+                        sent();
+                    }
+                }
+                draining.set(false);
+            } while (!closed.get() && !queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        /**
+         * Ends a send: completes the emitter if it was closed meanwhile, and
+         * gives back the thread the pool got in place of this one if the send
+         * was evicted.
+         */
+        private void sent() {
+            boolean wasEvicted;
+            synchronized (this) {
+                sending = false;
+                wasEvicted = evicted;
+                evicted = false;
+            }
+            if (closed.get()) {
+                complete();
+            }
+            if (wasEvicted) {
+                resizeSender(-1);
+            }
+        }
+
+        /**
+         * Closes the subscription if a send has been in flight since before
+         * {@code deadline}.
+         *
+         * @return whether it was evicted
+         */
+        boolean evictIfSendingSince(long deadline) {
+            synchronized (this) {
+                if (!sending || evicted || sendingSince - deadline > 0) {
+                    return false;
+                }
+                evicted = true;
+            }
+            close();
+            return true;
+        }
+
+        /**
+         * Unregisters and completes the emitter. Completion may have to wait
+         * for a send blocked on the socket, so when one is in flight it is
+         * left to the sending thread once the send ends, and the caller never
+         * blocks.
+         */
+        void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            subscriptionCount.decrementAndGet();
+            subscriptions.computeIfPresent(userId, (id, userSubscriptions) -> {
+                userSubscriptions.remove(this);
+                return userSubscriptions.isEmpty() ? null : userSubscriptions;
+            });
+            queue.clear();
+            boolean idle;
+            synchronized (this) {
+                idle = !sending;
+            }
+            if (idle) {
+                complete();
+            }
+        }
+
+        private void complete() {
+            if (completed.compareAndSet(false, true)) {
+                emitter.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.wilove.vaulten.event;
+
+// Vault change events and their server-sent event fan-out
+// This package contains the events published after VaultService commits
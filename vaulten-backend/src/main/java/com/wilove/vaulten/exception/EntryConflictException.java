@@ -0,0 +1,24 @@
+package com.wilove.vaulten.exception;
+
+import com.wilove.vaulten.model.VaultEntry;
+
+/**
+ * Exception thrown when a write's If-Match version no longer matches the
+ * entry. Carries the current (decrypted) server copy for the client to merge.
+ */
+public class EntryConflictException extends RuntimeException {
+
+    private final transient VaultEntry current;
+
+    public EntryConflictException(VaultEntry current) {
+        this.current = current;
+    }
+
+    public VaultEntry getCurrent() {
+        return current;
+    }
+
+    public String getMessage() {
+        return "The entry was modified by another device";
+    }
+}
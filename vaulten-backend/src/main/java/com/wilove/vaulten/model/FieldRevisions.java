@@ -0,0 +1,79 @@
+package com.wilove.vaulten.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Objects;
+
+/**
+ * Revision at which each user-visible field of an entry last changed, so that
+ * delta sync can send (and decrypt) only the fields changed after a cursor.
+ * A null revision means unknown and is treated as changed.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class FieldRevisions {
+
+    @Column(name = "name_revision")
+    private Long name;
+
+    @Column(name = "username_revision")
+    private Long username;
+
+    @Column(name = "password_revision")
+    private Long password;
+
+    @Column(name = "url_revision")
+    private Long url;
+
+    @Column(name = "notes_revision")
+    private Long notes;
+
+    @Column(name = "type_revision")
+    private Long type;
+
+    @Column(name = "category_revision")
+    private Long category;
+
+    public static FieldRevisions allAt(long revision) {
+        return new FieldRevisions(revision, revision, revision, revision, revision, revision, revision);
+    }
+
+    /**
+     * Stamps the fields whose values differ between the two (decrypted) versions.
+     */
+    public void recordChanges(VaultEntry current, VaultEntry updated, long revision) {
+        if (!Objects.equals(current.getName(), updated.getName())) {
+            name = revision;
+        }
+        if (!Objects.equals(current.getUsername(), updated.getUsername())) {
+            username = revision;
+        }
+        if (!Objects.equals(current.getPassword(), updated.getPassword())) {
+            password = revision;
+        }
+        if (!Objects.equals(current.getUrl(), updated.getUrl())) {
+            url = revision;
+        }
+        if (!Objects.equals(current.getNotes(), updated.getNotes())) {
+            notes = revision;
+        }
+        if (!Objects.equals(current.getType(), updated.getType())) {
+            type = revision;
+        }
+        if (!Objects.equals(current.getCategory(), updated.getCategory())) {
+            category = revision;
+        }
+    }
+
+    public static boolean changedAfter(Long fieldRevision, long cursor) {
+        return fieldRevision == null || fieldRevision > cursor;
+    }
+}
@@ -1,25 +1,39 @@
 package com.wilove.vaulten.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.wilove.vaulten.datasource.ShardAwareSequenceGenerator;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
-import org.hibernate.annotations.CreationTimestamp;
-import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "vault_entries")
+@Table(name = "vault_entries", indexes = {
+        @Index(name = "idx_vault_entries_user", columnList = "user_id"),
+        @Index(name = "idx_vault_entries_user_revision", columnList = "user_id, revision"),
+        @Index(name = "idx_vault_entries_user_bucket", columnList = "user_id, bucket, revision"),
+        @Index(name = "idx_vault_entries_user_domain", columnList = "user_id, domain"),
+        @Index(name = "idx_vault_entries_user_fingerprint", columnList = "user_id, password_fingerprint"),
+        @Index(name = "idx_vault_entries_user_score", columnList = "user_id, password_score, password_crack_seconds")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class VaultEntry {
 
+    // Pooled sequence rather than IDENTITY so Hibernate can batch inserts (bulk import)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "vault_entries_seq")
+    @GenericGenerator(name = "vault_entries_seq", type = ShardAwareSequenceGenerator.class, parameters = {
+            @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "vault_entries_seq"),
+            @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50")
+    })
     private Long id;
 
     @NotBlank(message = "Name is required")
@@ -30,10 +44,27 @@ public class VaultEntry {
 
     private String password; // Will be stored encrypted
 
+    @JsonIgnore
+    @Column(length = 32)
+    private String passwordFingerprint; // Keyed HMAC of the password, so reuse is found without decrypting
+
+    // Strength estimate, set in the background after each password change; null until then
+    @JsonIgnore
+    private Integer passwordScore; // 0 (weakest) to 4
+
+    @JsonIgnore
+    private Double passwordCrackSeconds; // Estimated offline crack time
+
+    @JsonIgnore
+    private Integer passwordScoreVersion; // Estimator version that scored the password
+
     private String url;
 
-    @Column(columnDefinition = "TEXT")
-    private String notes; // Will be stored encrypted
+    @JsonIgnore
+    private String domain; // Registrable domain of url, derived on write for autofill matching
+
+    @Transient
+    private String notes; // Stored encrypted in vault_entry_payloads, loaded on demand
 
     @NotNull(message = "Entry type is required")
     @Enumerated(EnumType.STRING)
@@ -42,15 +73,45 @@ public class VaultEntry {
 
     private String category;
 
+    @JsonIgnore
+    private LocalDateTime passwordChangedAt; // Set when the password is first stored or changed, for stale counts
+
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "user_id", nullable = false)
+    // No FK constraint: with sharding, users live on shard 0 and entries on the user's shard
+    @JoinColumn(name = "user_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     @JsonIgnore
     private User user;
 
-    @CreationTimestamp
+    // Read-only view of user_id so per-user queries filter on the column without joining users
+    @Column(name = "user_id", insertable = false, updatable = false)
+    @JsonIgnore
+    private Long userId;
+
+    private Long revision; // User's revision counter value at the last change
+
+    private Integer bucket; // Hash tree bucket, fixed at creation (creation revision mod 256)
+
+    @Embedded
+    @JsonIgnore
+    private FieldRevisions fieldRevisions; // Per-field revisions for delta sync
+
+    @Version
+    private Long version; // Exposed as the entry's ETag; writes may require it with If-Match
+
     @Column(updatable = false)
     private LocalDateTime createdAt;
 
-    @UpdateTimestamp
     private LocalDateTime updatedAt;
+
+    // Set on persist rather than at insert: with sequence ids the insert waits for the flush
+    @PrePersist
+    void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
 }
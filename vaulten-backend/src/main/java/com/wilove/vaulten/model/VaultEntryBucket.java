@@ -0,0 +1,41 @@
+package com.wilove.vaulten.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Leaf of a user's vault hash tree: the XOR of the hashes of (id, revision)
+ * of every entry in the bucket. Updated in place on each entry write.
+ */
+@Entity
+@Table(name = "vault_entry_buckets")
+@IdClass(VaultEntryBucket.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VaultEntryBucket {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    private int bucket;
+
+    @Column(nullable = false)
+    private long hash;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private int bucket;
+    }
+}
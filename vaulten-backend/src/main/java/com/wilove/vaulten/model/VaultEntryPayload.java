@@ -0,0 +1,27 @@
+package com.wilove.vaulten.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Large per-entry data kept out of the vault_entries row so that list and sync
+ * scans only read the small, frequently accessed columns.
+ */
+@Entity
+@Table(name = "vault_entry_payloads")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VaultEntryPayload {
+
+    @Id
+    @Column(name = "entry_id")
+    private Long entryId;
+
+    @Column(columnDefinition = "TEXT")
+    private String notes; // Stored encrypted
+}
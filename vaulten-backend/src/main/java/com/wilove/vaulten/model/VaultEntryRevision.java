@@ -0,0 +1,44 @@
+package com.wilove.vaulten.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A superseded version of a vault entry, stored as a reverse delta: only the
+ * fields that differed from the next newer version, with their old values.
+ * Walking the deltas back from the current entry rebuilds any older version.
+ */
+@Entity
+@Table(name = "vault_entry_revisions", indexes = {
+        @Index(name = "idx_vault_entry_revisions_entry", columnList = "entry_id, id"),
+        @Index(name = "idx_vault_entry_revisions_created", columnList = "createdAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VaultEntryRevision {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "entry_id", nullable = false)
+    private Long entryId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String delta; // Encrypted JSON map of field name to previous value
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt; // When this version was replaced
+}
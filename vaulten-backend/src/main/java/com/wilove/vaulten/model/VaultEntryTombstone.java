@@ -0,0 +1,38 @@
+package com.wilove.vaulten.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marker left behind when an entry is deleted so incremental sync can tell
+ * clients to drop it. Purged after the tombstone retention window.
+ */
+@Entity
+@Table(name = "vault_entry_tombstones", indexes = {
+        @Index(name = "idx_vault_entry_tombstones_user", columnList = "user_id, deletedAt"),
+        @Index(name = "idx_vault_entry_tombstones_user_revision", columnList = "user_id, revision"),
+        @Index(name = "idx_vault_entry_tombstones_deleted", columnList = "deletedAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VaultEntryTombstone {
+
+    @Id
+    @Column(name = "entry_id")
+    private Long entryId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    private Long revision; // User's revision counter value for the delete
+
+    @Column(nullable = false)
+    private LocalDateTime deletedAt;
+}
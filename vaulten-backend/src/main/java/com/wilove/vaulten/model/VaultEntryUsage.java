@@ -0,0 +1,44 @@
+package com.wilove.vaulten.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * How often and how recently an entry has been used (revealed or filled).
+ * Kept apart from the entry so that counting uses neither rewrites the entry
+ * row nor changes its version.
+ *
+ * {@code frecency} is log2 of the sum of 2^(t / half-life) over the uses, t
+ * being the time of each use: every use counts, recent ones the most, and the
+ * value keeps its order as time passes, so it can be sorted on as stored.
+ */
+@Entity
+@Table(name = "vault_entry_usage", indexes = {
+        @Index(name = "idx_vault_entry_usage_user", columnList = "user_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VaultEntryUsage {
+
+    @Id
+    @Column(name = "entry_id")
+    private Long entryId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private long useCount;
+
+    private LocalDateTime lastUsedAt;
+
+    @Column(nullable = false)
+    private double frecency;
+}
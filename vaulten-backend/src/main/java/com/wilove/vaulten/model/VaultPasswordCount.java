@@ -0,0 +1,54 @@
+package com.wilove.vaulten.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Number of a user's entries sharing one password, identified by its keyed
+ * fingerprint. Kept alongside the statistics so that the reused count can be
+ * adjusted on a write without looking at the other entries. Also records
+ * whether the password appears in the breached password corpus, checked once
+ * per distinct password.
+ */
+@Entity
+@Table(name = "vault_password_counts")
+@IdClass(VaultPasswordCount.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VaultPasswordCount {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(length = 32)
+    private String fingerprint;
+
+    @Column(nullable = false)
+    private long count;
+
+    private Boolean breached; // Null until checked against the breached password corpus
+
+    private LocalDateTime breachCheckedAt;
+
+    public VaultPasswordCount(Long userId, String fingerprint, long count) {
+        this(userId, fingerprint, count, null, null);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private String fingerprint;
+    }
+}
@@ -0,0 +1,31 @@
+package com.wilove.vaulten.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per-user change counter. Every entry write or delete takes the next value,
+ * which becomes the sync cursor clients send back.
+ */
+@Entity
+@Table(name = "vault_revisions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VaultRevision {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private long revision;
+
+    // Highest tombstone revision purged; cursors below it may have missed deletes
+    @Column(nullable = false)
+    private long tombstonesPurgedThrough;
+}
@@ -0,0 +1,43 @@
+package com.wilove.vaulten.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * One of a user's vault statistics counters, e.g. {@code type:LOGIN},
+ * {@code category:Work} or {@code weak}. Adjusted in place on each entry
+ * write; counters that drop to zero are removed.
+ */
+@Entity
+@Table(name = "vault_stats")
+@IdClass(VaultStat.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VaultStat {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(length = 300)
+    private String name;
+
+    @Column(nullable = false)
+    private long count;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private String name;
+    }
+}
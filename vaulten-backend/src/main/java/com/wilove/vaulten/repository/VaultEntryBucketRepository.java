@@ -0,0 +1,16 @@
+package com.wilove.vaulten.repository;
+
+import com.wilove.vaulten.model.VaultEntryBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for VaultEntryBucket entity
+ */
+@Repository
+public interface VaultEntryBucketRepository extends JpaRepository<VaultEntryBucket, VaultEntryBucket.Key> {
+
+    List<VaultEntryBucket> findByUserId(Long userId);
+}
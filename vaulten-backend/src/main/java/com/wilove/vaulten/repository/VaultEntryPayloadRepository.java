@@ -0,0 +1,25 @@
+package com.wilove.vaulten.repository;
+
+import com.wilove.vaulten.model.VaultEntryPayload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for VaultEntryPayload entity
+ */
+@Repository
+public interface VaultEntryPayloadRepository extends JpaRepository<VaultEntryPayload, Long> {
+
+    /**
+     * Payloads as plain values rather than managed entities, so bulk reads
+     * skip dirty-check snapshots and do not grow the persistence context.
+     */
+    @Query("SELECT new com.wilove.vaulten.model.VaultEntryPayload(p.entryId, p.notes) "
+            + "FROM VaultEntryPayload p WHERE p.entryId IN :entryIds")
+    List<VaultEntryPayload> findValuesByEntryIdIn(@Param("entryIds") Collection<Long> entryIds);
+}
@@ -1,12 +1,22 @@
 package com.wilove.vaulten.repository;
 
+import com.wilove.vaulten.dto.ReconcileEntry;
 import com.wilove.vaulten.model.User;
 import com.wilove.vaulten.model.VaultEntry;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface VaultEntryRepository extends JpaRepository<VaultEntry, Long> {
@@ -18,5 +28,62 @@ public interface VaultEntryRepository extends JpaRepository<VaultEntry, Long> {
 
     List<VaultEntry> findByUserIdAndUpdatedAtAfter(Long userId, LocalDateTime since);
 
+    List<VaultEntry> findByUserIdAndRevisionGreaterThanAndRevisionLessThanEqual(Long userId, Long afterRevision,
+            Long throughRevision);
+
+    List<VaultEntry> findByUserIdAndRevisionGreaterThanAndRevisionLessThanEqualOrderByRevision(Long userId,
+            Long afterRevision, Long throughRevision, Limit limit);
+
     List<VaultEntry> findByUserIdAndUpdatedAtGreaterThanEqual(Long userId, LocalDateTime since);
+
+    List<VaultEntry> findByUserIdAndIdIn(Long userId, Collection<Long> ids);
+
+    /**
+     * Ids and revisions only, read from the (user_id, bucket, revision) index
+     * without touching the rows.
+     */
+    @Query("SELECT new com.wilove.vaulten.dto.ReconcileEntry(e.id, e.revision, e.bucket) "
+            + "FROM VaultEntry e WHERE e.userId = :userId AND e.bucket IN :buckets ORDER BY e.id")
+    List<ReconcileEntry> findRevisionsByUserIdAndBucketIn(@Param("userId") Long userId,
+            @Param("buckets") Collection<Integer> buckets);
+
+    List<VaultEntry> findByUserIdAndDomain(Long userId, String domain);
+
+    List<VaultEntry> findByUserIdAndPasswordFingerprintIn(Long userId, Collection<String> fingerprints);
+
+    /**
+     * Entries whose password fingerprint is shared with another of the user's
+     * entries; the grouping runs on the (user_id, password_fingerprint) index.
+     */
+    @Query("SELECT e FROM VaultEntry e WHERE e.userId = :userId AND e.passwordFingerprint IN ("
+            + "SELECT f.passwordFingerprint FROM VaultEntry f WHERE f.userId = :userId "
+            + "AND f.passwordFingerprint IS NOT NULL GROUP BY f.passwordFingerprint HAVING COUNT(f) > 1)")
+    List<VaultEntry> findReusedByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT e FROM VaultEntry e WHERE e.userId = :userId AND e.passwordScore <= :maxScore "
+            + "ORDER BY e.passwordScore, e.passwordCrackSeconds")
+    List<VaultEntry> findByUserIdAndPasswordScoreAtMost(@Param("userId") Long userId,
+            @Param("maxScore") int maxScore);
+
+    @Query("SELECT DISTINCT e.passwordFingerprint FROM VaultEntry e WHERE e.userId = :userId "
+            + "AND e.passwordFingerprint IS NOT NULL "
+            + "AND (e.passwordScoreVersion IS NULL OR e.passwordScoreVersion < :version)")
+    List<String> findUnscoredFingerprints(@Param("userId") Long userId, @Param("version") int version);
+
+    /**
+     * Bulk update, so the entries' version and updatedAt are left alone.
+     */
+    @Modifying
+    @Query("UPDATE VaultEntry e SET e.passwordScore = :score, e.passwordCrackSeconds = :crackSeconds, "
+            + "e.passwordScoreVersion = :version "
+            + "WHERE e.userId = :userId AND e.passwordFingerprint = :fingerprint")
+    int updatePasswordStrength(@Param("userId") Long userId, @Param("fingerprint") String fingerprint,
+            @Param("score") Integer score, @Param("crackSeconds") Double crackSeconds, @Param("version") int version);
+
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM VaultEntry e WHERE e.userId = :userId ORDER BY e.id")
+    Stream<VaultEntry> streamByUserId(@Param("userId") Long userId);
 }
@@ -0,0 +1,40 @@
+package com.wilove.vaulten.repository;
+
+import com.wilove.vaulten.model.VaultEntryRevision;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for VaultEntryRevision entity
+ */
+@Repository
+public interface VaultEntryRevisionRepository extends JpaRepository<VaultEntryRevision, Long> {
+
+    /**
+     * Newest first, the order in which deltas have to be applied.
+     */
+    List<VaultEntryRevision> findByEntryIdOrderByIdDesc(Long entryId, Pageable pageable);
+
+    long countByEntryId(Long entryId);
+
+    @Query("SELECT r.entryId FROM VaultEntryRevision r GROUP BY r.entryId HAVING COUNT(r) > :maxVersions")
+    List<Long> findEntryIdsWithMoreThan(long maxVersions);
+
+    @Modifying
+    @Query("DELETE FROM VaultEntryRevision r WHERE r.entryId = :entryId")
+    int deleteByEntryId(Long entryId);
+
+    @Modifying
+    @Query("DELETE FROM VaultEntryRevision r WHERE r.entryId = :entryId AND r.id < :oldestKeptId")
+    int deleteByEntryIdAndIdLessThan(Long entryId, Long oldestKeptId);
+
+    @Modifying
+    @Query("DELETE FROM VaultEntryRevision r WHERE r.createdAt < :cutoff")
+    int deleteByCreatedAtBefore(LocalDateTime cutoff);
+}
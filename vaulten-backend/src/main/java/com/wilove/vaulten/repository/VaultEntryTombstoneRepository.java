@@ -0,0 +1,32 @@
+package com.wilove.vaulten.repository;
+
+import com.wilove.vaulten.model.VaultEntryTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for VaultEntryTombstone entity
+ */
+@Repository
+public interface VaultEntryTombstoneRepository extends JpaRepository<VaultEntryTombstone, Long> {
+
+    @Query("SELECT t.entryId FROM VaultEntryTombstone t WHERE t.userId = :userId AND t.deletedAt >= :since")
+    List<Long> findEntryIdsDeletedSince(Long userId, LocalDateTime since);
+
+    @Query("SELECT t.entryId FROM VaultEntryTombstone t WHERE t.userId = :userId "
+            + "AND t.revision > :afterRevision AND t.revision <= :throughRevision")
+    List<Long> findEntryIdsDeletedBetween(Long userId, long afterRevision, long throughRevision);
+
+    List<VaultEntryTombstone> findByUserIdAndRevisionGreaterThanAndRevisionLessThanEqualOrderByRevision(Long userId,
+            Long afterRevision, Long throughRevision, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM VaultEntryTombstone t WHERE t.deletedAt < :cutoff")
+    int deleteByDeletedAtBefore(LocalDateTime cutoff);
+}
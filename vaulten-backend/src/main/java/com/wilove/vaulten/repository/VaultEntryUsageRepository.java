@@ -0,0 +1,26 @@
+package com.wilove.vaulten.repository;
+
+import com.wilove.vaulten.model.VaultEntryUsage;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for VaultEntryUsage entity
+ */
+@Repository
+public interface VaultEntryUsageRepository extends JpaRepository<VaultEntryUsage, Long> {
+
+    List<VaultEntryUsage> findByUserId(Long userId);
+
+    /**
+     * Locks the rows being added to, so that flushes from several instances
+     * do not overwrite each other's counts.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<VaultEntryUsage> findByEntryIdIn(Collection<Long> entryIds);
+}
@@ -0,0 +1,29 @@
+package com.wilove.vaulten.repository;
+
+import com.wilove.vaulten.model.VaultPasswordCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for VaultPasswordCount entity
+ */
+@Repository
+public interface VaultPasswordCountRepository extends JpaRepository<VaultPasswordCount, VaultPasswordCount.Key> {
+
+    List<VaultPasswordCount> findByUserId(Long userId);
+
+    List<VaultPasswordCount> findByUserIdAndFingerprintIn(Long userId, Collection<String> fingerprints);
+
+    /**
+     * The user's passwords never checked against the breached password
+     * corpus, or checked before {@code checkedBefore}.
+     */
+    @Query("SELECT c FROM VaultPasswordCount c WHERE c.userId = :userId "
+            + "AND (c.breachCheckedAt IS NULL OR c.breachCheckedAt < :checkedBefore)")
+    List<VaultPasswordCount> findUncheckedForBreach(Long userId, LocalDateTime checkedBefore);
+}
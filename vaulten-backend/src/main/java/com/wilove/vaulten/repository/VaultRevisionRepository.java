@@ -0,0 +1,54 @@
+package com.wilove.vaulten.repository;
+
+import com.wilove.vaulten.model.VaultRevision;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for VaultRevision entity
+ */
+@Repository
+public interface VaultRevisionRepository extends JpaRepository<VaultRevision, Long> {
+
+    /**
+     * Bumps the counter in place; the row stays locked until the transaction
+     * commits, so a user's revisions become visible in order.
+     */
+    @Modifying
+    @Query("UPDATE VaultRevision r SET r.revision = r.revision + 1 WHERE r.userId = :userId")
+    int increment(Long userId);
+
+    /**
+     * Moves the counter forward by {@code count}, locking the row like
+     * {@link #increment}; a count of 0 only takes the lock.
+     */
+    @Modifying
+    @Query("UPDATE VaultRevision r SET r.revision = r.revision + :count WHERE r.userId = :userId")
+    int incrementBy(Long userId, long count);
+
+    @Query("SELECT r.revision FROM VaultRevision r WHERE r.userId = :userId")
+    Optional<Long> findRevision(Long userId);
+
+    /**
+     * Ids of the users with a counter on this shard, i.e. everyone who has
+     * written an entry, in id order after {@code afterUserId}.
+     */
+    @Query("SELECT r.userId FROM VaultRevision r WHERE r.userId > :afterUserId ORDER BY r.userId")
+    List<Long> findUserIdsAfter(Long afterUserId, Limit limit);
+
+    @Query("SELECT r.tombstonesPurgedThrough FROM VaultRevision r WHERE r.userId = :userId")
+    Optional<Long> findTombstonesPurgedThrough(Long userId);
+
+    @Modifying
+    @Query("UPDATE VaultRevision r SET r.tombstonesPurgedThrough = "
+            + "(SELECT MAX(t.revision) FROM VaultEntryTombstone t WHERE t.userId = r.userId AND t.deletedAt < :cutoff) "
+            + "WHERE EXISTS (SELECT 1 FROM VaultEntryTombstone t WHERE t.userId = r.userId AND t.deletedAt < :cutoff)")
+    int markTombstonesPurgedBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,19 @@
+package com.wilove.vaulten.repository;
+
+import com.wilove.vaulten.model.VaultStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for VaultStat entity
+ */
+@Repository
+public interface VaultStatRepository extends JpaRepository<VaultStat, VaultStat.Key> {
+
+    List<VaultStat> findByUserId(Long userId);
+
+    List<VaultStat> findByUserIdAndNameIn(Long userId, Collection<String> names);
+}
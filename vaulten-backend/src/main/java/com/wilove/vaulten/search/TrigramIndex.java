@@ -0,0 +1,301 @@
+package com.wilove.vaulten.search;
+
+import com.wilove.vaulten.model.VaultEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Substring index over one user's entries: name, username, url and category.
+ *
+ * Each entry gets a document number, in insertion order, and every trigram
+ * (three consecutive characters of a lowercased field) maps to the sorted
+ * list of documents containing it. A query term of three characters or more
+ * narrows the candidates to the intersection of its trigrams' lists; every
+ * candidate is then checked for the actual substrings and scored. Shorter
+ * queries check all documents.
+ *
+ * Changing an entry retires its document and appends a new one; retired
+ * documents are dropped from the lists when they outnumber live ones.
+ * Not thread-safe.
+ */
+final class TrigramIndex {
+
+    private static final int NAME_WEIGHT = 8;
+    private static final int USERNAME_WEIGHT = 4;
+    private static final int URL_WEIGHT = 4;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int MIN_COMPACTION = 1024;
+
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private final Map<Long, Integer> documentsByEntry = new HashMap<>();
+    private final List<Document> documents = new ArrayList<>();
+    private int retired;
+    private long revision;
+
+    /**
+     * Revision of the user's vault the index reflects.
+     */
+    long revision() {
+        return revision;
+    }
+
+    void advanceTo(long revision) {
+        this.revision = revision;
+    }
+
+    int size() {
+        return documentsByEntry.size();
+    }
+
+    void put(VaultEntry entry) {
+        remove(entry.getId());
+        Document document = new Document(entry.getId(), lower(entry.getName()), lower(entry.getUsername()),
+                lower(entry.getUrl()), lower(entry.getCategory()));
+        int number = documents.size();
+        documents.add(document);
+        documentsByEntry.put(entry.getId(), number);
+        for (String field : document.fields()) {
+            for (int i = 0; i + 3 <= field.length(); i++) {
+                IntList list = postings.computeIfAbsent(trigram(field, i), key -> new IntList());
+                if (list.isEmpty() || list.last() != number) {
+                    list.add(number);
+                }
+            }
+        }
+    }
+
+    void remove(Long entryId) {
+        Integer number = documentsByEntry.remove(entryId);
+        if (number == null) {
+            return;
+        }
+        documents.set(number, null);
+        retired++;
+        if (retired > MIN_COMPACTION && retired > documentsByEntry.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Ids of the entries matching every whitespace-separated term of
+     * {@code query}, best first: a term scores more in the name than in the
+     * username or url, and more as the whole field or its start than inside
+     * it. Ties go by name, then id.
+     */
+    List<Long> search(String query, int limit) {
+        String[] terms = Arrays.stream(query.toLowerCase(Locale.ROOT).trim().split("\\s+"))
+                .filter(term -> !term.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+        if (terms.length == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        // Keeps the best `limit` matches, worst on top
+        PriorityQueue<Match> best = new PriorityQueue<>(limit, Comparator.reverseOrder());
+        IntList candidates = candidates(terms);
+        for (int i = 0, n = candidates == null ? documents.size() : candidates.size(); i < n; i++) {
+            Document document = documents.get(candidates == null ? i : candidates.get(i));
+            if (document == null) {
+                continue;
+            }
+            int score = score(document, terms);
+            if (score == 0 || best.size() == limit && score < best.peek().score()) {
+                continue;
+            }
+            Match match = new Match(document, score);
+            if (best.size() < limit) {
+                best.add(match);
+            } else if (match.compareTo(best.peek()) < 0) {
+                best.poll();
+                best.add(match);
+            }
+        }
+        List<Match> ranked = new ArrayList<>(best);
+        ranked.sort(null);
+        return ranked.stream()
+                .map(match -> match.document().entryId())
+                .toList();
+    }
+
+    /**
+     * Documents containing every trigram of the terms, or null when no term
+     * is long enough to have one.
+     */
+    private IntList candidates(String[] terms) {
+        List<IntList> lists = new ArrayList<>();
+        for (String term : terms) {
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                IntList list = postings.get(trigram(term, i));
+                if (list == null) {
+                    return new IntList();
+                }
+                lists.add(list);
+            }
+        }
+        if (lists.isEmpty()) {
+            return null;
+        }
+        lists.sort(Comparator.comparingInt(IntList::size));
+        IntList result = lists.get(0);
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result = result.intersect(lists.get(i));
+        }
+        return result;
+    }
+
+    private static int score(Document document, String[] terms) {
+        int total = 0;
+        for (String term : terms) {
+            int score = NAME_WEIGHT * quality(document.name(), term)
+                    + USERNAME_WEIGHT * quality(document.username(), term)
+                    + URL_WEIGHT * quality(document.url(), term)
+                    + CATEGORY_WEIGHT * quality(document.category(), term);
+            if (score == 0) {
+                return 0;
+            }
+            total += score;
+        }
+        return total;
+    }
+
+    /**
+     * 4 when the field is the term, 3 when it starts with it, 2 when a word
+     * in it does and 1 for any other occurrence.
+     */
+    private static int quality(String field, String term) {
+        int index = field.indexOf(term);
+        if (index < 0) {
+            return 0;
+        }
+        if (index == 0) {
+            return field.length() == term.length() ? 4 : 3;
+        }
+        for (; index >= 0; index = field.indexOf(term, index + 1)) {
+            if (!Character.isLetterOrDigit(field.charAt(index - 1))) {
+                return 2;
+            }
+        }
+        return 1;
+    }
+
+    private void compact() {
+        List<Document> live = documents.stream().filter(document -> document != null).toList();
+        postings.clear();
+        documentsByEntry.clear();
+        documents.clear();
+        retired = 0;
+        for (Document document : live) {
+            put(VaultEntry.builder()
+                    .id(document.entryId())
+                    .name(document.name())
+                    .username(document.username())
+                    .url(document.url())
+                    .category(document.category())
+                    .build());
+        }
+    }
+
+    private static long trigram(String text, int start) {
+        return (long) text.charAt(start) << 32 | (long) text.charAt(start + 1) << 16 | text.charAt(start + 2);
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    private record Document(Long entryId, String name, String username, String url, String category) {
+
+        String[] fields() {
+            return new String[] { name, username, url, category };
+        }
+    }
+
+    /**
+     * Orders better matches first: higher score, then name, then id.
+     */
+    private record Match(Document document, int score) implements Comparable<Match> {
+
+        @Override
+        public int compareTo(Match other) {
+            if (score != other.score) {
+                return Integer.compare(other.score, score);
+            }
+            int byName = document.name().compareTo(other.document.name());
+            return byName != 0 ? byName : document.entryId().compareTo(other.document.entryId());
+        }
+    }
+
+    /**
+     * Growable sorted list of document numbers.
+     */
+    private static final class IntList {
+
+        private int[] values = new int[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int last() {
+            return values[size - 1];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * Values in both lists. This list should be the shorter one: when the
+         * other is much longer its values are found by binary search,
+         * otherwise both are walked together.
+         */
+        IntList intersect(IntList other) {
+            IntList result = new IntList();
+            if ((long) size * 16 < other.size) {
+                int from = 0;
+                for (int i = 0; i < size && from < other.size; i++) {
+                    int found = Arrays.binarySearch(other.values, from, other.size, values[i]);
+                    if (found >= 0) {
+                        result.add(values[i]);
+                        from = found + 1;
+                    } else {
+                        from = -found - 1;
+                    }
+                }
+                return result;
+            }
+            for (int i = 0, j = 0; i < size && j < other.size; ) {
+                if (values[i] < other.values[j]) {
+                    i++;
+                } else if (values[i] > other.values[j]) {
+                    j++;
+                } else {
+                    result.add(values[i]);
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+    }
+}
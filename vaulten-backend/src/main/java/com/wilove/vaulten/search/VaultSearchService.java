@@ -0,0 +1,138 @@
+package com.wilove.vaulten.search;
+
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.service.TombstoneService;
+import com.wilove.vaulten.service.VaultRevisionService;
+import com.wilove.vaulten.service.VaultService;
+import com.wilove.vaulten.store.VaultEntryStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Ranked substring search over the name, username, url and category of a
+ * user's entries, answered from an in-memory {@link TrigramIndex}.
+ *
+ * A user's index is built on their first search and kept for the next ones.
+ * Before answering, it catches up with the writes made since: the cached
+ * revision (updated as soon as a local write commits) tells whether anything
+ * changed, and if so the entries and tombstones in the revision range are
+ * applied, as an incremental sync would. Writes made on other instances are
+ * picked up once the cached revision expires. Indexes of the least recently
+ * searching users are dropped beyond {@code vault.search.max-indexes}.
+ */
+@Service
+public class VaultSearchService {
+
+    private final VaultService vaultService;
+    private final VaultEntryStore vaultEntryStore;
+    private final VaultRevisionService vaultRevisionService;
+    private final TombstoneService tombstoneService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int maxIndexes;
+    private final Map<Long, UserIndex> indexes = new ConcurrentHashMap<>();
+
+    public VaultSearchService(VaultService vaultService, VaultEntryStore vaultEntryStore,
+            VaultRevisionService vaultRevisionService, TombstoneService tombstoneService,
+            PlatformTransactionManager transactionManager,
+            @Value("${vault.search.max-indexes:1000}") int maxIndexes) {
+        this.vaultService = vaultService;
+        this.vaultEntryStore = vaultEntryStore;
+        this.vaultRevisionService = vaultRevisionService;
+        this.tombstoneService = tombstoneService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxIndexes = maxIndexes;
+    }
+
+    /**
+     * Up to {@code limit} of the user's entries matching every term of
+     * {@code query}, best match first, decrypted and with notes.
+     */
+    public List<VaultEntry> search(User user, String query, int limit) {
+        List<Long> ids = findIds(user.getId(), query, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, VaultEntry> entries = vaultService.getEntries(user, ids).stream()
+                .collect(Collectors.toMap(VaultEntry::getId, Function.identity()));
+        return ids.stream()
+                .map(entries::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Ids of the matching entries, best first, from the index alone.
+     */
+    public List<Long> findIds(Long userId, String query, int limit) {
+        UserIndex userIndex = indexes.computeIfAbsent(userId, id -> new UserIndex());
+        userIndex.lastUsed = System.nanoTime();
+        evictLeastRecentlyUsed();
+        synchronized (userIndex) {
+            refresh(userId, userIndex);
+            return userIndex.index.search(query, limit);
+        }
+    }
+
+    public int getIndexCount() {
+        return indexes.size();
+    }
+
+    private void refresh(Long userId, UserIndex userIndex) {
+        if (userIndex.index != null && vaultRevisionService.cachedRevision(userId) <= userIndex.index.revision()) {
+            return;
+        }
+        readOnlyTransaction.executeWithoutResult(status -> {
+            long current = vaultRevisionService.currentRevision(userId);
+            TrigramIndex index = userIndex.index;
+            if (index == null || index.revision() < vaultRevisionService.tombstonesPurgedThrough(userId)) {
+                userIndex.index = build(userId, current);
+            } else if (current > index.revision()) {
+                vaultEntryStore.findByUserIdAndRevisionBetween(userId, index.revision(), current)
+                        .forEach(index::put);
+                tombstoneService.getDeletedIdsBetween(userId, index.revision(), current)
+                        .forEach(index::remove);
+                index.advanceTo(current);
+            }
+        });
+    }
+
+    /**
+     * Indexes all of the user's entries; ones committed after {@code revision}
+     * may be included and are applied again by the next catch-up.
+     */
+    private TrigramIndex build(Long userId, long revision) {
+        TrigramIndex index = new TrigramIndex();
+        try (Stream<VaultEntry> entries = vaultEntryStore.streamByUserId(userId)) {
+            entries.forEach(index::put);
+        }
+        index.advanceTo(revision);
+        return index;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        while (indexes.size() > maxIndexes) {
+            indexes.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().lastUsed))
+                    .ifPresent(oldest -> indexes.remove(oldest.getKey(), oldest.getValue()));
+        }
+    }
+
+    private static final class UserIndex {
+
+        private volatile long lastUsed;
+        private TrigramIndex index; // Built on first use; guarded by this
+    }
+}
@@ -0,0 +1,4 @@
+package com.wilove.vaulten.search;
+
+// Server-side search over the plaintext fields of vault entries
+// This package contains the per-user trigram index and the service keeping it current
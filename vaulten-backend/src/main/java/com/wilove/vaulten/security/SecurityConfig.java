@@ -77,9 +77,11 @@ public class SecurityConfig {
                 configuration.setAllowedOriginPatterns(List.of("*"));
                 configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
                 configuration.setAllowedHeaders(
-                                Arrays.asList("Authorization", "Content-Type", "Cache-Control", "x-requested-with"));
+                                Arrays.asList("Authorization", "Content-Type", "Cache-Control", "x-requested-with",
+                                                "If-Match", "If-None-Match", "X-Export-Passphrase", "X-Import-Passphrase"));
                 configuration.setAllowCredentials(true);
-                configuration.setExposedHeaders(List.of("Authorization"));
+                configuration.setExposedHeaders(List.of("Authorization", "ETag", "Content-Disposition", "X-Vault-Snapshot-Key",
+                                "X-Vault-Snapshot-Cursor"));
 
                 UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
                 source.registerCorsConfiguration("/**", configuration);
@@ -4,11 +4,13 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
 
 /**
@@ -21,9 +23,27 @@ public class EncryptionService {
     private static final int TAG_LENGTH_BIT = 128;
     private static final int IV_LENGTH_BYTE = 12;
     private static final int AES_KEY_BIT = 256;
+    private static final String FINGERPRINT_ALGORITHM = "HmacSHA256";
+    private static final int FINGERPRINT_LENGTH_BYTE = 16;
 
     private final SecretKeySpec secretKey;
+    private final SecretKeySpec fingerprintKey;
     private final SecureRandom secureRandom = new SecureRandom();
+    // Looking up a Cipher costs more than encrypting a short field; each thread reuses one, re-initialized per call
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(ALGORITHM);
+        } catch (Exception e) {
+            throw new IllegalStateException("AES/GCM not available", e);
+        }
+    });
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(FINGERPRINT_ALGORITHM);
+        } catch (Exception e) {
+            throw new IllegalStateException("HMAC-SHA256 not available", e);
+        }
+    });
 
     public EncryptionService(@Value("${vault.encryption.key}") String base64Key) {
         byte[] decodedKey = Base64.getDecoder().decode(base64Key);
@@ -31,6 +51,23 @@ public class EncryptionService {
             throw new IllegalArgumentException("Invalid encryption key length. Expected 256 bits.");
         }
         this.secretKey = new SecretKeySpec(decodedKey, "AES");
+        this.fingerprintKey = new SecretKeySpec(hmac(new SecretKeySpec(decodedKey, FINGERPRINT_ALGORITHM),
+                "vaulten-password-fingerprint"), FINGERPRINT_ALGORITHM);
+    }
+
+    /**
+     * Keyed fingerprint of a secret: the first 16 bytes of HMAC-SHA256 under a
+     * key derived from the encryption key, Base64url encoded. Equal secrets
+     * get equal fingerprints, so reuse can be found without decrypting, while
+     * without the key a fingerprint cannot be checked against guesses.
+     */
+    public String fingerprint(String plainText) {
+        if (plainText == null)
+            return null;
+
+        byte[] digest = hmac(fingerprintKey, plainText);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Arrays.copyOf(digest, FINGERPRINT_LENGTH_BYTE));
     }
 
     /**
@@ -46,7 +83,7 @@ public class EncryptionService {
             byte[] iv = new byte[IV_LENGTH_BYTE];
             secureRandom.nextBytes(iv);
 
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
+            Cipher cipher = ciphers.get();
             GCMParameterSpec parameterSpec = new GCMParameterSpec(TAG_LENGTH_BIT, iv);
             cipher.init(Cipher.ENCRYPT_MODE, secretKey, parameterSpec);
 
@@ -79,7 +116,7 @@ public class EncryptionService {
             byte[] cipherText = new byte[byteBuffer.remaining()];
             byteBuffer.get(cipherText);
 
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
+            Cipher cipher = ciphers.get();
             GCMParameterSpec parameterSpec = new GCMParameterSpec(TAG_LENGTH_BIT, iv);
             cipher.init(Cipher.DECRYPT_MODE, secretKey, parameterSpec);
 
@@ -90,4 +127,14 @@ public class EncryptionService {
             throw new RuntimeException("Error during decryption", e);
         }
     }
+
+    private byte[] hmac(SecretKeySpec key, String message) {
+        try {
+            Mac mac = macs.get();
+            mac.init(key);
+            return mac.doFinal(message.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new RuntimeException("Error computing fingerprint", e);
+        }
+    }
 }
@@ -0,0 +1,191 @@
+package com.wilove.vaulten.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wilove.vaulten.datasource.ShardRouter;
+import com.wilove.vaulten.dto.EntryHistoryResponse;
+import com.wilove.vaulten.dto.EntryVersion;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryRevision;
+import com.wilove.vaulten.model.VaultEntryType;
+import com.wilove.vaulten.repository.VaultEntryRevisionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps previous versions of vault entries as encrypted reverse deltas.
+ *
+ * Recording a change costs one small insert holding only the fields that
+ * changed. Retention is applied on read (at most {@code vault.history.max-versions})
+ * and by a scheduled purge that also drops versions older than
+ * {@code vault.history.max-age}.
+ */
+@Service
+@Slf4j
+public class EntryHistoryService {
+
+    private static final TypeReference<Map<String, String>> DELTA_TYPE = new TypeReference<>() {
+    };
+
+    private final VaultEntryRevisionRepository revisionRepository;
+    private final EncryptionService encryptionService;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int maxVersions;
+    private final Duration maxAge;
+
+    public EntryHistoryService(VaultEntryRevisionRepository revisionRepository,
+            EncryptionService encryptionService,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${vault.history.max-versions:20}") int maxVersions,
+            @Value("${vault.history.max-age:P90D}") Duration maxAge) {
+        this.revisionRepository = revisionRepository;
+        this.encryptionService = encryptionService;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxVersions = maxVersions;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Captures the user-visible fields of a decrypted entry, to be passed to
+     * {@link #recordChange} once the entry has been modified.
+     */
+    public Map<String, String> capture(VaultEntry entry) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("name", entry.getName());
+        fields.put("username", entry.getUsername());
+        fields.put("password", entry.getPassword());
+        fields.put("url", entry.getUrl());
+        fields.put("notes", entry.getNotes());
+        fields.put("type", entry.getType() == null ? null : entry.getType().name());
+        fields.put("category", entry.getCategory());
+        return fields;
+    }
+
+    /**
+     * Stores the previous values of the fields that changed. Both versions must
+     * be decrypted; nothing is stored when nothing changed.
+     */
+    public void recordChange(Map<String, String> previous, VaultEntry updated) {
+        Map<String, String> current = capture(updated);
+        Map<String, String> delta = new LinkedHashMap<>();
+        previous.forEach((field, value) -> {
+            if (!Objects.equals(value, current.get(field))) {
+                delta.put(field, value);
+            }
+        });
+        if (delta.isEmpty()) {
+            return;
+        }
+        revisionRepository.save(VaultEntryRevision.builder()
+                .entryId(updated.getId())
+                .userId(updated.getUser().getId())
+                .delta(encryptionService.encrypt(toJson(delta)))
+                .build());
+    }
+
+    /**
+     * Rebuilds one page of previous versions, newest first, by applying the
+     * deltas backwards from the current (decrypted) entry.
+     */
+    public EntryHistoryResponse getHistory(VaultEntry current, int page, int size) {
+        long total = Math.min(revisionRepository.countByEntryId(current.getId()), maxVersions);
+        long offset = (long) page * size;
+        List<EntryVersion> versions = new ArrayList<>();
+
+        if (offset < total) {
+            int limit = (int) Math.min(offset + size, total);
+            List<VaultEntryRevision> revisions = revisionRepository.findByEntryIdOrderByIdDesc(
+                    current.getId(), PageRequest.of(0, limit));
+            Map<String, String> fields = capture(current);
+            for (int i = 0; i < revisions.size(); i++) {
+                VaultEntryRevision revision = revisions.get(i);
+                fields.putAll(fromJson(encryptionService.decrypt(revision.getDelta())));
+                if (i >= offset) {
+                    versions.add(toVersion(revision, fields));
+                }
+            }
+        }
+
+        return EntryHistoryResponse.builder()
+                .entryId(current.getId())
+                .versions(versions)
+                .page(page)
+                .size(size)
+                .totalVersions(total)
+                .build();
+    }
+
+    public void deleteHistory(Long entryId) {
+        revisionRepository.deleteByEntryId(entryId);
+    }
+
+    /**
+     * Drops versions beyond the retention count or age on every shard.
+     */
+    @Scheduled(fixedDelayString = "${vault.history.purge-interval:PT1H}",
+            initialDelayString = "${vault.history.purge-interval:PT1H}")
+    public void purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(maxAge);
+        shardRouter.forEachShard(() -> transactionTemplate.executeWithoutResult(status -> {
+            int expired = revisionRepository.deleteByCreatedAtBefore(cutoff);
+            int excess = 0;
+            for (Long entryId : revisionRepository.findEntryIdsWithMoreThan(maxVersions)) {
+                List<VaultEntryRevision> kept = revisionRepository.findByEntryIdOrderByIdDesc(
+                        entryId, PageRequest.of(0, maxVersions));
+                excess += revisionRepository.deleteByEntryIdAndIdLessThan(entryId,
+                        kept.get(kept.size() - 1).getId());
+            }
+            if (expired + excess > 0) {
+                log.info("Purged {} expired and {} excess entry versions", expired, excess);
+            }
+        }));
+    }
+
+    private EntryVersion toVersion(VaultEntryRevision revision, Map<String, String> fields) {
+        return EntryVersion.builder()
+                .revisionId(revision.getId())
+                .replacedAt(revision.getCreatedAt())
+                .name(fields.get("name"))
+                .username(fields.get("username"))
+                .password(fields.get("password"))
+                .url(fields.get("url"))
+                .notes(fields.get("notes"))
+                .type(fields.get("type") == null ? null : VaultEntryType.valueOf(fields.get("type")))
+                .category(fields.get("category"))
+                .build();
+    }
+
+    private String toJson(Map<String, String> delta) {
+        try {
+            return objectMapper.writeValueAsString(delta);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize entry delta", e);
+        }
+    }
+
+    private Map<String, String> fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, DELTA_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read entry delta", e);
+        }
+    }
+}
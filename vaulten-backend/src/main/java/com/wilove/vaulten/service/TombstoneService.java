@@ -0,0 +1,93 @@
+package com.wilove.vaulten.service;
+
+import com.wilove.vaulten.datasource.ShardRouter;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryTombstone;
+import com.wilove.vaulten.repository.VaultEntryTombstoneRepository;
+import com.wilove.vaulten.repository.VaultRevisionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Records deleted entries for incremental sync. Tombstones are kept for
+ * {@code vault.sync.tombstone-retention}; a client whose cursor (or last sync
+ * time) is older than the purged tombstones may have missed deletes and has
+ * to resync fully.
+ */
+@Service
+@Slf4j
+public class TombstoneService {
+
+    private final VaultEntryTombstoneRepository tombstoneRepository;
+    private final VaultRevisionRepository revisionRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+
+    public TombstoneService(VaultEntryTombstoneRepository tombstoneRepository,
+            VaultRevisionRepository revisionRepository,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${vault.sync.tombstone-retention:P30D}") Duration retention) {
+        this.tombstoneRepository = tombstoneRepository;
+        this.revisionRepository = revisionRepository;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+    }
+
+    public void recordDeletion(VaultEntry entry, long revision) {
+        tombstoneRepository.save(VaultEntryTombstone.builder()
+                .entryId(entry.getId())
+                .userId(entry.getUser().getId())
+                .revision(revision)
+                .deletedAt(LocalDateTime.now())
+                .build());
+    }
+
+    public List<Long> getDeletedIdsSince(Long userId, LocalDateTime since) {
+        return tombstoneRepository.findEntryIdsDeletedSince(userId, since);
+    }
+
+    public List<Long> getDeletedIdsBetween(Long userId, long afterRevision, long throughRevision) {
+        return tombstoneRepository.findEntryIdsDeletedBetween(userId, afterRevision, throughRevision);
+    }
+
+    /**
+     * Up to {@code limit} tombstones in {@code (afterRevision, throughRevision]}, in revision order.
+     */
+    public List<VaultEntryTombstone> getDeletedBetween(Long userId, long afterRevision, long throughRevision,
+            int limit) {
+        return tombstoneRepository.findByUserIdAndRevisionGreaterThanAndRevisionLessThanEqualOrderByRevision(userId,
+                afterRevision, throughRevision, Limit.of(limit));
+    }
+
+    /**
+     * Whether tombstones needed to sync from {@code since} may already be purged.
+     */
+    public boolean isBeyondRetention(LocalDateTime since) {
+        return since.isBefore(LocalDateTime.now().minus(retention));
+    }
+
+    @Scheduled(fixedDelayString = "${vault.sync.tombstone-purge-interval:PT1H}",
+            initialDelayString = "${vault.sync.tombstone-purge-interval:PT1H}")
+    public void purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        shardRouter.forEachShard(() -> transactionTemplate.executeWithoutResult(status -> {
+            revisionRepository.markTombstonesPurgedBefore(cutoff);
+            int purged = tombstoneRepository.deleteByDeletedAtBefore(cutoff);
+            if (purged > 0) {
+                log.info("Purged {} tombstones older than {}", purged, cutoff);
+            }
+        }));
+    }
+}
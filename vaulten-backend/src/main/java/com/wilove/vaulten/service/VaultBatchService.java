@@ -0,0 +1,146 @@
+package com.wilove.vaulten.service;
+
+import com.wilove.vaulten.dto.BatchOperation;
+import com.wilove.vaulten.dto.BatchRequest;
+import com.wilove.vaulten.dto.BatchResponse;
+import com.wilove.vaulten.dto.BatchResult;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Applies a client's queued creates, updates and deletes in one transaction.
+ *
+ * The user's revision counter is locked first, then every targeted entry is
+ * loaded with a single query and all operations are checked (existence,
+ * ownership, If-Match version) before anything is written, so checks cannot
+ * race with other writers. Revisions for the applied operations are reserved
+ * as one block. In atomic mode any failed check means nothing is applied;
+ * otherwise the operations that passed are.
+ */
+@Service
+public class VaultBatchService {
+
+    private static final int NOT_APPLIED = HttpStatus.FAILED_DEPENDENCY.value();
+
+    private final VaultService vaultService;
+    private final VaultRevisionService vaultRevisionService;
+    private final TransactionTemplate transactionTemplate;
+
+    public VaultBatchService(VaultService vaultService,
+            VaultRevisionService vaultRevisionService,
+            PlatformTransactionManager transactionManager) {
+        this.vaultService = vaultService;
+        this.vaultRevisionService = vaultRevisionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public BatchResponse apply(User user, BatchRequest request) {
+        return transactionTemplate.execute(status -> {
+            List<BatchOperation> operations = request.getOperations();
+            vaultRevisionService.reserveRevisions(user.getId(), 0);
+
+            Set<Long> ids = operations.stream()
+                    .filter(operation -> operation.getType() != BatchOperation.Type.CREATE && operation.getId() != null)
+                    .map(BatchOperation::getId)
+                    .collect(Collectors.toSet());
+            Map<Long, VaultEntry> entries = vaultService.loadEntries(user, ids).stream()
+                    .collect(Collectors.toMap(VaultEntry::getId, Function.identity()));
+
+            BatchResult[] results = new BatchResult[operations.size()];
+            List<Integer> accepted = new ArrayList<>();
+            Set<Long> seen = new HashSet<>();
+            for (int i = 0; i < operations.size(); i++) {
+                results[i] = check(i, operations.get(i), entries, seen);
+                if (results[i] == null) {
+                    accepted.add(i);
+                }
+            }
+
+            if (accepted.isEmpty() || (request.isAtomic() && accepted.size() < operations.size())) {
+                for (int i : accepted) {
+                    results[i] = failure(i, operations.get(i).getId(), NOT_APPLIED, "Not applied");
+                }
+                status.setRollbackOnly();
+                return new BatchResponse(false, Arrays.asList(results));
+            }
+
+            long revision = vaultRevisionService.reserveRevisions(user.getId(), accepted.size());
+            for (int i : accepted) {
+                BatchOperation operation = operations.get(i);
+                switch (operation.getType()) {
+                    case CREATE -> {
+                        VaultEntry created = vaultService.create(operation.getEntry().toEntry(), user, revision++);
+                        results[i] = success(i, HttpStatus.CREATED, created.getId(), created);
+                    }
+                    case UPDATE -> {
+                        VaultEntry updated = vaultService.update(entries.get(operation.getId()),
+                                operation.getEntry().toEntry(), revision++);
+                        results[i] = success(i, HttpStatus.OK, updated.getId(), updated);
+                    }
+                    case DELETE -> {
+                        vaultService.delete(entries.get(operation.getId()), revision++);
+                        results[i] = success(i, HttpStatus.NO_CONTENT, operation.getId(), null);
+                    }
+                }
+            }
+            return new BatchResponse(true, Arrays.asList(results));
+        });
+    }
+
+    /**
+     * @return the failure for the operation, or null when it can be applied
+     */
+    private BatchResult check(int index, BatchOperation operation, Map<Long, VaultEntry> entries, Set<Long> seen) {
+        if (operation.getType() == BatchOperation.Type.CREATE) {
+            return operation.getEntry() == null
+                    ? failure(index, null, HttpStatus.BAD_REQUEST.value(), "Entry is required")
+                    : null;
+        }
+        Long id = operation.getId();
+        if (id == null) {
+            return failure(index, null, HttpStatus.BAD_REQUEST.value(), "Id is required");
+        }
+        if (operation.getType() == BatchOperation.Type.UPDATE && operation.getEntry() == null) {
+            return failure(index, id, HttpStatus.BAD_REQUEST.value(), "Entry is required");
+        }
+        if (!seen.add(id)) {
+            return failure(index, id, HttpStatus.BAD_REQUEST.value(), "Entry appears more than once in the batch");
+        }
+        VaultEntry entry = entries.get(id);
+        if (entry == null) {
+            return failure(index, id, HttpStatus.NOT_FOUND.value(), "Entry not found");
+        }
+        Long expectedVersion = operation.getExpectedVersion();
+        if (expectedVersion != null && !expectedVersion.equals(entry.getVersion())) {
+            return BatchResult.builder()
+                    .index(index)
+                    .status(HttpStatus.CONFLICT.value())
+                    .id(id)
+                    .current(entry)
+                    .message("The entry was modified by another device")
+                    .build();
+        }
+        return null;
+    }
+
+    private static BatchResult success(int index, HttpStatus status, Long id, VaultEntry entry) {
+        return BatchResult.builder().index(index).status(status.value()).id(id).entry(entry).build();
+    }
+
+    private static BatchResult failure(int index, Long id, int status, String message) {
+        return BatchResult.builder().index(index).status(status).id(id).message(message).build();
+    }
+}
@@ -0,0 +1,127 @@
+package com.wilove.vaulten.service;
+
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryBucket;
+import com.wilove.vaulten.repository.VaultEntryBucketRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maintains a per-user hash tree over the vault for reconciliation.
+ *
+ * An entry is placed in bucket {@code creationRevision mod 256} for life and
+ * hashes to the first 8 bytes (big-endian) of SHA-256 over its id and
+ * revision, each as an 8-byte big-endian long. A bucket hash is the XOR of
+ * its entries' hashes and the root is the XOR of all buckets, so a write
+ * changes one leaf row and both levels stay consistent without rehashing.
+ * Clients compute the same values from their cached (id, revision, bucket).
+ */
+@Service
+@RequiredArgsConstructor
+public class VaultHashTreeService {
+
+    public static final int BUCKETS = 256;
+
+    private final VaultEntryBucketRepository bucketRepository;
+
+    public static int bucketFor(long creationRevision) {
+        return (int) Math.floorMod(creationRevision, (long) BUCKETS);
+    }
+
+    public static long entryHash(long entryId, long revision) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(ByteBuffer.allocate(16).putLong(entryId).putLong(revision).array());
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String toHex(long hash) {
+        return String.format("%016x", hash);
+    }
+
+    /**
+     * The following methods must run after {@link VaultRevisionService#nextRevision}
+     * in the write transaction: the locked revision counter serializes the
+     * user's read-modify-write of a bucket.
+     */
+    public void add(VaultEntry entry) {
+        apply(entry, entryHash(entry.getId(), entry.getRevision()));
+    }
+
+    /**
+     * Adds entries created together by one user, reading the user's buckets
+     * once and writing each touched bucket once.
+     */
+    public void addAll(Collection<VaultEntry> entries) {
+        Map<Integer, Long> deltas = new HashMap<>();
+        Long userId = null;
+        for (VaultEntry entry : entries) {
+            if (entry.getBucket() != null) {
+                deltas.merge(entry.getBucket(), entryHash(entry.getId(), entry.getRevision()), (a, b) -> a ^ b);
+                userId = entry.getUser().getId();
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Map<Integer, VaultEntryBucket> existing = new HashMap<>();
+        for (VaultEntryBucket bucket : bucketRepository.findByUserId(userId)) {
+            existing.put(bucket.getBucket(), bucket);
+        }
+        for (Map.Entry<Integer, Long> delta : deltas.entrySet()) {
+            VaultEntryBucket bucket = existing.get(delta.getKey());
+            if (bucket == null) {
+                bucket = new VaultEntryBucket(userId, delta.getKey(), 0L);
+            }
+            bucket.setHash(bucket.getHash() ^ delta.getValue());
+            bucketRepository.save(bucket);
+        }
+    }
+
+    public void replace(VaultEntry entry, Long previousRevision) {
+        long previous = previousRevision == null ? 0L : entryHash(entry.getId(), previousRevision);
+        apply(entry, previous ^ entryHash(entry.getId(), entry.getRevision()));
+    }
+
+    public void remove(VaultEntry entry) {
+        apply(entry, entryHash(entry.getId(), entry.getRevision()));
+    }
+
+    /**
+     * Non-empty buckets of the user's tree, by bucket number.
+     */
+    public Map<Integer, Long> getBuckets(Long userId) {
+        Map<Integer, Long> buckets = new HashMap<>();
+        for (VaultEntryBucket bucket : bucketRepository.findByUserId(userId)) {
+            if (bucket.getHash() != 0) {
+                buckets.put(bucket.getBucket(), bucket.getHash());
+            }
+        }
+        return buckets;
+    }
+
+    public static long root(Map<Integer, Long> buckets) {
+        return buckets.values().stream().reduce(0L, (a, b) -> a ^ b);
+    }
+
+    private void apply(VaultEntry entry, long delta) {
+        if (entry.getBucket() == null) {
+            return;
+        }
+        Long userId = entry.getUser().getId();
+        VaultEntryBucket bucket = bucketRepository.findById(new VaultEntryBucket.Key(userId, entry.getBucket()))
+                .orElseGet(() -> new VaultEntryBucket(userId, entry.getBucket(), 0L));
+        bucket.setHash(bucket.getHash() ^ delta);
+        bucketRepository.save(bucket);
+    }
+}
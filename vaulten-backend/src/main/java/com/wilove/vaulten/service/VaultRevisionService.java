@@ -0,0 +1,141 @@
+package com.wilove.vaulten.service;
+
+import com.wilove.vaulten.model.VaultRevision;
+import com.wilove.vaulten.repository.VaultRevisionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out per-user revision numbers for the sync cursor, and keeps a small
+ * cache of them as the change marker behind vault ETags. Local commits update
+ * the cache immediately; changes made by other instances show up once the
+ * entry expires ({@code vault.etag.cache-ttl}).
+ */
+@Service
+public class VaultRevisionService {
+
+    private static final int PURGE_THRESHOLD = 10_000;
+
+    private final VaultRevisionRepository revisionRepository;
+    private final TransactionTemplate newTransaction;
+    private final long cacheTtlNanos;
+    private final Map<Long, CachedRevision> cache = new ConcurrentHashMap<>();
+
+    public VaultRevisionService(VaultRevisionRepository revisionRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${vault.etag.cache-ttl:5s}") Duration cacheTtl) {
+        this.revisionRepository = revisionRepository;
+        this.cacheTtlNanos = cacheTtl.toNanos();
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Takes the user's next revision. Must run inside the write transaction:
+     * the counter row stays locked until it commits.
+     */
+    public long nextRevision(Long userId) {
+        if (revisionRepository.increment(userId) == 0) {
+            createCounter(userId);
+            revisionRepository.increment(userId);
+        }
+        long revision = revisionRepository.findRevision(userId).orElseThrow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remember(userId, revision);
+                }
+            });
+        }
+        return revision;
+    }
+
+    /**
+     * Takes a block of {@code count} consecutive revisions in one statement and
+     * returns the first; with a count of 0 it only locks the user's writes
+     * until the transaction ends.
+     */
+    public long reserveRevisions(Long userId, int count) {
+        if (revisionRepository.incrementBy(userId, count) == 0) {
+            createCounter(userId);
+            revisionRepository.incrementBy(userId, count);
+        }
+        long last = revisionRepository.findRevision(userId).orElseThrow();
+        if (count > 0 && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remember(userId, last);
+                }
+            });
+        }
+        return last - count + 1;
+    }
+
+    /**
+     * Highest committed revision, i.e. the cursor a sync hands back.
+     */
+    public long currentRevision(Long userId) {
+        return revisionRepository.findRevision(userId).orElse(0L);
+    }
+
+    /**
+     * Revision from the cache, loading it (a primary key lookup on
+     * vault_revisions) when missing or expired.
+     */
+    public long cachedRevision(Long userId) {
+        CachedRevision cached = cache.get(userId);
+        if (cached != null && System.nanoTime() - cached.loadedAt() < cacheTtlNanos) {
+            return cached.revision();
+        }
+        long revision = currentRevision(userId);
+        remember(userId, revision);
+        return revision;
+    }
+
+    public long tombstonesPurgedThrough(Long userId) {
+        return revisionRepository.findTombstonesPurgedThrough(userId).orElse(0L);
+    }
+
+    /**
+     * Never lets a slow load overwrite a newer revision recorded by a commit.
+     */
+    private void remember(Long userId, long revision) {
+        long now = System.nanoTime();
+        cache.merge(userId, new CachedRevision(revision, now),
+                (old, loaded) -> old.revision() > loaded.revision() ? old : loaded);
+        if (cache.size() > PURGE_THRESHOLD) {
+            cache.values().removeIf(entry -> now - entry.loadedAt() >= cacheTtlNanos);
+        }
+    }
+
+    /**
+     * Creates the counter row in its own transaction so that two first writes
+     * racing to create it do not fail the caller's transaction.
+     */
+    private void createCounter(Long userId) {
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                if (!revisionRepository.existsById(userId)) {
+                    revisionRepository.saveAndFlush(new VaultRevision(userId, 0L, 0L));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Created concurrently
+        }
+    }
+
+    private record CachedRevision(long revision, long loadedAt) {
+    }
+}
@@ -1,78 +1,776 @@
 package com.wilove.vaulten.service;
 
+import com.wilove.vaulten.autofill.PublicSuffixList;
+import com.wilove.vaulten.breach.BreachCheckService;
+import com.wilove.vaulten.dto.EntryDelta;
+import com.wilove.vaulten.dto.EntryHistoryResponse;
+import com.wilove.vaulten.dto.PasswordStrengthEntry;
+import com.wilove.vaulten.dto.ReconcileBucket;
+import com.wilove.vaulten.dto.ReconcileEntry;
+import com.wilove.vaulten.dto.ReconcileResponse;
+import com.wilove.vaulten.dto.ReuseGroup;
+import com.wilove.vaulten.dto.SyncPageToken;
+import com.wilove.vaulten.dto.SyncResponse;
+import com.wilove.vaulten.event.VaultChangeEvent;
 import com.wilove.vaulten.exception.AccessDeniedException;
+import com.wilove.vaulten.exception.EntryConflictException;
+import com.wilove.vaulten.model.FieldRevisions;
 import com.wilove.vaulten.model.User;
 import com.wilove.vaulten.model.VaultEntry;
-import com.wilove.vaulten.repository.VaultEntryRepository;
+import com.wilove.vaulten.model.VaultEntryPayload;
+import com.wilove.vaulten.model.VaultEntryTombstone;
+import com.wilove.vaulten.store.VaultEntryStore;
+import com.wilove.vaulten.strength.PasswordStrength;
+import com.wilove.vaulten.strength.PasswordStrengthService;
+import com.wilove.vaulten.usage.EntryUsageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class VaultService {
 
-    private final VaultEntryRepository vaultEntryRepository;
+    private final VaultEntryStore vaultEntryStore;
     private final EncryptionService encryptionService;
+    private final EntryHistoryService entryHistoryService;
+    private final TombstoneService tombstoneService;
+    private final VaultRevisionService vaultRevisionService;
+    private final VaultHashTreeService vaultHashTreeService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PublicSuffixList publicSuffixList;
+    private final VaultStatsService vaultStatsService;
+    private final BreachCheckService breachCheckService;
+    private final PasswordStrengthService passwordStrengthService;
+    private final EntryUsageService entryUsageService;
 
     @Transactional
     public VaultEntry createEntry(VaultEntry entry, User user) {
         log.debug("Creating vault entry: {} for user: {}", entry.getName(), user.getUsername());
-        entry.setUser(user);
+        return create(entry, user, vaultRevisionService.nextRevision(user.getId()));
+    }
+
+    /**
+     * Creates an entry at a revision already taken from the user's counter.
+     */
+    VaultEntry create(VaultEntry entry, User user, long revision) {
+        stampPassword(entry, LocalDateTime.now());
+        VaultStatsService.Tally tally = vaultStatsService.tally().add(entry);
+        breachCheckService.checkAfterCommit(user.getId(), List.of(entry));
+        passwordStrengthService.scoreAfterCommit(user.getId(), List.of(entry));
         encryptSensitiveFields(entry);
-        return vaultEntryRepository.save(entry);
+        VaultEntry savedEntry = insertEncrypted(entry, user, revision);
+        vaultHashTreeService.add(savedEntry);
+        vaultStatsService.apply(user.getId(), tally);
+        return savedEntry;
     }
 
+    /**
+     * Creates many entries in one transaction, for bulk imports. All of them
+     * share one block of revisions, sensitive fields are encrypted in parallel
+     * and the inserts reach the database in JDBC batches.
+     */
+    @Transactional
+    public List<VaultEntry> createEntries(List<VaultEntry> entries, User user) {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+        long revision = vaultRevisionService.reserveRevisions(user.getId(), entries.size());
+        LocalDateTime now = LocalDateTime.now();
+        VaultStatsService.Tally tally = vaultStatsService.tally();
+        for (VaultEntry entry : entries) {
+            stampPassword(entry, now);
+            tally.add(entry);
+        }
+        breachCheckService.checkAfterCommit(user.getId(), entries);
+        passwordStrengthService.scoreAfterCommit(user.getId(), entries);
+        entries.parallelStream().forEach(this::encryptSensitiveFields);
+        List<VaultEntry> created = new ArrayList<>(entries.size());
+        for (VaultEntry entry : entries) {
+            created.add(insertEncrypted(entry, user, revision++));
+        }
+        vaultHashTreeService.addAll(created);
+        vaultStatsService.apply(user.getId(), tally);
+        return created;
+    }
+
+    private VaultEntry insertEncrypted(VaultEntry entry, User user, long revision) {
+        entry.setUser(user);
+        entry.setRevision(revision);
+        entry.setBucket(VaultHashTreeService.bucketFor(entry.getRevision()));
+        entry.setFieldRevisions(FieldRevisions.allAt(entry.getRevision()));
+        entry.setDomain(publicSuffixList.domainOf(entry.getUrl()));
+        VaultEntry savedEntry = vaultEntryStore.save(entry);
+        if (entry.getNotes() != null) {
+            vaultEntryStore.insertPayload(new VaultEntryPayload(savedEntry.getId(), entry.getNotes()));
+        }
+        savedEntry.setNotes(entry.getNotes());
+        publishChange(savedEntry, VaultChangeEvent.Kind.CREATED);
+        return savedEntry;
+    }
+
+    @Transactional(readOnly = true)
     public List<VaultEntry> getEntriesForUser(User user) {
-        return vaultEntryRepository.findByUserId(user.getId()).stream()
+        return getEntriesForUser(user, true);
+    }
+
+    /**
+     * Lists the user's entries. Notes live in a side table and are only fetched
+     * (in a single batched lookup) when {@code includeNotes} is set.
+     */
+    @Transactional(readOnly = true)
+    public List<VaultEntry> getEntriesForUser(User user, boolean includeNotes) {
+        List<VaultEntry> entries = vaultEntryStore.findByUserId(user.getId());
+        if (includeNotes) {
+            attachNotes(entries);
+        }
+        return entries.stream()
                 .peek(this::decryptSensitiveFields)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Lists the user's entries most used first, by frecency (see
+     * {@link EntryUsageService}); entries never used follow, by name. Uses
+     * still counted in memory are included.
+     */
+    @Transactional(readOnly = true)
+    public List<VaultEntry> getEntriesByFrecency(User user, boolean includeNotes) {
+        Map<Long, Double> frecencies = entryUsageService.frecencies(user.getId());
+        List<VaultEntry> entries = getEntriesForUser(user, includeNotes);
+        entries.sort(Comparator.comparing((VaultEntry entry) -> frecencies.get(entry.getId()),
+                        Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(VaultEntry::getName, String.CASE_INSENSITIVE_ORDER));
+        return entries;
+    }
+
+    /**
+     * Counts a use (a fill, say) of one of the user's entries, for ranking by
+     * frecency.
+     */
+    @Transactional(readOnly = true)
+    public void recordUse(Long id, User user) {
+        if (vaultEntryStore.findByUserIdAndIdIn(user.getId(), List.of(id)).isEmpty()) {
+            throw new RuntimeException("Entry not found");
+        }
+        entryUsageService.recordUse(user.getId(), id);
+    }
+
+    @Transactional(readOnly = true)
     public List<VaultEntry> getEntriesModifiedSince(User user, LocalDateTime since) {
-        return vaultEntryRepository.findByUserIdAndUpdatedAtGreaterThanEqual(user.getId(), since).stream()
+        List<VaultEntry> entries = vaultEntryStore.findByUserIdModifiedSince(user.getId(), since);
+        attachNotes(entries);
+        return entries.stream()
+                .peek(this::decryptSensitiveFields)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Incremental sync by revision cursor. The high-water mark is read first and
+     * both queries are bounded by it, so a change committing meanwhile is
+     * neither missed nor sent twice: it is picked up by the next sync.
+     *
+     * A full resync (the whole vault) is returned when there is no cursor, or
+     * when deletes after the cursor may already have been purged.
+     */
+    @Transactional(readOnly = true)
+    public SyncResponse sync(User user, Long cursor) {
+        return sync(user, cursor, false);
+    }
+
+    /**
+     * @param fieldDelta on an incremental sync, return {@link EntryDelta}s with
+     *                   only the fields changed after the cursor; secrets that
+     *                   did not change are neither read nor decrypted
+     */
+    @Transactional(readOnly = true)
+    public SyncResponse sync(User user, Long cursor, boolean fieldDelta) {
+        LocalDateTime serverTime = LocalDateTime.now();
+        long highWater = vaultRevisionService.currentRevision(user.getId());
+        boolean fullResync = cursor == null
+                || cursor > highWater
+                || cursor < vaultRevisionService.tombstonesPurgedThrough(user.getId());
+
+        List<VaultEntry> entries;
+        List<EntryDelta> deltas = null;
+        List<Long> deletedIds;
+        if (fullResync) {
+            entries = getEntriesForUser(user);
+            deletedIds = List.of();
+        } else {
+            entries = vaultEntryStore.findByUserIdAndRevisionBetween(user.getId(), cursor, highWater);
+            if (fieldDelta) {
+                deltas = toDeltas(entries, cursor);
+                entries = null;
+            } else {
+                attachNotes(entries);
+                entries.forEach(this::decryptSensitiveFields);
+            }
+            deletedIds = tombstoneService.getDeletedIdsBetween(user.getId(), cursor, highWater);
+        }
+
+        return SyncResponse.builder()
+                .updatedEntries(entries)
+                .changedEntries(deltas)
+                .deletedIds(deletedIds)
+                .fullResync(fullResync)
+                .cursor(highWater)
+                .serverTime(serverTime)
+                .build();
+    }
+
+    /**
+     * One page of a sync. The first page (no token) fixes the high-water mark
+     * and later pages walk the revisions up to it in order, taking changed
+     * entries and deletes together, so consecutive pages cover disjoint
+     * revision ranges: nothing is sent twice and nothing in the range is
+     * skipped. A change committed meanwhile gets a revision above the mark and
+     * is left to the next sync. The cursor is returned with the last page.
+     *
+     * A full resync is paged the same way over all entries; the client drops
+     * cached entries absent from all of its pages. If tombstones in the range
+     * of an incremental run were purged meanwhile, a new full resync starts.
+     *
+     * @param pageToken token from the previous page, or null for the first page
+     * @throws IllegalArgumentException when the page token is invalid
+     */
+    @Transactional(readOnly = true)
+    public SyncResponse syncPage(User user, Long cursor, String pageToken, int limit) {
+        return syncPage(user, cursor, pageToken, limit, false);
+    }
+
+    /**
+     * @param fieldDelta as for {@link #sync(User, Long, boolean)}, relative to
+     *                   the cursor the paging run started from
+     */
+    @Transactional(readOnly = true)
+    public SyncResponse syncPage(User user, Long cursor, String pageToken, int limit, boolean fieldDelta) {
+        LocalDateTime serverTime = LocalDateTime.now();
+        long purgedThrough = vaultRevisionService.tombstonesPurgedThrough(user.getId());
+        SyncPageToken token = pageToken == null ? null : SyncPageToken.decode(pageToken);
+        if (token == null || (!token.fullResync() && token.afterRevision() < purgedThrough)) {
+            long highWater = vaultRevisionService.currentRevision(user.getId());
+            boolean fullResync = token != null || cursor == null || cursor > highWater || cursor < purgedThrough;
+            token = new SyncPageToken(fullResync ? 0 : cursor, highWater, fullResync, fullResync ? 0 : cursor);
+        }
+
+        List<VaultEntry> entries = vaultEntryStore.findByUserIdAndRevisionBetween(user.getId(),
+                token.afterRevision(), token.highWater(), limit + 1);
+        List<VaultEntryTombstone> tombstones = token.fullResync() ? List.of()
+                : tombstoneService.getDeletedBetween(user.getId(), token.afterRevision(), token.highWater(), limit + 1);
+
+        // Merge both revision-ordered lists and keep the first `limit` changes
+        List<VaultEntry> pageEntries = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        long lastRevision = token.afterRevision();
+        int e = 0;
+        int t = 0;
+        while (pageEntries.size() + deletedIds.size() < limit && (e < entries.size() || t < tombstones.size())) {
+            if (t >= tombstones.size()
+                    || (e < entries.size() && entries.get(e).getRevision() < tombstones.get(t).getRevision())) {
+                lastRevision = entries.get(e).getRevision();
+                pageEntries.add(entries.get(e++));
+            } else {
+                lastRevision = tombstones.get(t).getRevision();
+                deletedIds.add(tombstones.get(t++).getEntryId());
+            }
+        }
+        boolean more = e < entries.size() || t < tombstones.size();
+
+        List<EntryDelta> deltas = null;
+        if (fieldDelta && !token.fullResync()) {
+            deltas = toDeltas(pageEntries, token.baseRevision());
+            pageEntries = null;
+        } else {
+            attachNotes(pageEntries);
+            pageEntries.forEach(this::decryptSensitiveFields);
+        }
+        return SyncResponse.builder()
+                .updatedEntries(pageEntries)
+                .changedEntries(deltas)
+                .deletedIds(deletedIds)
+                .fullResync(token.fullResync())
+                .cursor(more ? null : token.highWater())
+                .nextPageToken(more
+                        ? new SyncPageToken(lastRevision, token.highWater(), token.fullResync(),
+                                token.baseRevision()).encode()
+                        : null)
+                .serverTime(serverTime)
+                .build();
+    }
+
+    /**
+     * Compares the client's hash tree with the user's and returns the id and
+     * revision of every entry in the buckets that differ, so a client that was
+     * offline too long for incremental sync fetches only the entries whose
+     * revision differs from its copy. Work is one lookup of the user's bucket
+     * rows plus an index-only read of the differing buckets; nothing is
+     * decrypted.
+     *
+     * @param clientRoot    the client's root hash, or null to compare buckets
+     * @param clientBuckets the client's non-empty bucket hashes by bucket number
+     */
+    @Transactional(readOnly = true)
+    public ReconcileResponse reconcile(User user, Long clientRoot, Map<Integer, Long> clientBuckets) {
+        long highWater = vaultRevisionService.currentRevision(user.getId());
+        Map<Integer, Long> buckets = vaultHashTreeService.getBuckets(user.getId());
+        long root = VaultHashTreeService.root(buckets);
+
+        List<Integer> differing = new ArrayList<>();
+        if (clientRoot == null || clientRoot != root) {
+            for (int bucket = 0; bucket < VaultHashTreeService.BUCKETS; bucket++) {
+                if (!Objects.equals(buckets.getOrDefault(bucket, 0L), clientBuckets.getOrDefault(bucket, 0L))) {
+                    differing.add(bucket);
+                }
+            }
+        }
+
+        Map<Integer, List<ReconcileEntry>> entriesByBucket = Map.of();
+        if (!differing.isEmpty()) {
+            entriesByBucket = vaultEntryStore.findRevisionsByUserIdAndBucketIn(user.getId(), differing).stream()
+                    .collect(Collectors.groupingBy(ReconcileEntry::getBucket));
+        }
+
+        List<ReconcileBucket> result = new ArrayList<>();
+        for (Integer bucket : differing) {
+            result.add(ReconcileBucket.builder()
+                    .bucket(bucket)
+                    .hash(VaultHashTreeService.toHex(buckets.getOrDefault(bucket, 0L)))
+                    .entries(entriesByBucket.getOrDefault(bucket, List.of()))
+                    .build());
+        }
+        return ReconcileResponse.builder()
+                .root(VaultHashTreeService.toHex(root))
+                .inSync(differing.isEmpty())
+                .buckets(result)
+                .cursor(highWater)
+                .build();
+    }
+
+    /**
+     * Current revision high-water mark, handed to clients still syncing by time
+     * so they can switch to cursors.
+     */
+    @Transactional(readOnly = true)
+    public long getCurrentRevision(User user) {
+        return vaultRevisionService.currentRevision(user.getId());
+    }
+
+    /**
+     * Strong ETag for the user's vault representations, derived from the cached
+     * revision so that a matching If-None-Match is answered without reading
+     * entries or decrypting anything.
+     *
+     * @param variant distinguishes representations of the same revision, or null
+     */
+    public String getVaultETag(User user, String variant) {
+        long revision = vaultRevisionService.cachedRevision(user.getId());
+        return "\"" + user.getId() + "." + revision + (variant == null ? "" : "-" + variant) + "\"";
+    }
+
+    /**
+     * Ids of the user's entries deleted since the given time, for incremental sync.
+     */
+    @Transactional(readOnly = true)
+    public List<Long> getDeletedEntryIdsSince(User user, LocalDateTime since) {
+        return tombstoneService.getDeletedIdsSince(user.getId(), since);
+    }
+
+    /**
+     * Whether a client last synced at {@code since} may have missed deletes
+     * whose tombstones were already purged.
+     */
+    public boolean requiresFullResync(LocalDateTime since) {
+        return tombstoneService.isBeyondRetention(since);
+    }
+
+    /**
+     * The user's entries among {@code ids}, decrypted and with notes, in id
+     * order. Ids that do not exist or belong to someone else are left out.
+     */
+    @Transactional(readOnly = true)
+    public List<VaultEntry> getEntries(User user, Collection<Long> ids) {
+        return loadEntries(user, ids).stream()
+                .sorted(Comparator.comparing(VaultEntry::getId))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The user's entries for the site at {@code url}, decrypted and with notes:
+     * those whose URL has the same registrable domain, found through the
+     * (user, domain) index. Entries for the exact host come first, then by name.
+     */
+    @Transactional(readOnly = true)
+    public List<VaultEntry> getMatchingEntries(User user, String url) {
+        String domain = publicSuffixList.domainOf(url);
+        if (domain == null) {
+            return List.of();
+        }
+        String host = PublicSuffixList.hostOf(url);
+        List<VaultEntry> entries = vaultEntryStore.findByUserIdAndDomain(user.getId(), domain);
+        attachNotes(entries);
+        return entries.stream()
                 .peek(this::decryptSensitiveFields)
+                .sorted(Comparator.comparing((VaultEntry entry) -> !host.equals(PublicSuffixList.hostOf(entry.getUrl())))
+                        .thenComparing(VaultEntry::getName, String.CASE_INSENSITIVE_ORDER))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Groups of the user's entries that share a password, most widely shared
+     * first. Found by grouping on the password fingerprint index; nothing is
+     * decrypted and no password leaves the server.
+     */
+    @Transactional(readOnly = true)
+    public List<ReuseGroup> getReuseGroups(User user) {
+        Map<String, List<VaultEntry>> byFingerprint = vaultEntryStore.findReusedByUserId(user.getId()).stream()
+                .collect(Collectors.groupingBy(VaultEntry::getPasswordFingerprint));
+        return byFingerprint.entrySet().stream()
+                .map(group -> toReuseGroup(group.getKey(), group.getValue()))
+                .sorted(Comparator.comparing((ReuseGroup group) -> -group.getEntries().size())
+                        .thenComparing(group -> group.getEntries().get(0).getName(), String.CASE_INSENSITIVE_ORDER))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The user's entries whose password scored at most {@code maxScore},
+     * weakest first, read through the score index. Entries not scored yet
+     * are left out; no password leaves the server.
+     */
+    @Transactional(readOnly = true)
+    public List<PasswordStrengthEntry> getPasswordStrengths(User user, int maxScore) {
+        return vaultEntryStore.findByUserIdAndPasswordScoreAtMost(user.getId(), maxScore).stream()
+                .map(entry -> PasswordStrengthEntry.builder()
+                        .id(entry.getId())
+                        .name(entry.getName())
+                        .username(entry.getUsername())
+                        .url(entry.getUrl())
+                        .score(entry.getPasswordScore())
+                        .crackSeconds(entry.getPasswordCrackSeconds())
+                        .crackTime(PasswordStrength.describe(entry.getPasswordCrackSeconds()))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Hands the user's entries, decrypted and with notes, to {@code action} in
+     * id order and in chunks of at most {@code chunkSize}, reading them from a
+     * cursor so that only one chunk is in memory at a time.
+     */
+    @Transactional(readOnly = true)
+    public void forEachEntryChunk(User user, int chunkSize, Consumer<List<VaultEntry>> action) {
+        try (Stream<VaultEntry> entries = vaultEntryStore.streamByUserId(user.getId())) {
+            List<VaultEntry> chunk = new ArrayList<>(chunkSize);
+            Iterator<VaultEntry> iterator = entries.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                    attachNotes(chunk);
+                    chunk.forEach(this::decryptSensitiveFields);
+                    action.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        }
+    }
+
+    @Transactional(readOnly = true)
     public VaultEntry getEntryById(Long id, User user) {
-        VaultEntry entry = vaultEntryRepository.findById(id)
+        VaultEntry entry = vaultEntryStore.findById(id)
                 .orElseThrow(() -> new RuntimeException("Entry not found"));
 
         if (!entry.getUser().getId().equals(user.getId())) {
             throw new AccessDeniedException();
         }
 
+        entry.setNotes(vaultEntryStore.findPayload(id)
+                .map(VaultEntryPayload::getNotes)
+                .orElse(null));
         decryptSensitiveFields(entry);
         return entry;
     }
 
     @Transactional
     public VaultEntry updateEntry(Long id, VaultEntry updatedEntry, User user) {
+        return updateEntry(id, updatedEntry, user, null);
+    }
+
+    /**
+     * Updates an entry, optionally only if it is still at {@code expectedVersion}.
+     * The revision counter is taken first: it locks the user's writes, so the
+     * entry read afterwards is the latest committed one and the version check
+     * cannot race with another writer.
+     *
+     * @throws EntryConflictException with the current entry when the version differs
+     */
+    @Transactional
+    public VaultEntry updateEntry(Long id, VaultEntry updatedEntry, User user, Long expectedVersion) {
+        long revision = vaultRevisionService.nextRevision(user.getId());
         VaultEntry existingEntry = getEntryById(id, user);
+        checkVersion(existingEntry, expectedVersion);
+        return update(existingEntry, updatedEntry, revision);
+    }
 
+    /**
+     * Applies an update to a loaded, decrypted entry at a revision already
+     * taken from the user's counter.
+     */
+    VaultEntry update(VaultEntry existingEntry, VaultEntry updatedEntry, long revision) {
+        Long id = existingEntry.getId();
+        Long previousRevision = existingEntry.getRevision();
+        Map<String, String> previousVersion = entryHistoryService.capture(existingEntry);
+        VaultStatsService.Tally tally = vaultStatsService.tally().remove(existingEntry);
+
+        boolean passwordChanged = !Objects.equals(existingEntry.getPassword(), updatedEntry.getPassword());
+        if (existingEntry.getFieldRevisions() == null) {
+            existingEntry.setFieldRevisions(new FieldRevisions());
+        }
+        existingEntry.getFieldRevisions().recordChanges(existingEntry, updatedEntry, revision);
         existingEntry.setName(updatedEntry.getName());
         existingEntry.setUsername(updatedEntry.getUsername());
         existingEntry.setPassword(updatedEntry.getPassword());
+        if (passwordChanged) {
+            stampPassword(existingEntry, LocalDateTime.now());
+            breachCheckService.checkAfterCommit(existingEntry.getUser().getId(), List.of(existingEntry));
+            passwordStrengthService.scoreAfterCommit(existingEntry.getUser().getId(), List.of(existingEntry));
+        }
         existingEntry.setUrl(updatedEntry.getUrl());
+        existingEntry.setDomain(publicSuffixList.domainOf(updatedEntry.getUrl()));
         existingEntry.setNotes(updatedEntry.getNotes());
         existingEntry.setType(updatedEntry.getType());
         existingEntry.setCategory(updatedEntry.getCategory());
+        existingEntry.setRevision(revision);
+        entryHistoryService.recordChange(previousVersion, existingEntry);
+        tally.add(existingEntry);
 
         encryptSensitiveFields(existingEntry);
-        return vaultEntryRepository.save(existingEntry);
+        VaultEntry savedEntry = vaultEntryStore.save(existingEntry);
+        savePayload(id, existingEntry.getNotes());
+        savedEntry.setNotes(existingEntry.getNotes());
+        vaultHashTreeService.replace(savedEntry, previousRevision);
+        vaultStatsService.apply(savedEntry.getUser().getId(), tally);
+        publishChange(savedEntry, VaultChangeEvent.Kind.UPDATED);
+        return savedEntry;
+    }
+
+    /**
+     * Previous versions of an entry, newest first.
+     */
+    @Transactional(readOnly = true)
+    public EntryHistoryResponse getEntryHistory(Long id, User user, int page, int size) {
+        return entryHistoryService.getHistory(getEntryById(id, user), page, size);
     }
 
     @Transactional
     public void deleteEntry(Long id, User user) {
+        deleteEntry(id, user, null);
+    }
+
+    /**
+     * Deletes an entry, optionally only if it is still at {@code expectedVersion}.
+     *
+     * @throws EntryConflictException with the current entry when the version differs
+     */
+    @Transactional
+    public void deleteEntry(Long id, User user, Long expectedVersion) {
+        long revision = vaultRevisionService.nextRevision(user.getId());
         VaultEntry entry = getEntryById(id, user);
-        vaultEntryRepository.delete(entry);
+        checkVersion(entry, expectedVersion);
+        delete(entry, revision);
+    }
+
+    /**
+     * Deletes a loaded entry at a revision already taken from the user's counter.
+     */
+    void delete(VaultEntry entry, long revision) {
+        Long id = entry.getId();
+        Long userId = entry.getUser().getId();
+        entryHistoryService.deleteHistory(id);
+        vaultEntryStore.deletePayload(id);
+        vaultEntryStore.delete(entry);
+        entryUsageService.forget(userId, id);
+        vaultHashTreeService.remove(entry);
+        vaultStatsService.apply(userId, vaultStatsService.tally().remove(entry));
+        tombstoneService.recordDeletion(entry, revision);
+        eventPublisher.publishEvent(new VaultChangeEvent(userId, id, VaultChangeEvent.Kind.DELETED, revision));
+    }
+
+    /**
+     * Decrypted copies of the user's entries among {@code ids}, with notes;
+     * ids that do not exist or belong to someone else are left out. One
+     * indexed query for the entries and one for their payloads.
+     *
+     * Copies keep plaintext out of the persistence context, so entries loaded
+     * in a write transaction but not written are never flushed decrypted.
+     * Passing a copy to {@link #update} or {@link #delete} applies it.
+     */
+    List<VaultEntry> loadEntries(User user, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<VaultEntry> entries = vaultEntryStore.findByUserIdAndIdIn(user.getId(), ids).stream()
+                .map(VaultService::copyOf)
+                .collect(Collectors.toList());
+        attachNotes(entries);
+        entries.forEach(this::decryptSensitiveFields);
+        return entries;
+    }
+
+    private static VaultEntry copyOf(VaultEntry entry) {
+        FieldRevisions fieldRevisions = entry.getFieldRevisions();
+        return entry.toBuilder()
+                .fieldRevisions(fieldRevisions == null ? null : fieldRevisions.toBuilder().build())
+                .build();
+    }
+
+    void checkVersion(VaultEntry entry, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(entry.getVersion())) {
+            throw new EntryConflictException(entry);
+        }
+    }
+
+    /**
+     * Builds field deltas relative to {@code cursor}, fetching notes payloads
+     * only for entries whose notes changed and decrypting only changed secrets.
+     */
+    private List<EntryDelta> toDeltas(List<VaultEntry> entries, long cursor) {
+        List<Long> notesChanged = entries.stream()
+                .filter(entry -> FieldRevisions.changedAfter(fieldRevisions(entry).getNotes(), cursor))
+                .map(VaultEntry::getId)
+                .collect(Collectors.toList());
+        Map<Long, String> notesById = notesChanged.isEmpty() ? Map.of()
+                : vaultEntryStore.findPayloads(notesChanged).stream()
+                        .filter(payload -> payload.getNotes() != null)
+                        .collect(Collectors.toMap(VaultEntryPayload::getEntryId, VaultEntryPayload::getNotes));
+
+        List<EntryDelta> deltas = new ArrayList<>();
+        for (VaultEntry entry : entries) {
+            FieldRevisions revisions = fieldRevisions(entry);
+            List<String> changed = new ArrayList<>();
+            EntryDelta.EntryDeltaBuilder delta = EntryDelta.builder()
+                    .id(entry.getId())
+                    .revision(entry.getRevision())
+                    .version(entry.getVersion())
+                    .bucket(entry.getBucket())
+                    .updatedAt(entry.getUpdatedAt())
+                    .changedFields(changed);
+            if (FieldRevisions.changedAfter(revisions.getName(), cursor)) {
+                changed.add("name");
+                delta.name(entry.getName());
+            }
+            if (FieldRevisions.changedAfter(revisions.getUsername(), cursor)) {
+                changed.add("username");
+                delta.username(entry.getUsername());
+            }
+            if (FieldRevisions.changedAfter(revisions.getPassword(), cursor)) {
+                changed.add("password");
+                delta.password(entry.getPassword() == null ? null : encryptionService.decrypt(entry.getPassword()));
+            }
+            if (FieldRevisions.changedAfter(revisions.getUrl(), cursor)) {
+                changed.add("url");
+                delta.url(entry.getUrl());
+            }
+            if (FieldRevisions.changedAfter(revisions.getNotes(), cursor)) {
+                changed.add("notes");
+                String notes = notesById.get(entry.getId());
+                delta.notes(notes == null ? null : encryptionService.decrypt(notes));
+            }
+            if (FieldRevisions.changedAfter(revisions.getType(), cursor)) {
+                changed.add("type");
+                delta.type(entry.getType());
+            }
+            if (FieldRevisions.changedAfter(revisions.getCategory(), cursor)) {
+                changed.add("category");
+                delta.category(entry.getCategory());
+            }
+            deltas.add(delta.build());
+        }
+        return deltas;
+    }
+
+    private static ReuseGroup toReuseGroup(String fingerprint, List<VaultEntry> entries) {
+        List<VaultEntry> sorted = entries.stream()
+                .sorted(Comparator.comparing(VaultEntry::getName, String.CASE_INSENSITIVE_ORDER))
+                .toList();
+        LocalDateTime latest = sorted.stream()
+                .map(VaultEntry::getUpdatedAt)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElseGet(LocalDateTime::now);
+        return ReuseGroup.builder()
+                .id("reuse-" + fingerprint)
+                .message(sorted.size() + " entries use the same password: "
+                        + sorted.stream().map(VaultEntry::getName).collect(Collectors.joining(", ")))
+                .severity(sorted.size() > 2 ? "CRITICAL" : "WARNING")
+                .timestamp(latest.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+                .entries(sorted.stream()
+                        .map(entry -> ReuseGroup.Entry.builder()
+                                .id(entry.getId())
+                                .name(entry.getName())
+                                .username(entry.getUsername())
+                                .url(entry.getUrl())
+                                .build())
+                        .toList())
+                .build();
+    }
+
+    private static FieldRevisions fieldRevisions(VaultEntry entry) {
+        return entry.getFieldRevisions() == null ? new FieldRevisions() : entry.getFieldRevisions();
+    }
+
+    private void publishChange(VaultEntry entry, VaultChangeEvent.Kind kind) {
+        eventPublisher.publishEvent(new VaultChangeEvent(entry.getUser().getId(), entry.getId(), kind,
+                entry.getRevision()));
+    }
+
+    private void savePayload(Long entryId, String encryptedNotes) {
+        if (encryptedNotes == null) {
+            vaultEntryStore.deletePayload(entryId);
+            return;
+        }
+        vaultEntryStore.savePayload(VaultEntryPayload.builder()
+                .entryId(entryId)
+                .notes(encryptedNotes)
+                .build());
+    }
+
+    private void attachNotes(List<VaultEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<Long> ids = entries.stream().map(VaultEntry::getId).collect(Collectors.toList());
+        Map<Long, String> notesById = vaultEntryStore.findPayloads(ids).stream()
+                .filter(payload -> payload.getNotes() != null)
+                .collect(Collectors.toMap(VaultEntryPayload::getEntryId, VaultEntryPayload::getNotes));
+        entries.forEach(entry -> entry.setNotes(notesById.get(entry.getId())));
+    }
+
+    /**
+     * Records when the plaintext password was set and its fingerprint, before
+     * the password is encrypted, and clears its strength until it is scored.
+     */
+    private void stampPassword(VaultEntry entry, LocalDateTime now) {
+        entry.setPasswordChangedAt(entry.getPassword() == null ? null : now);
+        entry.setPasswordFingerprint(encryptionService.fingerprint(entry.getPassword()));
+        entry.setPasswordScore(null);
+        entry.setPasswordCrackSeconds(null);
+        entry.setPasswordScoreVersion(null);
     }
 
     private void encryptSensitiveFields(VaultEntry entry) {
@@ -0,0 +1,376 @@
+package com.wilove.vaulten.service;
+
+import com.wilove.vaulten.datasource.ShardRouter;
+import com.wilove.vaulten.dto.VaultStatsResponse;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryType;
+import com.wilove.vaulten.model.VaultPasswordCount;
+import com.wilove.vaulten.model.VaultStat;
+import com.wilove.vaulten.repository.VaultPasswordCountRepository;
+import com.wilove.vaulten.repository.VaultRevisionRepository;
+import com.wilove.vaulten.repository.VaultStatRepository;
+import com.wilove.vaulten.store.VaultEntryStore;
+import com.wilove.vaulten.strength.PasswordStrengthEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Maintains per-user counters over the vault for dashboards: entries by type
+ * and category, passwords by the month they were last changed, and weak and
+ * reused passwords. {@link VaultService} adjusts them in the same transaction
+ * as each write, from the entry's plaintext before and after, so reading them
+ * never touches entries.
+ *
+ * A password counts as weak once its strength score, set in the background
+ * after it is stored, is at most {@link PasswordStrengthEstimator#WEAK_SCORE};
+ * the scoring moves its entries in or out of the count.
+ *
+ * Reuse is tracked through a count of entries per keyed password fingerprint
+ * (the entry's stored one, or computed when it has none); an entry counts as
+ * reused while another entry has the same password. The same rows record
+ * whether a password was found in the breached password corpus, and the
+ * breached counter follows them.
+ */
+@Service
+@Slf4j
+public class VaultStatsService {
+
+    static final String TYPE = "type:";
+    static final String CATEGORY = "category:";
+    static final String PASSWORD_CHANGED = "password-changed:";
+    static final String WEAK = "weak";
+    static final String REUSED = "reused";
+    static final String BREACHED = "breached";
+
+    private final VaultStatRepository statRepository;
+    private final VaultPasswordCountRepository passwordCountRepository;
+    private final VaultRevisionRepository revisionRepository;
+    private final VaultRevisionService vaultRevisionService;
+    private final VaultEntryStore vaultEntryStore;
+    private final EncryptionService encryptionService;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration staleAfter;
+    private final int repairBatchSize;
+
+    public VaultStatsService(VaultStatRepository statRepository,
+            VaultPasswordCountRepository passwordCountRepository,
+            VaultRevisionRepository revisionRepository,
+            VaultRevisionService vaultRevisionService,
+            VaultEntryStore vaultEntryStore,
+            EncryptionService encryptionService,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${vault.stats.stale-after:P365D}") Duration staleAfter,
+            @Value("${vault.stats.repair-batch-size:100}") int repairBatchSize) {
+        this.statRepository = statRepository;
+        this.passwordCountRepository = passwordCountRepository;
+        this.revisionRepository = revisionRepository;
+        this.vaultRevisionService = vaultRevisionService;
+        this.vaultEntryStore = vaultEntryStore;
+        this.encryptionService = encryptionService;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.staleAfter = staleAfter;
+        this.repairBatchSize = repairBatchSize;
+    }
+
+    /**
+     * Whether the entry's password scored as weak; until it is scored it
+     * does not count.
+     */
+    static boolean isWeak(VaultEntry entry) {
+        return entry.getPasswordScore() != null && entry.getPasswordScore() <= PasswordStrengthEstimator.WEAK_SCORE;
+    }
+
+    public Tally tally() {
+        return new Tally();
+    }
+
+    /**
+     * The user's statistics, from their counter rows alone. Stale counts go
+     * by month: an entry is stale once the month its password was last
+     * changed in ends before the cutoff.
+     */
+    @Transactional(readOnly = true)
+    public VaultStatsResponse getStats(Long userId) {
+        YearMonth staleBefore = YearMonth.from(LocalDateTime.now().minus(staleAfter));
+        Map<VaultEntryType, Long> byType = new EnumMap<>(VaultEntryType.class);
+        for (VaultEntryType type : VaultEntryType.values()) {
+            byType.put(type, 0L);
+        }
+        Map<String, Long> byCategory = new TreeMap<>();
+        long uncategorized = 0;
+        long stale = 0;
+        long weak = 0;
+        long reused = 0;
+        long breached = 0;
+        for (VaultStat stat : statRepository.findByUserId(userId)) {
+            String name = stat.getName();
+            if (name.startsWith(TYPE)) {
+                byType.put(VaultEntryType.valueOf(name.substring(TYPE.length())), stat.getCount());
+            } else if (name.equals(CATEGORY)) {
+                uncategorized = stat.getCount();
+            } else if (name.startsWith(CATEGORY)) {
+                byCategory.put(name.substring(CATEGORY.length()), stat.getCount());
+            } else if (name.startsWith(PASSWORD_CHANGED)) {
+                if (YearMonth.parse(name.substring(PASSWORD_CHANGED.length())).isBefore(staleBefore)) {
+                    stale += stat.getCount();
+                }
+            } else if (name.equals(WEAK)) {
+                weak = stat.getCount();
+            } else if (name.equals(REUSED)) {
+                reused = stat.getCount();
+            } else if (name.equals(BREACHED)) {
+                breached = stat.getCount();
+            }
+        }
+        return VaultStatsResponse.builder()
+                .total(byType.values().stream().mapToLong(Long::longValue).sum())
+                .byType(byType)
+                .byCategory(byCategory)
+                .uncategorized(uncategorized)
+                .stale(stale)
+                .staleBefore(staleBefore.atDay(1))
+                .weak(weak)
+                .reused(reused)
+                .breached(breached)
+                .build();
+    }
+
+    /**
+     * Applies the changes collected in {@code tally} to the user's counters.
+     * Must run after {@link VaultRevisionService#nextRevision} in the write
+     * transaction: the locked revision counter serializes the user's
+     * read-modify-write of the counter rows.
+     */
+    public void apply(Long userId, Tally tally) {
+        long reusedDelta = 0;
+        long breachedDelta = 0;
+        Map<String, Long> passwords = nonZero(tally.passwords);
+        if (!passwords.isEmpty()) {
+            Map<String, VaultPasswordCount> rows = passwordCountRepository
+                    .findByUserIdAndFingerprintIn(userId, passwords.keySet()).stream()
+                    .collect(Collectors.toMap(VaultPasswordCount::getFingerprint, Function.identity()));
+            for (Map.Entry<String, Long> delta : passwords.entrySet()) {
+                VaultPasswordCount row = rows.get(delta.getKey());
+                long before = row == null ? 0 : row.getCount();
+                long after = before + delta.getValue();
+                reusedDelta += reusedEntries(after) - reusedEntries(before);
+                if (row != null && Boolean.TRUE.equals(row.getBreached())) {
+                    breachedDelta += delta.getValue();
+                }
+                if (row == null) {
+                    passwordCountRepository.save(new VaultPasswordCount(userId, delta.getKey(), after));
+                } else if (after == 0) {
+                    passwordCountRepository.delete(row);
+                } else {
+                    row.setCount(after);
+                    passwordCountRepository.save(row);
+                }
+            }
+        }
+        tally.stats.merge(REUSED, reusedDelta, Long::sum);
+        tally.stats.merge(BREACHED, breachedDelta, Long::sum);
+
+        Map<String, Long> stats = nonZero(tally.stats);
+        if (stats.isEmpty()) {
+            return;
+        }
+        Map<String, VaultStat> rows = statRepository.findByUserIdAndNameIn(userId, stats.keySet()).stream()
+                .collect(Collectors.toMap(VaultStat::getName, Function.identity()));
+        for (Map.Entry<String, Long> delta : stats.entrySet()) {
+            VaultStat row = rows.get(delta.getKey());
+            if (row == null) {
+                statRepository.save(new VaultStat(userId, delta.getKey(), delta.getValue()));
+            } else if (row.getCount() + delta.getValue() == 0) {
+                statRepository.delete(row);
+            } else {
+                row.setCount(row.getCount() + delta.getValue());
+                statRepository.save(row);
+            }
+        }
+    }
+
+    /**
+     * Records the result of checking one of the user's passwords against the
+     * breached password corpus, moving its entries in or out of the breached
+     * count. Must run under the user's write lock like {@link #apply}.
+     *
+     * @return false when the user no longer has the password
+     */
+    public boolean markBreached(Long userId, String fingerprint, boolean breached, LocalDateTime checkedAt) {
+        VaultPasswordCount row = passwordCountRepository.findById(new VaultPasswordCount.Key(userId, fingerprint))
+                .orElse(null);
+        if (row == null) {
+            return false;
+        }
+        long before = Boolean.TRUE.equals(row.getBreached()) ? row.getCount() : 0;
+        row.setBreached(breached);
+        row.setBreachCheckedAt(checkedAt);
+        passwordCountRepository.save(row);
+        Tally tally = new Tally();
+        tally.stats.put(BREACHED, (breached ? row.getCount() : 0) - before);
+        apply(userId, tally);
+        return true;
+    }
+
+    /**
+     * Recomputes the counters of every user with entries, a batch of users at
+     * a time and each user in its own transaction, in case they drifted (e.g.
+     * after restoring a backup or a bug in an older release).
+     */
+    @Scheduled(fixedDelayString = "${vault.stats.repair-interval:P1D}",
+            initialDelayString = "${vault.stats.repair-interval:P1D}")
+    public void repairAll() {
+        shardRouter.forEachShard(() -> {
+            int repaired = 0;
+            long afterUserId = 0;
+            List<Long> userIds;
+            while (!(userIds = revisionRepository.findUserIdsAfter(afterUserId, Limit.of(repairBatchSize)))
+                    .isEmpty()) {
+                for (Long userId : userIds) {
+                    if (repair(userId)) {
+                        repaired++;
+                    }
+                }
+                afterUserId = userIds.get(userIds.size() - 1);
+            }
+            if (repaired > 0) {
+                log.warn("Repaired drifted vault statistics of {} users", repaired);
+            }
+        });
+    }
+
+    /**
+     * Recounts the user's entries and rewrites the counters that differ. The
+     * user's writes are locked meanwhile so that none is counted twice or
+     * missed; passwords are decrypted one at a time and never written back.
+     *
+     * @return whether any counter had drifted
+     */
+    public boolean repair(Long userId) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            vaultRevisionService.reserveRevisions(userId, 0);
+            Tally actual = new Tally();
+            try (Stream<VaultEntry> entries = vaultEntryStore.streamByUserId(userId)) {
+                entries.forEach(entry -> actual.count(entry, encryptionService.decrypt(entry.getPassword()), 1));
+            }
+            Map<String, Long> passwords = nonZero(actual.passwords);
+            actual.stats.put(REUSED, passwords.values().stream().mapToLong(VaultStatsService::reusedEntries).sum());
+
+            boolean drifted = false;
+            long breached = 0;
+            for (VaultPasswordCount row : passwordCountRepository.findByUserId(userId)) {
+                Long count = passwords.remove(row.getFingerprint());
+                if (count == null) {
+                    passwordCountRepository.delete(row);
+                    drifted = true;
+                    continue;
+                } else if (count != row.getCount()) {
+                    row.setCount(count);
+                    passwordCountRepository.save(row);
+                    drifted = true;
+                }
+                if (Boolean.TRUE.equals(row.getBreached())) {
+                    breached += count;
+                }
+            }
+            drifted |= !passwords.isEmpty();
+            passwords.forEach((fingerprint, count) ->
+                    passwordCountRepository.save(new VaultPasswordCount(userId, fingerprint, count)));
+            actual.stats.put(BREACHED, breached);
+            Map<String, Long> stats = nonZero(actual.stats);
+            for (VaultStat row : statRepository.findByUserId(userId)) {
+                Long count = stats.remove(row.getName());
+                if (count == null) {
+                    statRepository.delete(row);
+                    drifted = true;
+                } else if (count != row.getCount()) {
+                    row.setCount(count);
+                    statRepository.save(row);
+                    drifted = true;
+                }
+            }
+            stats.forEach((name, count) -> statRepository.save(new VaultStat(userId, name, count)));
+            return drifted || !stats.isEmpty();
+        }));
+    }
+
+    private static long reusedEntries(long entriesWithPassword) {
+        return entriesWithPassword > 1 ? entriesWithPassword : 0;
+    }
+
+    private static Map<String, Long> nonZero(Map<String, Long> deltas) {
+        Map<String, Long> result = new HashMap<>();
+        deltas.forEach((name, delta) -> {
+            if (delta != 0) {
+                result.put(name, delta);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Changes to a user's counters, collected from decrypted entries as they
+     * are added and removed and applied in one go with {@link #apply}. An
+     * update removes the entry as it was and adds it as it is; counters it
+     * does not move cancel out.
+     */
+    public class Tally {
+
+        private final Map<String, Long> stats = new HashMap<>();
+        private final Map<String, Long> passwords = new HashMap<>();
+
+        private Tally() {
+        }
+
+        public Tally add(VaultEntry entry) {
+            count(entry, entry.getPassword(), 1);
+            return this;
+        }
+
+        public Tally remove(VaultEntry entry) {
+            count(entry, entry.getPassword(), -1);
+            return this;
+        }
+
+        private void count(VaultEntry entry, String password, long delta) {
+            if (entry.getType() != null) {
+                stats.merge(TYPE + entry.getType().name(), delta, Long::sum);
+            }
+            String category = entry.getCategory();
+            stats.merge(CATEGORY + (category == null || category.isBlank() ? "" : category), delta, Long::sum);
+            if (password == null || password.isEmpty()) {
+                return;
+            }
+            LocalDateTime changedAt = entry.getPasswordChangedAt() != null ? entry.getPasswordChangedAt()
+                    : entry.getCreatedAt() != null ? entry.getCreatedAt() : LocalDateTime.now();
+            stats.merge(PASSWORD_CHANGED + YearMonth.from(changedAt), delta, Long::sum);
+            if (isWeak(entry)) {
+                stats.merge(WEAK, delta, Long::sum);
+            }
+            String fingerprint = entry.getPasswordFingerprint() != null ? entry.getPasswordFingerprint()
+                    : encryptionService.fingerprint(password);
+            passwords.merge(fingerprint, delta, Long::sum);
+        }
+    }
+}
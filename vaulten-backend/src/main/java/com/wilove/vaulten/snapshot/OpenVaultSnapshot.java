@@ -0,0 +1,41 @@
+package com.wilove.vaulten.snapshot;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A snapshot opened for sending. Reading goes through the open channel, which
+ * stays readable when the snapshot is dropped and its file deleted meanwhile.
+ */
+public record OpenVaultSnapshot(VaultSnapshot snapshot, FileChannel channel) implements Closeable {
+
+    /**
+     * Sends the whole file with {@link FileChannel#transferTo}, then closes
+     * the channel.
+     */
+    public void transferTo(OutputStream out) throws IOException {
+        try {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = 0;
+            while (position < snapshot.size()) {
+                long sent = channel.transferTo(position, snapshot.size() - position, target);
+                if (sent == 0 && position >= channel.size()) {
+                    throw new EOFException("Vault snapshot " + snapshot.file() + " ended early");
+                }
+                position += sent;
+            }
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,10 @@
+package com.wilove.vaulten.snapshot;
+
+import java.nio.file.Path;
+
+/**
+ * A built snapshot file and what a client needs to use it: the key to decrypt
+ * it and the cursor to continue syncing from.
+ */
+public record VaultSnapshot(Long userId, Path file, long size, long cursor, byte[] key, long builtAt) {
+}
@@ -0,0 +1,301 @@
+package com.wilove.vaulten.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wilove.vaulten.datasource.DataSourceRoutingContext;
+import com.wilove.vaulten.dto.SyncResponse;
+import com.wilove.vaulten.event.VaultChangeEvent;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.service.VaultService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps a ready-made full sync per user on local disk, so that a new device's
+ * initial sync is a file send instead of decrypting and serializing the vault.
+ *
+ * A snapshot is the full-resync {@link SyncResponse} as JSON, gzipped and
+ * encrypted with a fresh AES-256-GCM key: {@code IV (12 bytes) || ciphertext}.
+ * The key is only held in memory and handed to the client with the file, so
+ * plaintext never reaches the disk and snapshots do not survive a restart.
+ *
+ * Local writes delete the user's snapshot; a new one is built once the user's
+ * changes have settled for {@code vault.snapshot.settle-delay}. Writes made on
+ * other instances are not seen, which is safe: the client continues from the
+ * snapshot's cursor and picks them up with its next sync. A snapshot being
+ * sent outlives its drop: it is either sent from a channel opened before the
+ * file can be deleted ({@link #openSnapshot}) or, for Tomcat's sendfile,
+ * which opens the file by name, from a hard link of its own
+ * ({@link #linkSnapshot}). Both rely on POSIX unlink semantics.
+ */
+@Service
+@Slf4j
+public class VaultSnapshotService {
+
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+    private static final String SUFFIX = ".snap";
+    private static final String LINK_SUFFIX = ".dl";
+
+    private final VaultService vaultService;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final long settleDelayNanos;
+    private final int maxSnapshots;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Map<Long, VaultSnapshot> snapshots = new ConcurrentHashMap<>();
+    // User id -> System.nanoTime() of the last change (or request) since the snapshot was dropped
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+    // Download link -> System.nanoTime() it was made at
+    private final Map<Path, Long> links = new ConcurrentHashMap<>();
+    private final AtomicLong nextLink = new AtomicLong();
+    private final long linkTtlNanos;
+
+    public VaultSnapshotService(VaultService vaultService,
+            ObjectMapper objectMapper,
+            @Value("${vault.snapshot.directory:${java.io.tmpdir}/vaulten-snapshots}") Path directory,
+            @Value("${vault.snapshot.settle-delay:PT30S}") Duration settleDelay,
+            @Value("${vault.snapshot.max-snapshots:1000}") int maxSnapshots,
+            @Value("${vault.snapshot.download-link-ttl:PT1M}") Duration linkTtl) {
+        this.vaultService = vaultService;
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.settleDelayNanos = settleDelay.toNanos();
+        this.maxSnapshots = maxSnapshots;
+        this.linkTtlNanos = linkTtl.toNanos();
+        try {
+            Files.createDirectories(directory);
+            // Keys of snapshots left by a previous run are gone
+            deleteSnapshotFiles();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open snapshot directory " + directory, e);
+        }
+    }
+
+    /**
+     * The user's current snapshot, or null when there is none yet; one is then
+     * scheduled for the next build round.
+     */
+    public VaultSnapshot getSnapshot(Long userId) {
+        VaultSnapshot snapshot = snapshots.get(userId);
+        if (snapshot == null) {
+            pending.putIfAbsent(userId, System.nanoTime() - settleDelayNanos);
+        }
+        return snapshot;
+    }
+
+    /**
+     * The user's current snapshot opened for reading, or null when there is
+     * none yet, as for {@link #getSnapshot}. A write that drops the snapshot
+     * while it is being sent deletes its file but not the open channel's
+     * content, so the caller must read it through the channel, never by path.
+     */
+    public OpenVaultSnapshot openSnapshot(Long userId) {
+        VaultSnapshot snapshot = getSnapshot(userId);
+        while (snapshot != null) {
+            try {
+                return new OpenVaultSnapshot(snapshot, FileChannel.open(snapshot.file(), StandardOpenOption.READ));
+            } catch (NoSuchFileException e) {
+                snapshot = replacementOf(userId, snapshot);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open vault snapshot " + snapshot.file(), e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The user's current snapshot under a file name of its own, for sending by
+     * name once the handler has returned, or null when there is none yet, as
+     * for {@link #getSnapshot}. Dropping the snapshot deletes only its own
+     * name; the link is deleted once older than
+     * {@code vault.snapshot.download-link-ttl}, by when the container has
+     * opened it.
+     */
+    public VaultSnapshot linkSnapshot(Long userId) {
+        VaultSnapshot snapshot = getSnapshot(userId);
+        while (snapshot != null) {
+            Path link = directory.resolve(snapshot.file().getFileName() + "." + nextLink.incrementAndGet()
+                    + LINK_SUFFIX);
+            try {
+                Files.createLink(link, snapshot.file());
+                links.put(link, System.nanoTime());
+                return new VaultSnapshot(userId, link, snapshot.size(), snapshot.cursor(), snapshot.key(),
+                        snapshot.builtAt());
+            } catch (NoSuchFileException e) {
+                snapshot = replacementOf(userId, snapshot);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not link vault snapshot " + snapshot.file(), e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The snapshot replacing one whose file was dropped between its lookup and
+     * its use, if any; otherwise schedules a new one.
+     */
+    private VaultSnapshot replacementOf(Long userId, VaultSnapshot dropped) {
+        if (snapshots.remove(userId, dropped)) {
+            pending.putIfAbsent(userId, System.nanoTime() - settleDelayNanos);
+        }
+        return getSnapshot(userId);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onVaultChange(VaultChangeEvent event) {
+        pending.put(event.userId(), System.nanoTime());
+        drop(snapshots.remove(event.userId()));
+    }
+
+    /**
+     * Builds snapshots for users whose last change is older than the settle
+     * delay, and deletes expired download links.
+     */
+    @Scheduled(fixedDelayString = "${vault.snapshot.build-interval:PT10S}",
+            initialDelayString = "${vault.snapshot.build-interval:PT10S}")
+    public void buildSettled() {
+        long now = System.nanoTime();
+        links.forEach((link, linkedAt) -> {
+            if (now - linkedAt >= linkTtlNanos && links.remove(link, linkedAt)) {
+                deleteQuietly(link);
+            }
+        });
+        pending.forEach((userId, changedAt) -> {
+            if (now - changedAt >= settleDelayNanos && pending.remove(userId, changedAt)) {
+                try {
+                    build(userId);
+                } catch (RuntimeException e) {
+                    log.warn("Could not build vault snapshot for user {}", userId, e);
+                }
+            }
+        });
+    }
+
+    void build(Long userId) {
+        long startedAt = System.nanoTime();
+        SyncResponse full = DataSourceRoutingContext.callAs(userId,
+                () -> vaultService.sync(User.builder().id(userId).build(), null));
+
+        byte[] key = new byte[32];
+        byte[] iv = new byte[IV_LENGTH];
+        secureRandom.nextBytes(key);
+        secureRandom.nextBytes(iv);
+        Path file = directory.resolve(userId + "-" + full.getCursor() + SUFFIX);
+        Path temp = directory.resolve(userId + "-" + full.getCursor() + SUFFIX + ".tmp");
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                out.write(iv);
+                try (OutputStream gzip = new GZIPOutputStream(new CipherOutputStream(out, cipher), 64 * 1024)) {
+                    objectMapper.writeValue(gzip, full);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException("Could not write vault snapshot " + file, e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not encrypt vault snapshot", e);
+        }
+
+        // A change committed while building invalidates the result right away
+        Long changedAt = pending.get(userId);
+        if (changedAt != null && changedAt - startedAt > 0) {
+            deleteQuietly(file);
+            return;
+        }
+        VaultSnapshot snapshot = new VaultSnapshot(userId, file, fileSize(file), full.getCursor(), key, startedAt);
+        VaultSnapshot previous = snapshots.put(userId, snapshot);
+        if (previous != null && !previous.file().equals(file)) {
+            drop(previous);
+        }
+        evictOldest();
+        log.debug("Built vault snapshot for user {} at revision {} ({} bytes)", userId, full.getCursor(),
+                snapshot.size());
+    }
+
+    public int getSnapshotCount() {
+        return snapshots.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshots.clear();
+        try {
+            deleteSnapshotFiles();
+        } catch (IOException e) {
+            log.warn("Could not clean up snapshot directory {}", directory, e);
+        }
+    }
+
+    private void evictOldest() {
+        while (snapshots.size() > maxSnapshots) {
+            snapshots.values().stream()
+                    .min(Comparator.comparingLong(VaultSnapshot::builtAt))
+                    .ifPresent(oldest -> {
+                        if (snapshots.remove(oldest.userId(), oldest)) {
+                            drop(oldest);
+                        }
+                    });
+        }
+    }
+
+    private void drop(VaultSnapshot snapshot) {
+        if (snapshot != null) {
+            deleteQuietly(snapshot.file());
+        }
+    }
+
+    private void deleteSnapshotFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX + "*")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static long fileSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete snapshot file {}", file, e);
+        }
+    }
+}
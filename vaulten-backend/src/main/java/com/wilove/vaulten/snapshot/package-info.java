@@ -0,0 +1,4 @@
+package com.wilove.vaulten.snapshot;
+
+// Precomputed vault snapshots for the initial sync of new devices
+// This package contains the background builder and the snapshot file format
@@ -0,0 +1,153 @@
+package com.wilove.vaulten.store;
+
+import com.wilove.vaulten.dto.ReconcileEntry;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryPayload;
+import com.wilove.vaulten.repository.VaultEntryPayloadRepository;
+import com.wilove.vaulten.repository.VaultEntryRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Default store backed by the JPA repositories.
+ */
+@Component
+@ConditionalOnProperty(name = "vault.store.type", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JpaVaultEntryStore implements VaultEntryStore {
+
+    private final VaultEntryRepository vaultEntryRepository;
+    private final VaultEntryPayloadRepository vaultEntryPayloadRepository;
+    private final EntityManager entityManager;
+
+    @Override
+    public VaultEntry save(VaultEntry entry) {
+        return vaultEntryRepository.save(entry);
+    }
+
+    @Override
+    public Optional<VaultEntry> findById(Long id) {
+        return vaultEntryRepository.findById(id);
+    }
+
+    @Override
+    public List<VaultEntry> findByUserId(Long userId) {
+        return vaultEntryRepository.findByUserId(userId);
+    }
+
+    @Override
+    public List<VaultEntry> findByUserIdAndIdIn(Long userId, Collection<Long> ids) {
+        return vaultEntryRepository.findByUserIdAndIdIn(userId, ids);
+    }
+
+    @Override
+    public List<VaultEntry> findByUserIdModifiedSince(Long userId, LocalDateTime since) {
+        return vaultEntryRepository.findByUserIdAndUpdatedAtGreaterThanEqual(userId, since);
+    }
+
+    @Override
+    public List<VaultEntry> findByUserIdAndRevisionBetween(Long userId, long afterRevision, long throughRevision) {
+        return vaultEntryRepository.findByUserIdAndRevisionGreaterThanAndRevisionLessThanEqual(userId, afterRevision,
+                throughRevision);
+    }
+
+    @Override
+    public List<VaultEntry> findByUserIdAndRevisionBetween(Long userId, long afterRevision, long throughRevision,
+            int limit) {
+        return vaultEntryRepository.findByUserIdAndRevisionGreaterThanAndRevisionLessThanEqualOrderByRevision(userId,
+                afterRevision, throughRevision, Limit.of(limit));
+    }
+
+    @Override
+    public List<ReconcileEntry> findRevisionsByUserIdAndBucketIn(Long userId, Collection<Integer> buckets) {
+        return vaultEntryRepository.findRevisionsByUserIdAndBucketIn(userId, buckets);
+    }
+
+    @Override
+    public List<VaultEntry> findByUserIdAndDomain(Long userId, String domain) {
+        return vaultEntryRepository.findByUserIdAndDomain(userId, domain);
+    }
+
+    @Override
+    public List<VaultEntry> findByUserIdAndPasswordFingerprintIn(Long userId, Collection<String> fingerprints) {
+        return vaultEntryRepository.findByUserIdAndPasswordFingerprintIn(userId, fingerprints);
+    }
+
+    @Override
+    public List<VaultEntry> findReusedByUserId(Long userId) {
+        return vaultEntryRepository.findReusedByUserId(userId);
+    }
+
+    @Override
+    public List<VaultEntry> findByUserIdAndPasswordScoreAtMost(Long userId, int maxScore) {
+        return vaultEntryRepository.findByUserIdAndPasswordScoreAtMost(userId, maxScore);
+    }
+
+    @Override
+    public List<String> findUnscoredFingerprints(Long userId, int estimatorVersion) {
+        return vaultEntryRepository.findUnscoredFingerprints(userId, estimatorVersion);
+    }
+
+    @Override
+    public int updatePasswordStrength(Long userId, String fingerprint, Integer score, Double crackSeconds,
+            int estimatorVersion) {
+        return vaultEntryRepository.updatePasswordStrength(userId, fingerprint, score, crackSeconds,
+                estimatorVersion);
+    }
+
+    /**
+     * Reads through a forward-only cursor and detaches each entry as it is
+     * handed out, so the persistence context stays empty however large the
+     * vault is.
+     */
+    @Override
+    public Stream<VaultEntry> streamByUserId(Long userId) {
+        return vaultEntryRepository.streamByUserId(userId).map(entry -> {
+            entityManager.detach(entry);
+            return entry;
+        });
+    }
+
+    @Override
+    public void delete(VaultEntry entry) {
+        vaultEntryRepository.delete(entry);
+    }
+
+    @Override
+    public VaultEntryPayload savePayload(VaultEntryPayload payload) {
+        return vaultEntryPayloadRepository.save(payload);
+    }
+
+    /**
+     * Persists directly: {@code save} would merge, selecting the row first
+     * because the id is assigned, and that select would break insert batching.
+     */
+    @Override
+    public void insertPayload(VaultEntryPayload payload) {
+        entityManager.persist(payload);
+    }
+
+    @Override
+    public Optional<VaultEntryPayload> findPayload(Long entryId) {
+        return vaultEntryPayloadRepository.findById(entryId);
+    }
+
+    @Override
+    public List<VaultEntryPayload> findPayloads(Collection<Long> entryIds) {
+        return vaultEntryPayloadRepository.findValuesByEntryIdIn(entryIds);
+    }
+
+    @Override
+    public void deletePayload(Long entryId) {
+        vaultEntryPayloadRepository.deleteById(entryId);
+    }
+}
@@ -0,0 +1,183 @@
+package com.wilove.vaulten.store;
+
+import com.wilove.vaulten.dto.ReconcileEntry;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryPayload;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistence boundary for vault entries and their payloads. Selected with
+ * {@code vault.store.type}: {@code jpa} (default) or {@code log} for the
+ * embedded log-structured engine.
+ *
+ * Query methods with a default implementation filter the user's entries in
+ * memory; stores backed by a database override them with indexed queries.
+ */
+public interface VaultEntryStore {
+
+    /**
+     * Inserts or replaces an entry, assigning the id and timestamps.
+     */
+    VaultEntry save(VaultEntry entry);
+
+    Optional<VaultEntry> findById(Long id);
+
+    List<VaultEntry> findByUserId(Long userId);
+
+    /**
+     * The user's entries among the given ids; other users' entries are left out.
+     */
+    default List<VaultEntry> findByUserIdAndIdIn(Long userId, Collection<Long> ids) {
+        return ids.stream()
+                .distinct()
+                .map(this::findById)
+                .flatMap(Optional::stream)
+                .filter(entry -> userId.equals(entry.getUser() != null ? entry.getUser().getId() : entry.getUserId()))
+                .collect(Collectors.toList());
+    }
+
+    default List<VaultEntry> findByUserIdModifiedSince(Long userId, LocalDateTime since) {
+        return findByUserId(userId).stream()
+                .filter(entry -> entry.getUpdatedAt() != null && !entry.getUpdatedAt().isBefore(since))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Entries whose revision is in {@code (afterRevision, throughRevision]}.
+     */
+    default List<VaultEntry> findByUserIdAndRevisionBetween(Long userId, long afterRevision, long throughRevision) {
+        return findByUserId(userId).stream()
+                .filter(entry -> entry.getRevision() != null
+                        && entry.getRevision() > afterRevision && entry.getRevision() <= throughRevision)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Up to {@code limit} entries whose revision is in
+     * {@code (afterRevision, throughRevision]}, in revision order.
+     */
+    default List<VaultEntry> findByUserIdAndRevisionBetween(Long userId, long afterRevision, long throughRevision,
+            int limit) {
+        return findByUserIdAndRevisionBetween(userId, afterRevision, throughRevision).stream()
+                .sorted(Comparator.comparing(VaultEntry::getRevision))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Ids and revisions of the entries in the given hash tree buckets, in id
+     * order.
+     */
+    default List<ReconcileEntry> findRevisionsByUserIdAndBucketIn(Long userId, Collection<Integer> buckets) {
+        return findByUserId(userId).stream()
+                .filter(entry -> buckets.contains(entry.getBucket()))
+                .sorted(Comparator.comparing(VaultEntry::getId))
+                .map(entry -> new ReconcileEntry(entry.getId(), entry.getRevision(), entry.getBucket()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Entries whose URL has the given registrable domain.
+     */
+    default List<VaultEntry> findByUserIdAndDomain(Long userId, String domain) {
+        return findByUserId(userId).stream()
+                .filter(entry -> domain.equals(entry.getDomain()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Entries whose password has one of the given fingerprints.
+     */
+    default List<VaultEntry> findByUserIdAndPasswordFingerprintIn(Long userId, Collection<String> fingerprints) {
+        return findByUserId(userId).stream()
+                .filter(entry -> fingerprints.contains(entry.getPasswordFingerprint()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Entries whose password fingerprint is shared with another of the user's
+     * entries.
+     */
+    default List<VaultEntry> findReusedByUserId(Long userId) {
+        Map<String, List<VaultEntry>> byFingerprint = findByUserId(userId).stream()
+                .filter(entry -> entry.getPasswordFingerprint() != null)
+                .collect(Collectors.groupingBy(VaultEntry::getPasswordFingerprint));
+        return byFingerprint.values().stream()
+                .filter(entries -> entries.size() > 1)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Entries whose password scored at most {@code maxScore}, weakest first;
+     * entries not scored yet are left out.
+     */
+    default List<VaultEntry> findByUserIdAndPasswordScoreAtMost(Long userId, int maxScore) {
+        return findByUserId(userId).stream()
+                .filter(entry -> entry.getPasswordScore() != null && entry.getPasswordScore() <= maxScore)
+                .sorted(Comparator.comparing(VaultEntry::getPasswordScore)
+                        .thenComparing(VaultEntry::getPasswordCrackSeconds,
+                                Comparator.nullsLast(Comparator.naturalOrder())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Fingerprints of the user's passwords not yet scored by the given
+     * version of the strength estimator.
+     */
+    default List<String> findUnscoredFingerprints(Long userId, int estimatorVersion) {
+        return findByUserId(userId).stream()
+                .filter(entry -> entry.getPasswordFingerprint() != null)
+                .filter(entry -> entry.getPasswordScoreVersion() == null
+                        || entry.getPasswordScoreVersion() < estimatorVersion)
+                .map(VaultEntry::getPasswordFingerprint)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Stores the strength estimate of a password on the user's entries that
+     * have it. The estimate is derived data, not an edit: the entries keep
+     * their version, revision and timestamps.
+     *
+     * @return the number of entries updated
+     */
+    int updatePasswordStrength(Long userId, String fingerprint, Integer score, Double crackSeconds,
+            int estimatorVersion);
+
+    /**
+     * All of the user's entries in id order, without holding them all in
+     * memory where the store allows it. Must be consumed and closed within a
+     * transaction; the entries are detached, so changing them writes nothing.
+     */
+    default Stream<VaultEntry> streamByUserId(Long userId) {
+        return findByUserId(userId).stream()
+                .sorted(Comparator.comparing(VaultEntry::getId));
+    }
+
+    void delete(VaultEntry entry);
+
+    VaultEntryPayload savePayload(VaultEntryPayload payload);
+
+    /**
+     * Stores the payload of an entry created in this transaction, which has
+     * none yet; stores can skip the existence check a replace needs.
+     */
+    default void insertPayload(VaultEntryPayload payload) {
+        savePayload(payload);
+    }
+
+    Optional<VaultEntryPayload> findPayload(Long entryId);
+
+    List<VaultEntryPayload> findPayloads(Collection<Long> entryIds);
+
+    void deletePayload(Long entryId);
+}
@@ -0,0 +1,60 @@
+package com.wilove.vaulten.store.log;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * One decoded record. On disk a record is laid out as
+ * {@code [int bodyLength][int crc32c(body)][byte type][long key][long userId][value...]};
+ * a zero length marks the unwritten tail of a segment.
+ */
+record LogRecord(RecordType type, long key, long userId, byte[] value) {
+
+    static final int HEADER_SIZE = 8;
+    static final int BODY_PREFIX_SIZE = 1 + 8 + 8;
+
+    int size() {
+        return HEADER_SIZE + BODY_PREFIX_SIZE + value.length;
+    }
+
+    ByteBuffer encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(size());
+        buffer.position(HEADER_SIZE);
+        buffer.put(type.code()).putLong(key).putLong(userId).put(value);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), HEADER_SIZE, size() - HEADER_SIZE);
+        buffer.putInt(0, size() - HEADER_SIZE).putInt(4, (int) crc.getValue());
+        return buffer.rewind();
+    }
+
+    /**
+     * Decodes the record at {@code offset}.
+     *
+     * @return the record, or null at the end of the written data or on a torn
+     *         or corrupt record
+     */
+    static LogRecord decode(ByteBuffer segment, int offset) {
+        if (offset + HEADER_SIZE > segment.capacity()) {
+            return null;
+        }
+        int bodyLength = segment.getInt(offset);
+        if (bodyLength < BODY_PREFIX_SIZE || offset + HEADER_SIZE + bodyLength > segment.capacity()) {
+            return null;
+        }
+        ByteBuffer body = segment.slice(offset + HEADER_SIZE, bodyLength);
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != segment.getInt(offset + 4)) {
+            return null;
+        }
+        RecordType type = RecordType.fromCode(body.get());
+        if (type == null) {
+            return null;
+        }
+        long key = body.getLong();
+        long userId = body.getLong();
+        byte[] value = new byte[body.remaining()];
+        body.get(value);
+        return new LogRecord(type, key, userId, value);
+    }
+}
@@ -0,0 +1,659 @@
+package com.wilove.vaulten.store.log;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryPayload;
+import com.wilove.vaulten.store.VaultEntryStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Embedded store for single-node deployments that keeps vault entries in
+ * append-only, memory-mapped segment files instead of the database.
+ *
+ * Every change appends a checksummed record to the active segment; an
+ * in-memory index maps each entry (grouped per user) and payload to the
+ * offset of its latest record. On startup the segments are replayed to
+ * rebuild the index, and a torn record left by a crash is cut off. A
+ * background task rewrites mostly-dead sealed segments into the active one
+ * and deletes them.
+ *
+ * Only vault entries and payloads live here; users and the other tables stay
+ * on JPA. Records written inside a Spring transaction are held, visible to
+ * its own reads only, and appended just before the JPA side commits: while
+ * the writer still holds the user's revision lock, so the next writer of the
+ * user reads them. When the commit then rolls back they are undone by
+ * appending the records they replaced, and kept when its outcome is unknown;
+ * a rollback before that point just drops them.
+ * Writes are durable once the OS has the page; set
+ * {@code vault.store.log.force-writes=true} to also survive power loss.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "vault.store.type", havingValue = "log")
+public class LogStructuredVaultEntryStore implements VaultEntryStore {
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean forceWrites;
+    private final double compactionThreshold;
+
+    // Annotations are ignored so fields hidden from the API (e.g. userId) are still persisted
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .disable(MapperFeature.USE_ANNOTATIONS)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .addModule(new JavaTimeModule())
+            .withConfigOverride(User.class, override -> override.setIsIgnoredType(true))
+            .withConfigOverride(VaultEntry.class,
+                    override -> override.setIgnorals(JsonIgnoreProperties.Value.forIgnoredProperties("notes")))
+            .build();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Map<Long, RecordLocation> entries = new ConcurrentHashMap<>();
+    private final Map<Long, ConcurrentNavigableMap<Long, RecordLocation>> entriesByUser = new ConcurrentHashMap<>();
+    private final Map<Long, RecordLocation> payloads = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ScheduledExecutorService compactor;
+    private volatile Segment active;
+
+    public LogStructuredVaultEntryStore(
+            @Value("${vault.store.log.directory:data/vault-log}") Path directory,
+            @Value("${vault.store.log.segment-size:64MB}") DataSize segmentSize,
+            @Value("${vault.store.log.force-writes:false}") boolean forceWrites,
+            @Value("${vault.store.log.compaction-threshold:0.5}") double compactionThreshold,
+            @Value("${vault.store.log.compaction-interval:1m}") Duration compactionInterval) {
+        this.directory = directory;
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+        this.forceWrites = forceWrites;
+        this.compactionThreshold = compactionThreshold;
+        recover();
+
+        if (compactionInterval.isZero()) {
+            this.compactor = null;
+        } else {
+            this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "vault-log-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = compactionInterval.toMillis();
+            compactor.scheduleWithFixedDelay(this::compactQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public VaultEntry save(VaultEntry entry) {
+        Long userId = entry.getUser() != null ? entry.getUser().getId() : entry.getUserId();
+        if (userId == null) {
+            throw new IllegalArgumentException("Vault entry has no owner");
+        }
+        if (entry.getId() == null) {
+            entry.setId(nextId.getAndIncrement());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (entry.getCreatedAt() == null) {
+            entry.setCreatedAt(now);
+        }
+        entry.setUpdatedAt(now);
+        entry.setUserId(userId);
+        // Versioned like JPA; conflicts are checked by VaultService under the user's revision lock
+        entry.setVersion(entry.getVersion() == null ? 0L : entry.getVersion() + 1);
+        write(new LogRecord(RecordType.ENTRY_PUT, entry.getId(), userId, serialize(entry)));
+        return entry;
+    }
+
+    /**
+     * Rewrites each entry with the estimate but as it was otherwise, where
+     * {@link #save} would bump its version and updatedAt. The record is
+     * rebuilt from the entry as it is when appended, so that an edit appended
+     * in between is kept and only the score fields change.
+     */
+    @Override
+    public int updatePasswordStrength(Long userId, String fingerprint, Integer score, Double crackSeconds,
+            int estimatorVersion) {
+        int updated = 0;
+        for (VaultEntry entry : findByUserId(userId)) {
+            if (fingerprint.equals(entry.getPasswordFingerprint())) {
+                setPasswordStrength(entry, score, crackSeconds, estimatorVersion);
+                Long entryId = entry.getId();
+                write(new LogRecord(RecordType.ENTRY_PUT, entryId, userId, serialize(entry)),
+                        () -> passwordStrengthRecord(entryId, fingerprint, score, crackSeconds, estimatorVersion));
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public Optional<VaultEntry> findById(Long id) {
+        PendingWrites pending = currentPendingWrites();
+        if (pending != null && pending.entries.containsKey(id)) {
+            return pending.entry(id).map(this::toEntry);
+        }
+        return Optional.ofNullable(entries.get(id)).map(this::readEntry);
+    }
+
+    @Override
+    public List<VaultEntry> findByUserId(Long userId) {
+        return streamByUserId(userId).collect(Collectors.toList());
+    }
+
+    /**
+     * Reads each record only when the stream reaches it; the per-user index is
+     * keyed by id, so the order comes for free. Entries the current
+     * transaction wrote are merged in, in id order.
+     */
+    @Override
+    public Stream<VaultEntry> streamByUserId(Long userId) {
+        ConcurrentNavigableMap<Long, RecordLocation> userEntries = entriesByUser.get(userId);
+        PendingWrites pending = currentPendingWrites();
+        if (pending == null || pending.entries.isEmpty()) {
+            return userEntries == null ? Stream.empty() : userEntries.values().stream().map(this::readEntry);
+        }
+        TreeMap<Long, Supplier<VaultEntry>> merged = new TreeMap<>();
+        if (userEntries != null) {
+            userEntries.forEach((id, location) -> merged.put(id, () -> readEntry(location)));
+        }
+        pending.entries.forEach((id, record) -> {
+            if (record.type().isDelete()) {
+                merged.remove(id);
+            } else if (record.userId() == userId) {
+                merged.put(id, () -> toEntry(record));
+            }
+        });
+        return merged.values().stream().map(Supplier::get);
+    }
+
+    @Override
+    public void delete(VaultEntry entry) {
+        Long userId = ownerOf(entry.getId());
+        if (userId != null) {
+            write(new LogRecord(RecordType.ENTRY_DELETE, entry.getId(), userId, new byte[0]));
+        }
+    }
+
+    @Override
+    public VaultEntryPayload savePayload(VaultEntryPayload payload) {
+        Long owner = ownerOf(payload.getEntryId());
+        write(new LogRecord(RecordType.PAYLOAD_PUT, payload.getEntryId(), owner != null ? owner : 0L,
+                payload.getNotes().getBytes(StandardCharsets.UTF_8)));
+        return payload;
+    }
+
+    @Override
+    public Optional<VaultEntryPayload> findPayload(Long entryId) {
+        PendingWrites pending = currentPendingWrites();
+        if (pending != null && pending.payloads.containsKey(entryId)) {
+            return pending.payload(entryId).map(this::toPayload);
+        }
+        return Optional.ofNullable(payloads.get(entryId)).map(this::readPayload);
+    }
+
+    @Override
+    public List<VaultEntryPayload> findPayloads(Collection<Long> entryIds) {
+        return entryIds.stream()
+                .map(this::findPayload)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void deletePayload(Long entryId) {
+        PendingWrites pending = currentPendingWrites();
+        Long userId;
+        if (pending != null && pending.payloads.containsKey(entryId)) {
+            userId = pending.payload(entryId).map(LogRecord::userId).orElse(null);
+        } else {
+            RecordLocation location = payloads.get(entryId);
+            userId = location != null ? location.userId() : null;
+        }
+        if (userId != null) {
+            write(new LogRecord(RecordType.PAYLOAD_DELETE, entryId, userId, new byte[0]));
+        }
+    }
+
+    /**
+     * Rewrites every sealed segment whose live ratio dropped below the
+     * threshold into the active segment and deletes it.
+     *
+     * @return number of segments reclaimed
+     */
+    public int compact() {
+        int reclaimed = 0;
+        for (Segment segment : segments.headMap(active.id()).values()) {
+            if (segment.liveRatio() < compactionThreshold) {
+                compact(segment);
+                reclaimed++;
+            }
+        }
+        return reclaimed;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        writeLock.lock();
+        try {
+            segments.values().forEach(segment -> {
+                segment.force();
+                segment.close();
+            });
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            int reclaimed = compact();
+            if (reclaimed > 0) {
+                log.debug("Compaction reclaimed {} segments", reclaimed);
+            }
+        } catch (RuntimeException e) {
+            log.error("Vault log compaction failed", e);
+        }
+    }
+
+    private void compact(Segment segment) {
+        writeLock.lock();
+        try {
+            boolean olderSegmentsExist = segments.firstKey() < segment.id();
+            int offset = 0;
+            LogRecord record;
+            while ((record = segment.read(offset)) != null) {
+                Map<Long, RecordLocation> index = indexFor(record.type());
+                RecordLocation current = index == null ? null : index.get(record.key());
+                boolean live = current != null && current.segment() == segment && current.offset() == offset;
+                // A delete must outlive every older segment that may still hold the deleted record
+                boolean neededDelete = record.type().isDelete() && olderSegmentsExist;
+                if (live || neededDelete) {
+                    append(record);
+                }
+                offset += record.size();
+            }
+            segments.remove(segment.id());
+            segment.delete();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void recover() {
+        List<Path> files;
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing
+                        .filter(path -> path.getFileName().toString().matches("segment-\\d+\\.log"))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open vault log directory " + directory, e);
+        }
+
+        for (Path file : files) {
+            Segment segment = Segment.open(directory, Segment.idOf(file), segmentSize);
+            segments.put(segment.id(), segment);
+            int offset = 0;
+            LogRecord record;
+            while ((record = segment.read(offset)) != null) {
+                apply(record, segment, offset);
+                offset += record.size();
+            }
+            if (segment.hasGarbageAt(offset)) {
+                log.warn("Discarding torn record at offset {} of segment {}", offset, file);
+                segment.truncate(offset);
+            } else {
+                segment.resumeAt(offset);
+            }
+        }
+
+        if (segments.isEmpty()) {
+            roll(1);
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+        log.info("Opened vault log at {}: {} segments, {} entries", directory, segments.size(), entries.size());
+    }
+
+    /**
+     * The owner of an entry as the current transaction sees it, or null when
+     * there is no such entry.
+     */
+    private Long ownerOf(Long entryId) {
+        PendingWrites pending = currentPendingWrites();
+        if (pending != null && pending.entries.containsKey(entryId)) {
+            return pending.entry(entryId).map(LogRecord::userId).orElse(null);
+        }
+        RecordLocation location = entries.get(entryId);
+        return location != null ? location.userId() : null;
+    }
+
+    private void write(LogRecord record) {
+        write(record, () -> record);
+    }
+
+    /**
+     * Appends a record at once outside a transaction. Inside one, holds it
+     * with the transaction's other records to append them all, in order, just
+     * before it commits; on rollback they are dropped.
+     *
+     * @param record   the record as the writing transaction reads it
+     * @param atAppend the record to append, built under the write lock; null
+     *                 to append nothing
+     */
+    private void write(LogRecord record, Supplier<LogRecord> atAppend) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            writeLock.lock();
+            try {
+                LogRecord resolved = atAppend.get();
+                if (resolved != null) {
+                    append(resolved);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+            return;
+        }
+        PendingWrites pending = currentPendingWrites();
+        if (pending == null) {
+            pending = new PendingWrites();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new PendingWritesSynchronization(pending));
+        }
+        pending.add(record, atAppend);
+    }
+
+    /**
+     * The latest appended record of an entry with the given estimate, or null
+     * when the entry was deleted or its password changed since it was read.
+     * Callers hold the write lock.
+     */
+    private LogRecord passwordStrengthRecord(Long entryId, String fingerprint, Integer score, Double crackSeconds,
+            int estimatorVersion) {
+        RecordLocation location = entries.get(entryId);
+        if (location == null) {
+            return null;
+        }
+        VaultEntry entry = readEntry(location);
+        if (!fingerprint.equals(entry.getPasswordFingerprint())) {
+            return null;
+        }
+        setPasswordStrength(entry, score, crackSeconds, estimatorVersion);
+        return new LogRecord(RecordType.ENTRY_PUT, entryId, location.userId(), serialize(entry));
+    }
+
+    private static void setPasswordStrength(VaultEntry entry, Integer score, Double crackSeconds,
+            int estimatorVersion) {
+        entry.setPasswordScore(score);
+        entry.setPasswordCrackSeconds(crackSeconds);
+        entry.setPasswordScoreVersion(estimatorVersion);
+    }
+
+    private PendingWrites currentPendingWrites() {
+        return (PendingWrites) TransactionSynchronizationManager.getResource(this);
+    }
+
+    /**
+     * Appends a record to the active segment, rolling over when it is full,
+     * and points the index at it. Callers hold the write lock.
+     */
+    private void append(LogRecord record) {
+        if (record.size() > segmentSize - LogRecord.HEADER_SIZE - LogRecord.BODY_PREFIX_SIZE) {
+            throw new IllegalArgumentException("Record of " + record.size() + " bytes exceeds the segment size");
+        }
+        if (!active.hasRoom(record.size())) {
+            active.force();
+            roll(active.id() + 1);
+        }
+        int offset = active.append(record.encode(), forceWrites);
+        apply(record, active, offset);
+    }
+
+    private void roll(long segmentId) {
+        Segment segment = Segment.open(directory, segmentId, segmentSize);
+        segments.put(segmentId, segment);
+        active = segment;
+        LogRecord checkpoint = new LogRecord(RecordType.CHECKPOINT, nextId.get(), 0L, new byte[0]);
+        segment.append(checkpoint.encode(), forceWrites);
+    }
+
+    private void apply(LogRecord record, Segment segment, int offset) {
+        if (record.type() == RecordType.CHECKPOINT) {
+            nextId.accumulateAndGet(record.key(), Math::max);
+            return;
+        }
+        if (record.type() == RecordType.ENTRY_PUT || record.type() == RecordType.ENTRY_DELETE) {
+            nextId.accumulateAndGet(record.key() + 1, Math::max);
+        }
+
+        Map<Long, RecordLocation> index = indexFor(record.type());
+        RecordLocation previous;
+        if (record.type().isDelete()) {
+            previous = index.remove(record.key());
+        } else {
+            RecordLocation location = new RecordLocation(segment, offset, record.size(), record.userId());
+            segment.addLive(record.size());
+            previous = index.put(record.key(), location);
+        }
+        if (previous != null) {
+            previous.segment().addLive(-previous.size());
+        }
+
+        if (index == entries) {
+            if (previous != null && previous.userId() != record.userId()) {
+                removeFromUser(previous.userId(), record.key());
+            }
+            if (record.type().isDelete()) {
+                removeFromUser(record.userId(), record.key());
+            } else {
+                entriesByUser.computeIfAbsent(record.userId(), userId -> new ConcurrentSkipListMap<>())
+                        .put(record.key(), entries.get(record.key()));
+            }
+        }
+    }
+
+    private void removeFromUser(long userId, long entryId) {
+        ConcurrentNavigableMap<Long, RecordLocation> userEntries = entriesByUser.get(userId);
+        if (userEntries != null) {
+            userEntries.remove(entryId);
+        }
+    }
+
+    private Map<Long, RecordLocation> indexFor(RecordType type) {
+        switch (type) {
+            case ENTRY_PUT:
+            case ENTRY_DELETE:
+                return entries;
+            case PAYLOAD_PUT:
+            case PAYLOAD_DELETE:
+                return payloads;
+            default:
+                return null;
+        }
+    }
+
+    private VaultEntry readEntry(RecordLocation location) {
+        return toEntry(location.read());
+    }
+
+    private VaultEntry toEntry(LogRecord record) {
+        try {
+            VaultEntry entry = objectMapper.readValue(record.value(), VaultEntry.class);
+            entry.setUserId(record.userId());
+            entry.setUser(User.builder().id(record.userId()).build());
+            return entry;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read vault entry " + record.key(), e);
+        }
+    }
+
+    private VaultEntryPayload readPayload(RecordLocation location) {
+        return toPayload(location.read());
+    }
+
+    private VaultEntryPayload toPayload(LogRecord record) {
+        return new VaultEntryPayload(record.key(), new String(record.value(), StandardCharsets.UTF_8));
+    }
+
+    private byte[] serialize(VaultEntry entry) {
+        try {
+            return objectMapper.writeValueAsBytes(entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write vault entry " + entry.getId(), e);
+        }
+    }
+
+    /**
+     * Records a transaction has written but not appended yet, with the latest
+     * record per entry and per payload for its own reads, and once appended
+     * the records that restore what they replaced.
+     */
+    private static final class PendingWrites {
+        final List<Supplier<LogRecord>> writes = new ArrayList<>();
+        final Map<Long, LogRecord> entries = new HashMap<>();
+        final Map<Long, LogRecord> payloads = new HashMap<>();
+        final Map<Long, LogRecord> entryUndos = new HashMap<>();
+        final Map<Long, LogRecord> payloadUndos = new HashMap<>();
+
+        void add(LogRecord record, Supplier<LogRecord> atAppend) {
+            writes.add(atAppend);
+            (isEntry(record) ? entries : payloads).put(record.key(), record);
+        }
+
+        /**
+         * Remembers how to undo a record about to be appended over the one at
+         * {@code previous}, unless an earlier record of the transaction
+         * already did for the same key. The replaced record is copied now, as
+         * compaction may reclaim it once it is dead.
+         */
+        void undo(LogRecord record, RecordLocation previous) {
+            boolean entry = isEntry(record);
+            Map<Long, LogRecord> undos = entry ? entryUndos : payloadUndos;
+            if (!undos.containsKey(record.key())) {
+                undos.put(record.key(), previous != null ? previous.read() : new LogRecord(
+                        entry ? RecordType.ENTRY_DELETE : RecordType.PAYLOAD_DELETE, record.key(), record.userId(),
+                        new byte[0]));
+            }
+        }
+
+        static boolean isEntry(LogRecord record) {
+            return record.type() == RecordType.ENTRY_PUT || record.type() == RecordType.ENTRY_DELETE;
+        }
+
+        Optional<LogRecord> entry(Long id) {
+            return Optional.of(entries.get(id)).filter(record -> !record.type().isDelete());
+        }
+
+        Optional<LogRecord> payload(Long entryId) {
+            return Optional.of(payloads.get(entryId)).filter(record -> !record.type().isDelete());
+        }
+    }
+
+    private final class PendingWritesSynchronization implements TransactionSynchronization {
+
+        private final PendingWrites pending;
+
+        PendingWritesSynchronization(PendingWrites pending) {
+            this.pending = pending;
+        }
+
+        /**
+         * Ahead of other synchronizations, whose after-commit work may read
+         * what this transaction wrote.
+         */
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(LogStructuredVaultEntryStore.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(LogStructuredVaultEntryStore.this, pending);
+        }
+
+        /**
+         * Appends before the JPA side commits, as the user's revision lock is
+         * released with it.
+         */
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            writeLock.lock();
+            try {
+                for (Supplier<LogRecord> write : pending.writes) {
+                    LogRecord record = write.get();
+                    if (record != null) {
+                        pending.undo(record, indexFor(record.type()).get(record.key()));
+                        append(record);
+                    }
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(LogStructuredVaultEntryStore.this);
+            if (status == STATUS_ROLLED_BACK && !(pending.entryUndos.isEmpty() && pending.payloadUndos.isEmpty())) {
+                writeLock.lock();
+                try {
+                    pending.entryUndos.values().forEach(LogStructuredVaultEntryStore.this::append);
+                    pending.payloadUndos.values().forEach(LogStructuredVaultEntryStore.this::append);
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.wilove.vaulten.store.log;
+
+/**
+ * Where the current version of a key lives.
+ */
+record RecordLocation(Segment segment, int offset, int size, long userId) {
+
+    LogRecord read() {
+        return segment.read(offset);
+    }
+}
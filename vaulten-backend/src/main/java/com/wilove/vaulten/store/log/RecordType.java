@@ -0,0 +1,37 @@
+package com.wilove.vaulten.store.log;
+
+/**
+ * Kinds of record in a segment file. The code is persisted, so never reuse one.
+ */
+enum RecordType {
+
+    /** First record of every segment; its key is the next entry id at the time the segment was opened. */
+    CHECKPOINT(1),
+    ENTRY_PUT(2),
+    ENTRY_DELETE(3),
+    PAYLOAD_PUT(4),
+    PAYLOAD_DELETE(5);
+
+    private final byte code;
+
+    RecordType(int code) {
+        this.code = (byte) code;
+    }
+
+    byte code() {
+        return code;
+    }
+
+    boolean isDelete() {
+        return this == ENTRY_DELETE || this == PAYLOAD_DELETE;
+    }
+
+    static RecordType fromCode(byte code) {
+        for (RecordType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,155 @@
+package com.wilove.vaulten.store.log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-size, memory-mapped segment file. Records are only ever appended;
+ * appends are serialized by the store, reads go through absolute slices and
+ * need no locking.
+ */
+final class Segment {
+
+    private final long id;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final AtomicLong liveBytes = new AtomicLong();
+    private volatile int writePosition;
+
+    private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static Path pathFor(Path directory, long id) {
+        return directory.resolve(String.format("segment-%012d.log", id));
+    }
+
+    static long idOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring("segment-".length(), name.length() - ".log".length()));
+    }
+
+    /**
+     * Maps a segment file, creating (and zero-filling) it with {@code capacity}
+     * bytes when it does not exist yet.
+     */
+    static Segment open(Path directory, long id, int capacity) {
+        Path path = pathFor(directory, id);
+        try {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size() > 0 ? channel.size() : capacity;
+            return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open segment " + path, e);
+        }
+    }
+
+    long id() {
+        return id;
+    }
+
+    int writePosition() {
+        return writePosition;
+    }
+
+    boolean hasRoom(int size) {
+        return writePosition + size <= buffer.capacity();
+    }
+
+    /**
+     * @return the offset the record was written at
+     */
+    int append(ByteBuffer record, boolean force) {
+        int offset = writePosition;
+        int length = record.remaining();
+        buffer.put(offset, record, record.position(), length);
+        if (force) {
+            buffer.force(offset, length);
+        }
+        writePosition = offset + length;
+        return offset;
+    }
+
+    LogRecord read(int offset) {
+        return LogRecord.decode(buffer, offset);
+    }
+
+    /**
+     * Whether anything but the zero fill follows {@code position}, i.e. a record
+     * that failed to decode there.
+     */
+    boolean hasGarbageAt(int position) {
+        int end = Math.min(buffer.capacity(), position + LogRecord.HEADER_SIZE);
+        for (int i = position; i < end; i++) {
+            if (buffer.get(i) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void resumeAt(int position) {
+        writePosition = position;
+    }
+
+    /**
+     * Discards everything from {@code position} on, e.g. a torn record left by a
+     * crash mid-append.
+     */
+    void truncate(int position) {
+        byte[] zeros = new byte[4096];
+        for (int i = position; i < buffer.capacity(); i += zeros.length) {
+            buffer.put(i, zeros, 0, Math.min(zeros.length, buffer.capacity() - i));
+        }
+        buffer.force();
+        writePosition = position;
+    }
+
+    void addLive(long bytes) {
+        liveBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Fraction of the written bytes still referenced by the index.
+     */
+    double liveRatio() {
+        return writePosition == 0 ? 1.0 : (double) liveBytes.get() / writePosition;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close segment " + path, e);
+        }
+    }
+
+    /**
+     * Removes the file. The mapping stays valid for readers still holding a
+     * location in this segment until it is garbage collected.
+     */
+    void delete() {
+        close();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete segment " + path, e);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.wilove.vaulten.store.log;
+
+// Embedded log-structured VaultEntryStore (vault.store.type=log)
+// This package contains the segment files, record codec and index
@@ -0,0 +1,4 @@
+package com.wilove.vaulten.store;
+
+// VaultEntryStore SPI and its JPA implementation
+// This package contains the persistence boundary used by VaultService
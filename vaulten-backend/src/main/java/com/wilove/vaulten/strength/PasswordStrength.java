@@ -0,0 +1,44 @@
+package com.wilove.vaulten.strength;
+
+/**
+ * Estimated strength of a password.
+ *
+ * @param score        0 (guessed almost at once) to 4 (out of reach), on zxcvbn's guess thresholds
+ * @param guesses      estimated guesses an attacker needs, trying likely passwords first
+ * @param crackSeconds time those guesses take offline against a slow hash (10k guesses per second)
+ */
+public record PasswordStrength(int score, double guesses, double crackSeconds) {
+
+    private static final long MINUTE = 60;
+    private static final long HOUR = MINUTE * 60;
+    private static final long DAY = HOUR * 24;
+    private static final long MONTH = DAY * 31;
+    private static final long YEAR = MONTH * 12;
+    private static final long CENTURY = YEAR * 100;
+
+    /**
+     * A crack time in words, in its largest whole unit ("3 hours").
+     */
+    public static String describe(double seconds) {
+        if (seconds < 1) {
+            return "less than a second";
+        } else if (seconds < MINUTE) {
+            return plural((long) seconds, "second");
+        } else if (seconds < HOUR) {
+            return plural((long) (seconds / MINUTE), "minute");
+        } else if (seconds < DAY) {
+            return plural((long) (seconds / HOUR), "hour");
+        } else if (seconds < MONTH) {
+            return plural((long) (seconds / DAY), "day");
+        } else if (seconds < YEAR) {
+            return plural((long) (seconds / MONTH), "month");
+        } else if (seconds < CENTURY) {
+            return plural((long) (seconds / YEAR), "year");
+        }
+        return "centuries";
+    }
+
+    private static String plural(long count, String unit) {
+        return count + " " + unit + (count == 1 ? "" : "s");
+    }
+}
@@ -0,0 +1,389 @@
+package com.wilove.vaulten.strength;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Password strength estimation in the manner of Dropbox's zxcvbn: the
+ * password is covered by the sequence of patterns an attacker would guess
+ * it through in the fewest attempts. Patterns are words of the dictionary
+ * ({@code vault.strength.dictionary}, most common first; also reversed, in
+ * l33t speak and capitalized), runs such as {@code abcd} or {@code 4321},
+ * keyboard rows, repeats, years and dates; whatever no pattern covers is
+ * guessed by brute force.
+ *
+ * {@link #VERSION} is stored with each score; raising it when the estimator
+ * or its dictionary changes has existing passwords scored again.
+ */
+@Component
+public class PasswordStrengthEstimator {
+
+    public static final int VERSION = 1;
+    /** Scores at or below this count as weak. */
+    public static final int WEAK_SCORE = 1;
+
+    private static final double GUESSES_PER_SECOND = 1e4;
+    private static final double[] SCORE_THRESHOLDS = { 1e3 + 5, 1e6 + 5, 1e8 + 5, 1e10 + 5 };
+    private static final int MAX_LENGTH = 100;
+    private static final int MIN_WORD_LENGTH = 3;
+    private static final double LOG_MIN_GUESSES_SINGLE_CHAR = Math.log10(10);
+    private static final double LOG_MIN_GUESSES_MULTI_CHAR = Math.log10(50);
+    // Each pattern beyond the first multiplies by the guesses spent on shorter pattern sequences
+    private static final double LOG_GUESSES_PER_EXTRA_PATTERN = Math.log10(1e4);
+    private static final String[] KEYBOARD_ROWS = { "`1234567890-=", "qwertyuiop[]\\", "asdfghjkl;'", "zxcvbnm,./",
+            "~!@#$%^&*()_+", "qwertzuiop", "azertyuiop", "yxcvbnm" };
+    // Starting keys times average neighbours on a qwerty keyboard, per key of a straight run
+    private static final double KEYBOARD_GUESSES_PER_KEY = 94 * 4.6;
+    private static final String L33T_FROM = "4@831!|0$5+7%2";
+    private static final String L33T_TO = "aabeiiiossttxz";
+    private static final int MIN_YEAR_SPACE = 20;
+    private static final Pattern YEAR = Pattern.compile("19\\d\\d|20\\d\\d");
+    private static final Pattern DATE = Pattern.compile("(\\d{1,4})([\\s/\\\\_.-]?)(\\d{1,2})\\2(\\d{1,4})");
+
+    private final Map<String, Integer> ranks = new HashMap<>();
+    private int maxWordLength;
+
+    public PasswordStrengthEstimator(
+            @Value("${vault.strength.dictionary:classpath:common_passwords.txt}") Resource dictionary) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(dictionary.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String word = line.strip().toLowerCase(Locale.ROOT);
+                if (!word.isEmpty() && !word.startsWith("#")) {
+                    ranks.putIfAbsent(word, ranks.size() + 1);
+                    maxWordLength = Math.max(maxWordLength, word.length());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read password dictionary " + dictionary, e);
+        }
+    }
+
+    public PasswordStrength estimate(String password) {
+        String input = password.length() > MAX_LENGTH ? password.substring(0, MAX_LENGTH) : password;
+        double logGuesses = logGuesses(input, new HashMap<>());
+        double guesses = Math.pow(10, logGuesses);
+        int score = 0;
+        while (score < SCORE_THRESHOLDS.length && guesses >= SCORE_THRESHOLDS[score]) {
+            score++;
+        }
+        return new PasswordStrength(score, guesses, guesses / GUESSES_PER_SECOND);
+    }
+
+    /**
+     * log10 of the guesses for the cheapest cover of {@code password} by
+     * patterns and brute-forced stretches. For each pattern count k the
+     * cheapest product of pattern guesses is found by dynamic programming;
+     * the sequence costs k! times that product, since the patterns could
+     * come in any order, plus the guesses spent on all shorter sequences.
+     */
+    private double logGuesses(String password, Map<String, Double> memo) {
+        Double known = memo.get(password);
+        if (known != null) {
+            return known;
+        }
+        int length = password.length();
+        if (length == 0) {
+            return 0;
+        }
+        List<List<Match>> endingAt = new ArrayList<>();
+        for (int i = 0; i <= length; i++) {
+            endingAt.add(new ArrayList<>());
+        }
+        for (Match match : matches(password, memo)) {
+            endingAt.get(match.end()).add(match);
+        }
+
+        // best[k][i]: least log10 product of k patterns covering the first i characters
+        double[][] best = new double[length + 1][length + 1];
+        for (double[] row : best) {
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+        }
+        best[0][0] = 0;
+        for (int i = 1; i <= length; i++) {
+            for (int k = 1; k <= i; k++) {
+                double cheapest = Double.POSITIVE_INFINITY;
+                for (int start = k - 1; start < i; start++) {
+                    double previous = best[k - 1][start];
+                    if (previous != Double.POSITIVE_INFINITY) {
+                        cheapest = Math.min(cheapest, previous + bruteForce(i - start));
+                    }
+                }
+                for (Match match : endingAt.get(i)) {
+                    double previous = best[k - 1][match.start()];
+                    if (previous != Double.POSITIVE_INFINITY) {
+                        cheapest = Math.min(cheapest, previous + match.logGuesses());
+                    }
+                }
+                best[k][i] = cheapest;
+            }
+        }
+
+        double result = Double.POSITIVE_INFINITY;
+        double logFactorial = 0;
+        for (int k = 1; k <= length; k++) {
+            logFactorial += Math.log10(k);
+            if (best[k][length] != Double.POSITIVE_INFINITY) {
+                result = Math.min(result,
+                        logSum(logFactorial + best[k][length], (k - 1) * LOG_GUESSES_PER_EXTRA_PATTERN));
+            }
+        }
+        memo.put(password, result);
+        return result;
+    }
+
+    private List<Match> matches(String password, Map<String, Double> memo) {
+        List<Match> matches = new ArrayList<>();
+        // Char by char, so that positions line up with the password
+        StringBuilder lowered = new StringBuilder(password.length());
+        password.chars().forEach(c -> lowered.append(Character.toLowerCase((char) c)));
+        String lower = lowered.toString();
+        dictionaryMatches(password, lower, matches);
+        runMatches(password, matches);
+        keyboardMatches(password, lower, matches);
+        repeatMatches(password, memo, matches);
+        dateMatches(password, matches);
+        return matches;
+    }
+
+    private void dictionaryMatches(String password, String lower, List<Match> matches) {
+        int length = password.length();
+        for (int start = 0; start < length; start++) {
+            for (int end = start + MIN_WORD_LENGTH; end <= Math.min(length, start + maxWordLength); end++) {
+                String word = lower.substring(start, end);
+                double capitalization = capitalizationVariants(password.substring(start, end));
+                Integer rank = ranks.get(word);
+                if (rank != null) {
+                    matches.add(match(start, end, Math.log10(rank * capitalization)));
+                }
+                Integer reversed = ranks.get(new StringBuilder(word).reverse().toString());
+                if (reversed != null) {
+                    matches.add(match(start, end, Math.log10(reversed * capitalization * 2)));
+                }
+                int substitutions = 0;
+                StringBuilder plain = new StringBuilder(word);
+                for (int i = 0; i < plain.length(); i++) {
+                    int l33t = L33T_FROM.indexOf(plain.charAt(i));
+                    if (l33t >= 0) {
+                        plain.setCharAt(i, L33T_TO.charAt(l33t));
+                        substitutions++;
+                    }
+                }
+                Integer unl33ted = substitutions == 0 ? null : ranks.get(plain.toString());
+                if (unl33ted != null) {
+                    matches.add(match(start, end,
+                            Math.log10(unl33ted * capitalization) + substitutions * Math.log10(2)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs of three or more characters stepping by one code point either
+     * way; those starting from an obvious character such as {@code a} or
+     * {@code 1} are the cheapest.
+     */
+    private void runMatches(String password, List<Match> matches) {
+        int length = password.length();
+        int start = 0;
+        while (start < length - 2) {
+            int step = password.charAt(start + 1) - password.charAt(start);
+            int end = start + 1;
+            while (Math.abs(step) == 1 && end < length && password.charAt(end) - password.charAt(end - 1) == step) {
+                end++;
+            }
+            if (end - start >= 3) {
+                char first = password.charAt(start);
+                double base = "aAzZ019".indexOf(first) >= 0 ? 4 : Character.isDigit(first) ? 10 : 26;
+                matches.add(match(start, end, Math.log10(base * (end - start) * (step > 0 ? 1 : 2))));
+                start = end - 1;
+            } else {
+                start++;
+            }
+        }
+    }
+
+    private void keyboardMatches(String password, String lower, List<Match> matches) {
+        int length = password.length();
+        for (int start = 0; start < length - 2; start++) {
+            int end = start + 1;
+            while (end < length && onKeyboardRow(lower.substring(start, end + 1))) {
+                end++;
+            }
+            if (end - start >= 3) {
+                double capitalization = capitalizationVariants(password.substring(start, end));
+                matches.add(match(start, end,
+                        Math.log10((end - start - 1) * KEYBOARD_GUESSES_PER_KEY * capitalization)));
+            }
+        }
+    }
+
+    private static boolean onKeyboardRow(String keys) {
+        String reversed = new StringBuilder(keys).reverse().toString();
+        for (String row : KEYBOARD_ROWS) {
+            if (row.contains(keys) || row.contains(reversed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The longest stretch from each position made of one unit repeated,
+     * guessed as the unit times the number of repeats.
+     */
+    private void repeatMatches(String password, Map<String, Double> memo, List<Match> matches) {
+        int length = password.length();
+        for (int start = 0; start < length - 1; start++) {
+            int bestUnit = 0;
+            int bestEnd = start;
+            for (int unit = 1; start + 2 * unit <= length; unit++) {
+                int end = start + unit;
+                while (end + unit <= length && password.regionMatches(start, password, end, unit)) {
+                    end += unit;
+                }
+                if (end - start >= 2 * unit && end > bestEnd) {
+                    bestUnit = unit;
+                    bestEnd = end;
+                }
+            }
+            if (bestUnit > 0) {
+                String unit = password.substring(start, start + bestUnit);
+                int repeats = (bestEnd - start) / bestUnit;
+                matches.add(match(start, bestEnd, logGuesses(unit, memo) + Math.log10(repeats)));
+            }
+        }
+    }
+
+    private void dateMatches(String password, List<Match> matches) {
+        int length = password.length();
+        int referenceYear = Year.now().getValue();
+        for (int start = 0; start < length; start++) {
+            if (!Character.isDigit(password.charAt(start))) {
+                continue;
+            }
+            for (int end = start + 4; end <= Math.min(length, start + 10); end++) {
+                String candidate = password.substring(start, end);
+                if (end - start == 4 && YEAR.matcher(candidate).matches()) {
+                    double yearSpace = Math.max(Math.abs(Integer.parseInt(candidate) - referenceYear),
+                            MIN_YEAR_SPACE);
+                    matches.add(match(start, end, Math.log10(yearSpace)));
+                }
+                Matcher date = DATE.matcher(candidate);
+                if (date.matches()) {
+                    int year = dateYear(date.group(1), date.group(3), date.group(4));
+                    if (year > 0) {
+                        double yearSpace = Math.max(Math.abs(year - referenceYear), MIN_YEAR_SPACE);
+                        double separator = date.group(2).isEmpty() ? 1 : 4;
+                        matches.add(match(start, end, Math.log10(365 * yearSpace * separator)));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The year of a plausible year-month-day or day-month-year (either order
+     * of day and month), or 0 when the parts make no date.
+     */
+    private static int dateYear(String first, String middle, String last) {
+        int month = Integer.parseInt(middle);
+        if (last.length() == 2 || last.length() == 4) {
+            int day = Integer.parseInt(first);
+            if (first.length() <= 2 && isDayAndMonth(day, month)) {
+                return fullYear(last);
+            }
+        }
+        if (first.length() == 2 || first.length() == 4) {
+            int day = Integer.parseInt(last);
+            if (last.length() <= 2 && isDayAndMonth(day, month)) {
+                return fullYear(first);
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isDayAndMonth(int a, int b) {
+        return a >= 1 && b >= 1 && (a <= 12 && b <= 31 || a <= 31 && b <= 12);
+    }
+
+    private static int fullYear(String year) {
+        int value = Integer.parseInt(year);
+        if (year.length() == 2) {
+            return value > 50 ? 1900 + value : 2000 + value;
+        }
+        return value >= 1000 && value <= 2100 ? value : 0;
+    }
+
+    /**
+     * Ways of capitalizing a word with as many upper case letters: one when
+     * there are none, two when only the first or last letter or all of them
+     * are, else every arrangement of up to that many.
+     */
+    private static double capitalizationVariants(String word) {
+        int upper = 0;
+        int lower = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (Character.isUpperCase(c)) {
+                upper++;
+            } else if (Character.isLowerCase(c)) {
+                lower++;
+            }
+        }
+        if (upper == 0) {
+            return 1;
+        }
+        if (lower == 0 || upper == 1 && (Character.isUpperCase(word.charAt(0))
+                || Character.isUpperCase(word.charAt(word.length() - 1)))) {
+            return 2;
+        }
+        double variants = 0;
+        for (int i = 1; i <= Math.min(upper, lower); i++) {
+            variants += binomial(upper + lower, i);
+        }
+        return variants;
+    }
+
+    private static double binomial(int n, int k) {
+        double result = 1;
+        for (int i = 1; i <= k; i++) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+
+    private static double bruteForce(int length) {
+        return Math.max(length, length == 1 ? Math.log10(11) : Math.log10(51));
+    }
+
+    private static Match match(int start, int end, double logGuesses) {
+        double floor = end - start == 1 ? LOG_MIN_GUESSES_SINGLE_CHAR : LOG_MIN_GUESSES_MULTI_CHAR;
+        return new Match(start, end, Math.max(logGuesses, floor));
+    }
+
+    private static double logSum(double a, double b) {
+        double high = Math.max(a, b);
+        return high + Math.log10(1 + Math.pow(10, Math.min(a, b) - high));
+    }
+
+    private record Match(int start, int end, double logGuesses) {
+    }
+}
@@ -0,0 +1,206 @@
+package com.wilove.vaulten.strength;
+
+import com.wilove.vaulten.datasource.DataSourceRoutingContext;
+import com.wilove.vaulten.datasource.ShardRouter;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.repository.VaultRevisionRepository;
+import com.wilove.vaulten.service.EncryptionService;
+import com.wilove.vaulten.service.VaultRevisionService;
+import com.wilove.vaulten.service.VaultStatsService;
+import com.wilove.vaulten.store.VaultEntryStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Scores the strength of stored passwords with {@link PasswordStrengthEstimator}
+ * and keeps the score and estimated crack time on the entries, where the
+ * weak ones can be listed through an index without decrypting anything.
+ *
+ * Estimating takes too long for the request thread, so passwords are scored
+ * in the background once the write that stored them commits; until then they
+ * have no score. The queue holds only fingerprints: each distinct password is
+ * decrypted from one of its entries when it is scored. Passwords whose check
+ * was dropped, or that were scored by an older estimator version, are picked
+ * up by the re-scoring job.
+ */
+@Slf4j
+@Service
+public class PasswordStrengthService {
+
+    private final PasswordStrengthEstimator estimator;
+    private final VaultStatsService vaultStatsService;
+    private final VaultRevisionRepository revisionRepository;
+    private final VaultRevisionService vaultRevisionService;
+    private final VaultEntryStore vaultEntryStore;
+    private final EncryptionService encryptionService;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final int rescoreBatchSize;
+    private final Executor executor;
+
+    @Autowired
+    public PasswordStrengthService(PasswordStrengthEstimator estimator,
+            VaultStatsService vaultStatsService,
+            VaultRevisionRepository revisionRepository,
+            VaultRevisionService vaultRevisionService,
+            VaultEntryStore vaultEntryStore,
+            EncryptionService encryptionService,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${vault.strength.rescore-batch-size:100}") int rescoreBatchSize,
+            @Value("${vault.strength.queue-capacity:10000}") int queueCapacity) {
+        this(estimator, vaultStatsService, revisionRepository, vaultRevisionService, vaultEntryStore,
+                encryptionService, shardRouter, transactionManager, rescoreBatchSize,
+                // A full queue drops scoring, which the re-scoring job catches up on
+                new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "vault-password-strength");
+                            thread.setDaemon(true);
+                            return thread;
+                        }, new ThreadPoolExecutor.DiscardPolicy()));
+    }
+
+    PasswordStrengthService(PasswordStrengthEstimator estimator, VaultStatsService vaultStatsService,
+            VaultRevisionRepository revisionRepository, VaultRevisionService vaultRevisionService,
+            VaultEntryStore vaultEntryStore, EncryptionService encryptionService, ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager, int rescoreBatchSize, Executor executor) {
+        this.estimator = estimator;
+        this.vaultStatsService = vaultStatsService;
+        this.revisionRepository = revisionRepository;
+        this.vaultRevisionService = vaultRevisionService;
+        this.vaultEntryStore = vaultEntryStore;
+        this.encryptionService = encryptionService;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rescoreBatchSize = rescoreBatchSize;
+        this.executor = executor;
+    }
+
+    /**
+     * Queues scoring of the passwords of entries being written, to run once
+     * the transaction commits. Entries must carry their password fingerprint.
+     */
+    public void scoreAfterCommit(Long userId, Collection<VaultEntry> entries) {
+        Set<String> fingerprints = entries.stream()
+                .map(VaultEntry::getPasswordFingerprint)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (fingerprints.isEmpty()) {
+            return;
+        }
+        Runnable scoring = () -> {
+            try {
+                DataSourceRoutingContext.runAs(userId, () -> score(userId, fingerprints));
+            } catch (RuntimeException e) {
+                log.warn("Could not score passwords of user {}; the re-scoring job will retry", userId, e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    executor.execute(scoring);
+                }
+            });
+        } else {
+            executor.execute(scoring);
+        }
+    }
+
+    /**
+     * Scores the passwords of every user that has some not scored by the
+     * current estimator version, a batch of users at a time.
+     */
+    @Scheduled(fixedDelayString = "${vault.strength.rescore-interval:PT6H}",
+            initialDelayString = "${vault.strength.rescore-initial-delay:PT5M}")
+    public void rescoreAll() {
+        shardRouter.forEachShard(() -> {
+            int scored = 0;
+            long afterUserId = 0;
+            List<Long> userIds;
+            while (!(userIds = revisionRepository.findUserIdsAfter(afterUserId, Limit.of(rescoreBatchSize)))
+                    .isEmpty()) {
+                for (Long userId : userIds) {
+                    List<String> fingerprints = vaultEntryStore.findUnscoredFingerprints(userId,
+                            PasswordStrengthEstimator.VERSION);
+                    if (!fingerprints.isEmpty()) {
+                        scored += score(userId, fingerprints);
+                    }
+                }
+                afterUserId = userIds.get(userIds.size() - 1);
+            }
+            if (scored > 0) {
+                log.info("Scored the strength of {} passwords", scored);
+            }
+        });
+    }
+
+    /**
+     * Scores the user's passwords with the given fingerprints that the
+     * current estimator has not scored yet, under the user's write lock,
+     * and moves their entries in or out of the weak count.
+     *
+     * @return the number of passwords scored
+     */
+    public int score(Long userId, Collection<String> fingerprints) {
+        Integer scored = transactionTemplate.execute(status -> {
+            vaultRevisionService.reserveRevisions(userId, 0);
+            Map<String, List<VaultEntry>> byFingerprint = vaultEntryStore
+                    .findByUserIdAndPasswordFingerprintIn(userId, fingerprints).stream()
+                    .filter(entry -> entry.getPassword() != null)
+                    .collect(Collectors.groupingBy(VaultEntry::getPasswordFingerprint));
+            VaultStatsService.Tally tally = vaultStatsService.tally();
+            int count = 0;
+            for (Map.Entry<String, List<VaultEntry>> group : byFingerprint.entrySet()) {
+                List<VaultEntry> entries = group.getValue();
+                if (entries.stream().allMatch(entry ->
+                        Objects.equals(entry.getPasswordScoreVersion(), PasswordStrengthEstimator.VERSION))) {
+                    continue;
+                }
+                String password = encryptionService.decrypt(entries.get(0).getPassword());
+                PasswordStrength strength = estimator.estimate(password);
+                // Empty passwords are not counted in the statistics
+                if (!password.isEmpty()) {
+                    for (VaultEntry entry : entries) {
+                        // Copies: the loaded entries may be managed, and must not be written back
+                        tally.remove(entry).add(entry.toBuilder().passwordScore(strength.score()).build());
+                    }
+                }
+                vaultEntryStore.updatePasswordStrength(userId, group.getKey(), strength.score(),
+                        strength.crackSeconds(), PasswordStrengthEstimator.VERSION);
+                count++;
+            }
+            vaultStatsService.apply(userId, tally);
+            return count;
+        });
+        return scored == null ? 0 : scored;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.wilove.vaulten.strength;
+
+// Password strength estimates stored on vault entries
+// This package contains the zxcvbn-style estimator and the background scoring of stored passwords
@@ -0,0 +1,126 @@
+package com.wilove.vaulten.transfer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming RFC 4180 reader: the first row names the columns, quoted fields
+ * may contain separators, doubled quotes and line breaks. Blank lines are
+ * skipped and a leading byte order mark is ignored.
+ */
+class CsvRecordReader implements EntryRecordReader {
+
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+    private static final int NOTHING_PEEKED = -2;
+
+    private final Reader reader;
+    private boolean atStart = true;
+    private List<String> columns;
+    private int peeked = NOTHING_PEEKED;
+
+    CsvRecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        if (columns == null) {
+            List<String> header = readRow();
+            if (header == null) {
+                return null;
+            }
+            columns = header.stream().map(EntryRecordReader::normalize).toList();
+        }
+        List<String> row = readRow();
+        if (row == null) {
+            return null;
+        }
+        Map<String, String> record = new HashMap<>();
+        for (int i = 0; i < Math.min(row.size(), columns.size()); i++) {
+            record.putIfAbsent(columns.get(i), row.get(i));
+        }
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * @return the fields of the next non-blank row, or null at the end
+     */
+    private List<String> readRow() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = read()) != -1) {
+            if (atStart) {
+                atStart = false;
+                if (c == BYTE_ORDER_MARK) {
+                    continue;
+                }
+            }
+            if (quoted) {
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                any = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                any = true;
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                if (any || field.length() > 0) {
+                    fields.add(field.toString());
+                    return fields;
+                }
+            } else {
+                field.append((char) c);
+                any = true;
+            }
+        }
+        if (quoted) {
+            throw new IOException("Unterminated quoted field at end of CSV file");
+        }
+        if (any || field.length() > 0) {
+            fields.add(field.toString());
+            return fields;
+        }
+        return null;
+    }
+
+    private int read() throws IOException {
+        if (peeked != NOTHING_PEEKED) {
+            int c = peeked;
+            peeked = NOTHING_PEEKED;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private int peek() throws IOException {
+        if (peeked == NOTHING_PEEKED) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+}
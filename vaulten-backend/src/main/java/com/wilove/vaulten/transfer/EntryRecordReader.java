@@ -0,0 +1,23 @@
+package com.wilove.vaulten.transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads an uploaded export one record at a time, as field name to value.
+ * Field names are normalized with {@link #normalize} so that "Login Name",
+ * "login_name" and "loginName" all read the same.
+ */
+interface EntryRecordReader extends Closeable {
+
+    /**
+     * @return the next record, or null at the end of the file
+     */
+    Map<String, String> next() throws IOException;
+
+    static String normalize(String fieldName) {
+        return fieldName.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+}
@@ -0,0 +1,114 @@
+package com.wilove.vaulten.transfer;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one import, polled by the client while it runs.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportJob {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final Long userId;
+    private final long totalBytes;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicInteger imported = new AtomicInteger();
+    private final AtomicInteger duplicates = new AtomicInteger();
+    private final AtomicInteger invalid = new AtomicInteger();
+    private volatile Status status = Status.RUNNING;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+
+    public ImportJob(Long userId, long totalBytes) {
+        this.userId = userId;
+        this.totalBytes = totalBytes;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @JsonIgnore
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Share of the uploaded file read so far, 0 to 100.
+     */
+    public int getProgress() {
+        if (status == Status.COMPLETED) {
+            return 100;
+        }
+        if (totalBytes == 0) {
+            return 0;
+        }
+        return (int) Math.min(99, bytesRead.get() * 100 / totalBytes);
+    }
+
+    public int getImported() {
+        return imported.get();
+    }
+
+    public int getDuplicates() {
+        return duplicates.get();
+    }
+
+    public int getInvalid() {
+        return invalid.get();
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    AtomicLong bytesRead() {
+        return bytesRead;
+    }
+
+    void recordImported(int count) {
+        imported.addAndGet(count);
+    }
+
+    void recordDuplicate() {
+        duplicates.incrementAndGet();
+    }
+
+    void recordInvalid() {
+        invalid.incrementAndGet();
+    }
+
+    void complete() {
+        finishedAt = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+
+    void fail(String message) {
+        error = message;
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+}
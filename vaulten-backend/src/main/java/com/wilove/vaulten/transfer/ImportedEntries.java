@@ -0,0 +1,118 @@
+package com.wilove.vaulten.transfer;
+
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryType;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps records from other password managers' exports onto vault entries.
+ *
+ * Each field is looked up under the column names used by common managers
+ * (Bitwarden, LastPass, 1Password, KeePass, Chrome, Firefox and Vaulten's
+ * own export).
+ */
+final class ImportedEntries {
+
+    /**
+     * Plain columns are VARCHAR(255); passwords are stored as Base64 of IV,
+     * ciphertext and tag, which fits 255 characters up to this many bytes.
+     */
+    static final int MAX_FIELD_LENGTH = 255;
+    static final int MAX_PASSWORD_BYTES = 160;
+
+    private static final List<String> NAME = List.of("name", "title", "account", "itemname");
+    private static final List<String> USERNAME = List.of("username", "loginusername", "login", "loginname", "user");
+    private static final List<String> PASSWORD = List.of("password", "loginpassword");
+    private static final List<String> URL = List.of("url", "loginuri", "uri", "website", "loginurl", "web");
+    private static final List<String> NOTES = List.of("notes", "note", "extra", "comments", "comment");
+    private static final List<String> CATEGORY = List.of("category", "folder", "grouping", "group");
+
+    private ImportedEntries() {
+    }
+
+    /**
+     * @return the entry, or null when the record has nothing to name it by or
+     *         a field does not fit its column
+     */
+    static VaultEntry toEntry(Map<String, String> record) {
+        String username = first(record, USERNAME);
+        String password = first(record, PASSWORD);
+        String url = first(record, URL);
+        String name = first(record, NAME);
+        if (name == null) {
+            name = url != null ? host(url) : username;
+        }
+        if (name == null) {
+            return null;
+        }
+        VaultEntry entry = VaultEntry.builder()
+                .name(name)
+                .username(username)
+                .password(password)
+                .url(url)
+                .notes(first(record, NOTES))
+                .type(type(record.get("type")))
+                .category(first(record, CATEGORY))
+                .build();
+        return fits(entry) ? entry : null;
+    }
+
+    /**
+     * Entries with the same name, username and URL are taken as the same
+     * login, whether already in the vault or repeated in the file.
+     */
+    static String duplicateKey(VaultEntry entry) {
+        return lower(entry.getName()) + '\n' + lower(entry.getUsername()) + '\n' + lower(entry.getUrl());
+    }
+
+    private static String first(Map<String, String> record, List<String> columns) {
+        for (String column : columns) {
+            String value = record.get(column);
+            if (value != null && !value.isBlank()) {
+                return value.strip();
+            }
+        }
+        return null;
+    }
+
+    private static String host(String url) {
+        try {
+            String host = URI.create(url.contains("://") ? url : "https://" + url).getHost();
+            return host != null ? host : url;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    private static VaultEntryType type(String value) {
+        if (value == null) {
+            return VaultEntryType.LOGIN;
+        }
+        return switch (EntryRecordReader.normalize(value)) {
+            case "note", "securenote", "notes" -> VaultEntryType.NOTE;
+            case "card", "creditcard", "paymentcard" -> VaultEntryType.CARD;
+            case "identity" -> VaultEntryType.IDENTITY;
+            default -> VaultEntryType.LOGIN;
+        };
+    }
+
+    private static boolean fits(VaultEntry entry) {
+        return fits(entry.getName()) && fits(entry.getUsername()) && fits(entry.getUrl())
+                && fits(entry.getCategory())
+                && (entry.getPassword() == null
+                        || entry.getPassword().getBytes(StandardCharsets.UTF_8).length <= MAX_PASSWORD_BYTES);
+    }
+
+    private static boolean fits(String value) {
+        return value == null || value.length() <= MAX_FIELD_LENGTH;
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
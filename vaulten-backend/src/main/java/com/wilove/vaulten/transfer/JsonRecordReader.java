@@ -0,0 +1,115 @@
+package com.wilove.vaulten.transfer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming JSON reader for a top-level array of entries, or an object whose
+ * {@code entries} (Vaulten) or {@code items} (Bitwarden) field holds one.
+ * Only one entry is parsed into a tree at a time.
+ *
+ * Text and number fields are taken as they are; a nested {@code login}
+ * object (Bitwarden) contributes its username, password and first URI, and a
+ * numeric {@code type} is mapped through Bitwarden's item types.
+ */
+class JsonRecordReader implements EntryRecordReader {
+
+    private static final Set<String> ARRAY_FIELDS = Set.of("entries", "items");
+    private static final String[] BITWARDEN_TYPES = { null, "login", "note", "card", "identity" };
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private boolean inArray;
+    private boolean done;
+
+    JsonRecordReader(ObjectMapper objectMapper, InputStream in) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.getFactory().createParser(in);
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        if (done) {
+            return null;
+        }
+        if (!inArray && !findArray()) {
+            done = true;
+            return null;
+        }
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == null) {
+                throw new IOException("Unexpected end of JSON file");
+            }
+            if (token == JsonToken.START_OBJECT) {
+                return flatten(objectMapper.readTree(parser));
+            }
+            parser.skipChildren();
+        }
+        done = true;
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    private boolean findArray() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            inArray = true;
+            return true;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            return false;
+        }
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY && ARRAY_FIELDS.contains(field)) {
+                inArray = true;
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static Map<String, String> flatten(JsonNode item) {
+        Map<String, String> record = new HashMap<>();
+        addValues(record, item);
+        JsonNode login = item.get("login");
+        if (login != null && login.isObject()) {
+            addValues(record, login);
+            JsonNode uris = login.get("uris");
+            if (uris != null && uris.isArray() && !uris.isEmpty() && uris.get(0).hasNonNull("uri")) {
+                record.putIfAbsent("url", uris.get(0).get("uri").asText());
+            }
+        }
+        JsonNode type = item.get("type");
+        if (type != null && type.isInt() && type.asInt() > 0 && type.asInt() < BITWARDEN_TYPES.length) {
+            record.put("type", BITWARDEN_TYPES[type.asInt()]);
+        }
+        return record;
+    }
+
+    private static void addValues(Map<String, String> record, JsonNode node) {
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isValueNode() && !field.getValue().isNull()) {
+                record.putIfAbsent(EntryRecordReader.normalize(field.getKey()), field.getValue().asText());
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.wilove.vaulten.transfer;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * File format for exports protected by a user passphrase.
+ *
+ * The key is derived with PBKDF2-HMAC-SHA256 and the content is split into
+ * segments of {@value #SEGMENT_SIZE} bytes, each sealed with AES-256-GCM under
+ * a nonce made of a random prefix, the segment number and a last-segment flag.
+ * Both sides therefore stream in constant memory, and reordered, dropped or
+ * truncated segments fail authentication.
+ *
+ * Layout: magic, salt, iteration count, nonce prefix, then per segment a
+ * last flag, the ciphertext length and the ciphertext.
+ */
+public final class PassphraseEncryption {
+
+    static final int SEGMENT_SIZE = 64 * 1024;
+
+    private static final byte[] MAGIC = "VLTXENC1".getBytes(StandardCharsets.US_ASCII);
+    private static final int ITERATIONS = 600_000;
+    private static final int MAX_ITERATIONS = 10_000_000;
+    private static final int SALT_LENGTH = 16;
+    private static final int NONCE_PREFIX_LENGTH = 7;
+    private static final int TAG_LENGTH = 16;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private PassphraseEncryption() {
+    }
+
+    /**
+     * Wraps {@code out}; closing the returned stream seals the last segment
+     * and closes {@code out}.
+     */
+    public static OutputStream encrypt(OutputStream out, String passphrase) throws IOException {
+        byte[] salt = new byte[SALT_LENGTH];
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        RANDOM.nextBytes(salt);
+        RANDOM.nextBytes(noncePrefix);
+        DataOutputStream header = new DataOutputStream(out);
+        header.write(MAGIC);
+        header.write(salt);
+        header.writeInt(ITERATIONS);
+        header.write(noncePrefix);
+        return new EncryptingOutputStream(out, deriveKey(passphrase, salt, ITERATIONS), noncePrefix);
+    }
+
+    /**
+     * Wraps {@code in}; reading past the end of a file that was cut short, or
+     * from a wrong passphrase, fails with an IOException.
+     */
+    public static InputStream decrypt(InputStream in, String passphrase) throws IOException {
+        DataInputStream header = new DataInputStream(in);
+        byte[] magic = new byte[MAGIC.length];
+        header.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a passphrase-encrypted vault export");
+        }
+        byte[] salt = new byte[SALT_LENGTH];
+        header.readFully(salt);
+        int iterations = header.readInt();
+        if (iterations < 1 || iterations > MAX_ITERATIONS) {
+            throw new IOException("Invalid key derivation parameters");
+        }
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        header.readFully(noncePrefix);
+        return new DecryptingInputStream(header, deriveKey(passphrase, salt, iterations), noncePrefix);
+    }
+
+    private static SecretKey deriveKey(String passphrase, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(passphrase.toCharArray(), salt, iterations, 256);
+        try {
+            byte[] key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            return new SecretKeySpec(key, "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not derive export key", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static byte[] nonce(byte[] prefix, int segment, boolean last) {
+        return ByteBuffer.allocate(NONCE_PREFIX_LENGTH + 5)
+                .put(prefix)
+                .putInt(segment)
+                .put((byte) (last ? 1 : 0))
+                .array();
+    }
+
+    private static Cipher cipher(int mode, SecretKey key, byte[] prefix, int segment, boolean last) {
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(mode, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce(prefix, segment, last)));
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialize export cipher", e);
+        }
+    }
+
+    private static final class EncryptingOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+        private final SecretKey key;
+        private final byte[] noncePrefix;
+        private final byte[] buffer = new byte[SEGMENT_SIZE];
+        private int buffered;
+        private int segment;
+        private boolean closed;
+
+        private EncryptingOutputStream(OutputStream out, SecretKey key, byte[] noncePrefix) {
+            this.out = new DataOutputStream(out);
+            this.key = key;
+            this.noncePrefix = noncePrefix;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                // A full buffer is sealed only once more data follows, so close() always seals a flagged last segment
+                if (buffered == SEGMENT_SIZE) {
+                    seal(false);
+                }
+                int count = Math.min(length, SEGMENT_SIZE - buffered);
+                System.arraycopy(bytes, offset, buffer, buffered, count);
+                buffered += count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                seal(true);
+            } finally {
+                out.close();
+            }
+        }
+
+        private void seal(boolean last) throws IOException {
+            byte[] sealed;
+            try {
+                sealed = cipher(Cipher.ENCRYPT_MODE, key, noncePrefix, segment++, last).doFinal(buffer, 0, buffered);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Could not encrypt export segment", e);
+            }
+            out.writeBoolean(last);
+            out.writeInt(sealed.length);
+            out.write(sealed);
+            buffered = 0;
+        }
+    }
+
+    private static final class DecryptingInputStream extends InputStream {
+
+        private final DataInputStream in;
+        private final SecretKey key;
+        private final byte[] noncePrefix;
+        private byte[] plain = new byte[0];
+        private int position;
+        private int segment;
+        private boolean last;
+
+        private DecryptingInputStream(DataInputStream in, SecretKey key, byte[] noncePrefix) {
+            this.in = in;
+            this.key = key;
+            this.noncePrefix = noncePrefix;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (position == plain.length) {
+                if (last) {
+                    return -1;
+                }
+                open();
+            }
+            int count = Math.min(length, plain.length - position);
+            System.arraycopy(plain, position, bytes, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private void open() throws IOException {
+            try {
+                last = in.readBoolean();
+                int length = in.readInt();
+                if (length < TAG_LENGTH || length > SEGMENT_SIZE + TAG_LENGTH) {
+                    throw new IOException("Corrupt export segment");
+                }
+                byte[] sealed = new byte[length];
+                in.readFully(sealed);
+                plain = cipher(Cipher.DECRYPT_MODE, key, noncePrefix, segment++, last).doFinal(sealed);
+                position = 0;
+            } catch (EOFException e) {
+                throw new IOException("Export file is truncated", e);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Wrong passphrase or corrupt export", e);
+            }
+        }
+    }
+}
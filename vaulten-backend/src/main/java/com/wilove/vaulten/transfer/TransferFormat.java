@@ -0,0 +1,41 @@
+package com.wilove.vaulten.transfer;
+
+import java.util.Locale;
+
+/**
+ * File formats accepted by vault import and produced by vault export.
+ */
+public enum TransferFormat {
+    JSON("json", "application/json"),
+    CSV("csv", "text/csv");
+
+    private final String extension;
+    private final String contentType;
+
+    TransferFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return the format named {@code value} (any case), or null if unknown
+     */
+    public static TransferFormat parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.wilove.vaulten.transfer;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wilove.vaulten.datasource.DataSourceRoutingContext;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.service.VaultService;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Writes a user's whole vault, decrypted, as JSON or CSV.
+ *
+ * Entries come from a database cursor in chunks of {@value #CHUNK_SIZE} and
+ * are written straight to the response, so memory use stays flat however
+ * large the vault is. With a passphrase the output is sealed in the
+ * {@link PassphraseEncryption} format.
+ */
+@Service
+public class VaultExportService {
+
+    static final int CHUNK_SIZE = 500;
+    static final List<String> COLUMNS = List.of("name", "username", "password", "url", "notes", "type", "category");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final VaultService vaultService;
+    private final ObjectMapper objectMapper;
+
+    public VaultExportService(VaultService vaultService, ObjectMapper objectMapper) {
+        this.vaultService = vaultService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Streams the export to {@code out} and closes it. Runs on whatever thread
+     * writes the response, so the user is bound for routing explicitly.
+     *
+     * @param passphrase encrypts the output when not null
+     */
+    public void export(User user, TransferFormat format, String passphrase, OutputStream out) throws IOException {
+        OutputStream target = passphrase == null ? out : PassphraseEncryption.encrypt(out, passphrase);
+        try (EntryWriter writer = format == TransferFormat.CSV
+                ? new CsvEntryWriter(new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE))
+                : new JsonEntryWriter(objectMapper.getFactory()
+                        .createGenerator(new BufferedOutputStream(target, BUFFER_SIZE), JsonEncoding.UTF8))) {
+            writer.begin();
+            DataSourceRoutingContext.runAs(user.getId(), () -> vaultService.forEachEntryChunk(user, CHUNK_SIZE,
+                    chunk -> {
+                        try {
+                            for (VaultEntry entry : chunk) {
+                                writer.write(entry);
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+            writer.end();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String[] values(VaultEntry entry) {
+        return new String[] {
+                entry.getName(),
+                entry.getUsername(),
+                entry.getPassword(),
+                entry.getUrl(),
+                entry.getNotes(),
+                entry.getType() == null ? null : entry.getType().name(),
+                entry.getCategory()
+        };
+    }
+
+    private interface EntryWriter extends AutoCloseable {
+
+        void begin() throws IOException;
+
+        void write(VaultEntry entry) throws IOException;
+
+        void end() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final class JsonEntryWriter implements EntryWriter {
+
+        private final JsonGenerator generator;
+
+        private JsonEntryWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("exportedAt", LocalDateTime.now().toString());
+            generator.writeArrayFieldStart("entries");
+        }
+
+        @Override
+        public void write(VaultEntry entry) throws IOException {
+            String[] values = values(entry);
+            generator.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    generator.writeStringField(COLUMNS.get(i), values[i]);
+                }
+            }
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void end() throws IOException {
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    /**
+     * RFC 4180: fields quoted with quotes doubled, missing values left empty, CRLF line ends.
+     */
+    private static final class CsvEntryWriter implements EntryWriter {
+
+        private final Writer writer;
+
+        private CsvEntryWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writeRow(COLUMNS.toArray(String[]::new));
+        }
+
+        @Override
+        public void write(VaultEntry entry) throws IOException {
+            writeRow(values(entry));
+        }
+
+        @Override
+        public void end() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+
+        private void writeRow(String[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                if (values[i] != null) {
+                    writer.write('"');
+                    writer.write(values[i].replace("\"", "\"\""));
+                    writer.write('"');
+                }
+            }
+            writer.write("\r\n");
+        }
+    }
+}
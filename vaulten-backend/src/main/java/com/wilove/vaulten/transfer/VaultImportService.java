@@ -0,0 +1,257 @@
+package com.wilove.vaulten.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wilove.vaulten.datasource.DataSourceRoutingContext;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.service.VaultService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports exports from other password managers (or from Vaulten) in the
+ * background.
+ *
+ * The upload is spooled to a file and the request returns a job to poll.
+ * The file is parsed as a stream and entries are created in batches of
+ * {@code vault.import.batch-size}, one transaction and revision block each,
+ * with encryption spread over cores and inserts sent as JDBC batches.
+ * Entries matching an existing one (or an earlier one in the file) by name,
+ * username and URL are skipped. Batches already written stay if a later part
+ * of the file turns out to be malformed.
+ */
+@Slf4j
+@Service
+public class VaultImportService {
+
+    private static final String SUFFIX = ".import";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final VaultService vaultService;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int batchSize;
+    private final Duration retention;
+    private final Executor executor;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final Set<Long> importingUsers = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public VaultImportService(VaultService vaultService, ObjectMapper objectMapper,
+            @Value("${vault.import.directory:${java.io.tmpdir}/vaulten-imports}") Path directory,
+            @Value("${vault.import.batch-size:500}") int batchSize,
+            @Value("${vault.import.retention:PT1H}") Duration retention,
+            @Value("${vault.import.threads:2}") int threads) throws IOException {
+        this(vaultService, objectMapper, directory, batchSize, retention,
+                Executors.newFixedThreadPool(threads, runnable -> {
+                    Thread thread = new Thread(runnable, "vault-import");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    VaultImportService(VaultService vaultService, ObjectMapper objectMapper, Path directory, int batchSize,
+            Duration retention, Executor executor) throws IOException {
+        this.vaultService = vaultService;
+        this.objectMapper = objectMapper;
+        this.directory = Files.createDirectories(directory);
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.executor = executor;
+        deleteSpooledFiles();
+    }
+
+    /**
+     * Spools {@code content} and starts importing it.
+     *
+     * @param passphrase opens a passphrase-encrypted Vaulten export; null for plain files
+     * @throws IllegalStateException when the user already has an import running
+     */
+    public ImportJob start(User user, InputStream content, TransferFormat format, String passphrase)
+            throws IOException {
+        purgeFinished();
+        if (!importingUsers.add(user.getId())) {
+            throw new IllegalStateException("An import is already running");
+        }
+
+        ImportJob job;
+        Path file = null;
+        try {
+            file = Files.createTempFile(directory, "user-" + user.getId() + "-", SUFFIX);
+            Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+            job = new ImportJob(user.getId(), Files.size(file));
+            jobs.put(job.getId(), job);
+        } catch (IOException | RuntimeException e) {
+            importingUsers.remove(user.getId());
+            if (file != null) {
+                deleteQuietly(file);
+            }
+            throw e;
+        }
+        Path spooled = file;
+        executor.execute(() -> run(job, user, spooled, format, passphrase));
+        return job;
+    }
+
+    /**
+     * The user's job with this id, while it is running or recently finished.
+     */
+    public Optional<ImportJob> getJob(User user, String id) {
+        return Optional.ofNullable(jobs.get(id))
+                .filter(job -> job.getUserId().equals(user.getId()));
+    }
+
+    void run(ImportJob job, User user, Path file, TransferFormat format, String passphrase) {
+        long startedAt = System.nanoTime();
+        try (EntryRecordReader reader = open(file, format, passphrase, job.bytesRead())) {
+            DataSourceRoutingContext.runAs(user.getId(), () -> importRecords(job, user, reader));
+            job.complete();
+            log.info("Imported {} entries for user {} in {} ms ({} duplicates, {} invalid)", job.getImported(),
+                    user.getId(), (System.nanoTime() - startedAt) / 1_000_000, job.getDuplicates(), job.getInvalid());
+        } catch (IOException | UncheckedIOException e) {
+            job.fail("Could not read the file: " + (e.getCause() != null ? e.getCause() : e).getMessage());
+        } catch (RuntimeException e) {
+            log.warn("Import {} for user {} failed", job.getId(), user.getId(), e);
+            job.fail("Import failed after " + job.getImported() + " entries");
+        } finally {
+            deleteQuietly(file);
+            importingUsers.remove(user.getId());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void importRecords(ImportJob job, User user, EntryRecordReader reader) {
+        Set<String> seen = new HashSet<>();
+        vaultService.forEachEntryChunk(user, batchSize,
+                chunk -> chunk.forEach(entry -> seen.add(ImportedEntries.duplicateKey(entry))));
+
+        List<VaultEntry> batch = new ArrayList<>(batchSize);
+        Map<String, String> record;
+        while ((record = nextRecord(reader)) != null) {
+            VaultEntry entry = ImportedEntries.toEntry(record);
+            if (entry == null) {
+                job.recordInvalid();
+            } else if (!seen.add(ImportedEntries.duplicateKey(entry))) {
+                job.recordDuplicate();
+            } else {
+                batch.add(entry);
+                if (batch.size() == batchSize) {
+                    job.recordImported(vaultService.createEntries(batch, user).size());
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        job.recordImported(vaultService.createEntries(batch, user).size());
+    }
+
+    private static Map<String, String> nextRecord(EntryRecordReader reader) {
+        try {
+            return reader.next();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private EntryRecordReader open(Path file, TransferFormat format, String passphrase, AtomicLong bytesRead)
+            throws IOException {
+        InputStream in = new CountingInputStream(Files.newInputStream(file), bytesRead);
+        try {
+            if (passphrase != null) {
+                in = PassphraseEncryption.decrypt(in, passphrase);
+            }
+            return format == TransferFormat.CSV
+                    ? new CsvRecordReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8),
+                            READ_BUFFER_SIZE))
+                    : new JsonRecordReader(objectMapper, in);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private void purgeFinished() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private void deleteSpooledFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete import file {}", file, e);
+        }
+    }
+
+    /**
+     * Tracks how much of the spooled file has been read, for progress.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private final AtomicLong count;
+
+        private CountingInputStream(InputStream in, AtomicLong count) {
+            super(in);
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                count.addAndGet(read);
+            }
+            return read;
+        }
+    }
+}
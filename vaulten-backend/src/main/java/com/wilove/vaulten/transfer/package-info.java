@@ -0,0 +1,4 @@
+package com.wilove.vaulten.transfer;
+
+// Bulk movement of whole vaults in and out of the service
+// This package contains the streaming export and its passphrase file format
@@ -0,0 +1,287 @@
+package com.wilove.vaulten.usage;
+
+import com.wilove.vaulten.datasource.DataSourceRoutingContext;
+import com.wilove.vaulten.datasource.ShardRouter;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryUsage;
+import com.wilove.vaulten.repository.VaultEntryUsageRepository;
+import com.wilove.vaulten.store.VaultEntryStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Counts uses of entries (reveals and fills) for ranking them by frecency:
+ * how often and how recently each was used, see {@link VaultEntryUsage}.
+ *
+ * Uses are counted in memory, in a striped {@link LongAdder} per entry, and
+ * written to the database in batches every few seconds instead of on every
+ * use; the uses of an entry within one interval count as made at the last
+ * of them. Recording and reading take no locks: reads add the user's uses
+ * not written yet to the stored values. Uses not written when the
+ * application stops are lost, which for a ranking is acceptable.
+ */
+@Slf4j
+@Service
+public class EntryUsageService {
+
+    private final VaultEntryUsageRepository usageRepository;
+    private final VaultEntryStore vaultEntryStore;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final double halfLifeMillis;
+    private final int flushBatchSize;
+    private final Clock clock;
+    // Uses not written yet, by user and entry, so that a user's reads only look at their own
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<Long, PendingUses>> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EntryUsageService(VaultEntryUsageRepository usageRepository, VaultEntryStore vaultEntryStore,
+            ShardRouter shardRouter, PlatformTransactionManager transactionManager,
+            @Value("${vault.usage.half-life:P14D}") Duration halfLife,
+            @Value("${vault.usage.flush-batch-size:500}") int flushBatchSize) {
+        this(usageRepository, vaultEntryStore, shardRouter, transactionManager, halfLife, flushBatchSize,
+                Clock.systemDefaultZone());
+    }
+
+    EntryUsageService(VaultEntryUsageRepository usageRepository, VaultEntryStore vaultEntryStore,
+            ShardRouter shardRouter, PlatformTransactionManager transactionManager, Duration halfLife,
+            int flushBatchSize, Clock clock) {
+        this.usageRepository = usageRepository;
+        this.vaultEntryStore = vaultEntryStore;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.halfLifeMillis = halfLife.toMillis();
+        this.flushBatchSize = flushBatchSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Counts a use of the user's entry. Only touches memory; the caller must
+     * have checked that the entry belongs to the user.
+     */
+    public void recordUse(Long userId, Long entryId) {
+        ConcurrentHashMap<Long, PendingUses> userUses = pending.get(userId);
+        if (userUses == null) {
+            userUses = pending.computeIfAbsent(userId, id -> new ConcurrentHashMap<>());
+        }
+        PendingUses uses = userUses.get(entryId);
+        if (uses == null) {
+            uses = userUses.computeIfAbsent(entryId, id -> new PendingUses());
+        }
+        // Time first, so that a flush that sees the use also sees when it happened.
+        // Written only when it changes, to keep threads off a shared cache line.
+        long now = clock.millis();
+        if (uses.lastUsedAt != now) {
+            uses.lastUsedAt = now;
+        }
+        uses.count.increment();
+    }
+
+    /**
+     * Drops the usage of an entry being deleted: its row along with the
+     * delete, and its uses not written yet once the delete commits, so that
+     * a rolled back delete keeps them.
+     */
+    public void forget(Long userId, Long entryId) {
+        usageRepository.deleteById(entryId);
+        Runnable drop = () -> {
+            Map<Long, PendingUses> userUses = pending.get(userId);
+            if (userUses != null) {
+                userUses.remove(entryId);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    drop.run();
+                }
+            });
+        } else {
+            drop.run();
+        }
+    }
+
+    /**
+     * The frecency of the user's used entries by entry id, including uses not
+     * written yet. Entries never used are absent.
+     */
+    public Map<Long, Double> frecencies(Long userId) {
+        Map<Long, Double> frecencies = usageRepository.findByUserId(userId).stream()
+                .collect(Collectors.toMap(VaultEntryUsage::getEntryId, VaultEntryUsage::getFrecency));
+        Map<Long, PendingUses> userUses = pending.get(userId);
+        if (userUses != null) {
+            userUses.forEach((entryId, uses) -> {
+                long count = uses.count.sum();
+                if (count > 0) {
+                    frecencies.merge(entryId, frecency(count, uses.lastUsedAt), EntryUsageService::addLog2);
+                }
+            });
+        }
+        return frecencies;
+    }
+
+    /**
+     * Writes the uses counted since the last flush, in one transaction per
+     * shard and batch. Uses of a batch that fails are put back for the next
+     * flush.
+     */
+    @Scheduled(fixedDelayString = "${vault.usage.flush-interval:PT5S}")
+    public void flush() {
+        List<Drained> drained = drain();
+        if (drained.isEmpty()) {
+            return;
+        }
+        Map<Integer, List<Drained>> byShard = drained.stream()
+                .collect(Collectors.groupingBy(uses -> shardRouter.shardFor(uses.userId())));
+        byShard.forEach((shard, uses) -> {
+            for (int from = 0; from < uses.size(); from += flushBatchSize) {
+                List<Drained> batch = uses.subList(from, Math.min(from + flushBatchSize, uses.size()));
+                try {
+                    DataSourceRoutingContext.runOnShard(shard,
+                            () -> transactionTemplate.executeWithoutResult(status -> write(batch)));
+                } catch (RuntimeException e) {
+                    log.warn("Could not write {} entry usage counts; retrying on the next flush", batch.size(), e);
+                    batch.forEach(this::putBack);
+                }
+            }
+        });
+    }
+
+    private List<Drained> drain() {
+        List<Drained> drained = new ArrayList<>();
+        Iterator<Map.Entry<Long, ConcurrentHashMap<Long, PendingUses>>> users = pending.entrySet().iterator();
+        while (users.hasNext()) {
+            Map.Entry<Long, ConcurrentHashMap<Long, PendingUses>> user = users.next();
+            drain(user.getKey(), user.getValue(), drained);
+            if (user.getValue().isEmpty()) {
+                // No entry used for a whole interval: stop tracking the user, keeping
+                // any use recorded meanwhile. A use racing the removal may be lost.
+                users.remove();
+                drain(user.getKey(), user.getValue(), drained);
+            }
+        }
+        return drained;
+    }
+
+    private static void drain(Long userId, ConcurrentHashMap<Long, PendingUses> userUses, List<Drained> drained) {
+        Iterator<Map.Entry<Long, PendingUses>> iterator = userUses.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, PendingUses> entry = iterator.next();
+            PendingUses uses = entry.getValue();
+            long count = uses.count.sumThenReset();
+            if (count == 0) {
+                // Unused for a whole interval: stop tracking it, as above
+                iterator.remove();
+                count = uses.count.sumThenReset();
+                if (count == 0) {
+                    continue;
+                }
+            }
+            drained.add(new Drained(entry.getKey(), userId, count, uses.lastUsedAt));
+        }
+    }
+
+    private void write(List<Drained> batch) {
+        Map<Long, VaultEntryUsage> rows = usageRepository
+                .findByEntryIdIn(batch.stream().map(Drained::entryId).toList()).stream()
+                .collect(Collectors.toMap(VaultEntryUsage::getEntryId, Function.identity()));
+        Set<Long> existing = existingEntryIds(batch.stream()
+                .filter(uses -> !rows.containsKey(uses.entryId()))
+                .toList());
+        List<VaultEntryUsage> changed = new ArrayList<>(batch.size());
+        for (Drained uses : batch) {
+            if (!rows.containsKey(uses.entryId()) && !existing.contains(uses.entryId())) {
+                continue; // Deleted since it was used
+            }
+            LocalDateTime usedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(uses.lastUsedAt()),
+                    ZoneId.systemDefault());
+            double frecency = frecency(uses.count(), uses.lastUsedAt());
+            VaultEntryUsage row = rows.get(uses.entryId());
+            if (row == null) {
+                row = new VaultEntryUsage(uses.entryId(), uses.userId(), uses.count(), usedAt, frecency);
+            } else {
+                row.setUseCount(row.getUseCount() + uses.count());
+                if (row.getLastUsedAt() == null || usedAt.isAfter(row.getLastUsedAt())) {
+                    row.setLastUsedAt(usedAt);
+                }
+                row.setFrecency(addLog2(row.getFrecency(), frecency));
+            }
+            changed.add(row);
+        }
+        usageRepository.saveAll(changed);
+    }
+
+    /**
+     * The ids of the given entries that still exist. Entries without a usage
+     * row are checked before one is added, so that uses drained just before
+     * their entry was deleted do not leave a row behind.
+     */
+    private Set<Long> existingEntryIds(List<Drained> uses) {
+        if (uses.isEmpty()) {
+            return Set.of();
+        }
+        return uses.stream()
+                .collect(Collectors.groupingBy(Drained::userId,
+                        Collectors.mapping(Drained::entryId, Collectors.toList())))
+                .entrySet().stream()
+                .flatMap(user -> vaultEntryStore.findByUserIdAndIdIn(user.getKey(), user.getValue()).stream())
+                .map(VaultEntry::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private void putBack(Drained uses) {
+        PendingUses current = pending.computeIfAbsent(uses.userId(), id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(uses.entryId(), id -> new PendingUses());
+        current.lastUsedAt = Math.max(current.lastUsedAt, uses.lastUsedAt());
+        current.count.add(uses.count());
+    }
+
+    /**
+     * The frecency of {@code count} uses at {@code usedAtMillis}: log2(count)
+     * plus the time in half-lives, so that a use one half-life later weighs
+     * twice as much.
+     */
+    double frecency(long count, long usedAtMillis) {
+        return Math.log(count) / Math.log(2) + usedAtMillis / halfLifeMillis;
+    }
+
+    /**
+     * log2(2^a + 2^b), without overflowing for the large exponents frecencies
+     * are made of.
+     */
+    static double addLog2(double a, double b) {
+        double max = Math.max(a, b);
+        return max + Math.log1p(Math.pow(2, Math.min(a, b) - max)) / Math.log(2);
+    }
+
+    private static final class PendingUses {
+        final LongAdder count = new LongAdder();
+        volatile long lastUsedAt;
+    }
+
+    private record Drained(Long entryId, Long userId, long count, long lastUsedAt) {
+    }
+}
@@ -0,0 +1,4 @@
+package com.wilove.vaulten.usage;
+
+// Usage of vault entries, for ranking them by frecency
+// This package contains the in-memory use counters and their batched write-behind to the database
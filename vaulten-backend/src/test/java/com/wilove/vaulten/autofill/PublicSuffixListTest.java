@@ -0,0 +1,55 @@
+package com.wilove.vaulten.autofill;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublicSuffixListTest {
+
+    private final PublicSuffixList publicSuffixList = new PublicSuffixList(
+            new ClassPathResource("public_suffix_list.dat"));
+
+    @Test
+    void domainOf_ShouldReduceUrlsToTheirRegistrableDomain() {
+        assertEquals("google.com", publicSuffixList.domainOf("https://accounts.google.com/signin?x=1"));
+        assertEquals("google.com", publicSuffixList.domainOf("Google.COM."));
+        assertEquals("bbc.co.uk", publicSuffixList.domainOf("www.bbc.co.uk/news"));
+        assertEquals("example.com", publicSuffixList.domainOf("ftp://user:pw@files.example.com:2121/"));
+        assertEquals("alice.github.io", publicSuffixList.domainOf("https://alice.github.io/blog"));
+        assertEquals("xn--bcher-kva.de", publicSuffixList.domainOf("https://www.bücher.de"));
+    }
+
+    @Test
+    void domainOf_ShouldKeepAddressesAndSingleLabelHostsWhole() {
+        assertEquals("192.168.1.1", publicSuffixList.domainOf("http://192.168.1.1:8080/admin"));
+        assertEquals("::1", publicSuffixList.domainOf("http://[::1]:8080"));
+        assertEquals("localhost", publicSuffixList.domainOf("localhost:3000"));
+    }
+
+    @Test
+    void domainOf_ShouldReturnNull_WhenThereIsNoRegistrableDomain() {
+        assertNull(publicSuffixList.domainOf(null));
+        assertNull(publicSuffixList.domainOf("  "));
+        assertNull(publicSuffixList.domainOf("co.uk"));
+        assertNull(publicSuffixList.domainOf("github.io"));
+        assertNull(publicSuffixList.domainOf("not a url"));
+    }
+
+    @Test
+    void registrableDomain_ShouldApplyWildcardAndExceptionRules() {
+        // Given
+        PublicSuffixList list = new PublicSuffixList(new ByteArrayResource(
+                "// comment\n*.ck\n!www.ck\ncom\n".getBytes(StandardCharsets.UTF_8)));
+
+        // When / Then
+        assertEquals("shop.co.ck", list.registrableDomain("www.shop.co.ck"));
+        assertNull(list.registrableDomain("co.ck"));
+        assertEquals("www.ck", list.registrableDomain("www.ck"));
+        assertEquals("example.com", list.registrableDomain("a.b.example.com"));
+        assertEquals("example.zz", list.registrableDomain("www.example.zz"));
+    }
+}
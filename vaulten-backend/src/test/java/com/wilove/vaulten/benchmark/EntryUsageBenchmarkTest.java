@@ -0,0 +1,119 @@
+package com.wilove.vaulten.benchmark;
+
+import com.wilove.vaulten.datasource.ShardRouter;
+import com.wilove.vaulten.datasource.ShardingProperties;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryUsage;
+import com.wilove.vaulten.repository.VaultEntryUsageRepository;
+import com.wilove.vaulten.store.VaultEntryStore;
+import com.wilove.vaulten.usage.EntryUsageService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Records uses of a few hundred entries from several threads at once while
+ * flushes run every 10 ms, and reports the recording rate and how many row
+ * writes the uses turned into.
+ *
+ * Run with: ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+class EntryUsageBenchmarkTest {
+
+    private static final int THREADS = 8;
+    private static final int USES_PER_THREAD = 2_000_000;
+    private static final int ENTRIES = 500;
+    private static final long MAX_NANOS_PER_USE = 1_000;
+
+    @Test
+    void recordUse_ConcurrentWithFlushes() throws InterruptedException {
+        VaultEntryUsageRepository usageRepository = mock(VaultEntryUsageRepository.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(usageRepository.findByEntryIdIn(anyCollection())).thenReturn(List.of());
+        AtomicLong rowsWritten = new AtomicLong();
+        AtomicLong usesWritten = new AtomicLong();
+        doAnswer(invocation -> {
+            Iterable<VaultEntryUsage> rows = invocation.getArgument(0);
+            rows.forEach(row -> {
+                rowsWritten.incrementAndGet();
+                usesWritten.addAndGet(row.getUseCount());
+            });
+            return List.of();
+        }).when(usageRepository).saveAll(any());
+        VaultEntryStore vaultEntryStore = mock(VaultEntryStore.class);
+        when(vaultEntryStore.findByUserIdAndIdIn(any(), anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(1);
+            return ids.stream().map(id -> VaultEntry.builder().id(id).build()).toList();
+        });
+        EntryUsageService entryUsageService = new EntryUsageService(usageRepository, vaultEntryStore,
+                new ShardRouter(new ShardingProperties()), transactionManager,
+                Duration.ofDays(14), 500);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int seed = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < USES_PER_THREAD; i++) {
+                    long entryId = (i * 31L + seed) % ENTRIES;
+                    entryUsageService.recordUse(entryId % 10, entryId);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        Thread flusher = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                entryUsageService.flush();
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        long startNanos = System.nanoTime();
+        flusher.start();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        flusher.interrupt();
+        flusher.join();
+        entryUsageService.flush();
+
+        long uses = (long) THREADS * USES_PER_THREAD;
+        double nanosPerUse = (double) elapsedNanos / uses;
+        System.out.printf("Entry usage (%d threads, %d entries, %d cores): %.1f M uses/s, "
+                        + "%d uses written as %d rows%n",
+                THREADS, ENTRIES, Runtime.getRuntime().availableProcessors(), uses * 1000.0 / elapsedNanos,
+                usesWritten.get(), rowsWritten.get());
+        assertTrue(rowsWritten.get() < uses / 100, "Wrote " + rowsWritten.get() + " rows for " + uses + " uses");
+        assertTrue(usesWritten.get() > uses * 99 / 100, "Wrote " + usesWritten.get() + " of " + uses + " uses");
+        assertTrue(nanosPerUse < MAX_NANOS_PER_USE, "Recording took " + nanosPerUse + " ns per use");
+    }
+}
@@ -0,0 +1,85 @@
+package com.wilove.vaulten.benchmark;
+
+import com.wilove.vaulten.breach.HashCorpus;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Looks up hashes in a synthetic 1M-hash corpus in the HIBP format, half of
+ * them present, and reports the cost of indexing it once.
+ *
+ * Run with: ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+class HashCorpusBenchmarkTest {
+
+    private static final int HASHES = 1_000_000;
+    private static final int WARMUP = 100_000;
+    private static final int ITERATIONS = 200_000;
+    private static final long MAX_MEDIAN_NANOS = 20_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void contains_OneMillionHashes() throws IOException {
+        Random random = new Random(42);
+        byte[][] hashes = new byte[HASHES][HashCorpus.HASH_BYTES];
+        for (byte[] hash : hashes) {
+            random.nextBytes(hash);
+        }
+        Arrays.sort(hashes, Arrays::compareUnsigned);
+        Path corpusFile = directory.resolve("pwned.txt");
+        HexFormat hex = HexFormat.of().withUpperCase();
+        try (BufferedWriter writer = Files.newBufferedWriter(corpusFile)) {
+            for (byte[] hash : hashes) {
+                writer.write(hex.formatHex(hash));
+                writer.write(":" + (1 + random.nextInt(1000)) + "\r\n");
+            }
+        }
+
+        long start = System.nanoTime();
+        try (HashCorpus corpus = HashCorpus.open(corpusFile, directory.resolve("pwned.txt.idx"), 10)) {
+            double buildMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+            byte[][] lookups = new byte[1024][];
+            for (int i = 0; i < lookups.length; i++) {
+                lookups[i] = i % 2 == 0 ? hashes[random.nextInt(HASHES)] : ByteBuffer.allocate(HashCorpus.HASH_BYTES)
+                        .putLong(random.nextLong()).putLong(random.nextLong()).putInt(random.nextInt()).array();
+            }
+            for (int i = 0; i < WARMUP; i++) {
+                corpus.contains(lookups[i % lookups.length]);
+            }
+            long[] timings = new long[ITERATIONS];
+            int found = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                long lookupStart = System.nanoTime();
+                found += corpus.contains(lookups[i % lookups.length]) ? 1 : 0;
+                timings[i] = System.nanoTime() - lookupStart;
+            }
+
+            Arrays.sort(timings);
+            System.out.printf("Breached password corpus (%d hashes, %d MB): indexed in %.1f ms, lookup median "
+                            + "%.2f us, p99 %.2f us, %d of %d found%n",
+                    HASHES, Files.size(corpusFile) >> 20, buildMillis, timings[ITERATIONS / 2] / 1000.0,
+                    timings[ITERATIONS * 99 / 100] / 1000.0, found, ITERATIONS);
+            assertTrue(corpus.contains(hashes[0]));
+            assertFalse(corpus.contains(new byte[HashCorpus.HASH_BYTES]));
+            assertTrue(timings[ITERATIONS / 2] < MAX_MEDIAN_NANOS,
+                    "Median lookup took " + timings[ITERATIONS / 2] + " ns");
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.wilove.vaulten.benchmark;
+
+import com.wilove.vaulten.model.Role;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryPayload;
+import com.wilove.vaulten.model.VaultEntryType;
+import com.wilove.vaulten.repository.UserRepository;
+import com.wilove.vaulten.repository.VaultEntryPayloadRepository;
+import com.wilove.vaulten.repository.VaultEntryRepository;
+import com.wilove.vaulten.store.JpaVaultEntryStore;
+import com.wilove.vaulten.store.VaultEntryStore;
+import com.wilove.vaulten.store.log.LogStructuredVaultEntryStore;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the JPA/H2 store with the embedded log-structured store on the
+ * operations VaultService issues: one transaction per entry write (entry plus
+ * payload) and per vault listing (entries plus batched payload lookup).
+ *
+ * Run with: ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VaultEntryStoreBenchmarkTest {
+
+    private static final int USERS = 20;
+    private static final int ENTRIES_PER_USER = 250;
+    private static final int NOTES_SIZE = 1024;
+    private static final int READ_ROUNDS = 10;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VaultEntryRepository vaultEntryRepository;
+
+    @Autowired
+    private VaultEntryPayloadRepository vaultEntryPayloadRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void throughput_JpaVersusLogStructured() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(userRepository.save(User.builder()
+                    .username("bench" + i).email("bench" + i + "@example.com")
+                    .password("password123").role(Role.USER).build()));
+        }
+
+        LogStructuredVaultEntryStore logStore = new LogStructuredVaultEntryStore(
+                directory, DataSize.ofMegabytes(64), false, 0.5, Duration.ZERO);
+        try {
+            Result jpa = measure(new JpaVaultEntryStore(vaultEntryRepository, vaultEntryPayloadRepository, entityManager), users);
+            Result log = measure(logStore, users);
+
+            System.out.printf("Vault store (%d users x %d entries, %d B notes): writes/s jpa %.0f, log %.0f (%.1fx); "
+                            + "entries read/s jpa %.0f, log %.0f (%.1fx)%n",
+                    USERS, ENTRIES_PER_USER, NOTES_SIZE, jpa.writes, log.writes, log.writes / jpa.writes,
+                    jpa.reads, log.reads, log.reads / jpa.reads);
+        } finally {
+            logStore.close();
+        }
+    }
+
+    private Result measure(VaultEntryStore store, List<User> users) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        String notes = "n".repeat(NOTES_SIZE);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ENTRIES_PER_USER; i++) {
+            for (User user : users) {
+                int index = i;
+                transaction.executeWithoutResult(status -> {
+                    VaultEntry entry = store.save(VaultEntry.builder()
+                            .name("Entry " + index).username("user" + index).password("encrypted_password")
+                            .url("https://example.com").type(VaultEntryType.LOGIN).user(user).build());
+                    store.savePayload(new VaultEntryPayload(entry.getId(), notes));
+                });
+            }
+        }
+        double writes = USERS * ENTRIES_PER_USER / seconds(start);
+
+        transaction.setReadOnly(true);
+        start = System.nanoTime();
+        for (int round = 0; round < READ_ROUNDS; round++) {
+            for (User user : users) {
+                int read = transaction.execute(status -> {
+                    List<VaultEntry> entries = store.findByUserId(user.getId());
+                    store.findPayloads(entries.stream().map(VaultEntry::getId).collect(Collectors.toList()));
+                    return entries.size();
+                });
+                assertEquals(ENTRIES_PER_USER, read);
+            }
+        }
+        double reads = READ_ROUNDS * USERS * ENTRIES_PER_USER / seconds(start);
+        return new Result(writes, reads);
+    }
+
+    private static double seconds(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000_000.0;
+    }
+
+    private record Result(double writes, double reads) {
+    }
+}
@@ -0,0 +1,138 @@
+package com.wilove.vaulten.benchmark;
+
+import com.wilove.vaulten.model.Role;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.repository.UserRepository;
+import com.wilove.vaulten.service.EncryptionService;
+import com.wilove.vaulten.service.VaultService;
+import com.wilove.vaulten.transfer.TransferFormat;
+import com.wilove.vaulten.transfer.VaultExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exports a 100k-entry vault and samples the live heap while it streams,
+ * against the heap held by the materialized {@code GET /vault} list.
+ *
+ * Run with: ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class VaultExportBenchmarkTest {
+
+    private static final int ENTRIES = 100_000;
+    private static final int NOTES_SIZE = 200;
+    private static final long SAMPLE_EVERY_BYTES = 2L * 1024 * 1024;
+    private static final long MAX_STREAMING_GROWTH = 16L * 1024 * 1024;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    @Autowired
+    private VaultService vaultService;
+
+    @Autowired
+    private VaultExportService vaultExportService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .username("export-bench").email("export-bench@example.com")
+                .password("password123").role(Role.USER).build());
+
+        String password = encryptionService.encrypt("correct horse battery staple");
+        String notes = encryptionService.encrypt("n".repeat(NOTES_SIZE));
+        List<Object[]> rows = new ArrayList<>();
+        for (long i = 1; i <= ENTRIES; i++) {
+            rows.add(new Object[] { i, user.getId(), "Entry " + i, "user" + i, password, "https://example.com/" + i });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO vault_entries (id, user_id, name, username, password, url, type) "
+                + "VALUES (?, ?, ?, ?, ?, ?, 'LOGIN')", rows);
+        jdbcTemplate.batchUpdate("INSERT INTO vault_entry_payloads (entry_id, notes) VALUES (?, ?)",
+                rows.stream().map(row -> new Object[] { row[0], notes }).toList());
+    }
+
+    @Test
+    void export_HeapStaysFlatWhileStreaming() throws IOException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseline = liveHeap(memory);
+
+        HeapSamplingOutputStream out = new HeapSamplingOutputStream(memory, baseline);
+        long start = System.nanoTime();
+        vaultExportService.export(user, TransferFormat.JSON, null, out);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        long materialized = liveHeapHolding(memory, baseline);
+
+        System.out.printf("Vault export (%d entries): %.1f MB written in %.1fs, peak live heap growth %.1f MB "
+                        + "(materialized list: %.1f MB)%n",
+                ENTRIES, out.written / 1048576.0, seconds, out.peakGrowth / 1048576.0, materialized / 1048576.0);
+        assertTrue(out.written > (long) ENTRIES * NOTES_SIZE);
+        assertTrue(out.peakGrowth < MAX_STREAMING_GROWTH,
+                "Streaming export grew the heap by " + out.peakGrowth + " bytes");
+    }
+
+    private long liveHeapHolding(MemoryMXBean memory, long baseline) {
+        List<?> entries = vaultService.getEntriesForUser(user);
+        long growth = liveHeap(memory) - baseline;
+        assertEquals(ENTRIES, entries.size());
+        return growth;
+    }
+
+    private static long liveHeap(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static final class HeapSamplingOutputStream extends OutputStream {
+
+        private final MemoryMXBean memory;
+        private final long baseline;
+        private long written;
+        private long nextSample = SAMPLE_EVERY_BYTES;
+        private long peakGrowth;
+
+        private HeapSamplingOutputStream(MemoryMXBean memory, long baseline) {
+            this.memory = memory;
+            this.baseline = baseline;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            written += length;
+            if (written >= nextSample) {
+                nextSample += SAMPLE_EVERY_BYTES;
+                peakGrowth = Math.max(peakGrowth, liveHeap(memory) - baseline);
+            }
+        }
+    }
+}
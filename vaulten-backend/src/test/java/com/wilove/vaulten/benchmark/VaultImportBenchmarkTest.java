@@ -0,0 +1,102 @@
+package com.wilove.vaulten.benchmark;
+
+import com.wilove.vaulten.model.Role;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryType;
+import com.wilove.vaulten.repository.UserRepository;
+import com.wilove.vaulten.service.VaultService;
+import com.wilove.vaulten.transfer.ImportJob;
+import com.wilove.vaulten.transfer.TransferFormat;
+import com.wilove.vaulten.transfer.VaultImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Imports a 50k-row CSV export through the batched import path, against
+ * creating entries one request-sized transaction at a time.
+ *
+ * Run with: ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class VaultImportBenchmarkTest {
+
+    private static final int ENTRIES = 50_000;
+    private static final int ONE_BY_ONE_ENTRIES = 2_000;
+    private static final Duration MAX_IMPORT_TIME = Duration.ofSeconds(60);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VaultService vaultService;
+
+    @Autowired
+    private VaultImportService vaultImportService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .username("import-bench").email("import-bench@example.com")
+                .password("password123").role(Role.USER).build());
+    }
+
+    @Test
+    void import_FiftyThousandRows() throws Exception {
+        StringBuilder csv = new StringBuilder("name,url,username,password,extra,grouping\n");
+        for (int i = 1; i <= ENTRIES; i++) {
+            csv.append("Entry ").append(i).append(",https://example.com/").append(i).append(",user").append(i)
+                    .append(",correct horse battery staple ").append(i).append(",\"notes for\nentry ").append(i)
+                    .append("\",Imported\n");
+        }
+        byte[] content = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+        long start = System.nanoTime();
+        ImportJob job = vaultImportService.start(user, new ByteArrayInputStream(content), TransferFormat.CSV, null);
+        long deadline = start + MAX_IMPORT_TIME.toNanos();
+        while (job.getStatus() == ImportJob.Status.RUNNING && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        double oneByOneRate = createOneByOne();
+        System.out.printf("Vault import (%d rows, %.1f MB): %.1fs, %.0f entries/s (one by one: %.0f entries/s)%n",
+                ENTRIES, content.length / 1048576.0, seconds, ENTRIES / seconds, oneByOneRate);
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus(), job.getError());
+        assertEquals(ENTRIES, job.getImported());
+        assertEquals(ENTRIES, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM vault_entry_payloads p JOIN vault_entries e ON e.id = p.entry_id "
+                        + "WHERE e.user_id = ? AND e.name LIKE 'Entry %'", Integer.class, user.getId()));
+        assertTrue(ENTRIES / seconds > oneByOneRate, "Batched import is not faster than one by one");
+    }
+
+    private double createOneByOne() {
+        long start = System.nanoTime();
+        for (int i = 1; i <= ONE_BY_ONE_ENTRIES; i++) {
+            vaultService.createEntry(VaultEntry.builder()
+                    .name("Single " + i).url("https://example.com/" + i).username("user" + i)
+                    .password("correct horse battery staple " + i).notes("notes for\nentry " + i)
+                    .type(VaultEntryType.LOGIN).build(), user);
+        }
+        return ONE_BY_ONE_ENTRIES / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,90 @@
+package com.wilove.vaulten.benchmark;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares scanning a vault whose notes sit in the entry row against the
+ * current layout where notes live in vault_entry_payloads.
+ *
+ * Run with: ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+@DataJpaTest
+@ActiveProfiles("test")
+class VaultScanBenchmarkTest {
+
+    private static final int ENTRIES = 2_000;
+    private static final int NOTES_SIZE = 16 * 1024;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long userId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO users (username, email, password, role, created_at, updated_at) "
+                + "VALUES ('bench', 'bench@example.com', 'password123', 'USER', NOW(), NOW())");
+        userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'bench'", Long.class);
+
+        jdbcTemplate.execute("CREATE TABLE vault_entries_inline (id BIGINT PRIMARY KEY, user_id BIGINT, "
+                + "name VARCHAR(255), username VARCHAR(255), password VARCHAR(255), url VARCHAR(255), "
+                + "notes TEXT, type VARCHAR(20), category VARCHAR(255))");
+
+        String notes = "n".repeat(NOTES_SIZE);
+        List<Object[]> rows = new ArrayList<>();
+        for (long i = 1; i <= ENTRIES; i++) {
+            rows.add(new Object[] { i, userId, "Entry " + i, "user" + i, "encrypted_password", "https://example.com" });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO vault_entries (id, user_id, name, username, password, url, type) "
+                + "VALUES (?, ?, ?, ?, ?, ?, 'LOGIN')", rows);
+        jdbcTemplate.batchUpdate("INSERT INTO vault_entry_payloads (entry_id, notes) VALUES (?, ?)",
+                rows.stream().map(row -> new Object[] { row[0], notes }).toList());
+        jdbcTemplate.batchUpdate("INSERT INTO vault_entries_inline (id, user_id, name, username, password, url, notes, type) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, 'LOGIN')",
+                rows.stream().map(row -> new Object[] { row[0], row[1], row[2], row[3], row[4], row[5], notes }).toList());
+    }
+
+    @Test
+    void scanThroughput_NotesInRowVersusPayloadTable() {
+        double inline = measure("SELECT * FROM vault_entries_inline WHERE user_id = ?");
+        double split = measure("SELECT * FROM vault_entries WHERE user_id = ?");
+
+        System.out.printf("Vault scan (%d entries, %d KB notes): notes in row %.0f entries/s, payload table %.0f entries/s (%.1fx)%n",
+                ENTRIES, NOTES_SIZE / 1024, inline, split, split / inline);
+    }
+
+    private double measure(String sql) {
+        for (int i = 0; i < 3; i++) {
+            scan(sql);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            assertEquals(ENTRIES, scan(sql));
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        return ENTRIES * ROUNDS / seconds;
+    }
+
+    private int scan(String sql) {
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            int columns = rs.getMetaData().getColumnCount();
+            for (int i = 1; i <= columns; i++) {
+                rs.getObject(i);
+            }
+            return rowNum;
+        }, userId).size();
+    }
+}
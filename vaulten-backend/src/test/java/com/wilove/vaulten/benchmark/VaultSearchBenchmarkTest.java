@@ -0,0 +1,104 @@
+package com.wilove.vaulten.benchmark;
+
+import com.wilove.vaulten.model.Role;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.repository.UserRepository;
+import com.wilove.vaulten.search.VaultSearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Searches a 10k-entry vault through the trigram index, against the
+ * {@code LIKE '%term%'} scan over the same columns.
+ *
+ * Run with: ./mvnw test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class VaultSearchBenchmarkTest {
+
+    private static final int ENTRIES = 10_000;
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 5_000;
+    private static final String[] QUERIES = { "github", "mail 42", "bank", "user123", "example.org/7", "shop", "zz" };
+    private static final String[] SITES = { "github", "gitlab", "mail", "bank", "shop", "news", "forum", "cloud" };
+    private static final long MAX_MEDIAN_NANOS = 1_000_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VaultSearchService vaultSearchService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .username("search-bench").email("search-bench@example.com")
+                .password("password123").role(Role.USER).build());
+
+        List<Object[]> rows = new ArrayList<>();
+        for (long i = 1; i <= ENTRIES; i++) {
+            String site = SITES[(int) (i % SITES.length)];
+            rows.add(new Object[] { i, user.getId(), site + " account " + i, "user" + i,
+                    "https://" + site + ".example.org/" + i, i % 3 == 0 ? "Work" : "Personal" });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO vault_entries (id, user_id, name, username, url, category, type) "
+                + "VALUES (?, ?, ?, ?, ?, ?, 'LOGIN')", rows);
+    }
+
+    @Test
+    void search_TenThousandEntries() {
+        long start = System.nanoTime();
+        vaultSearchService.findIds(user.getId(), "github", 20);
+        double buildMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+        for (int i = 0; i < WARMUP; i++) {
+            vaultSearchService.findIds(user.getId(), QUERIES[i % QUERIES.length], 20);
+        }
+        long[] indexed = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long queryStart = System.nanoTime();
+            List<Long> ids = vaultSearchService.findIds(user.getId(), QUERIES[i % QUERIES.length], 20);
+            indexed[i] = System.nanoTime() - queryStart;
+            if (i % QUERIES.length == 0) {
+                assertFalse(ids.isEmpty());
+            }
+        }
+
+        long[] scanned = new long[QUERIES.length * 20];
+        for (int i = 0; i < scanned.length; i++) {
+            String pattern = "%" + QUERIES[i % QUERIES.length] + "%";
+            long queryStart = System.nanoTime();
+            jdbcTemplate.queryForList("SELECT id FROM vault_entries WHERE user_id = ? AND (LOWER(name) LIKE ? "
+                    + "OR LOWER(username) LIKE ? OR LOWER(url) LIKE ? OR LOWER(category) LIKE ?)", Long.class,
+                    user.getId(), pattern, pattern, pattern, pattern);
+            scanned[i] = System.nanoTime() - queryStart;
+        }
+
+        Arrays.sort(indexed);
+        Arrays.sort(scanned);
+        System.out.printf("Vault search (%d entries): index built in %.1f ms, lookup median %.1f us, p99 %.1f us "
+                        + "(LIKE scan median %.1f us)%n",
+                ENTRIES, buildMillis, indexed[ITERATIONS / 2] / 1000.0, indexed[ITERATIONS * 99 / 100] / 1000.0,
+                scanned[scanned.length / 2] / 1000.0);
+        assertTrue(indexed[ITERATIONS / 2] < MAX_MEDIAN_NANOS, "Median lookup took " + indexed[ITERATIONS / 2] + " ns");
+    }
+}
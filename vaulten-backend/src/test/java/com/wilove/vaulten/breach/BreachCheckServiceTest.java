@@ -0,0 +1,195 @@
+package com.wilove.vaulten.breach;
+
+import com.wilove.vaulten.datasource.ShardRouter;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultPasswordCount;
+import com.wilove.vaulten.repository.VaultPasswordCountRepository;
+import com.wilove.vaulten.repository.VaultRevisionRepository;
+import com.wilove.vaulten.service.EncryptionService;
+import com.wilove.vaulten.service.VaultRevisionService;
+import com.wilove.vaulten.service.VaultStatsService;
+import com.wilove.vaulten.store.VaultEntryStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BreachCheckServiceTest {
+
+    @Mock
+    private VaultStatsService vaultStatsService;
+
+    @Mock
+    private VaultPasswordCountRepository passwordCountRepository;
+
+    @Mock
+    private VaultRevisionRepository revisionRepository;
+
+    @Mock
+    private VaultRevisionService vaultRevisionService;
+
+    @Mock
+    private VaultEntryStore vaultEntryStore;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private final EncryptionService encryptionService =
+            new EncryptionService("RW5jcnlwdGlvbktleTMyQnl0ZXNGb3JBRVMyNTYhISE=");
+    private final List<Runnable> tasks = new ArrayList<>();
+    private BreachCheckService breachCheckService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path corpusFile = directory.resolve("pwned.txt");
+        Files.writeString(corpusFile, Stream.of("password", "123456", "hunter2")
+                .map(password -> HexFormat.of().withUpperCase().formatHex(BreachCheckService.sha1(password)))
+                .sorted().map(hash -> hash + ":1\n").collect(Collectors.joining()));
+        breachCheckService = new BreachCheckService(vaultStatsService, passwordCountRepository, revisionRepository,
+                vaultRevisionService, vaultEntryStore, encryptionService, shardRouter, transactionManager,
+                corpusFile.toString(), "", 10, 100, tasks::add);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void checkAfterCommit_ShouldMarkEachDistinctPasswordInTheBackground() {
+        // Given: the corpus loads on the executor before any check
+        runTasks();
+        assertTrue(breachCheckService.isEnabled());
+        assertTrue(Files.exists(directory.resolve("pwned.txt.idx")));
+        VaultEntry reused = entry("hunter2");
+        VaultEntry copy = entry("hunter2");
+        VaultEntry strong = entry("Unlikely-To-Be-Breached-42");
+
+        // When
+        breachCheckService.checkAfterCommit(1L, List.of(reused, copy, strong));
+        reused.setPassword("encrypted");
+
+        // Then: nothing is recorded until the executor runs, and only hashes were kept
+        verifyNoInteractions(vaultStatsService);
+        runTasks();
+        verify(vaultRevisionService).reserveRevisions(1L, 0);
+        verify(vaultStatsService).markBreached(eq(1L), eq("fp-hunter2"), eq(true), any());
+        verify(vaultStatsService).markBreached(eq(1L), eq("fp-Unlikely-To-Be-Breached-42"), eq(false), any());
+    }
+
+    @Test
+    void audit_ShouldCheckPasswordsNotCheckedAgainstTheLoadedCorpus() {
+        // Given
+        runTasks();
+        when(passwordCountRepository.findUncheckedForBreach(eq(1L), any())).thenReturn(List.of(
+                new VaultPasswordCount(1L, "fp-password", 2L), new VaultPasswordCount(1L, "fp-Other-Pass-1", 1L)));
+        when(vaultEntryStore.findByUserIdAndPasswordFingerprintIn(eq(1L), anyCollection())).thenReturn(List.of(
+                encrypted(entry("password")), encrypted(entry("password")), encrypted(entry("Other-Pass-1"))));
+
+        // When
+        int checked = breachCheckService.audit(1L);
+
+        // Then
+        assertEquals(2, checked);
+        verify(vaultRevisionService).reserveRevisions(1L, 0);
+        verify(vaultStatsService).markBreached(eq(1L), eq("fp-password"), eq(true), any());
+        verify(vaultStatsService).markBreached(eq(1L), eq("fp-Other-Pass-1"), eq(false), any());
+    }
+
+    @Test
+    void audit_ShouldNotLock_WhenEverythingWasChecked() {
+        // Given
+        runTasks();
+        when(passwordCountRepository.findUncheckedForBreach(eq(1L), any())).thenReturn(List.of());
+
+        // When
+        int checked = breachCheckService.audit(1L);
+
+        // Then
+        assertEquals(0, checked);
+        verify(vaultRevisionService, never()).reserveRevisions(any(), anyInt());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void checks_ShouldBeSkipped_WhenNoCorpusIsConfigured() {
+        // Given
+        List<Runnable> disabledTasks = new ArrayList<>();
+        BreachCheckService disabled = new BreachCheckService(vaultStatsService, passwordCountRepository,
+                revisionRepository, vaultRevisionService, vaultEntryStore, encryptionService, shardRouter,
+                transactionManager, "", "", 10, 100, disabledTasks::add);
+
+        // When
+        disabled.checkAfterCommit(1L, List.of(entry("password")));
+        int checked = disabled.audit(1L);
+
+        // Then
+        assertFalse(disabled.isEnabled());
+        assertTrue(disabledTasks.isEmpty());
+        assertEquals(0, checked);
+        verifyNoInteractions(vaultStatsService, passwordCountRepository);
+    }
+
+    @Test
+    void load_ShouldLeaveChecksDisabled_WhenTheCorpusIsMissing() {
+        // Given
+        List<Runnable> missingTasks = new ArrayList<>();
+        BreachCheckService missing = new BreachCheckService(vaultStatsService, passwordCountRepository,
+                revisionRepository, vaultRevisionService, vaultEntryStore, encryptionService, shardRouter,
+                transactionManager, directory.resolve("missing.txt").toString(), "", 10, 100, missingTasks::add);
+
+        // When
+        missingTasks.forEach(Runnable::run);
+        missing.auditAll();
+
+        // Then
+        assertFalse(missing.isEnabled());
+        verifyNoInteractions(shardRouter);
+    }
+
+    private void runTasks() {
+        List<Runnable> pending = List.copyOf(tasks);
+        tasks.clear();
+        pending.forEach(Runnable::run);
+    }
+
+    private VaultEntry entry(String password) {
+        return VaultEntry.builder()
+                .password(password)
+                .passwordFingerprint("fp-" + password)
+                .passwordChangedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private VaultEntry encrypted(VaultEntry entry) {
+        return entry.toBuilder().password(encryptionService.encrypt(entry.getPassword())).build();
+    }
+}
@@ -0,0 +1,105 @@
+package com.wilove.vaulten.breach;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashCorpusTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void contains_ShouldFindEveryHashInTheCorpusAndNothingElse() throws IOException {
+        // Given: HIBP-style lines, several sharing a prefix, with counts and CRLF endings
+        List<String> passwords = IntStream.range(0, 2_000).mapToObj(i -> "password" + i).toList();
+        Path corpusFile = corpus(passwords.stream().map(HashCorpusTest::hex).sorted()
+                .map(hash -> hash + ":" + hash.length() + "\r\n").collect(Collectors.joining()) + "\r\n");
+
+        // When
+        try (HashCorpus corpus = HashCorpus.open(corpusFile, directory.resolve("corpus.idx"), 10)) {
+            // Then
+            for (String password : passwords) {
+                assertTrue(corpus.contains(BreachCheckService.sha1(password)), password);
+            }
+            for (int i = 0; i < 2_000; i++) {
+                assertFalse(corpus.contains(BreachCheckService.sha1("not-breached" + i)));
+            }
+        }
+    }
+
+    @Test
+    void contains_ShouldHandleTheFirstAndLastPrefixes() throws IOException {
+        // Given
+        String lowest = "0000000000000000000000000000000000000001";
+        String highest = "FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFE";
+        Path corpusFile = corpus(lowest + "\n" + highest);
+
+        // When
+        try (HashCorpus corpus = HashCorpus.open(corpusFile, directory.resolve("corpus.idx"), 10)) {
+            // Then
+            assertTrue(corpus.contains(HexFormat.of().parseHex(lowest)));
+            assertTrue(corpus.contains(HexFormat.of().parseHex(highest)));
+            assertFalse(corpus.contains(HexFormat.of().parseHex("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF")));
+            assertFalse(corpus.contains(new byte[HashCorpus.HASH_BYTES]));
+        }
+    }
+
+    @Test
+    void open_ShouldReuseTheIndexUntilTheCorpusChanges() throws IOException {
+        // Given
+        Path corpusFile = corpus(hex("hunter2") + "\n");
+        Path indexFile = directory.resolve("corpus.idx");
+        HashCorpus.open(corpusFile, indexFile, 10).close();
+        FileTime built = Files.getLastModifiedTime(indexFile);
+        Files.setLastModifiedTime(indexFile, FileTime.fromMillis(built.toMillis() - 60_000));
+
+        // When: opened again as is
+        HashCorpus.open(corpusFile, indexFile, 10).close();
+
+        // Then
+        assertEquals(built.toMillis() - 60_000, Files.getLastModifiedTime(indexFile).toMillis());
+
+        // When: the corpus is replaced
+        Files.writeString(corpusFile, hex("letmein") + "\n");
+        Files.setLastModifiedTime(corpusFile, FileTime.fromMillis(built.toMillis() + 60_000));
+        try (HashCorpus corpus = HashCorpus.open(corpusFile, indexFile, 10)) {
+            // Then
+            assertTrue(corpus.contains(BreachCheckService.sha1("letmein")));
+            assertFalse(corpus.contains(BreachCheckService.sha1("hunter2")));
+        }
+    }
+
+    @Test
+    void open_ShouldRejectUnsortedOrMalformedCorpora() throws IOException {
+        Path indexFile = directory.resolve("corpus.idx");
+        Path unsorted = corpus("0000000000000000000000000000000000000002\n"
+                + "0000000000000000000000000000000000000001\n");
+        assertThrows(IllegalArgumentException.class, () -> HashCorpus.open(unsorted, indexFile, 10));
+        assertThrows(IllegalArgumentException.class, () -> HashCorpus.open(corpus("not a hash\n"), indexFile, 10));
+        assertThrows(IllegalArgumentException.class, () ->
+                HashCorpus.open(corpus("0000000000000000000000000000000000000001\n\n"
+                        + "0000000000000000000000000000000000000002\n"), indexFile, 10));
+        assertFalse(Files.exists(indexFile));
+    }
+
+    private Path corpus(String content) throws IOException {
+        Path file = directory.resolve("corpus.txt");
+        Files.writeString(file, content);
+        return file;
+    }
+
+    private static String hex(String password) {
+        return HexFormat.of().withUpperCase().formatHex(BreachCheckService.sha1(password));
+    }
+}
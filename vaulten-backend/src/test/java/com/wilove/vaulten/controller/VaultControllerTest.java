@@ -1,14 +1,40 @@
 package com.wilove.vaulten.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wilove.vaulten.dto.BatchOperation;
+import com.wilove.vaulten.dto.BatchRequest;
+import com.wilove.vaulten.dto.BatchResponse;
+import com.wilove.vaulten.dto.BatchResult;
+import com.wilove.vaulten.dto.EntryDelta;
+import com.wilove.vaulten.dto.EntryHistoryResponse;
+import com.wilove.vaulten.dto.EntryVersion;
+import com.wilove.vaulten.dto.PasswordStrengthEntry;
+import com.wilove.vaulten.dto.ReconcileRequest;
+import com.wilove.vaulten.dto.ReconcileResponse;
+import com.wilove.vaulten.dto.ReuseGroup;
+import com.wilove.vaulten.dto.SyncResponse;
 import com.wilove.vaulten.dto.VaultEntryRequest;
+import com.wilove.vaulten.dto.VaultStatsResponse;
+import com.wilove.vaulten.event.VaultEventBroadcaster;
+import com.wilove.vaulten.exception.EntryConflictException;
 import com.wilove.vaulten.model.User;
 import com.wilove.vaulten.model.VaultEntry;
 import com.wilove.vaulten.model.VaultEntryType;
+import com.wilove.vaulten.search.VaultSearchService;
 import com.wilove.vaulten.security.JwtAuthenticationFilter;
 import com.wilove.vaulten.service.AuthService;
 import com.wilove.vaulten.service.JwtService;
+import com.wilove.vaulten.service.VaultBatchService;
 import com.wilove.vaulten.service.VaultService;
+import com.wilove.vaulten.service.VaultStatsService;
+import com.wilove.vaulten.snapshot.OpenVaultSnapshot;
+import com.wilove.vaulten.snapshot.VaultSnapshot;
+import com.wilove.vaulten.snapshot.VaultSnapshotService;
+import com.wilove.vaulten.transfer.ImportJob;
+import com.wilove.vaulten.transfer.TransferFormat;
+import com.wilove.vaulten.transfer.VaultExportService;
+import com.wilove.vaulten.transfer.VaultImportService;
+import com.wilove.vaulten.usage.EntryUsageService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,18 +42,36 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -42,6 +86,30 @@ class VaultControllerTest {
     @MockBean
     private VaultService vaultService;
 
+    @MockBean
+    private VaultEventBroadcaster vaultEventBroadcaster;
+
+    @MockBean
+    private VaultSnapshotService vaultSnapshotService;
+
+    @MockBean
+    private VaultBatchService vaultBatchService;
+
+    @MockBean
+    private VaultExportService vaultExportService;
+
+    @MockBean
+    private VaultImportService vaultImportService;
+
+    @MockBean
+    private VaultSearchService vaultSearchService;
+
+    @MockBean
+    private VaultStatsService vaultStatsService;
+
+    @MockBean
+    private EntryUsageService entryUsageService;
+
     // Security dependencies required for context
     @MockBean
     private JwtService jwtService;
@@ -90,7 +158,7 @@ class VaultControllerTest {
 
     @Test
     void getAllEntries_ShouldReturnList() throws Exception {
-        when(vaultService.getEntriesForUser(any())).thenReturn(List.of(testEntry));
+        when(vaultService.getEntriesForUser(any(), eq(true))).thenReturn(List.of(testEntry));
 
         mockMvc.perform(get("/vault"))
                 .andExpect(status().isOk())
@@ -98,6 +166,70 @@ class VaultControllerTest {
                 .andExpect(jsonPath("$[0].name").value("Test Login"));
     }
 
+    @Test
+    void getAllEntries_ShouldReturnETag() throws Exception {
+        when(vaultService.getVaultETag(any(), eq(null))).thenReturn("\"1.42\"");
+        when(vaultService.getEntriesForUser(any(), eq(true))).thenReturn(List.of(testEntry));
+
+        mockMvc.perform(get("/vault"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1.42\""));
+    }
+
+    @Test
+    void getAllEntries_ShouldReturnNotModified_WhenETagMatches() throws Exception {
+        when(vaultService.getVaultETag(any(), eq(null))).thenReturn("\"1.42\"");
+
+        mockMvc.perform(get("/vault").header("If-None-Match", "\"1.42\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(vaultService, never()).getEntriesForUser(any(), anyBoolean());
+    }
+
+    @Test
+    void getAllEntries_ShouldSortByFrecency_WithoutETag() throws Exception {
+        when(vaultService.getEntriesByFrecency(any(), eq(false))).thenReturn(List.of(testEntry));
+
+        mockMvc.perform(get("/vault").param("sort", "frecency").param("includeNotes", "false")
+                        .header("If-None-Match", "\"1.42\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(jsonPath("$[0].name").value("Test Login"));
+
+        verify(vaultService, never()).getVaultETag(any(), any());
+    }
+
+    @Test
+    void getAllEntries_ShouldRejectUnknownSort() throws Exception {
+        mockMvc.perform(get("/vault").param("sort", "name"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testSync_ShouldReturnNotModified_WhenETagMatches() throws Exception {
+        when(vaultService.getVaultETag(any(), eq("sync.c42"))).thenReturn("\"1.42-sync.c42\"");
+
+        mockMvc.perform(get("/vault/sync").param("cursor", "42").header("If-None-Match", "\"1.42-sync.c42\""))
+                .andExpect(status().isNotModified());
+
+        verify(vaultService, never()).sync(any(), any());
+    }
+
+    @Test
+    void sync_ShouldNotAnswerAPageWithTheFullResponsesETag() throws Exception {
+        when(vaultService.getVaultETag(any(), anyString())).thenAnswer(invocation ->
+                "\"1.42-" + invocation.getArgument(1) + "\"");
+        when(vaultService.syncPage(any(), eq(7L), isNull(), eq(50), eq(false))).thenReturn(SyncResponse.builder().build());
+
+        mockMvc.perform(get("/vault/sync").param("cursor", "7").param("limit", "50")
+                        .header("If-None-Match", "\"1.42-sync.c7\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1.42-sync.c7.l50\""));
+        mockMvc.perform(get("/vault/sync").param("cursor", "8").header("If-None-Match", "\"1.42-sync.c7\""))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void testSync_ShouldReturnModifiedEntries() throws Exception {
         when(vaultService.getEntriesModifiedSince(any(), any(LocalDateTime.class)))
@@ -110,6 +242,47 @@ class VaultControllerTest {
                 .andExpect(jsonPath("$.serverTime").exists());
     }
 
+    @Test
+    void testSync_ShouldDelegateToCursorSync() throws Exception {
+        when(vaultService.sync(any(), eq(7L), eq(false))).thenReturn(SyncResponse.builder()
+                .updatedEntries(List.of(testEntry))
+                .deletedIds(List.of(3L))
+                .cursor(9L)
+                .build());
+
+        mockMvc.perform(get("/vault/sync")
+                .param("cursor", "7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updatedEntries.length()").value(1))
+                .andExpect(jsonPath("$.deletedIds[0]").value(3))
+                .andExpect(jsonPath("$.cursor").value(9));
+    }
+
+    @Test
+    void testSync_ShouldReturnDeletedIds() throws Exception {
+        when(vaultService.getEntriesModifiedSince(any(), any(LocalDateTime.class))).thenReturn(List.of());
+        when(vaultService.getDeletedEntryIdsSince(any(), any(LocalDateTime.class))).thenReturn(List.of(4L, 9L));
+
+        mockMvc.perform(get("/vault/sync")
+                .param("since", "2024-01-01T10:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedIds.length()").value(2))
+                .andExpect(jsonPath("$.fullResync").value(false));
+    }
+
+    @Test
+    void testSync_ShouldReturnFullVault_WhenSinceIsBeyondTombstoneRetention() throws Exception {
+        when(vaultService.requiresFullResync(any(LocalDateTime.class))).thenReturn(true);
+        when(vaultService.getEntriesForUser(any())).thenReturn(List.of(testEntry));
+
+        mockMvc.perform(get("/vault/sync")
+                .param("since", "2020-01-01T10:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updatedEntries.length()").value(1))
+                .andExpect(jsonPath("$.deletedIds.length()").value(0))
+                .andExpect(jsonPath("$.fullResync").value(true));
+    }
+
     @Test
     void createEntry_ShouldReturnCreated() throws Exception {
         when(vaultService.createEntry(any(VaultEntry.class), any())).thenReturn(testEntry);
@@ -121,6 +294,207 @@ class VaultControllerTest {
                 .andExpect(jsonPath("$.name").value("Test Login"));
     }
 
+    @Test
+    void applyBatch_ShouldReturnPerOperationResults() throws Exception {
+        when(vaultBatchService.apply(any(), any(BatchRequest.class))).thenReturn(BatchResponse.builder()
+                .applied(true)
+                .results(List.of(BatchResult.builder().index(0).status(201).id(1L).entry(testEntry).build()))
+                .build());
+        BatchRequest request = BatchRequest.builder()
+                .operations(List.of(BatchOperation.builder()
+                        .type(BatchOperation.Type.CREATE)
+                        .entry(testRequest)
+                        .build()))
+                .build();
+
+        mockMvc.perform(post("/vault/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(true))
+                .andExpect(jsonPath("$.results[0].status").value(201))
+                .andExpect(jsonPath("$.results[0].entry.name").value("Test Login"));
+    }
+
+    @Test
+    void applyBatch_ShouldReturnBadRequest_WhenNoOperations() throws Exception {
+        mockMvc.perform(post("/vault/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"operations\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getEntries_ShouldReturnRequestedEntries() throws Exception {
+        when(vaultService.getEntries(any(), eq(List.of(1L, 2L)))).thenReturn(List.of(testEntry));
+
+        mockMvc.perform(get("/vault/batch").param("ids", "1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Test Login"));
+    }
+
+    @Test
+    void getEntries_ShouldReturnBadRequest_WhenTooManyIds() throws Exception {
+        String ids = LongStream.rangeClosed(1, 101)
+                .mapToObj(Long::toString)
+                .collect(Collectors.joining(","));
+
+        mockMvc.perform(get("/vault/batch").param("ids", ids))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(vaultService);
+    }
+
+    @Test
+    void export_ShouldStreamAttachment() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(3);
+            out.write("name\r\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(vaultExportService).export(any(), eq(TransferFormat.CSV), isNull(), any());
+
+        MvcResult result = mockMvc.perform(get("/vault/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"vaulten-export.csv\""))
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("name\r\n"));
+    }
+
+    @Test
+    void export_ShouldReturnBadRequest_WhenFormatUnknownOrPassphraseTooShort() throws Exception {
+        mockMvc.perform(get("/vault/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/vault/export").header("X-Export-Passphrase", "short"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(vaultExportService);
+    }
+
+    @Test
+    void startImport_ShouldAcceptUploadAndInferFormatFromFileName() throws Exception {
+        ImportJob job = new ImportJob(1L, 12);
+        when(vaultImportService.start(any(), any(), eq(TransferFormat.CSV), eq("correct horse"))).thenReturn(job);
+
+        mockMvc.perform(multipart("/vault/import")
+                        .file(new MockMultipartFile("file", "bitwarden.csv.enc", "application/octet-stream", new byte[12]))
+                        .header("X-Import-Passphrase", "correct horse"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(job.getId()))
+                .andExpect(jsonPath("$.status").value("RUNNING"))
+                .andExpect(jsonPath("$.userId").doesNotExist());
+    }
+
+    @Test
+    void startImport_ShouldRejectUnknownFormatAndConcurrentImports() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "export.txt", "text/plain", new byte[1]);
+        when(vaultImportService.start(any(), any(), eq(TransferFormat.JSON), isNull()))
+                .thenThrow(new IllegalStateException("An import is already running"));
+
+        mockMvc.perform(multipart("/vault/import").file(file))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(multipart("/vault/import").file(file).param("format", "json"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void getImport_ShouldReturnJobOrNotFound() throws Exception {
+        ImportJob job = new ImportJob(1L, 0);
+        when(vaultImportService.getJob(any(), eq(job.getId()))).thenReturn(Optional.of(job));
+        when(vaultImportService.getJob(any(), eq("other"))).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/vault/import/" + job.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(0))
+                .andExpect(jsonPath("$.progress").value(0));
+        mockMvc.perform(get("/vault/import/other"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void search_ShouldReturnRankedEntries() throws Exception {
+        when(vaultSearchService.search(any(), eq("test"), eq(20))).thenReturn(List.of(testEntry));
+
+        mockMvc.perform(get("/vault/search").param("q", "test"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Test Login"));
+    }
+
+    @Test
+    void search_ShouldReturnBadRequest_WhenQueryBlankOrLimitOutOfRange() throws Exception {
+        mockMvc.perform(get("/vault/search").param("q", " "))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/vault/search").param("q", "test").param("limit", "101"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(vaultSearchService);
+    }
+
+    @Test
+    void getMatchingEntries_ShouldReturnEntriesForSite() throws Exception {
+        when(vaultService.getMatchingEntries(any(), eq("https://example.com/login"))).thenReturn(List.of(testEntry));
+
+        mockMvc.perform(get("/vault/match").param("url", "https://example.com/login"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Test Login"))
+                .andExpect(jsonPath("$[0].domain").doesNotExist());
+    }
+
+    @Test
+    void getStats_ShouldReturnCountersOfCurrentUser() throws Exception {
+        when(vaultStatsService.getStats(1L)).thenReturn(VaultStatsResponse.builder()
+                .total(3)
+                .byType(Map.of(VaultEntryType.LOGIN, 3L))
+                .byCategory(Map.of("Work", 2L))
+                .uncategorized(1)
+                .weak(1)
+                .reused(2)
+                .build());
+
+        mockMvc.perform(get("/vault/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.byType.LOGIN").value(3))
+                .andExpect(jsonPath("$.byCategory.Work").value(2))
+                .andExpect(jsonPath("$.reused").value(2));
+    }
+
+    @Test
+    void getReuseGroups_ShouldReturnGroupsAsAlerts() throws Exception {
+        when(vaultService.getReuseGroups(any())).thenReturn(List.of(ReuseGroup.builder()
+                .id("reuse-abc")
+                .message("2 entries use the same password: Bank, Mail")
+                .severity("WARNING")
+                .entries(List.of(ReuseGroup.Entry.builder().id(1L).name("Bank").build(),
+                        ReuseGroup.Entry.builder().id(2L).name("Mail").build()))
+                .build()));
+
+        mockMvc.perform(get("/vault/reuse"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("reuse-abc"))
+                .andExpect(jsonPath("$[0].severity").value("WARNING"))
+                .andExpect(jsonPath("$[0].entries[1].name").value("Mail"))
+                .andExpect(jsonPath("$[0].entries[0].password").doesNotExist());
+    }
+
+    @Test
+    void getPasswordStrengths_ShouldDefaultToWeakPasswords() throws Exception {
+        when(vaultService.getPasswordStrengths(any(), eq(1))).thenReturn(List.of(PasswordStrengthEntry.builder()
+                .id(1L).name("Forum").score(0).crackSeconds(0.01).crackTime("less than a second").build()));
+
+        mockMvc.perform(get("/vault/strength"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Forum"))
+                .andExpect(jsonPath("$[0].score").value(0))
+                .andExpect(jsonPath("$[0].password").doesNotExist());
+
+        mockMvc.perform(get("/vault/strength").param("maxScore", "5"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getEntryById_ShouldReturnEntry() throws Exception {
         when(vaultService.getEntryById(eq(1L), any())).thenReturn(testEntry);
@@ -128,11 +502,21 @@ class VaultControllerTest {
         mockMvc.perform(get("/vault/1"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.name").value("Test Login"));
+
+        verify(entryUsageService).recordUse(1L, 1L);
+    }
+
+    @Test
+    void recordUse_ShouldReturnNoContent() throws Exception {
+        mockMvc.perform(post("/vault/1/use"))
+                .andExpect(status().isNoContent());
+
+        verify(vaultService).recordUse(eq(1L), any());
     }
 
     @Test
     void updateEntry_ShouldReturnUpdated() throws Exception {
-        when(vaultService.updateEntry(eq(1L), any(VaultEntry.class), any())).thenReturn(testEntry);
+        when(vaultService.updateEntry(eq(1L), any(VaultEntry.class), any(), isNull())).thenReturn(testEntry);
 
         mockMvc.perform(put("/vault/1")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -146,6 +530,202 @@ class VaultControllerTest {
         mockMvc.perform(delete("/vault/1"))
                 .andExpect(status().isNoContent());
 
-        verify(vaultService).deleteEntry(eq(1L), any());
+        verify(vaultService).deleteEntry(eq(1L), any(), isNull());
+    }
+
+    @Test
+    void updateEntry_ShouldPassIfMatchVersionAndReturnNewETag() throws Exception {
+        testEntry.setVersion(4L);
+        when(vaultService.updateEntry(eq(1L), any(VaultEntry.class), any(), eq(3L))).thenReturn(testEntry);
+
+        mockMvc.perform(put("/vault/1")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testRequest)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+    }
+
+    @Test
+    void updateEntry_ShouldReturnConflictWithCurrentCopy_WhenVersionIsStale() throws Exception {
+        testEntry.setVersion(5L);
+        when(vaultService.updateEntry(eq(1L), any(VaultEntry.class), any(), eq(3L)))
+                .thenThrow(new EntryConflictException(testEntry));
+
+        mockMvc.perform(put("/vault/1")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testRequest)))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("ETag", "\"5\""))
+                .andExpect(jsonPath("$.current.name").value("Test Login"))
+                .andExpect(jsonPath("$.current.version").value(5));
+    }
+
+    @Test
+    void deleteEntry_ShouldTreatForeignETagAsMismatch() throws Exception {
+        mockMvc.perform(delete("/vault/1").header("If-Match", "W/\"3\""))
+                .andExpect(status().isNoContent());
+
+        verify(vaultService).deleteEntry(eq(1L), any(), eq(-1L));
+    }
+
+    @Test
+    void getEntryHistory_ShouldReturnVersions() throws Exception {
+        when(vaultService.getEntryHistory(eq(1L), any(), eq(0), eq(5))).thenReturn(EntryHistoryResponse.builder()
+                .entryId(1L)
+                .versions(List.of(EntryVersion.builder().revisionId(3L).password("old_pass").build()))
+                .page(0)
+                .size(5)
+                .totalVersions(1)
+                .build());
+
+        mockMvc.perform(get("/vault/1/history").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.versions[0].password").value("old_pass"))
+                .andExpect(jsonPath("$.totalVersions").value(1));
+    }
+
+    @Test
+    void getEntryHistory_ShouldRejectInvalidPaging() throws Exception {
+        mockMvc.perform(get("/vault/1/history").param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void events_ShouldOpenEventStream() throws Exception {
+        when(vaultService.getCurrentRevision(any())).thenReturn(4L);
+        when(vaultEventBroadcaster.subscribe(1L, 4L)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/vault/events"))
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    void events_ShouldReturnServiceUnavailable_WhenAtCapacity() throws Exception {
+        mockMvc.perform(get("/vault/events"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void reconcile_ShouldParseHexHashes() throws Exception {
+        when(vaultService.reconcile(any(), eq(0xabcL), eq(Map.of(4, -1L)))).thenReturn(ReconcileResponse.builder()
+                .root("0000000000000abc").inSync(true).buckets(List.of()).cursor(3L).build());
+
+        mockMvc.perform(post("/vault/reconcile")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(
+                        new ReconcileRequest("abc", Map.of(4, "ffffffffffffffff")))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inSync").value(true))
+                .andExpect(jsonPath("$.cursor").value(3));
+    }
+
+    @Test
+    void reconcile_ShouldRejectInvalidBuckets() throws Exception {
+        mockMvc.perform(post("/vault/reconcile")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new ReconcileRequest(null, Map.of(256, "00")))))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/vault/reconcile")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new ReconcileRequest("not-hex", Map.of()))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void sync_ShouldReturnPage_WhenLimitGiven() throws Exception {
+        when(vaultService.syncPage(any(), eq(7L), isNull(), eq(50), eq(false))).thenReturn(SyncResponse.builder()
+                .updatedEntries(List.of(testEntry))
+                .deletedIds(List.of())
+                .nextPageToken("next")
+                .build());
+
+        mockMvc.perform(get("/vault/sync").param("cursor", "7").param("limit", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextPageToken").value("next"))
+                .andExpect(jsonPath("$.cursor").doesNotExist());
+    }
+
+    @Test
+    void sync_ShouldNotAnswerLaterPagesFromClientCache() throws Exception {
+        when(vaultService.getVaultETag(any(), isNull())).thenReturn("\"1.42\"");
+        when(vaultService.syncPage(any(), isNull(), eq("next"), eq(200), eq(false))).thenReturn(SyncResponse.builder().build());
+
+        mockMvc.perform(get("/vault/sync").param("pageToken", "next").header("If-None-Match", "\"1.42\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void sync_ShouldRejectInvalidPaging() throws Exception {
+        mockMvc.perform(get("/vault/sync").param("limit", "5000"))
+                .andExpect(status().isBadRequest());
+
+        when(vaultService.syncPage(any(), any(), eq("forged"), eq(200), eq(false)))
+                .thenThrow(new IllegalArgumentException("Invalid page token"));
+        mockMvc.perform(get("/vault/sync").param("pageToken", "forged"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void snapshot_ShouldReturnNotFound_WhenNotBuiltYet() throws Exception {
+        mockMvc.perform(get("/vault/snapshot"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void snapshot_ShouldSendFileWithKeyAndCursor() throws Exception {
+        Path file = Files.createTempFile("snapshot", ".snap");
+        try {
+            Files.write(file, new byte[] {1, 2, 3});
+            when(vaultSnapshotService.openSnapshot(1L)).thenReturn(new OpenVaultSnapshot(
+                    new VaultSnapshot(1L, file, 3L, 12L, new byte[] {4, 5}, 0L), FileChannel.open(file)));
+
+            MvcResult result = mockMvc.perform(get("/vault/snapshot"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("X-Vault-Snapshot-Cursor", "12"))
+                    .andExpect(header().string("X-Vault-Snapshot-Key", "BAU="))
+                    .andExpect(header().string("Cache-Control", "no-store"))
+                    .andExpect(content().bytes(new byte[] {1, 2, 3}));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void snapshot_ShouldHandTomcatALinkToSend_WhenSendfileSupported() throws Exception {
+        Path link = Path.of("/tmp/vaulten-snapshots/1-12.snap.1.dl");
+        when(vaultSnapshotService.linkSnapshot(1L))
+                .thenReturn(new VaultSnapshot(1L, link, 3L, 12L, new byte[] {4, 5}, 0L));
+
+        mockMvc.perform(get("/vault/snapshot").requestAttr("org.apache.tomcat.sendfile.support", true))
+                .andExpect(status().isOk())
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.filename", link.toString()))
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.end", 3L))
+                .andExpect(header().string("X-Vault-Snapshot-Cursor", "12"))
+                .andExpect(header().longValue("Content-Length", 3L));
+        verify(vaultSnapshotService, never()).openSnapshot(any());
+    }
+
+    @Test
+    void sync_ShouldReturnFieldDeltas_WhenRequested() throws Exception {
+        when(vaultService.getVaultETag(any(), eq("sync.c7.delta"))).thenReturn("\"1.9-sync.c7.delta\"");
+        when(vaultService.sync(any(), eq(7L), eq(true))).thenReturn(SyncResponse.builder()
+                .changedEntries(List.of(EntryDelta.builder().id(1L).changedFields(List.of("category"))
+                        .category("Finance").build()))
+                .deletedIds(List.of())
+                .cursor(9L)
+                .build());
+
+        mockMvc.perform(get("/vault/sync").param("cursor", "7").param("delta", "true"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1.9-sync.c7.delta\""))
+                .andExpect(jsonPath("$.changedEntries[0].category").value("Finance"))
+                .andExpect(jsonPath("$.changedEntries[0].password").doesNotExist());
     }
 }
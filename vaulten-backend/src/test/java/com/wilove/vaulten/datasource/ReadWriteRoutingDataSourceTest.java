@@ -0,0 +1,145 @@
+package com.wilove.vaulten.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Two H2 instances stand in for primary and replica; replication only happens
+ * when {@link #replicate()} is called, which simulates replica lag.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(300);
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private JdbcTemplate routed;
+    private TransactionTemplate readWriteTx;
+    private TransactionTemplate readOnlyTx;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource primaryDataSource = new DriverManagerDataSource("jdbc:h2:mem:rw-primary;DB_CLOSE_DELAY=-1");
+        DriverManagerDataSource replicaDataSource = new DriverManagerDataSource("jdbc:h2:mem:rw-replica;DB_CLOSE_DELAY=-1");
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        primary.execute("CREATE TABLE items (id BIGINT PRIMARY KEY, owner BIGINT)");
+        replica.execute("CREATE TABLE items (id BIGINT PRIMARY KEY, owner BIGINT)");
+
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(new RecentWriteTracker(WINDOW));
+        routingDataSource.setTargetDataSources(Map.of(
+                DataSourceRole.PRIMARY, primaryDataSource,
+                DataSourceRole.REPLICA, replicaDataSource));
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        routed = new JdbcTemplate(dataSource);
+        readWriteTx = new TransactionTemplate(transactionManager);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.execute("DROP TABLE items");
+        replica.execute("DROP TABLE items");
+    }
+
+    @Test
+    void writes_ShouldGoToPrimary() {
+        // When
+        insertAs(1L, 100L);
+
+        // Then
+        assertEquals(1, countOn(primary));
+        assertEquals(0, countOn(replica));
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldReadFromReplica() {
+        // Given
+        primary.update("INSERT INTO items VALUES (100, 1)");
+        replicate();
+        primary.update("INSERT INTO items VALUES (101, 1)");
+
+        // When
+        List<Long> ids = readAs(2L);
+
+        // Then
+        assertEquals(List.of(100L), ids);
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldStickToPrimary_AfterOwnWrite() {
+        // Given
+        insertAs(1L, 100L);
+
+        // When
+        List<Long> ownRead = readAs(1L);
+        List<Long> otherRead = readAs(2L);
+
+        // Then
+        assertEquals(List.of(100L), ownRead);
+        assertEquals(List.of(), otherRead);
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldReturnToReplica_AfterWindowExpires() throws InterruptedException {
+        // Given
+        insertAs(1L, 100L);
+        Thread.sleep(WINDOW.toMillis() + 100);
+
+        // When & Then
+        assertEquals(List.of(), readAs(1L));
+        replicate();
+        assertEquals(List.of(100L), readAs(1L));
+    }
+
+    @Test
+    void readWriteTransaction_ShouldAlwaysReadFromPrimary() {
+        // Given
+        primary.update("INSERT INTO items VALUES (100, 1)");
+
+        // When
+        List<Long> ids = DataSourceRoutingContext.callAs(2L, () -> readWriteTx.execute(status ->
+                routed.queryForList("SELECT id FROM items ORDER BY id", Long.class)));
+
+        // Then
+        assertEquals(List.of(100L), ids);
+    }
+
+    private void insertAs(Long userId, Long itemId) {
+        DataSourceRoutingContext.runAs(userId, () -> readWriteTx.executeWithoutResult(status ->
+                routed.update("INSERT INTO items VALUES (?, ?)", itemId, userId)));
+    }
+
+    private List<Long> readAs(Long userId) {
+        return DataSourceRoutingContext.callAs(userId, () -> readOnlyTx.execute(status ->
+                routed.queryForList("SELECT id FROM items ORDER BY id", Long.class)));
+    }
+
+    private int countOn(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class);
+    }
+
+    private void replicate() {
+        replica.update("DELETE FROM items");
+        primary.query("SELECT id, owner FROM items", rs -> {
+            replica.update("INSERT INTO items VALUES (?, ?)", rs.getLong("id"), rs.getLong("owner"));
+        });
+    }
+}
@@ -0,0 +1,174 @@
+package com.wilove.vaulten.datasource;
+
+import com.wilove.vaulten.model.Role;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryType;
+import com.wilove.vaulten.repository.UserRepository;
+import com.wilove.vaulten.service.VaultService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1",
+        "vault.sharding.shards[0].url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "vault.sharding.shards[0].username=sa",
+        "vault.sharding.shards[1].url=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1",
+        "vault.sharding.shards[1].username=sa"
+})
+@ActiveProfiles("test")
+class ShardRoutingTest {
+
+    private static final int SHARDS = 3;
+    private static final int USERS = 12;
+
+    @Autowired
+    private VaultService vaultService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int shard = 0; shard < SHARDS; shard++) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(
+                    new DriverManagerDataSource("jdbc:h2:mem:shard" + shard + ";DB_CLOSE_DELAY=-1", "sa", ""));
+            jdbcTemplate.update("DELETE FROM vault_entry_payloads");
+            jdbcTemplate.update("DELETE FROM vault_entries");
+            shards.add(jdbcTemplate);
+        }
+        userRepository.deleteAll();
+        for (int i = 0; i < USERS; i++) {
+            users.add(userRepository.save(User.builder()
+                    .username("user" + i)
+                    .email("user" + i + "@example.com")
+                    .password("password123")
+                    .role(Role.USER)
+                    .build()));
+        }
+    }
+
+    @Test
+    void shardRouter_ShouldSpreadUsersAcrossAllShards() {
+        assertEquals(SHARDS, shardRouter.getShardCount());
+        assertEquals(SHARDS, users.stream().map(user -> shardRouter.shardFor(user.getId())).distinct().count());
+    }
+
+    @Test
+    void entries_ShouldOnlyBeStoredOnTheOwnersShard() {
+        // Given
+        users.forEach(this::createEntry);
+
+        // Then
+        for (User user : users) {
+            int home = shardRouter.shardFor(user.getId());
+            for (int shard = 0; shard < SHARDS; shard++) {
+                assertEquals(shard == home ? 1 : 0, countEntries(shard, user.getId()),
+                        "user " + user.getId() + " on shard " + shard);
+            }
+        }
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertEquals(shards.get(shard).queryForObject("SELECT COUNT(*) FROM vault_entries", Integer.class),
+                    countPayloads(shard));
+        }
+    }
+
+    @Test
+    void reads_ShouldComeFromTheOwnersShard() {
+        // Given
+        users.forEach(this::createEntry);
+
+        // When & Then
+        for (User user : users) {
+            List<VaultEntry> entries = DataSourceRoutingContext.callAs(user.getId(),
+                    () -> vaultService.getEntriesForUser(user));
+            assertEquals(1, entries.size());
+            assertEquals("Entry of " + user.getUsername(), entries.get(0).getName());
+            assertEquals("notes", entries.get(0).getNotes());
+        }
+    }
+
+    @Test
+    void shardIdRanges_ShouldNotOverlap() {
+        // Given
+        users.forEach(this::createEntry);
+
+        // Then
+        for (User user : users) {
+            int home = shardRouter.shardFor(user.getId());
+            Long id = shards.get(home).queryForObject("SELECT id FROM vault_entries WHERE user_id = ?",
+                    Long.class, user.getId());
+            assertTrue(id >= ShardRouter.idRangeStart(home));
+            assertTrue(id < ShardRouter.idRangeStart(home + 1));
+        }
+    }
+
+    @Test
+    void rebalance_ShouldMoveUsersFromTwoShardLayoutToThreeShards() {
+        // Given: data laid out as if only shards 0 and 1 existed
+        long id = 1_000;
+        for (User user : users) {
+            int oldShard = ShardRouter.shardFor(user.getId(), 2);
+            shards.get(oldShard).update("INSERT INTO vault_entries (id, name, type, user_id) VALUES (?, ?, 'LOGIN', ?)",
+                    id, "Entry of " + user.getUsername(), user.getId());
+            shards.get(oldShard).update("INSERT INTO vault_entry_payloads (entry_id, notes) VALUES (?, NULL)", id);
+            id++;
+        }
+        long expectedMoves = users.stream()
+                .filter(user -> ShardRouter.shardFor(user.getId(), 2) != ShardRouter.shardFor(user.getId(), 3))
+                .count();
+
+        // When
+        int moved = shardRebalancer.rebalance(2);
+
+        // Then
+        assertEquals(expectedMoves, moved);
+        for (User user : users) {
+            int home = shardRouter.shardFor(user.getId());
+            for (int shard = 0; shard < SHARDS; shard++) {
+                assertEquals(shard == home ? 1 : 0, countEntries(shard, user.getId()));
+            }
+        }
+        assertEquals(USERS, shards.stream()
+                .mapToInt(shard -> shard.queryForObject("SELECT COUNT(*) FROM vault_entry_payloads", Integer.class))
+                .sum());
+        assertEquals(0, shardRebalancer.rebalance(3));
+    }
+
+    private void createEntry(User user) {
+        DataSourceRoutingContext.runAs(user.getId(), () -> vaultService.createEntry(VaultEntry.builder()
+                .name("Entry of " + user.getUsername())
+                .password("secret")
+                .notes("notes")
+                .type(VaultEntryType.LOGIN)
+                .build(), user));
+    }
+
+    private int countEntries(int shard, Long userId) {
+        return shards.get(shard).queryForObject("SELECT COUNT(*) FROM vault_entries WHERE user_id = ?",
+                Integer.class, userId);
+    }
+
+    private int countPayloads(int shard) {
+        return shards.get(shard).queryForObject("SELECT COUNT(*) FROM vault_entry_payloads", Integer.class);
+    }
+}
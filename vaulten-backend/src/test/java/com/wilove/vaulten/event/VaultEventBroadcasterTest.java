@@ -0,0 +1,212 @@
+package com.wilove.vaulten.event;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VaultEventBroadcasterTest {
+
+    @Test
+    void subscribe_ShouldSendReadyEventWithCurrentRevision() {
+        // Given
+        VaultEventBroadcaster broadcaster = broadcaster(10, 5, 8, Runnable::run);
+
+        // When
+        RecordingEmitter emitter = (RecordingEmitter) broadcaster.subscribe(1L, 42L);
+
+        // Then
+        assertEquals(1, emitter.events.size());
+        assertTrue(emitter.events.get(0).contains("event:ready"));
+        assertTrue(emitter.events.get(0).contains("\"revision\":42") || emitter.events.get(0).contains("revision=42"));
+    }
+
+    @Test
+    void onVaultChange_ShouldOnlyReachTheOwnersStreams() {
+        // Given
+        VaultEventBroadcaster broadcaster = broadcaster(10, 5, 8, Runnable::run);
+        RecordingEmitter owner = (RecordingEmitter) broadcaster.subscribe(1L, 0L);
+        RecordingEmitter other = (RecordingEmitter) broadcaster.subscribe(2L, 0L);
+
+        // When
+        broadcaster.onVaultChange(new VaultChangeEvent(1L, 10L, VaultChangeEvent.Kind.UPDATED, 7L));
+
+        // Then
+        assertEquals(2, owner.events.size());
+        assertTrue(owner.events.get(1).contains("id:7"));
+        assertTrue(owner.events.get(1).contains("event:change"));
+        assertEquals(1, other.events.size());
+    }
+
+    @Test
+    void subscribe_ShouldCloseOldestStream_WhenPerUserLimitReached() {
+        // Given
+        VaultEventBroadcaster broadcaster = broadcaster(10, 2, 8, Runnable::run);
+        RecordingEmitter first = (RecordingEmitter) broadcaster.subscribe(1L, 0L);
+        broadcaster.subscribe(1L, 0L);
+
+        // When
+        broadcaster.subscribe(1L, 0L);
+
+        // Then
+        assertTrue(first.completed);
+        assertEquals(2, broadcaster.getSubscriptionCount());
+    }
+
+    @Test
+    void subscribe_ShouldReturnNull_WhenAtCapacity() {
+        // Given
+        VaultEventBroadcaster broadcaster = broadcaster(1, 5, 8, Runnable::run);
+        broadcaster.subscribe(1L, 0L);
+
+        // When & Then
+        assertNull(broadcaster.subscribe(2L, 0L));
+        assertEquals(1, broadcaster.getSubscriptionCount());
+    }
+
+    @Test
+    void slowConsumer_ShouldBeDisconnected_WhenQueueOverflows() {
+        // Given: the sender never gets to drain, like a client that stopped reading
+        List<Runnable> pending = new ArrayList<>();
+        VaultEventBroadcaster broadcaster = broadcaster(10, 5, 3, pending::add);
+        RecordingEmitter emitter = (RecordingEmitter) broadcaster.subscribe(1L, 0L);
+
+        // When
+        for (long revision = 1; revision <= 3; revision++) {
+            broadcaster.onVaultChange(new VaultChangeEvent(1L, 10L, VaultChangeEvent.Kind.UPDATED, revision));
+        }
+
+        // Then
+        assertEquals(0, broadcaster.getSubscriptionCount());
+        pending.forEach(Runnable::run);
+        assertTrue(emitter.completed);
+        assertTrue(emitter.events.isEmpty());
+    }
+
+    @Test
+    void stalledConsumer_ShouldBeEvicted_WhileOtherStreamsKeepReceiving() throws Exception {
+        // Given: a single sender thread, taken by a client whose socket stopped accepting writes
+        ThreadPoolExecutor sender = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        CountDownLatch socketBlocked = new CountDownLatch(1);
+        CountDownLatch socketFreed = new CountDownLatch(1);
+        Deque<RecordingEmitter> emitters = new ArrayDeque<>(List.of(
+                new RecordingEmitter(socketBlocked, socketFreed), new RecordingEmitter()));
+        VaultEventBroadcaster broadcaster = new VaultEventBroadcaster(10, 5, 8, Duration.ofMinutes(1),
+                Duration.ZERO, sender) {
+            @Override
+            SseEmitter createEmitter(long timeoutMillis) {
+                return emitters.poll();
+            }
+        };
+        try {
+            RecordingEmitter stalled = (RecordingEmitter) broadcaster.subscribe(1L, 0L);
+            assertTrue(socketBlocked.await(5, TimeUnit.SECONDS));
+            RecordingEmitter other = (RecordingEmitter) broadcaster.subscribe(2L, 0L);
+
+            // When
+            broadcaster.evictStalledSenders();
+            broadcaster.onVaultChange(new VaultChangeEvent(2L, 10L, VaultChangeEvent.Kind.UPDATED, 7L));
+
+            // Then: the other stream gets its events while the stalled send is still blocked
+            awaitTrue(() -> other.events.size() == 2);
+            assertEquals(1, broadcaster.getSubscriptionCount());
+            assertFalse(stalled.completed);
+
+            // Once the container's write timeout fails the send, the stalled stream is completed
+            socketFreed.countDown();
+            awaitTrue(() -> stalled.completed);
+            awaitTrue(() -> sender.getCorePoolSize() == 1);
+        } finally {
+            socketFreed.countDown();
+            sender.shutdownNow();
+        }
+    }
+
+    @Test
+    void sendHeartbeats_ShouldWriteComment() {
+        // Given
+        VaultEventBroadcaster broadcaster = broadcaster(10, 5, 8, Runnable::run);
+        RecordingEmitter emitter = (RecordingEmitter) broadcaster.subscribe(1L, 0L);
+
+        // When
+        broadcaster.sendHeartbeats();
+
+        // Then
+        assertEquals(":heartbeat\n\n", emitter.events.get(1));
+    }
+
+    private VaultEventBroadcaster broadcaster(int max, int maxPerUser, int queueCapacity, Executor sender) {
+        return new VaultEventBroadcaster(max, maxPerUser, queueCapacity, Duration.ofMinutes(1), Duration.ofSeconds(10),
+                sender) {
+            @Override
+            SseEmitter createEmitter(long timeoutMillis) {
+                return new RecordingEmitter();
+            }
+        };
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting");
+            Thread.sleep(10);
+        }
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch sendStarted;
+        private final CountDownLatch sendFailed;
+        private volatile boolean completed;
+
+        RecordingEmitter() {
+            this(null, null);
+        }
+
+        /**
+         * An emitter whose first send blocks until {@code sendFailed} opens,
+         * then fails, like a write to a client that stopped reading.
+         */
+        RecordingEmitter(CountDownLatch sendStarted, CountDownLatch sendFailed) {
+            this.sendStarted = sendStarted;
+            this.sendFailed = sendFailed;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (sendFailed != null) {
+                sendStarted.countDown();
+                try {
+                    sendFailed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("Write timed out");
+            }
+            events.add(builder.build().stream()
+                    .map(part -> String.valueOf(part.getData()))
+                    .collect(Collectors.joining()));
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
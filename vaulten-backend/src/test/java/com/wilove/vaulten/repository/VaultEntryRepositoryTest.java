@@ -1,13 +1,17 @@
 package com.wilove.vaulten.repository;
 
+import com.wilove.vaulten.dto.ReconcileEntry;
 import com.wilove.vaulten.model.Role;
 import com.wilove.vaulten.model.User;
 import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryPayload;
 import com.wilove.vaulten.model.VaultEntryType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDateTime;
@@ -25,6 +29,15 @@ class VaultEntryRepositoryTest {
         @Autowired
         private UserRepository userRepository;
 
+        @Autowired
+        private VaultEntryPayloadRepository vaultEntryPayloadRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private TestEntityManager entityManager;
+
         private User testUser;
 
         @BeforeEach
@@ -119,4 +132,144 @@ class VaultEntryRepositoryTest {
                 assertEquals(1, results.size());
                 assertEquals("New Entry", results.get(0).getName());
         }
+
+        @Test
+        void testNotesStoredInPayloadTable() {
+                VaultEntry entry = vaultEntryRepository.save(VaultEntry.builder()
+                                .name("Secure Note")
+                                .notes("ignored by the entry row")
+                                .type(VaultEntryType.NOTE)
+                                .user(testUser)
+                                .build());
+                vaultEntryPayloadRepository.save(new VaultEntryPayload(entry.getId(), "encrypted_notes"));
+                vaultEntryRepository.flush();
+
+                List<VaultEntryPayload> payloads = vaultEntryPayloadRepository.findAllById(List.of(entry.getId()));
+
+                assertEquals(1, payloads.size());
+                assertEquals("encrypted_notes", payloads.get(0).getNotes());
+        }
+
+        @Test
+        void testFindByUserIdAndDomainUsesIndex() {
+                vaultEntryRepository.save(VaultEntry.builder()
+                                .name("Google")
+                                .url("https://accounts.google.com")
+                                .domain("google.com")
+                                .type(VaultEntryType.LOGIN)
+                                .user(testUser)
+                                .build());
+                vaultEntryRepository.save(VaultEntry.builder()
+                                .name("GitHub")
+                                .url("https://github.com")
+                                .domain("github.com")
+                                .type(VaultEntryType.LOGIN)
+                                .user(testUser)
+                                .build());
+                vaultEntryRepository.flush();
+
+                List<VaultEntry> results = vaultEntryRepository.findByUserIdAndDomain(testUser.getId(), "google.com");
+                String plan = jdbcTemplate.queryForObject(
+                                "EXPLAIN SELECT * FROM vault_entries WHERE user_id = ? AND domain = ?", String.class,
+                                testUser.getId(), "google.com");
+
+                assertEquals(1, results.size());
+                assertEquals("Google", results.get(0).getName());
+                assertTrue(plan.contains("IDX_VAULT_ENTRIES_USER_DOMAIN"), plan);
+        }
+
+        @Test
+        void testFindRevisionsByUserIdAndBucketInReadsBucketIndexOnly() {
+                for (long[] entry : new long[][] { { 7, 12 }, { 9, 3 }, { 7, 15 } }) {
+                        vaultEntryRepository.save(VaultEntry.builder()
+                                        .name("Entry " + entry[1])
+                                        .password("encrypted")
+                                        .type(VaultEntryType.LOGIN)
+                                        .bucket((int) entry[0])
+                                        .revision(entry[1])
+                                        .user(testUser)
+                                        .build());
+                }
+                vaultEntryRepository.flush();
+
+                List<ReconcileEntry> revisions = vaultEntryRepository.findRevisionsByUserIdAndBucketIn(
+                                testUser.getId(), List.of(7, 8));
+                String plan = jdbcTemplate.queryForObject(
+                                "EXPLAIN SELECT id, revision, bucket FROM vault_entries WHERE user_id = ? AND bucket IN (7, 8)",
+                                String.class, testUser.getId());
+
+                assertEquals(List.of(12L, 15L), revisions.stream().map(ReconcileEntry::getRevision).toList());
+                assertTrue(revisions.stream().allMatch(entry -> entry.getBucket() == 7));
+                assertTrue(plan.contains("IDX_VAULT_ENTRIES_USER_BUCKET"), plan);
+        }
+
+        @Test
+        void testFindReusedByUserIdGroupsOnFingerprintIndex() {
+                User otherUser = userRepository.save(User.builder()
+                                .username("other")
+                                .email("other@example.com")
+                                .password("password123")
+                                .role(Role.USER)
+                                .build());
+                for (String[] entry : new String[][] {
+                                { "Bank", "fp-shared" }, { "Mail", "fp-shared" }, { "Forum", "fp-unique" } }) {
+                        vaultEntryRepository.save(VaultEntry.builder()
+                                        .name(entry[0])
+                                        .passwordFingerprint(entry[1])
+                                        .type(VaultEntryType.LOGIN)
+                                        .user(testUser)
+                                        .build());
+                }
+                vaultEntryRepository.save(VaultEntry.builder()
+                                .name("Elsewhere")
+                                .passwordFingerprint("fp-unique")
+                                .type(VaultEntryType.LOGIN)
+                                .user(otherUser)
+                                .build());
+                vaultEntryRepository.flush();
+
+                List<VaultEntry> results = vaultEntryRepository.findReusedByUserId(testUser.getId());
+                String plan = jdbcTemplate.queryForObject(
+                                "EXPLAIN SELECT password_fingerprint FROM vault_entries WHERE user_id = ? "
+                                                + "AND password_fingerprint IS NOT NULL "
+                                                + "GROUP BY password_fingerprint HAVING COUNT(*) > 1",
+                                String.class, testUser.getId());
+
+                assertEquals(List.of("Bank", "Mail"), results.stream().map(VaultEntry::getName).sorted().toList());
+                assertTrue(plan.contains("IDX_VAULT_ENTRIES_USER_FINGERPRINT"), plan);
+        }
+
+        @Test
+        void testUpdatePasswordStrengthLeavesVersionAndFeedsScoreIndex() {
+                for (String[] entry : new String[][] {
+                                { "Forum", "fp-weak" }, { "Shop", "fp-weak" }, { "Bank", "fp-strong" } }) {
+                        vaultEntryRepository.save(VaultEntry.builder()
+                                        .name(entry[0])
+                                        .password("encrypted")
+                                        .passwordFingerprint(entry[1])
+                                        .type(VaultEntryType.LOGIN)
+                                        .user(testUser)
+                                        .build());
+                }
+                vaultEntryRepository.flush();
+
+                int updated = vaultEntryRepository.updatePasswordStrength(testUser.getId(), "fp-weak", 0, 0.5, 1);
+                entityManager.clear();
+
+                List<VaultEntry> weak = vaultEntryRepository.findByUserIdAndPasswordScoreAtMost(testUser.getId(), 1);
+                String plan = jdbcTemplate.queryForObject(
+                                "EXPLAIN SELECT id FROM vault_entries WHERE user_id = ? AND password_score <= 1 "
+                                                + "ORDER BY password_score, password_crack_seconds",
+                                String.class, testUser.getId());
+
+                assertEquals(2, updated);
+                assertEquals(List.of("Forum", "Shop"), weak.stream().map(VaultEntry::getName).sorted().toList());
+                assertEquals(0L, weak.get(0).getVersion());
+                assertEquals(List.of("fp-strong"),
+                                vaultEntryRepository.findUnscoredFingerprints(testUser.getId(), 1));
+                assertEquals(List.of("fp-strong", "fp-weak"),
+                                vaultEntryRepository.findUnscoredFingerprints(testUser.getId(), 2).stream().sorted()
+                                                .toList());
+                assertTrue(plan.contains("IDX_VAULT_ENTRIES_USER_SCORE"), plan);
+        }
 }
@@ -0,0 +1,62 @@
+package com.wilove.vaulten.repository;
+
+import com.wilove.vaulten.model.VaultEntryTombstone;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class VaultEntryTombstoneRepositoryTest {
+
+        @Autowired
+        private VaultEntryTombstoneRepository tombstoneRepository;
+
+        @Test
+        void testFindEntryIdsDeletedSince() {
+                LocalDateTime now = LocalDateTime.now();
+                tombstoneRepository.save(new VaultEntryTombstone(1L, 7L, null, now.minusDays(2)));
+                tombstoneRepository.save(new VaultEntryTombstone(2L, 7L, null, now.minusHours(1)));
+                tombstoneRepository.save(new VaultEntryTombstone(3L, 8L, null, now.minusHours(1)));
+
+                List<Long> deletedIds = tombstoneRepository.findEntryIdsDeletedSince(7L, now.minusDays(1));
+
+                assertEquals(List.of(2L), deletedIds);
+        }
+
+        @Test
+        void testDeleteByDeletedAtBefore() {
+                LocalDateTime now = LocalDateTime.now();
+                tombstoneRepository.save(new VaultEntryTombstone(1L, 7L, null, now.minusDays(40)));
+                tombstoneRepository.save(new VaultEntryTombstone(2L, 7L, null, now.minusDays(1)));
+
+                int purged = tombstoneRepository.deleteByDeletedAtBefore(now.minusDays(30));
+
+                assertEquals(1, purged);
+                assertEquals(List.of(2L), tombstoneRepository.findAll().stream()
+                                .map(VaultEntryTombstone::getEntryId).toList());
+        }
+
+        @Test
+        void testFindByRevisionRangeOrderedAndLimited() {
+                LocalDateTime now = LocalDateTime.now();
+                tombstoneRepository.save(new VaultEntryTombstone(1L, 7L, 12L, now));
+                tombstoneRepository.save(new VaultEntryTombstone(2L, 7L, 4L, now));
+                tombstoneRepository.save(new VaultEntryTombstone(3L, 7L, 9L, now));
+                tombstoneRepository.save(new VaultEntryTombstone(4L, 7L, 20L, now));
+                tombstoneRepository.save(new VaultEntryTombstone(5L, 8L, 10L, now));
+
+                List<VaultEntryTombstone> page = tombstoneRepository
+                                .findByUserIdAndRevisionGreaterThanAndRevisionLessThanEqualOrderByRevision(7L, 4L, 15L,
+                                                Limit.of(5));
+
+                assertEquals(List.of(3L, 1L), page.stream().map(VaultEntryTombstone::getEntryId).toList());
+        }
+}
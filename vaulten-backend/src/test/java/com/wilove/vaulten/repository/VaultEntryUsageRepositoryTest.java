@@ -0,0 +1,35 @@
+package com.wilove.vaulten.repository;
+
+import com.wilove.vaulten.model.VaultEntryUsage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class VaultEntryUsageRepositoryTest {
+
+        @Autowired
+        private VaultEntryUsageRepository usageRepository;
+
+        @Test
+        void testFindByEntryIdInLocksAndReturnsOnlyExistingRows() {
+                LocalDateTime now = LocalDateTime.now();
+                usageRepository.saveAll(List.of(
+                                new VaultEntryUsage(10L, 1L, 3, now, 1400.5),
+                                new VaultEntryUsage(11L, 1L, 1, now, 1399.0),
+                                new VaultEntryUsage(20L, 2L, 7, now, 1402.0)));
+                usageRepository.flush();
+
+                List<VaultEntryUsage> locked = usageRepository.findByEntryIdIn(List.of(10L, 20L, 30L));
+
+                assertEquals(List.of(10L, 20L), locked.stream().map(VaultEntryUsage::getEntryId).sorted().toList());
+                assertEquals(2, usageRepository.findByUserId(1L).size());
+        }
+}
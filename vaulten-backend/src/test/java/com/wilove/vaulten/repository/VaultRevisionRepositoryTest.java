@@ -0,0 +1,67 @@
+package com.wilove.vaulten.repository;
+
+import com.wilove.vaulten.model.VaultEntryTombstone;
+import com.wilove.vaulten.service.VaultRevisionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(VaultRevisionService.class)
+class VaultRevisionRepositoryTest {
+
+        @Autowired
+        private VaultRevisionService vaultRevisionService;
+
+        @Autowired
+        private VaultRevisionRepository vaultRevisionRepository;
+
+        @Autowired
+        private VaultEntryTombstoneRepository tombstoneRepository;
+
+        @Test
+        void testNextRevisionCreatesCounterAndIncrements() {
+                assertEquals(0L, vaultRevisionService.currentRevision(100L));
+
+                assertEquals(1L, vaultRevisionService.nextRevision(100L));
+                assertEquals(2L, vaultRevisionService.nextRevision(100L));
+                assertEquals(1L, vaultRevisionService.nextRevision(101L));
+
+                assertEquals(2L, vaultRevisionService.currentRevision(100L));
+        }
+
+        @Test
+        void testFindUserIdsAfterPagesInIdOrder() {
+                vaultRevisionService.nextRevision(302L);
+                vaultRevisionService.nextRevision(300L);
+                vaultRevisionService.nextRevision(301L);
+
+                assertEquals(List.of(300L, 301L), vaultRevisionRepository.findUserIdsAfter(299L, Limit.of(2)));
+                assertEquals(List.of(302L), vaultRevisionRepository.findUserIdsAfter(301L, Limit.of(2)));
+        }
+
+        @Test
+        void testMarkTombstonesPurgedBefore() {
+                vaultRevisionService.nextRevision(200L);
+                vaultRevisionService.nextRevision(201L);
+                LocalDateTime now = LocalDateTime.now();
+                tombstoneRepository.save(new VaultEntryTombstone(1L, 200L, 4L, now.minusDays(40)));
+                tombstoneRepository.save(new VaultEntryTombstone(2L, 200L, 6L, now.minusDays(35)));
+                tombstoneRepository.save(new VaultEntryTombstone(3L, 200L, 9L, now.minusDays(1)));
+                tombstoneRepository.save(new VaultEntryTombstone(4L, 201L, 2L, now.minusDays(1)));
+
+                vaultRevisionRepository.markTombstonesPurgedBefore(now.minusDays(30));
+
+                assertEquals(6L, vaultRevisionService.tombstonesPurgedThrough(200L));
+                assertEquals(0L, vaultRevisionService.tombstonesPurgedThrough(201L));
+        }
+}
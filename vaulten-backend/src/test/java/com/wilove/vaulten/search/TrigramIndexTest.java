@@ -0,0 +1,83 @@
+package com.wilove.vaulten.search;
+
+import com.wilove.vaulten.model.VaultEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    private final TrigramIndex index = new TrigramIndex();
+
+    @Test
+    void search_ShouldRankNameMatchesAboveOtherFieldsAndPrefixesAboveInfixes() {
+        // Given
+        index.put(entry(1L, "Work mail", "jane@github.com", "https://mail.example.com", null));
+        index.put(entry(2L, "GitHub", "jane", "https://github.com", "Dev"));
+        index.put(entry(3L, "My GitHub mirror", "jane", null, null));
+        index.put(entry(4L, "Bank", "jane", null, null));
+
+        // When
+        List<Long> results = index.search("github", 10);
+
+        // Then
+        assertEquals(List.of(2L, 3L, 1L), results);
+    }
+
+    @Test
+    void search_ShouldRequireEveryTermAndHandleShortTerms() {
+        // Given
+        index.put(entry(1L, "GitHub", "work", null, null));
+        index.put(entry(2L, "GitHub", "personal", null, null));
+        index.put(entry(3L, "Go", null, "https://go.dev", null));
+
+        // When / Then
+        assertEquals(List.of(1L), index.search("  WORK  git ", 10));
+        assertEquals(List.of(3L, 1L, 2L), index.search("g", 10));
+        assertEquals(List.of(), index.search("gitlab", 10));
+        assertEquals(List.of(), index.search("   ", 10));
+        assertEquals(1, index.search("hub", 1).size());
+    }
+
+    @Test
+    void putAndRemove_ShouldReplaceIndexedFields() {
+        // Given
+        index.put(entry(1L, "GitHub", null, null, null));
+
+        // When
+        index.put(entry(1L, "GitLab", null, null, null));
+
+        // Then
+        assertEquals(List.of(), index.search("github", 10));
+        assertEquals(List.of(1L), index.search("gitlab", 10));
+        index.remove(1L);
+        assertEquals(List.of(), index.search("git", 10));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void remove_ShouldKeepResultsCorrectAcrossCompaction() {
+        // Given
+        for (long id = 1; id <= 5000; id++) {
+            index.put(entry(id, "Entry " + id, "user" + id, null, null));
+        }
+
+        // When
+        for (long id = 1; id <= 4000; id++) {
+            index.remove(id);
+        }
+        index.put(entry(4999L, "Renamed", null, null, null));
+
+        // Then
+        assertEquals(1000, index.size());
+        assertEquals(List.of(4500L), index.search("entry 4500", 10));
+        assertEquals(List.of(4999L), index.search("renamed", 10));
+        assertEquals(List.of(), index.search("entry 3999", 10));
+    }
+
+    private static VaultEntry entry(Long id, String name, String username, String url, String category) {
+        return VaultEntry.builder().id(id).name(name).username(username).url(url).category(category).build();
+    }
+}
@@ -0,0 +1,139 @@
+package com.wilove.vaulten.search;
+
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.service.TombstoneService;
+import com.wilove.vaulten.service.VaultRevisionService;
+import com.wilove.vaulten.service.VaultService;
+import com.wilove.vaulten.store.VaultEntryStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VaultSearchServiceTest {
+
+    @Mock
+    private VaultService vaultService;
+
+    @Mock
+    private VaultEntryStore vaultEntryStore;
+
+    @Mock
+    private VaultRevisionService vaultRevisionService;
+
+    @Mock
+    private TombstoneService tombstoneService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private VaultSearchService vaultSearchService;
+
+    @BeforeEach
+    void setUp() {
+        vaultSearchService = new VaultSearchService(vaultService, vaultEntryStore, vaultRevisionService,
+                tombstoneService, transactionManager, 2);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void findIds_ShouldBuildIndexOnceAndReuseItWhileRevisionIsUnchanged() {
+        // Given
+        when(vaultRevisionService.currentRevision(1L)).thenReturn(5L);
+        when(vaultRevisionService.cachedRevision(1L)).thenReturn(5L);
+        when(vaultEntryStore.streamByUserId(1L)).thenReturn(Stream.of(entry(1L, "GitHub"), entry(2L, "Bank")));
+
+        // When
+        List<Long> first = vaultSearchService.findIds(1L, "git", 10);
+        List<Long> second = vaultSearchService.findIds(1L, "bank", 10);
+
+        // Then
+        assertEquals(List.of(1L), first);
+        assertEquals(List.of(2L), second);
+        verify(vaultEntryStore, times(1)).streamByUserId(1L);
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void findIds_ShouldApplyChangesAndDeletesSinceTheIndexedRevision() {
+        // Given
+        when(vaultRevisionService.currentRevision(1L)).thenReturn(5L, 8L);
+        when(vaultRevisionService.cachedRevision(1L)).thenReturn(8L);
+        when(vaultEntryStore.streamByUserId(1L)).thenReturn(Stream.of(entry(1L, "GitHub"), entry(2L, "GitLab")));
+        vaultSearchService.findIds(1L, "git", 10);
+        when(vaultEntryStore.findByUserIdAndRevisionBetween(1L, 5L, 8L))
+                .thenReturn(List.of(entry(1L, "Codeberg"), entry(3L, "Gitea")));
+        when(tombstoneService.getDeletedIdsBetween(1L, 5L, 8L)).thenReturn(List.of(2L));
+
+        // When
+        List<Long> results = vaultSearchService.findIds(1L, "git", 10);
+
+        // Then
+        assertEquals(List.of(3L), results);
+        verify(vaultEntryStore, times(1)).streamByUserId(1L);
+    }
+
+    @Test
+    void findIds_ShouldRebuild_WhenTombstonesInRangeWerePurged() {
+        // Given
+        when(vaultRevisionService.currentRevision(1L)).thenReturn(5L, 90L);
+        when(vaultRevisionService.cachedRevision(1L)).thenReturn(90L);
+        when(vaultRevisionService.tombstonesPurgedThrough(1L)).thenReturn(50L);
+        when(vaultEntryStore.streamByUserId(1L))
+                .thenReturn(Stream.of(entry(1L, "GitHub"), entry(2L, "GitLab")), Stream.of(entry(1L, "GitHub")));
+        vaultSearchService.findIds(1L, "git", 10);
+
+        // When
+        List<Long> results = vaultSearchService.findIds(1L, "git", 10);
+
+        // Then
+        assertEquals(List.of(1L), results);
+        verifyNoInteractions(tombstoneService);
+    }
+
+    @Test
+    void findIds_ShouldDropLeastRecentlyUsedIndexes() {
+        // Given
+        when(vaultEntryStore.streamByUserId(any())).thenAnswer(invocation -> Stream.of(entry(1L, "GitHub")));
+
+        // When
+        vaultSearchService.findIds(1L, "git", 10);
+        vaultSearchService.findIds(2L, "git", 10);
+        vaultSearchService.findIds(3L, "git", 10);
+
+        // Then
+        assertEquals(2, vaultSearchService.getIndexCount());
+    }
+
+    @Test
+    void search_ShouldReturnDecryptedEntriesInRankOrder() {
+        // Given
+        User user = User.builder().id(1L).build();
+        when(vaultEntryStore.streamByUserId(1L))
+                .thenReturn(Stream.of(entry(1L, "My GitHub mirror"), entry(2L, "GitHub")));
+        when(vaultService.getEntries(user, List.of(2L, 1L))).thenReturn(List.of(entry(1L, "My GitHub mirror"),
+                entry(2L, "GitHub")));
+
+        // When
+        List<VaultEntry> results = vaultSearchService.search(user, "github", 10);
+
+        // Then
+        assertEquals(List.of(2L, 1L), results.stream().map(VaultEntry::getId).toList());
+    }
+
+    private static VaultEntry entry(Long id, String name) {
+        return VaultEntry.builder().id(id).name(name).build();
+    }
+}
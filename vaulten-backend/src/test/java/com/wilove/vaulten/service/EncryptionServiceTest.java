@@ -55,4 +55,16 @@ class EncryptionServiceTest {
     void testDecryptNull() {
         assertNull(encryptionService.decrypt(null));
     }
+
+    @Test
+    void testFingerprintIsDeterministicAndKeyed() {
+        String fingerprint = encryptionService.fingerprint("Same Text");
+
+        assertEquals(fingerprint, encryptionService.fingerprint("Same Text"));
+        assertNotEquals(fingerprint, encryptionService.fingerprint("Other Text"));
+        assertEquals(22, fingerprint.length());
+
+        EncryptionService otherKey = new EncryptionService("QW5vdGhlcktleTMyQnl0ZXNGb3JBRVMyNTYhISEhISE=");
+        assertNotEquals(fingerprint, otherKey.fingerprint("Same Text"));
+    }
 }
@@ -0,0 +1,158 @@
+package com.wilove.vaulten.service;
+
+import com.wilove.vaulten.datasource.ShardRouter;
+import com.wilove.vaulten.datasource.ShardingProperties;
+import com.wilove.vaulten.dto.EntryHistoryResponse;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryRevision;
+import com.wilove.vaulten.model.VaultEntryType;
+import com.wilove.vaulten.repository.VaultEntryRevisionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EntryHistoryServiceTest {
+
+    private static final String KEY = "RW5jcnlwdGlvbktleTMyQnl0ZXNGb3JBRVMyNTYhISE=";
+
+    @Mock
+    private VaultEntryRevisionRepository revisionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private EncryptionService encryptionService;
+    private EntryHistoryService entryHistoryService;
+    private VaultEntry entry;
+
+    @BeforeEach
+    void setUp() {
+        encryptionService = new EncryptionService(KEY);
+        entryHistoryService = new EntryHistoryService(revisionRepository, encryptionService,
+                new ShardRouter(new ShardingProperties()), transactionManager, 3, Duration.ofDays(90));
+
+        User user = new User();
+        user.setId(1L);
+        entry = VaultEntry.builder()
+                .id(10L)
+                .name("My Bank")
+                .username("bankuser")
+                .password("first_password")
+                .type(VaultEntryType.LOGIN)
+                .user(user)
+                .build();
+    }
+
+    @Test
+    void recordChange_ShouldStoreEncryptedPreviousValuesOfChangedFieldsOnly() {
+        // Given
+        Map<String, String> previous = entryHistoryService.capture(entry);
+        entry.setPassword("second_password");
+
+        // When
+        entryHistoryService.recordChange(previous, entry);
+
+        // Then
+        ArgumentCaptor<VaultEntryRevision> captor = ArgumentCaptor.forClass(VaultEntryRevision.class);
+        verify(revisionRepository).save(captor.capture());
+        VaultEntryRevision revision = captor.getValue();
+        assertEquals(10L, revision.getEntryId());
+        assertEquals(1L, revision.getUserId());
+        assertFalse(revision.getDelta().contains("first_password"));
+        assertEquals("{\"password\":\"first_password\"}", encryptionService.decrypt(revision.getDelta()));
+    }
+
+    @Test
+    void recordChange_ShouldSkip_WhenNothingChanged() {
+        // When
+        entryHistoryService.recordChange(entryHistoryService.capture(entry), entry);
+
+        // Then
+        verifyNoInteractions(revisionRepository);
+    }
+
+    @Test
+    void getHistory_ShouldRebuildVersionsNewestFirst() {
+        // Given: v1 -> v2 (password changed) -> v3 (name changed), current is v3
+        Map<String, String> v1 = entryHistoryService.capture(entry);
+        entry.setPassword("second_password");
+        entryHistoryService.recordChange(v1, entry);
+        Map<String, String> v2 = entryHistoryService.capture(entry);
+        entry.setName("Renamed Bank");
+        entryHistoryService.recordChange(v2, entry);
+
+        ArgumentCaptor<VaultEntryRevision> captor = ArgumentCaptor.forClass(VaultEntryRevision.class);
+        verify(revisionRepository, times(2)).save(captor.capture());
+        List<VaultEntryRevision> newestFirst = new ArrayList<>(captor.getAllValues());
+        newestFirst.get(0).setId(2L);
+        newestFirst.get(1).setId(3L);
+        Collections.reverse(newestFirst);
+        when(revisionRepository.countByEntryId(10L)).thenReturn(2L);
+        when(revisionRepository.findByEntryIdOrderByIdDesc(eq(10L), any(Pageable.class))).thenReturn(newestFirst);
+
+        // When
+        EntryHistoryResponse firstPage = entryHistoryService.getHistory(entry, 0, 1);
+        EntryHistoryResponse secondPage = entryHistoryService.getHistory(entry, 1, 1);
+
+        // Then
+        assertEquals(2, firstPage.getTotalVersions());
+        assertEquals(3L, firstPage.getVersions().get(0).getRevisionId());
+        assertEquals("My Bank", firstPage.getVersions().get(0).getName());
+        assertEquals("second_password", firstPage.getVersions().get(0).getPassword());
+        assertEquals("My Bank", secondPage.getVersions().get(0).getName());
+        assertEquals("first_password", secondPage.getVersions().get(0).getPassword());
+        assertEquals(VaultEntryType.LOGIN, secondPage.getVersions().get(0).getType());
+    }
+
+    @Test
+    void getHistory_ShouldCapVersionsAtRetentionCount() {
+        // Given
+        when(revisionRepository.countByEntryId(10L)).thenReturn(50L);
+
+        // When
+        EntryHistoryResponse page = entryHistoryService.getHistory(entry, 1, 5);
+
+        // Then
+        assertEquals(3, page.getTotalVersions());
+        assertTrue(page.getVersions().isEmpty());
+        verify(revisionRepository, never()).findByEntryIdOrderByIdDesc(anyLong(), any());
+    }
+
+    @Test
+    void purge_ShouldDropExpiredAndExcessVersions() {
+        // Given
+        when(revisionRepository.findEntryIdsWithMoreThan(3)).thenReturn(List.of(10L));
+        when(revisionRepository.findByEntryIdOrderByIdDesc(eq(10L), any(Pageable.class)))
+                .thenReturn(List.of(revision(9L), revision(8L), revision(7L)));
+
+        // When
+        entryHistoryService.purge();
+
+        // Then
+        verify(revisionRepository).deleteByCreatedAtBefore(any());
+        verify(revisionRepository).deleteByEntryIdAndIdLessThan(10L, 7L);
+    }
+
+    private VaultEntryRevision revision(Long id) {
+        return VaultEntryRevision.builder().id(id).entryId(10L).userId(1L).delta("").build();
+    }
+}
@@ -0,0 +1,165 @@
+package com.wilove.vaulten.service;
+
+import com.wilove.vaulten.dto.BatchOperation;
+import com.wilove.vaulten.dto.BatchRequest;
+import com.wilove.vaulten.dto.BatchResponse;
+import com.wilove.vaulten.dto.VaultEntryRequest;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VaultBatchServiceTest {
+
+    @Mock
+    private VaultService vaultService;
+
+    @Mock
+    private VaultRevisionService vaultRevisionService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private VaultBatchService vaultBatchService;
+    private SimpleTransactionStatus transaction;
+    private User user;
+    private VaultEntry existing;
+
+    @BeforeEach
+    void setUp() {
+        vaultBatchService = new VaultBatchService(vaultService, vaultRevisionService, transactionManager);
+        transaction = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+
+        user = new User();
+        user.setId(1L);
+        existing = VaultEntry.builder()
+                .id(10L)
+                .name("My Bank")
+                .password("secret")
+                .type(VaultEntryType.LOGIN)
+                .version(3L)
+                .user(user)
+                .build();
+    }
+
+    @Test
+    void apply_ShouldWriteAllOperationsWithConsecutiveRevisions() {
+        // Given
+        when(vaultService.loadEntries(user, Set.of(10L))).thenReturn(List.of(existing));
+        when(vaultRevisionService.reserveRevisions(eq(1L), anyInt())).thenReturn(41L);
+        when(vaultService.create(any(VaultEntry.class), eq(user), eq(41L)))
+                .thenReturn(VaultEntry.builder().id(11L).name("Mail").build());
+        BatchRequest request = BatchRequest.builder()
+                .operations(List.of(create("Mail"), delete(10L, 3L)))
+                .build();
+
+        // When
+        BatchResponse response = vaultBatchService.apply(user, request);
+
+        // Then
+        assertTrue(response.isApplied());
+        assertEquals(201, response.getResults().get(0).getStatus());
+        assertEquals(11L, response.getResults().get(0).getId());
+        assertEquals(204, response.getResults().get(1).getStatus());
+        verify(vaultRevisionService).reserveRevisions(1L, 0);
+        verify(vaultRevisionService).reserveRevisions(1L, 2);
+        verify(vaultService).delete(existing, 42L);
+        assertFalse(transaction.isRollbackOnly());
+    }
+
+    @Test
+    void apply_ShouldApplyNothing_WhenAtomicAndOneOperationFails() {
+        // Given
+        when(vaultService.loadEntries(user, Set.of(10L))).thenReturn(List.of(existing));
+        BatchRequest request = BatchRequest.builder()
+                .operations(List.of(create("Mail"), delete(10L, 2L)))
+                .build();
+
+        // When
+        BatchResponse response = vaultBatchService.apply(user, request);
+
+        // Then
+        assertFalse(response.isApplied());
+        assertEquals(424, response.getResults().get(0).getStatus());
+        assertEquals(409, response.getResults().get(1).getStatus());
+        assertSame(existing, response.getResults().get(1).getCurrent());
+        verify(vaultRevisionService, never()).reserveRevisions(anyLong(), intThat(count -> count > 0));
+        verify(vaultService, never()).create(any(), any(), anyLong());
+        verify(vaultService, never()).delete(any(), anyLong());
+        assertTrue(transaction.isRollbackOnly());
+    }
+
+    @Test
+    void apply_ShouldApplyValidOperations_WhenNotAtomic() {
+        // Given
+        when(vaultService.loadEntries(user, Set.of(10L, 99L))).thenReturn(List.of(existing));
+        when(vaultRevisionService.reserveRevisions(eq(1L), anyInt())).thenReturn(7L);
+        when(vaultService.update(eq(existing), any(VaultEntry.class), eq(7L))).thenReturn(existing);
+        BatchRequest request = BatchRequest.builder()
+                .operations(List.of(delete(99L, null), update(10L, "Renamed")))
+                .atomic(false)
+                .build();
+
+        // When
+        BatchResponse response = vaultBatchService.apply(user, request);
+
+        // Then
+        assertTrue(response.isApplied());
+        assertEquals(404, response.getResults().get(0).getStatus());
+        assertEquals(200, response.getResults().get(1).getStatus());
+        verify(vaultRevisionService).reserveRevisions(1L, 1);
+        assertFalse(transaction.isRollbackOnly());
+    }
+
+    @Test
+    void apply_ShouldRejectEntryTargetedTwice() {
+        // Given
+        when(vaultService.loadEntries(user, Set.of(10L))).thenReturn(List.of(existing));
+        BatchRequest request = BatchRequest.builder()
+                .operations(List.of(update(10L, "Renamed"), delete(10L, null)))
+                .build();
+
+        // When
+        BatchResponse response = vaultBatchService.apply(user, request);
+
+        // Then
+        assertFalse(response.isApplied());
+        assertEquals(424, response.getResults().get(0).getStatus());
+        assertEquals(400, response.getResults().get(1).getStatus());
+        verify(vaultService, never()).update(any(), any(), anyLong());
+    }
+
+    private BatchOperation create(String name) {
+        return BatchOperation.builder().type(BatchOperation.Type.CREATE).entry(request(name)).build();
+    }
+
+    private BatchOperation update(Long id, String name) {
+        return BatchOperation.builder().type(BatchOperation.Type.UPDATE).id(id).entry(request(name)).build();
+    }
+
+    private BatchOperation delete(Long id, Long expectedVersion) {
+        return BatchOperation.builder().type(BatchOperation.Type.DELETE).id(id).expectedVersion(expectedVersion).build();
+    }
+
+    private VaultEntryRequest request(String name) {
+        return VaultEntryRequest.builder().name(name).type(VaultEntryType.LOGIN).build();
+    }
+}
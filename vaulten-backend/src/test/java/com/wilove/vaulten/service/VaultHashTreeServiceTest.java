@@ -0,0 +1,104 @@
+package com.wilove.vaulten.service;
+
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryBucket;
+import com.wilove.vaulten.repository.VaultEntryBucketRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class VaultHashTreeServiceTest {
+
+    @Mock
+    private VaultEntryBucketRepository bucketRepository;
+
+    @InjectMocks
+    private VaultHashTreeService vaultHashTreeService;
+
+    private final Map<VaultEntryBucket.Key, VaultEntryBucket> rows = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        when(bucketRepository.findById(any())).thenAnswer(invocation ->
+                Optional.ofNullable(rows.get(invocation.<VaultEntryBucket.Key>getArgument(0))));
+        when(bucketRepository.save(any())).thenAnswer(invocation -> {
+            VaultEntryBucket bucket = invocation.getArgument(0);
+            rows.put(new VaultEntryBucket.Key(bucket.getUserId(), bucket.getBucket()), bucket);
+            return bucket;
+        });
+        when(bucketRepository.findByUserId(1L)).thenAnswer(invocation -> List.copyOf(rows.values()));
+    }
+
+    @Test
+    void writes_ShouldKeepBucketEqualToXorOfCurrentEntryHashes() {
+        // Given
+        VaultEntry first = entry(10L, 1L);
+        VaultEntry second = entry(11L, 257L); // Same bucket as revision 1
+
+        // When
+        vaultHashTreeService.add(first);
+        vaultHashTreeService.add(second);
+        second.setRevision(300L);
+        vaultHashTreeService.replace(second, 257L);
+
+        // Then
+        long expected = VaultHashTreeService.entryHash(10L, 1L) ^ VaultHashTreeService.entryHash(11L, 300L);
+        assertEquals(Map.of(1, expected), vaultHashTreeService.getBuckets(1L));
+        assertEquals(expected, VaultHashTreeService.root(vaultHashTreeService.getBuckets(1L)));
+    }
+
+    @Test
+    void addAll_ShouldMatchAddingEntriesOneByOne() {
+        // Given
+        vaultHashTreeService.add(entry(9L, 1L));
+        List<VaultEntry> entries = List.of(entry(10L, 2L), entry(11L, 257L), entry(12L, 513L));
+
+        // When
+        vaultHashTreeService.addAll(entries);
+
+        // Then
+        assertEquals(Map.of(
+                1, VaultHashTreeService.entryHash(9L, 1L) ^ VaultHashTreeService.entryHash(11L, 257L)
+                        ^ VaultHashTreeService.entryHash(12L, 513L),
+                2, VaultHashTreeService.entryHash(10L, 2L)), vaultHashTreeService.getBuckets(1L));
+        verify(bucketRepository, times(3)).save(any());
+    }
+
+    @Test
+    void remove_ShouldEmptyBucket_WhenLastEntryIsDeleted() {
+        // Given
+        VaultEntry entry = entry(10L, 5L);
+        vaultHashTreeService.add(entry);
+
+        // When
+        vaultHashTreeService.remove(entry);
+
+        // Then
+        assertTrue(vaultHashTreeService.getBuckets(1L).isEmpty());
+    }
+
+    private VaultEntry entry(Long id, long revision) {
+        return VaultEntry.builder()
+                .id(id)
+                .revision(revision)
+                .bucket(VaultHashTreeService.bucketFor(revision))
+                .user(User.builder().id(1L).build())
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package com.wilove.vaulten.service;
+
+import com.wilove.vaulten.repository.VaultRevisionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VaultRevisionServiceTest {
+
+    @Mock
+    private VaultRevisionRepository revisionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private VaultRevisionService vaultRevisionService;
+
+    @BeforeEach
+    void setUp() {
+        vaultRevisionService = new VaultRevisionService(revisionRepository, transactionManager, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void cachedRevision_ShouldLoadOnceWithinTtl() {
+        // Given
+        when(revisionRepository.findRevision(1L)).thenReturn(Optional.of(5L));
+
+        // When
+        long first = vaultRevisionService.cachedRevision(1L);
+        long second = vaultRevisionService.cachedRevision(1L);
+
+        // Then
+        assertEquals(5L, first);
+        assertEquals(5L, second);
+        verify(revisionRepository, times(1)).findRevision(1L);
+    }
+
+    @Test
+    void cachedRevision_ShouldReloadAfterTtl() {
+        // Given
+        vaultRevisionService = new VaultRevisionService(revisionRepository, transactionManager, Duration.ZERO);
+        when(revisionRepository.findRevision(1L)).thenReturn(Optional.of(5L), Optional.of(6L));
+
+        // When & Then
+        assertEquals(5L, vaultRevisionService.cachedRevision(1L));
+        assertEquals(6L, vaultRevisionService.cachedRevision(1L));
+    }
+
+    @Test
+    void nextRevision_ShouldUpdateCacheOnlyAfterCommit() {
+        // Given
+        when(revisionRepository.findRevision(1L)).thenReturn(Optional.of(5L), Optional.of(6L));
+        assertEquals(5L, vaultRevisionService.cachedRevision(1L));
+        when(revisionRepository.increment(1L)).thenReturn(1);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        long next = vaultRevisionService.nextRevision(1L);
+
+        // Then
+        assertEquals(6L, next);
+        assertEquals(5L, vaultRevisionService.cachedRevision(1L));
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(6L, vaultRevisionService.cachedRevision(1L));
+        verify(revisionRepository, times(2)).findRevision(1L);
+    }
+
+    @Test
+    void nextRevision_ShouldCreateCounter_WhenMissing() {
+        // Given
+        when(revisionRepository.increment(1L)).thenReturn(0, 1);
+        when(revisionRepository.findRevision(1L)).thenReturn(Optional.of(1L));
+
+        // When
+        long next = vaultRevisionService.nextRevision(1L);
+
+        // Then
+        assertEquals(1L, next);
+        verify(revisionRepository, times(2)).increment(1L);
+    }
+}
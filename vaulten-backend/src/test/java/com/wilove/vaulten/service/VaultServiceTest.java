@@ -1,34 +1,91 @@
 package com.wilove.vaulten.service;
 
+import com.wilove.vaulten.autofill.PublicSuffixList;
+import com.wilove.vaulten.breach.BreachCheckService;
+import com.wilove.vaulten.dto.PasswordStrengthEntry;
+import com.wilove.vaulten.dto.ReconcileEntry;
+import com.wilove.vaulten.dto.ReconcileResponse;
+import com.wilove.vaulten.dto.ReuseGroup;
+import com.wilove.vaulten.dto.SyncPageToken;
+import com.wilove.vaulten.dto.SyncResponse;
+import com.wilove.vaulten.event.VaultChangeEvent;
 import com.wilove.vaulten.exception.AccessDeniedException;
+import com.wilove.vaulten.exception.EntryConflictException;
+import com.wilove.vaulten.model.FieldRevisions;
 import com.wilove.vaulten.model.User;
 import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryPayload;
+import com.wilove.vaulten.model.VaultEntryTombstone;
 import com.wilove.vaulten.model.VaultEntryType;
-import com.wilove.vaulten.repository.VaultEntryRepository;
+import com.wilove.vaulten.store.VaultEntryStore;
+import com.wilove.vaulten.strength.PasswordStrengthEstimator;
+import com.wilove.vaulten.strength.PasswordStrengthService;
+import com.wilove.vaulten.usage.EntryUsageService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class VaultServiceTest {
 
     @Mock
-    private VaultEntryRepository vaultEntryRepository;
+    private VaultEntryStore vaultEntryStore;
 
     @Mock
     private EncryptionService encryptionService;
 
+    @Mock
+    private EntryHistoryService entryHistoryService;
+
+    @Mock
+    private TombstoneService tombstoneService;
+
+    @Mock
+    private VaultRevisionService vaultRevisionService;
+
+    @Mock
+    private VaultHashTreeService vaultHashTreeService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PublicSuffixList publicSuffixList;
+
+    @Mock
+    private VaultStatsService vaultStatsService;
+
+    @Mock(answer = Answers.RETURNS_SELF)
+    private VaultStatsService.Tally tally;
+
+    @Mock
+    private BreachCheckService breachCheckService;
+
+    @Mock
+    private PasswordStrengthService passwordStrengthService;
+
+    @Mock
+    private EntryUsageService entryUsageService;
+
     @InjectMocks
     private VaultService vaultService;
 
@@ -50,6 +107,7 @@ class VaultServiceTest {
                 .type(VaultEntryType.LOGIN)
                 .user(testUser)
                 .build();
+        lenient().when(vaultStatsService.tally()).thenReturn(tally);
     }
 
     @Test
@@ -57,7 +115,10 @@ class VaultServiceTest {
         // Given
         when(encryptionService.encrypt("plain_password")).thenReturn("encrypted_password");
         when(encryptionService.encrypt("secret notes")).thenReturn("encrypted_notes");
-        when(vaultEntryRepository.save(any(VaultEntry.class))).thenReturn(testEntry);
+        when(vaultEntryStore.save(any(VaultEntry.class))).thenReturn(testEntry);
+        when(vaultRevisionService.nextRevision(1L)).thenReturn(42L);
+        when(publicSuffixList.domainOf(testEntry.getUrl())).thenReturn("example.com");
+        when(encryptionService.fingerprint("plain_password")).thenReturn("fingerprint");
 
         // When
         VaultEntry result = vaultService.createEntry(testEntry, testUser);
@@ -65,16 +126,120 @@ class VaultServiceTest {
         // Then
         verify(encryptionService).encrypt("plain_password");
         verify(encryptionService).encrypt("secret notes");
-        verify(vaultEntryRepository).save(testEntry);
+        verify(vaultEntryStore).save(testEntry);
+        verify(vaultEntryStore).insertPayload(new VaultEntryPayload(1L, "encrypted_notes"));
         assertEquals(testUser, result.getUser());
+        assertEquals(42L, result.getRevision());
+        assertEquals(42, result.getBucket());
+        assertEquals("example.com", result.getDomain());
+        assertNotNull(result.getPasswordChangedAt());
+        assertEquals("fingerprint", result.getPasswordFingerprint());
+        verify(vaultHashTreeService).add(testEntry);
+        verify(tally).add(testEntry);
+        verify(vaultStatsService).apply(1L, tally);
+        verify(eventPublisher).publishEvent(new VaultChangeEvent(1L, 1L, VaultChangeEvent.Kind.CREATED, 42L));
+    }
+
+    @Test
+    void createEntries_ShouldAssignConsecutiveRevisionsFromOneBlock() {
+        // Given
+        VaultEntry first = VaultEntry.builder().name("GitHub").password("secret").type(VaultEntryType.LOGIN).build();
+        VaultEntry second = VaultEntry.builder().name("Wifi").notes("router").type(VaultEntryType.NOTE).build();
+        when(vaultRevisionService.reserveRevisions(1L, 2)).thenReturn(10L);
+        when(encryptionService.encrypt("secret")).thenReturn("encrypted_secret");
+        when(encryptionService.encrypt("router")).thenReturn("encrypted_router");
+        when(vaultEntryStore.save(any(VaultEntry.class))).thenAnswer(invocation -> {
+            VaultEntry entry = invocation.getArgument(0);
+            entry.setId(entry.getRevision() + 100);
+            return entry;
+        });
+
+        // When
+        List<VaultEntry> created = vaultService.createEntries(List.of(first, second), testUser);
+
+        // Then
+        assertEquals(List.of(10L, 11L), created.stream().map(VaultEntry::getRevision).toList());
+        assertEquals("encrypted_secret", first.getPassword());
+        verify(vaultEntryStore).insertPayload(new VaultEntryPayload(111L, "encrypted_router"));
+        verify(vaultEntryStore, times(1)).insertPayload(any());
+        verify(eventPublisher).publishEvent(new VaultChangeEvent(1L, 110L, VaultChangeEvent.Kind.CREATED, 10L));
+        verify(eventPublisher).publishEvent(new VaultChangeEvent(1L, 111L, VaultChangeEvent.Kind.CREATED, 11L));
+        verify(vaultHashTreeService).addAll(created);
+        verify(tally).add(first);
+        verify(tally).add(second);
+        verify(vaultStatsService).apply(1L, tally);
+    }
+
+    @Test
+    void getMatchingEntries_ShouldLookUpByDomainAndPutExactHostFirst() {
+        // Given
+        VaultEntry other = VaultEntry.builder().id(2L).name("A mail").url("https://mail.google.com")
+                .password("encrypted_other").type(VaultEntryType.LOGIN).build();
+        VaultEntry exact = VaultEntry.builder().id(3L).name("Z accounts").url("accounts.google.com/login")
+                .password("encrypted_exact").type(VaultEntryType.LOGIN).build();
+        when(publicSuffixList.domainOf("https://accounts.google.com/signin")).thenReturn("google.com");
+        when(vaultEntryStore.findByUserIdAndDomain(1L, "google.com")).thenReturn(List.of(other, exact));
+        when(encryptionService.decrypt("encrypted_other")).thenReturn("other");
+        when(encryptionService.decrypt("encrypted_exact")).thenReturn("exact");
+
+        // When
+        List<VaultEntry> entries = vaultService.getMatchingEntries(testUser, "https://accounts.google.com/signin");
+
+        // Then
+        assertEquals(List.of(3L, 2L), entries.stream().map(VaultEntry::getId).toList());
+        assertEquals("exact", entries.get(0).getPassword());
+    }
+
+    @Test
+    void getReuseGroups_ShouldGroupByFingerprintWithoutDecrypting() {
+        // Given
+        VaultEntry bank = VaultEntry.builder().id(2L).name("Bank").password("encrypted_1")
+                .passwordFingerprint("fp-a").updatedAt(LocalDateTime.of(2026, 1, 2, 3, 4)).build();
+        VaultEntry mail = VaultEntry.builder().id(3L).name("mail").password("encrypted_2")
+                .passwordFingerprint("fp-a").updatedAt(LocalDateTime.of(2026, 5, 6, 7, 8)).build();
+        VaultEntry forum = VaultEntry.builder().id(4L).name("Forum").password("encrypted_3")
+                .passwordFingerprint("fp-b").build();
+        VaultEntry chat = VaultEntry.builder().id(5L).name("Chat").password("encrypted_4")
+                .passwordFingerprint("fp-b").build();
+        VaultEntry shop = VaultEntry.builder().id(6L).name("Shop").password("encrypted_5")
+                .passwordFingerprint("fp-b").build();
+        when(vaultEntryStore.findReusedByUserId(1L)).thenReturn(List.of(bank, mail, forum, chat, shop));
+
+        // When
+        List<ReuseGroup> groups = vaultService.getReuseGroups(testUser);
+
+        // Then
+        assertEquals(List.of("reuse-fp-b", "reuse-fp-a"), groups.stream().map(ReuseGroup::getId).toList());
+        assertEquals("CRITICAL", groups.get(0).getSeverity());
+        assertEquals("3 entries use the same password: Chat, Forum, Shop", groups.get(0).getMessage());
+        assertEquals("WARNING", groups.get(1).getSeverity());
+        assertEquals(List.of(2L, 3L), groups.get(1).getEntries().stream().map(ReuseGroup.Entry::getId).toList());
+        assertEquals(LocalDateTime.of(2026, 5, 6, 7, 8).atZone(ZoneId.systemDefault()).toInstant()
+                .toEpochMilli(), groups.get(1).getTimestamp());
+        verifyNoInteractions(encryptionService);
+    }
+
+    @Test
+    void getMatchingEntries_ShouldReturnNothing_WhenUrlHasNoDomain() {
+        // Given
+        when(publicSuffixList.domainOf("co.uk")).thenReturn(null);
+
+        // When
+        List<VaultEntry> entries = vaultService.getMatchingEntries(testUser, "co.uk");
+
+        // Then
+        assertTrue(entries.isEmpty());
+        verifyNoInteractions(vaultEntryStore);
     }
 
     @Test
     void getEntriesForUser_ShouldDecryptSensitiveFields() {
         // Given
         testEntry.setPassword("encrypted_password");
-        testEntry.setNotes("encrypted_notes");
-        when(vaultEntryRepository.findByUserId(testUser.getId())).thenReturn(List.of(testEntry));
+        testEntry.setNotes(null);
+        when(vaultEntryStore.findByUserId(testUser.getId())).thenReturn(List.of(testEntry));
+        when(vaultEntryStore.findPayloads(List.of(1L)))
+                .thenReturn(List.of(new VaultEntryPayload(1L, "encrypted_notes")));
         when(encryptionService.decrypt("encrypted_password")).thenReturn("plain_password");
         when(encryptionService.decrypt("encrypted_notes")).thenReturn("secret notes");
 
@@ -87,11 +252,60 @@ class VaultServiceTest {
         assertEquals("secret notes", entries.get(0).getNotes());
     }
 
+    @Test
+    void getEntriesForUser_ShouldSkipPayloads_WhenNotesNotRequested() {
+        // Given
+        testEntry.setPassword("encrypted_password");
+        testEntry.setNotes(null);
+        when(vaultEntryStore.findByUserId(testUser.getId())).thenReturn(List.of(testEntry));
+        when(encryptionService.decrypt("encrypted_password")).thenReturn("plain_password");
+
+        // When
+        List<VaultEntry> entries = vaultService.getEntriesForUser(testUser, false);
+
+        // Then
+        assertEquals(1, entries.size());
+        assertNull(entries.get(0).getNotes());
+        verify(vaultEntryStore, never()).findPayloads(any());
+    }
+
+    @Test
+    void getEntriesByFrecency_ShouldListMostUsedFirstThenUnusedByName() {
+        // Given
+        VaultEntry bank = testEntry.toBuilder().id(1L).name("Bank").password(null).build();
+        VaultEntry mail = testEntry.toBuilder().id(2L).name("mail").password(null).build();
+        VaultEntry forum = testEntry.toBuilder().id(3L).name("Forum").password(null).build();
+        VaultEntry chat = testEntry.toBuilder().id(4L).name("Chat").password(null).build();
+        when(vaultEntryStore.findByUserId(1L)).thenReturn(List.of(bank, mail, forum, chat));
+        when(entryUsageService.frecencies(1L)).thenReturn(Map.of(2L, 1450.5, 3L, 1461.0));
+
+        // When
+        List<VaultEntry> entries = vaultService.getEntriesByFrecency(testUser, false);
+
+        // Then
+        assertEquals(List.of(3L, 2L, 1L, 4L), entries.stream().map(VaultEntry::getId).toList());
+    }
+
+    @Test
+    void recordUse_ShouldCountUses_OnlyOfTheUsersEntries() {
+        // Given
+        when(vaultEntryStore.findByUserIdAndIdIn(1L, List.of(1L))).thenReturn(List.of(testEntry));
+        when(vaultEntryStore.findByUserIdAndIdIn(1L, List.of(9L))).thenReturn(List.of());
+
+        // When
+        vaultService.recordUse(1L, testUser);
+
+        // Then
+        verify(entryUsageService).recordUse(1L, 1L);
+        assertThrows(RuntimeException.class, () -> vaultService.recordUse(9L, testUser));
+        verifyNoMoreInteractions(entryUsageService);
+    }
+
     @Test
     void getEntryById_ShouldReturnDecryptedEntry_WhenUserIsOwner() {
         // Given
         testEntry.setPassword("encrypted_password");
-        when(vaultEntryRepository.findById(1L)).thenReturn(Optional.of(testEntry));
+        when(vaultEntryStore.findById(1L)).thenReturn(Optional.of(testEntry));
         when(encryptionService.decrypt("encrypted_password")).thenReturn("plain_password");
 
         // When
@@ -102,12 +316,56 @@ class VaultServiceTest {
         assertEquals("plain_password", result.getPassword());
     }
 
+    @Test
+    void getEntries_ShouldReturnDecryptedCopiesWithNotesInIdOrder() {
+        // Given
+        testEntry.setPassword("encrypted_password");
+        VaultEntry second = VaultEntry.builder().id(2L).name("Mail").user(testUser).build();
+        when(vaultEntryStore.findByUserIdAndIdIn(1L, List.of(2L, 1L, 99L))).thenReturn(List.of(second, testEntry));
+        when(vaultEntryStore.findPayloads(any())).thenReturn(List.of(new VaultEntryPayload(1L, "encrypted_notes")));
+        when(encryptionService.decrypt("encrypted_password")).thenReturn("plain_password");
+        when(encryptionService.decrypt("encrypted_notes")).thenReturn("plain_notes");
+
+        // When
+        List<VaultEntry> result = vaultService.getEntries(testUser, List.of(2L, 1L, 99L));
+
+        // Then
+        assertEquals(List.of(1L, 2L), result.stream().map(VaultEntry::getId).toList());
+        assertEquals("plain_password", result.get(0).getPassword());
+        assertEquals("plain_notes", result.get(0).getNotes());
+        assertEquals("encrypted_password", testEntry.getPassword());
+    }
+
+    @Test
+    void forEachEntryChunk_ShouldDecryptAndHandOverChunksInOrder() {
+        // Given
+        List<VaultEntry> entries = List.of(
+                VaultEntry.builder().id(1L).password("encrypted_1").build(),
+                VaultEntry.builder().id(2L).password("encrypted_2").build(),
+                VaultEntry.builder().id(3L).password("encrypted_3").build());
+        when(vaultEntryStore.streamByUserId(1L)).thenReturn(entries.stream());
+        when(vaultEntryStore.findPayloads(any())).thenReturn(List.of(new VaultEntryPayload(3L, "encrypted_notes")));
+        when(encryptionService.decrypt(any())).thenAnswer(invocation -> "plain_" + invocation.getArgument(0));
+        List<List<String>> chunks = new ArrayList<>();
+
+        // When
+        vaultService.forEachEntryChunk(testUser, 2, chunk -> chunks.add(chunk.stream()
+                .map(entry -> entry.getPassword() + (entry.getNotes() == null ? "" : "/" + entry.getNotes()))
+                .toList()));
+
+        // Then
+        assertEquals(List.of(
+                List.of("plain_encrypted_1", "plain_encrypted_2"),
+                List.of("plain_encrypted_3/plain_encrypted_notes")), chunks);
+        verify(vaultEntryStore, times(2)).findPayloads(any());
+    }
+
     @Test
     void getEntryById_ShouldThrowException_WhenUserIsNotOwner() {
         // Given
         User otherUser = new User();
         otherUser.setId(2L);
-        when(vaultEntryRepository.findById(1L)).thenReturn(Optional.of(testEntry));
+        when(vaultEntryStore.findById(1L)).thenReturn(Optional.of(testEntry));
 
         // When & Then
         assertThrows(AccessDeniedException.class, () -> vaultService.getEntryById(1L, otherUser));
@@ -121,29 +379,125 @@ class VaultServiceTest {
                 .password("new_plain_pass")
                 .build();
 
-        when(vaultEntryRepository.findById(1L)).thenReturn(Optional.of(testEntry));
+        when(vaultEntryStore.findById(1L)).thenReturn(Optional.of(testEntry));
         when(encryptionService.encrypt("new_plain_pass")).thenReturn("new_encrypted_pass");
-        when(vaultEntryRepository.save(any(VaultEntry.class))).thenReturn(testEntry);
+        when(vaultEntryStore.save(any(VaultEntry.class))).thenReturn(testEntry);
 
         // When
         VaultEntry result = vaultService.updateEntry(1L, updatedData, testUser);
 
         // Then
         assertEquals("Updated Name", result.getName());
+        assertEquals(0L, result.getFieldRevisions().getName());
+        assertEquals(0L, result.getFieldRevisions().getPassword());
+        assertNull(result.getFieldRevisions().getCategory());
+        verify(entryHistoryService).recordChange(any(), eq(testEntry));
         verify(encryptionService).encrypt("new_plain_pass");
-        verify(vaultEntryRepository).save(any(VaultEntry.class));
+        verify(vaultEntryStore).save(any(VaultEntry.class));
     }
 
     @Test
-    void deleteEntry_ShouldCallRepository_WhenUserIsOwner() {
+    void updateEntry_ShouldMoveEntryInStatsAndStampPasswordChange() {
         // Given
-        when(vaultEntryRepository.findById(1L)).thenReturn(Optional.of(testEntry));
+        testEntry.setPassword("encrypted_pass");
+        testEntry.setPasswordChangedAt(LocalDateTime.now().minusYears(1));
+        testEntry.setPasswordScore(1);
+        testEntry.setPasswordScoreVersion(PasswordStrengthEstimator.VERSION);
+        when(vaultEntryStore.findById(1L)).thenReturn(Optional.of(testEntry));
+        when(encryptionService.decrypt("encrypted_pass")).thenReturn("old_plain_pass");
+        when(vaultEntryStore.save(any(VaultEntry.class))).thenReturn(testEntry);
+        List<String> tallied = new ArrayList<>();
+        when(tally.remove(testEntry)).thenAnswer(invocation -> {
+            tallied.add("-" + testEntry.getPassword());
+            return tally;
+        });
+        when(tally.add(testEntry)).thenAnswer(invocation -> {
+            tallied.add("+" + testEntry.getPassword());
+            return tally;
+        });
+
+        // When
+        VaultEntry result = vaultService.updateEntry(1L,
+                VaultEntry.builder().name("My Bank").password("new_plain_pass").build(), testUser);
+
+        // Then
+        assertEquals(List.of("-old_plain_pass", "+new_plain_pass"), tallied);
+        assertTrue(result.getPasswordChangedAt().isAfter(LocalDateTime.now().minusMinutes(1)));
+        verify(vaultStatsService).apply(1L, tally);
+        // The new password is unscored until the background scoring gets to it
+        assertNull(result.getPasswordScore());
+        assertNull(result.getPasswordScoreVersion());
+        verify(passwordStrengthService).scoreAfterCommit(1L, List.of(testEntry));
+    }
+
+    @Test
+    void getPasswordStrengths_ShouldListScoredEntriesWithoutPasswords() {
+        // Given
+        VaultEntry weak = VaultEntry.builder().id(2L).name("Forum").username("me").url("https://forum.example.com")
+                .password("encrypted").passwordScore(0).passwordCrackSeconds(0.02).build();
+        VaultEntry fair = VaultEntry.builder().id(3L).name("Shop").password("encrypted")
+                .passwordScore(1).passwordCrackSeconds(7200.0).build();
+        when(vaultEntryStore.findByUserIdAndPasswordScoreAtMost(1L, 1)).thenReturn(List.of(weak, fair));
+
+        // When
+        List<PasswordStrengthEntry> result = vaultService.getPasswordStrengths(testUser, 1);
+
+        // Then
+        assertEquals(List.of(2L, 3L), result.stream().map(PasswordStrengthEntry::getId).toList());
+        assertEquals("https://forum.example.com", result.get(0).getUrl());
+        assertEquals("less than a second", result.get(0).getCrackTime());
+        assertEquals(1, result.get(1).getScore());
+        assertEquals("2 hours", result.get(1).getCrackTime());
+        verifyNoInteractions(encryptionService);
+    }
+
+    @Test
+    void updateEntry_ShouldThrowConflictWithCurrentCopy_WhenVersionIsStale() {
+        // Given
+        testEntry.setVersion(5L);
+        testEntry.setPassword("encrypted_pass");
+        when(vaultEntryStore.findById(1L)).thenReturn(Optional.of(testEntry));
+        when(encryptionService.decrypt("encrypted_pass")).thenReturn("plain_pass");
+
+        // When
+        EntryConflictException conflict = assertThrows(EntryConflictException.class,
+                () -> vaultService.updateEntry(1L, VaultEntry.builder().name("Stale").build(), testUser, 4L));
+
+        // Then
+        assertEquals("My Bank", conflict.getCurrent().getName());
+        assertEquals("plain_pass", conflict.getCurrent().getPassword());
+        verify(vaultEntryStore, never()).save(any());
+        verifyNoInteractions(entryHistoryService, eventPublisher);
+    }
+
+    @Test
+    void deleteEntry_ShouldThrowConflict_WhenVersionIsStale() {
+        // Given
+        testEntry.setVersion(5L);
+        when(vaultEntryStore.findById(1L)).thenReturn(Optional.of(testEntry));
+
+        // When & Then
+        assertThrows(EntryConflictException.class, () -> vaultService.deleteEntry(1L, testUser, 4L));
+        verify(vaultEntryStore, never()).delete(any());
+    }
+
+    @Test
+    void deleteEntry_ShouldCallStore_WhenUserIsOwner() {
+        // Given
+        when(vaultEntryStore.findById(1L)).thenReturn(Optional.of(testEntry));
 
         // When
         vaultService.deleteEntry(1L, testUser);
 
         // Then
-        verify(vaultEntryRepository).delete(testEntry);
+        verify(entryHistoryService).deleteHistory(1L);
+        verify(vaultEntryStore).deletePayload(1L);
+        verify(vaultEntryStore).delete(testEntry);
+        verify(entryUsageService).forget(1L, 1L);
+        verify(tombstoneService).recordDeletion(testEntry, 0L);
+        verify(tally).remove(testEntry);
+        verify(vaultStatsService).apply(1L, tally);
+        verify(eventPublisher).publishEvent(new VaultChangeEvent(1L, 1L, VaultChangeEvent.Kind.DELETED, 0L));
     }
 
     @Test
@@ -151,7 +505,7 @@ class VaultServiceTest {
         // Given
         LocalDateTime since = LocalDateTime.now().minusDays(1);
         testEntry.setPassword("encrypted_pass");
-        when(vaultEntryRepository.findByUserIdAndUpdatedAtGreaterThanEqual(testUser.getId(), since))
+        when(vaultEntryStore.findByUserIdModifiedSince(testUser.getId(), since))
                 .thenReturn(List.of(testEntry));
         when(encryptionService.decrypt("encrypted_pass")).thenReturn("plain_pass");
 
@@ -163,4 +517,209 @@ class VaultServiceTest {
         assertEquals("plain_pass", results.get(0).getPassword());
         verify(encryptionService).decrypt("encrypted_pass");
     }
+
+    @Test
+    void getVaultETag_ShouldCombineUserRevisionAndVariant() {
+        // Given
+        when(vaultRevisionService.cachedRevision(1L)).thenReturn(42L);
+
+        // When & Then
+        assertEquals("\"1.42\"", vaultService.getVaultETag(testUser, null));
+        assertEquals("\"1.42-summary\"", vaultService.getVaultETag(testUser, "summary"));
+        verifyNoInteractions(vaultEntryStore, encryptionService);
+    }
+
+    @Test
+    void sync_ShouldReturnChangesBetweenCursorAndHighWaterMark() {
+        // Given
+        testEntry.setPassword("encrypted_pass");
+        testEntry.setNotes(null);
+        when(vaultRevisionService.currentRevision(1L)).thenReturn(12L);
+        when(vaultEntryStore.findByUserIdAndRevisionBetween(1L, 10L, 12L)).thenReturn(List.of(testEntry));
+        when(tombstoneService.getDeletedIdsBetween(1L, 10L, 12L)).thenReturn(List.of(5L));
+        when(encryptionService.decrypt("encrypted_pass")).thenReturn("plain_pass");
+
+        // When
+        SyncResponse response = vaultService.sync(testUser, 10L);
+
+        // Then
+        assertFalse(response.isFullResync());
+        assertEquals(12L, response.getCursor());
+        assertEquals("plain_pass", response.getUpdatedEntries().get(0).getPassword());
+        assertEquals(List.of(5L), response.getDeletedIds());
+        verify(vaultEntryStore, never()).findByUserId(any());
+    }
+
+    @Test
+    void sync_ShouldReturnFullVault_WhenCursorPrecedesPurgedTombstones() {
+        // Given
+        when(vaultRevisionService.currentRevision(1L)).thenReturn(30L);
+        when(vaultRevisionService.tombstonesPurgedThrough(1L)).thenReturn(20L);
+        when(vaultEntryStore.findByUserId(1L)).thenReturn(List.of());
+
+        // When
+        SyncResponse response = vaultService.sync(testUser, 10L);
+
+        // Then
+        assertTrue(response.isFullResync());
+        assertEquals(30L, response.getCursor());
+        verify(tombstoneService, never()).getDeletedIdsBetween(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    void sync_ShouldReturnFullVault_WithoutCursor() {
+        // Given
+        when(vaultRevisionService.currentRevision(1L)).thenReturn(3L);
+        when(vaultEntryStore.findByUserId(1L)).thenReturn(List.of());
+
+        // When
+        SyncResponse response = vaultService.sync(testUser, null);
+
+        // Then
+        assertTrue(response.isFullResync());
+        assertEquals(3L, response.getCursor());
+    }
+
+    @Test
+    void reconcile_ShouldSkipBuckets_WhenRootMatches() {
+        // Given
+        when(vaultRevisionService.currentRevision(1L)).thenReturn(9L);
+        when(vaultHashTreeService.getBuckets(1L)).thenReturn(Map.of(3, 0x0fL, 7, 0xf0L));
+
+        // When
+        ReconcileResponse response = vaultService.reconcile(testUser, 0xffL, Map.of());
+
+        // Then
+        assertTrue(response.isInSync());
+        assertEquals("00000000000000ff", response.getRoot());
+        assertEquals(9L, response.getCursor());
+        verifyNoInteractions(vaultEntryStore);
+    }
+
+    @Test
+    void reconcile_ShouldReturnRevisionsOfDifferingBucketsOnly() {
+        // Given: bucket 3 matches, bucket 7 changed, bucket 9 was emptied on the server
+        when(vaultHashTreeService.getBuckets(1L)).thenReturn(Map.of(3, 0x0fL, 7, 0xf0L));
+        when(vaultEntryStore.findRevisionsByUserIdAndBucketIn(1L, List.of(7, 9)))
+                .thenReturn(List.of(new ReconcileEntry(1L, 12L, 7), new ReconcileEntry(4L, 8L, 7)));
+
+        // When
+        ReconcileResponse response = vaultService.reconcile(testUser, null, Map.of(3, 0x0fL, 7, 0x01L, 9, 0x22L));
+
+        // Then: ids and revisions only, nothing read in full or decrypted
+        assertFalse(response.isInSync());
+        assertEquals(2, response.getBuckets().size());
+        assertEquals(7, response.getBuckets().get(0).getBucket());
+        assertEquals("00000000000000f0", response.getBuckets().get(0).getHash());
+        assertEquals(List.of(1L, 4L), response.getBuckets().get(0).getEntries().stream()
+                .map(ReconcileEntry::getId).toList());
+        assertEquals(12L, response.getBuckets().get(0).getEntries().get(0).getRevision());
+        assertEquals(9, response.getBuckets().get(1).getBucket());
+        assertTrue(response.getBuckets().get(1).getEntries().isEmpty());
+        verifyNoInteractions(encryptionService);
+    }
+
+    @Test
+    void syncPage_ShouldMergeEntriesAndDeletesByRevisionAndContinueAfterLastOne() {
+        // Given: changes at revisions 11 (entry), 12 (delete), 14 (entry) with high-water 14
+        VaultEntry later = VaultEntry.builder().id(2L).name("Mail").revision(14L).user(testUser).build();
+        testEntry.setRevision(11L);
+        testEntry.setPassword(null);
+        testEntry.setNotes(null);
+        when(vaultRevisionService.currentRevision(1L)).thenReturn(14L);
+        when(vaultEntryStore.findByUserIdAndRevisionBetween(1L, 10L, 14L, 3)).thenReturn(List.of(testEntry, later));
+        when(tombstoneService.getDeletedBetween(1L, 10L, 14L, 3))
+                .thenReturn(List.of(new VaultEntryTombstone(5L, 1L, 12L, LocalDateTime.now())));
+
+        // When
+        SyncResponse first = vaultService.syncPage(testUser, 10L, null, 2);
+
+        // Then
+        assertEquals(List.of(testEntry), first.getUpdatedEntries());
+        assertEquals(List.of(5L), first.getDeletedIds());
+        assertNull(first.getCursor());
+        assertEquals(new SyncPageToken(12L, 14L, false, 10L), SyncPageToken.decode(first.getNextPageToken()));
+
+        // Given
+        when(vaultEntryStore.findByUserIdAndRevisionBetween(1L, 12L, 14L, 3)).thenReturn(List.of(later));
+
+        // When
+        SyncResponse last = vaultService.syncPage(testUser, null, first.getNextPageToken(), 2);
+
+        // Then
+        assertEquals(List.of(later), last.getUpdatedEntries());
+        assertTrue(last.getDeletedIds().isEmpty());
+        assertEquals(14L, last.getCursor());
+        assertNull(last.getNextPageToken());
+        verify(vaultRevisionService, times(1)).currentRevision(1L);
+    }
+
+    @Test
+    void syncPage_ShouldRestartAsFullResync_WhenTombstonesInRangeWerePurged() {
+        // Given
+        when(vaultRevisionService.tombstonesPurgedThrough(1L)).thenReturn(20L);
+        when(vaultRevisionService.currentRevision(1L)).thenReturn(30L);
+        when(vaultEntryStore.findByUserIdAndRevisionBetween(1L, 0L, 30L, 101)).thenReturn(List.of());
+
+        // When
+        SyncResponse response = vaultService.syncPage(testUser, null,
+                new SyncPageToken(15L, 25L, false, 10L).encode(), 100);
+
+        // Then
+        assertTrue(response.isFullResync());
+        assertEquals(30L, response.getCursor());
+        verify(tombstoneService, never()).getDeletedBetween(any(), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void syncPage_ShouldRejectForgedToken() {
+        assertThrows(IllegalArgumentException.class, () -> vaultService.syncPage(testUser, null, "bm9wZQ", 10));
+    }
+
+    @Test
+    void sync_ShouldReturnOnlyChangedFields_WhenDeltaRequested() {
+        // Given: created at 5, category changed at 11; the client is at 10
+        FieldRevisions revisions = FieldRevisions.allAt(5L);
+        revisions.setCategory(11L);
+        testEntry.setFieldRevisions(revisions);
+        testEntry.setRevision(11L);
+        testEntry.setCategory("Finance");
+        testEntry.setPassword("encrypted_pass");
+        when(vaultRevisionService.currentRevision(1L)).thenReturn(11L);
+        when(vaultEntryStore.findByUserIdAndRevisionBetween(1L, 10L, 11L)).thenReturn(List.of(testEntry));
+
+        // When
+        SyncResponse response = vaultService.sync(testUser, 10L, true);
+
+        // Then
+        assertNull(response.getUpdatedEntries());
+        assertEquals(1, response.getChangedEntries().size());
+        assertEquals(List.of("category"), response.getChangedEntries().get(0).getChangedFields());
+        assertEquals("Finance", response.getChangedEntries().get(0).getCategory());
+        assertNull(response.getChangedEntries().get(0).getPassword());
+        verifyNoInteractions(encryptionService);
+        verify(vaultEntryStore, never()).findPayloads(any());
+    }
+
+    @Test
+    void sync_ShouldDecryptChangedSecretsOnly_WhenDeltaRequested() {
+        // Given: notes changed after the cursor, password did not
+        FieldRevisions revisions = FieldRevisions.allAt(5L);
+        revisions.setNotes(12L);
+        testEntry.setFieldRevisions(revisions);
+        testEntry.setRevision(12L);
+        testEntry.setPassword("encrypted_pass");
+        when(vaultRevisionService.currentRevision(1L)).thenReturn(12L);
+        when(vaultEntryStore.findByUserIdAndRevisionBetween(1L, 10L, 12L)).thenReturn(List.of(testEntry));
+        when(vaultEntryStore.findPayloads(List.of(1L))).thenReturn(List.of(new VaultEntryPayload(1L, "encrypted_notes")));
+        when(encryptionService.decrypt("encrypted_notes")).thenReturn("new notes");
+
+        // When
+        SyncResponse response = vaultService.sync(testUser, 10L, true);
+
+        // Then
+        assertEquals(List.of("notes"), response.getChangedEntries().get(0).getChangedFields());
+        assertEquals("new notes", response.getChangedEntries().get(0).getNotes());
+        verify(encryptionService, never()).decrypt("encrypted_pass");
+    }
 }
@@ -0,0 +1,231 @@
+package com.wilove.vaulten.service;
+
+import com.wilove.vaulten.datasource.ShardRouter;
+import com.wilove.vaulten.dto.VaultStatsResponse;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryType;
+import com.wilove.vaulten.model.VaultPasswordCount;
+import com.wilove.vaulten.model.VaultStat;
+import com.wilove.vaulten.repository.VaultPasswordCountRepository;
+import com.wilove.vaulten.repository.VaultRevisionRepository;
+import com.wilove.vaulten.repository.VaultStatRepository;
+import com.wilove.vaulten.store.VaultEntryStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class VaultStatsServiceTest {
+
+    @Mock
+    private VaultStatRepository statRepository;
+
+    @Mock
+    private VaultPasswordCountRepository passwordCountRepository;
+
+    @Mock
+    private VaultRevisionRepository revisionRepository;
+
+    @Mock
+    private VaultRevisionService vaultRevisionService;
+
+    @Mock
+    private VaultEntryStore vaultEntryStore;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final EncryptionService encryptionService =
+            new EncryptionService("RW5jcnlwdGlvbktleTMyQnl0ZXNGb3JBRVMyNTYhISE=");
+    private final Map<String, VaultStat> stats = new HashMap<>();
+    private final Map<String, VaultPasswordCount> passwordCounts = new HashMap<>();
+    private VaultStatsService vaultStatsService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        vaultStatsService = new VaultStatsService(statRepository, passwordCountRepository, revisionRepository,
+                vaultRevisionService, vaultEntryStore, encryptionService, shardRouter, transactionManager,
+                Duration.ofDays(365), 100);
+        user = new User();
+        user.setId(1L);
+
+        lenient().when(statRepository.findByUserId(1L)).thenAnswer(invocation -> List.copyOf(stats.values()));
+        lenient().when(statRepository.findByUserIdAndNameIn(eq(1L), any())).thenAnswer(invocation ->
+                invocation.<Collection<String>>getArgument(1).stream()
+                        .filter(stats::containsKey).map(stats::get).toList());
+        lenient().when(statRepository.save(any())).thenAnswer(invocation -> {
+            VaultStat stat = invocation.getArgument(0);
+            stats.put(stat.getName(), stat);
+            return stat;
+        });
+        lenient().doAnswer(invocation -> stats.remove(invocation.<VaultStat>getArgument(0).getName()))
+                .when(statRepository).delete(any());
+        lenient().when(passwordCountRepository.findByUserId(1L))
+                .thenAnswer(invocation -> List.copyOf(passwordCounts.values()));
+        lenient().when(passwordCountRepository.findByUserIdAndFingerprintIn(eq(1L), any())).thenAnswer(invocation ->
+                invocation.<Collection<String>>getArgument(1).stream()
+                        .filter(passwordCounts::containsKey).map(passwordCounts::get).toList());
+        lenient().when(passwordCountRepository.save(any())).thenAnswer(invocation -> {
+            VaultPasswordCount count = invocation.getArgument(0);
+            passwordCounts.put(count.getFingerprint(), count);
+            return count;
+        });
+        lenient().doAnswer(invocation ->
+                passwordCounts.remove(invocation.<VaultPasswordCount>getArgument(0).getFingerprint()))
+                .when(passwordCountRepository).delete(any());
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void writes_ShouldKeepCountersEqualToRecount() {
+        // Given
+        VaultEntry bank = entry("Bank", VaultEntryType.LOGIN, "Finance", "Correct-Horse-42");
+        VaultEntry mail = entry("Mail", VaultEntryType.LOGIN, null, "Correct-Horse-42");
+        VaultEntry wifi = entry("Wifi", VaultEntryType.NOTE, "Home", "hunter2");
+        wifi.setPasswordScore(1);
+        vaultStatsService.apply(1L, vaultStatsService.tally().add(bank).add(mail).add(wifi));
+
+        // When: the reused password of one entry changes, and the weak one is deleted
+        VaultStatsService.Tally tally = vaultStatsService.tally().remove(mail);
+        mail.setPassword("Another-Long-Passphrase");
+        mail.setCategory("Work");
+        vaultStatsService.apply(1L, tally.add(mail));
+        vaultStatsService.apply(1L, vaultStatsService.tally().remove(wifi));
+
+        // Then
+        VaultStatsResponse response = vaultStatsService.getStats(1L);
+        assertEquals(2, response.getTotal());
+        assertEquals(2L, response.getByType().get(VaultEntryType.LOGIN));
+        assertEquals(0L, response.getByType().get(VaultEntryType.NOTE));
+        assertEquals(Map.of("Finance", 1L, "Work", 1L), response.getByCategory());
+        assertEquals(0, response.getUncategorized());
+        assertEquals(0, response.getWeak());
+        assertEquals(0, response.getReused());
+        assertEquals(2, passwordCounts.size());
+
+        // Counters that dropped to zero are removed, and a recount finds nothing to fix
+        assertFalse(stats.containsKey(VaultStatsService.WEAK));
+        when(vaultEntryStore.streamByUserId(1L)).thenAnswer(invocation -> List.of(encrypted(bank), encrypted(mail))
+                .stream());
+        assertFalse(vaultStatsService.repair(1L));
+    }
+
+    @Test
+    void getStats_ShouldCountReusedWeakAndStalePasswords() {
+        // Given
+        VaultEntry old = entry("Old", VaultEntryType.LOGIN, null, "password");
+        old.setPasswordChangedAt(LocalDateTime.now().minusYears(2));
+        old.setPasswordScore(0);
+        VaultEntry copy = entry("Copy", VaultEntryType.LOGIN, null, "password");
+        copy.setPasswordScore(0);
+        VaultEntry card = entry("Card", VaultEntryType.CARD, null, null);
+
+        // When
+        vaultStatsService.apply(1L, vaultStatsService.tally().add(old).add(copy).add(card));
+        VaultStatsResponse response = vaultStatsService.getStats(1L);
+
+        // Then
+        assertEquals(3, response.getTotal());
+        assertEquals(3, response.getUncategorized());
+        assertEquals(1, response.getStale());
+        assertEquals(2, response.getWeak());
+        assertEquals(2, response.getReused());
+    }
+
+    @Test
+    void repair_ShouldRewriteDriftedCounters() {
+        // Given
+        VaultEntry first = entry("First", VaultEntryType.LOGIN, "Work", "Shared-Passphrase-1");
+        VaultEntry second = entry("Second", VaultEntryType.IDENTITY, "Work", "Shared-Passphrase-1");
+        stats.put("type:LOGIN", new VaultStat(1L, "type:LOGIN", 5L));
+        stats.put("category:Gone", new VaultStat(1L, "category:Gone", 1L));
+        when(vaultEntryStore.streamByUserId(1L)).thenAnswer(invocation ->
+                List.of(encrypted(first), encrypted(second)).stream());
+
+        // When
+        boolean drifted = vaultStatsService.repair(1L);
+
+        // Then
+        assertTrue(drifted);
+        VaultStatsResponse response = vaultStatsService.getStats(1L);
+        assertEquals(2, response.getTotal());
+        assertEquals(1L, response.getByType().get(VaultEntryType.IDENTITY));
+        assertEquals(Map.of("Work", 2L), response.getByCategory());
+        assertEquals(2, response.getReused());
+        assertEquals(List.of(2L), passwordCounts.values().stream().map(VaultPasswordCount::getCount).toList());
+    }
+
+    @Test
+    void markBreached_ShouldCountEveryEntryUsingTheBreachedPassword() {
+        // Given
+        VaultEntry first = entry("First", VaultEntryType.LOGIN, null, "Shared-Passphrase-1");
+        VaultEntry second = entry("Second", VaultEntryType.LOGIN, null, "Shared-Passphrase-1");
+        vaultStatsService.apply(1L, vaultStatsService.tally().add(first).add(second));
+        String fingerprint = encryptionService.fingerprint("Shared-Passphrase-1");
+        when(passwordCountRepository.findById(new VaultPasswordCount.Key(1L, fingerprint)))
+                .thenAnswer(invocation -> Optional.ofNullable(passwordCounts.get(fingerprint)));
+        LocalDateTime checkedAt = LocalDateTime.now();
+
+        // When
+        assertTrue(vaultStatsService.markBreached(1L, fingerprint, true, checkedAt));
+        assertTrue(vaultStatsService.markBreached(1L, fingerprint, true, checkedAt));
+
+        // Then: marking twice counts once, and the flag survives a recount
+        assertEquals(2, vaultStatsService.getStats(1L).getBreached());
+        assertEquals(checkedAt, passwordCounts.get(fingerprint).getBreachCheckedAt());
+        when(vaultEntryStore.streamByUserId(1L)).thenAnswer(invocation ->
+                List.of(encrypted(first), encrypted(second)).stream());
+        assertFalse(vaultStatsService.repair(1L));
+
+        // When: the entries move off the breached password
+        vaultStatsService.apply(1L, vaultStatsService.tally().remove(first));
+        assertEquals(1, vaultStatsService.getStats(1L).getBreached());
+        assertFalse(vaultStatsService.markBreached(1L, "unknown", true, checkedAt));
+    }
+
+    @Test
+    void isWeak_ShouldFollowTheStrengthScore() {
+        assertTrue(VaultStatsService.isWeak(VaultEntry.builder().passwordScore(0).build()));
+        assertTrue(VaultStatsService.isWeak(VaultEntry.builder().passwordScore(1).build()));
+        assertFalse(VaultStatsService.isWeak(VaultEntry.builder().passwordScore(2).build()));
+        assertFalse(VaultStatsService.isWeak(VaultEntry.builder().build()));
+    }
+
+    private VaultEntry entry(String name, VaultEntryType type, String category, String password) {
+        return VaultEntry.builder()
+                .name(name)
+                .type(type)
+                .category(category)
+                .password(password)
+                .passwordChangedAt(password == null ? null : LocalDateTime.now())
+                .user(user)
+                .build();
+    }
+
+    private VaultEntry encrypted(VaultEntry entry) {
+        return entry.toBuilder().password(encryptionService.encrypt(entry.getPassword())).build();
+    }
+}
@@ -0,0 +1,210 @@
+package com.wilove.vaulten.snapshot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.wilove.vaulten.dto.SyncResponse;
+import com.wilove.vaulten.event.VaultChangeEvent;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryType;
+import com.wilove.vaulten.service.VaultService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VaultSnapshotServiceTest {
+
+    @Mock
+    private VaultService vaultService;
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private VaultSnapshotService snapshotService;
+
+    @BeforeEach
+    void setUp() {
+        snapshotService = new VaultSnapshotService(vaultService, objectMapper, directory, Duration.ZERO, 2, Duration.ZERO);
+    }
+
+    @Test
+    void build_ShouldWriteEncryptedCompressedFullSyncWithCursor() throws Exception {
+        // Given
+        givenFullSync(12L);
+
+        // When
+        snapshotService.build(1L);
+
+        // Then
+        VaultSnapshot snapshot = snapshotService.getSnapshot(1L);
+        assertEquals(12L, snapshot.cursor());
+        byte[] file = Files.readAllBytes(snapshot.file());
+        assertEquals(file.length, snapshot.size());
+        assertFalse(new String(file).contains("plain_password"));
+
+        JsonNode json = objectMapper.readTree(decrypt(file, snapshot.key()));
+        assertEquals("plain_password", json.get("updatedEntries").get(0).get("password").asText());
+        assertTrue(json.get("fullResync").asBoolean());
+        assertEquals(12L, json.get("cursor").asLong());
+    }
+
+    @Test
+    void onVaultChange_ShouldDropSnapshotAndRebuildOnceSettled() {
+        // Given
+        givenFullSync(12L);
+        snapshotService.build(1L);
+        Path stale = snapshotService.getSnapshot(1L).file();
+
+        // When
+        snapshotService.onVaultChange(new VaultChangeEvent(1L, 5L, VaultChangeEvent.Kind.UPDATED, 13L));
+
+        // Then
+        assertFalse(Files.exists(stale));
+        givenFullSync(13L);
+        snapshotService.buildSettled();
+        assertEquals(13L, snapshotService.getSnapshot(1L).cursor());
+    }
+
+    @Test
+    void openSnapshot_ShouldStayReadable_WhenDroppedWhileSending() throws Exception {
+        // Given
+        givenFullSync(12L);
+        snapshotService.build(1L);
+
+        try (OpenVaultSnapshot open = snapshotService.openSnapshot(1L)) {
+            // When: a write drops the snapshot while it is being sent
+            snapshotService.onVaultChange(new VaultChangeEvent(1L, 5L, VaultChangeEvent.Kind.UPDATED, 13L));
+
+            // Then
+            assertFalse(Files.exists(open.snapshot().file()));
+            byte[] file = Channels.newInputStream(open.channel()).readAllBytes();
+            assertEquals(open.snapshot().size(), file.length);
+            JsonNode json = objectMapper.readTree(decrypt(file, open.snapshot().key()));
+            assertEquals(12L, json.get("cursor").asLong());
+        }
+    }
+
+    @Test
+    void openSnapshot_ShouldReturnNullAndRebuild_WhenFileIsGoneBeforeOpening() throws Exception {
+        // Given
+        givenFullSync(12L);
+        snapshotService.build(1L);
+        Files.delete(snapshotService.getSnapshot(1L).file());
+
+        // When
+        OpenVaultSnapshot open = snapshotService.openSnapshot(1L);
+
+        // Then
+        assertNull(open);
+        snapshotService.buildSettled();
+        verify(vaultService, times(2)).sync(any(), isNull());
+        assertNotNull(snapshotService.getSnapshot(1L));
+    }
+
+    @Test
+    void linkSnapshot_ShouldOutliveDrop_AndBeDeletedOnceExpired() throws Exception {
+        // Given
+        givenFullSync(12L);
+        snapshotService.build(1L);
+        byte[] content = Files.readAllBytes(snapshotService.getSnapshot(1L).file());
+
+        // When: a write drops the snapshot before the container opens the link
+        VaultSnapshot link = snapshotService.linkSnapshot(1L);
+        snapshotService.onVaultChange(new VaultChangeEvent(1L, 5L, VaultChangeEvent.Kind.UPDATED, 13L));
+
+        // Then
+        assertEquals(12L, link.cursor());
+        assertArrayEquals(content, Files.readAllBytes(link.file()));
+        givenFullSync(13L);
+        snapshotService.buildSettled();
+        assertFalse(Files.exists(link.file()));
+    }
+
+    @Test
+    void getSnapshot_ShouldScheduleBuild_WhenMissing() {
+        // Given
+        givenFullSync(3L);
+
+        // When
+        assertNull(snapshotService.getSnapshot(1L));
+        snapshotService.buildSettled();
+
+        // Then
+        assertNotNull(snapshotService.getSnapshot(1L));
+        verify(vaultService, times(1)).sync(any(), isNull());
+    }
+
+    @Test
+    void build_ShouldEvictOldestSnapshotOverLimit() {
+        // Given
+        givenFullSync(1L);
+
+        // When
+        snapshotService.build(1L);
+        snapshotService.build(2L);
+        snapshotService.build(3L);
+
+        // Then
+        assertEquals(2, snapshotService.getSnapshotCount());
+        assertNull(snapshotService.getSnapshot(1L));
+    }
+
+    @Test
+    void constructor_ShouldDeleteSnapshotsOfPreviousRun() throws Exception {
+        // Given
+        Path leftover = Files.writeString(directory.resolve("1-5.snap"), "old");
+
+        // When
+        new VaultSnapshotService(vaultService, objectMapper, directory, Duration.ZERO, 2, Duration.ZERO);
+
+        // Then
+        assertFalse(Files.exists(leftover));
+    }
+
+    private void givenFullSync(long cursor) {
+        User user = User.builder().id(1L).build();
+        VaultEntry entry = VaultEntry.builder().id(5L).name("Bank").password("plain_password")
+                .type(VaultEntryType.LOGIN).user(user).revision(cursor).build();
+        when(vaultService.sync(any(), isNull())).thenReturn(SyncResponse.builder()
+                .updatedEntries(List.of(entry))
+                .deletedIds(List.of())
+                .fullResync(true)
+                .cursor(cursor)
+                .serverTime(LocalDateTime.now())
+                .build());
+    }
+
+    private static byte[] decrypt(byte[] file, byte[] key) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"),
+                new GCMParameterSpec(128, Arrays.copyOfRange(file, 0, 12)));
+        byte[] compressed = cipher.doFinal(file, 12, file.length - 12);
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return gzip.readAllBytes();
+        }
+    }
+}
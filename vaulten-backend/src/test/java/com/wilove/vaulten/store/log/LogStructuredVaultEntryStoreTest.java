@@ -0,0 +1,401 @@
+package com.wilove.vaulten.store.log;
+
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryPayload;
+import com.wilove.vaulten.model.VaultEntryType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogStructuredVaultEntryStoreTest {
+
+    private static final DataSize SEGMENT_SIZE = DataSize.ofKilobytes(16);
+
+    @TempDir
+    Path directory;
+
+    private LogStructuredVaultEntryStore store;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        store = open();
+        owner = User.builder().id(7L).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void save_ShouldAssignIdsAndIndexByUser() {
+        // When
+        VaultEntry first = store.save(entry("Bank"));
+        VaultEntry second = store.save(entry("Mail"));
+        store.save(VaultEntry.builder().name("Other").type(VaultEntryType.LOGIN)
+                .user(User.builder().id(8L).build()).build());
+
+        // Then
+        assertEquals(1L, first.getId());
+        assertEquals(2L, second.getId());
+        assertNotNull(first.getCreatedAt());
+        List<VaultEntry> entries = store.findByUserId(7L);
+        assertEquals(List.of("Bank", "Mail"), entries.stream().map(VaultEntry::getName).toList());
+        assertEquals(7L, entries.get(0).getUser().getId());
+        assertEquals(7L, entries.get(0).getUserId());
+    }
+
+    @Test
+    void save_ShouldNotStoreNotesInEntryRecord() {
+        // Given
+        VaultEntry entry = entry("Bank");
+        entry.setNotes("encrypted_notes");
+
+        // When
+        store.save(entry);
+
+        // Then
+        assertNull(store.findById(entry.getId()).orElseThrow().getNotes());
+    }
+
+    @Test
+    void updateAndDelete_ShouldReturnLatestState() {
+        // Given
+        VaultEntry entry = store.save(entry("Bank"));
+        store.savePayload(new VaultEntryPayload(entry.getId(), "encrypted_notes"));
+
+        // When
+        entry.setName("Bank (old)");
+        store.save(entry);
+
+        // Then
+        assertEquals("Bank (old)", store.findById(entry.getId()).orElseThrow().getName());
+        assertEquals("encrypted_notes", store.findPayload(entry.getId()).orElseThrow().getNotes());
+
+        // When
+        store.deletePayload(entry.getId());
+        store.delete(entry);
+
+        // Then
+        assertTrue(store.findById(entry.getId()).isEmpty());
+        assertTrue(store.findPayloads(List.of(entry.getId())).isEmpty());
+        assertTrue(store.findByUserId(7L).isEmpty());
+    }
+
+    @Test
+    void updatePasswordStrength_ShouldKeepVersionAndSurviveReopen() {
+        // Given
+        VaultEntry weak = entry("Forum");
+        weak.setPasswordFingerprint("fp-weak");
+        store.save(weak);
+        VaultEntry strong = entry("Bank");
+        strong.setPasswordFingerprint("fp-strong");
+        store.save(strong);
+
+        // When
+        int updated = store.updatePasswordStrength(7L, "fp-weak", 0, 0.5, 1);
+        store.close();
+        store = open();
+
+        // Then
+        assertEquals(1, updated);
+        VaultEntry stored = store.findById(weak.getId()).orElseThrow();
+        assertEquals(0, stored.getPasswordScore());
+        assertEquals(0.5, stored.getPasswordCrackSeconds());
+        assertEquals(weak.getVersion(), stored.getVersion());
+        assertEquals(weak.getUpdatedAt(), stored.getUpdatedAt());
+        assertEquals(List.of(weak.getId()),
+                store.findByUserIdAndPasswordScoreAtMost(7L, 1).stream().map(VaultEntry::getId).toList());
+        assertEquals(List.of("fp-strong"), store.findUnscoredFingerprints(7L, 1));
+    }
+
+    @Test
+    void save_ShouldBeDiscarded_WhenTheTransactionRollsBack() {
+        // Given
+        VaultEntry kept = store.save(entry("Bank"));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+
+        // When
+        VaultEntry discarded = transactionTemplate.execute(status -> {
+            VaultEntry saved = store.save(entry("Mail"));
+            store.savePayload(new VaultEntryPayload(saved.getId(), "encrypted_notes"));
+            kept.setName("Bank (renamed)");
+            store.save(kept);
+            status.setRollbackOnly();
+            return saved;
+        });
+
+        // Then
+        assertTrue(store.findById(discarded.getId()).isEmpty());
+        assertTrue(store.findPayload(discarded.getId()).isEmpty());
+        assertEquals(List.of("Bank"), store.findByUserId(7L).stream().map(VaultEntry::getName).toList());
+        store.close();
+        store = open();
+        assertTrue(store.findById(discarded.getId()).isEmpty());
+    }
+
+    @Test
+    void save_ShouldBeReadableWithinTheTransaction_AndAppendedOnCommit() {
+        // Given
+        VaultEntry deleted = store.save(entry("Forum"));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+
+        // When
+        VaultEntry saved = transactionTemplate.execute(status -> {
+            VaultEntry entry = store.save(entry("Mail"));
+            store.savePayload(new VaultEntryPayload(entry.getId(), "encrypted_notes"));
+            store.delete(deleted);
+
+            // Then: the transaction sees its own writes before they are appended
+            assertEquals("Mail", store.findById(entry.getId()).orElseThrow().getName());
+            assertEquals("encrypted_notes", store.findPayload(entry.getId()).orElseThrow().getNotes());
+            assertEquals(List.of("Mail"), store.findByUserId(7L).stream().map(VaultEntry::getName).toList());
+            return entry;
+        });
+
+        // Then
+        assertTrue(store.findById(deleted.getId()).isEmpty());
+        store.close();
+        store = open();
+        assertEquals(List.of(saved.getId()), store.findByUserId(7L).stream().map(VaultEntry::getId).toList());
+        assertEquals("encrypted_notes", store.findPayload(saved.getId()).orElseThrow().getNotes());
+    }
+
+    @Test
+    void save_ShouldBeAppendedBeforeTheCommit_AndUndone_WhenTheCommitFails() {
+        // Given
+        VaultEntry kept = store.save(entry("Bank"));
+        store.savePayload(new VaultEntryPayload(kept.getId(), "old_notes"));
+        List<String> seenAtCommit = new ArrayList<>();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager(() -> {
+            // Another writer of the user, once the revision lock is released, must see this transaction's writes
+            seenAtCommit.addAll(inOtherThread(() -> store.findByUserId(7L).stream().map(VaultEntry::getName).toList()));
+            throw new DataIntegrityViolationException("Duplicate key");
+        }));
+
+        // When
+        assertThrows(DataIntegrityViolationException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            store.save(entry("Mail"));
+            kept.setName("Bank (renamed)");
+            store.save(kept);
+            store.savePayload(new VaultEntryPayload(kept.getId(), "new_notes"));
+        }));
+
+        // Then
+        assertEquals(List.of("Bank (renamed)", "Mail"), seenAtCommit);
+        assertEquals(List.of("Bank"), store.findByUserId(7L).stream().map(VaultEntry::getName).toList());
+        assertEquals("old_notes", store.findPayload(kept.getId()).orElseThrow().getNotes());
+        store.close();
+        store = open();
+        assertEquals(List.of("Bank"), store.findByUserId(7L).stream().map(VaultEntry::getName).toList());
+        assertEquals("old_notes", store.findPayload(kept.getId()).orElseThrow().getNotes());
+    }
+
+    @Test
+    void updatePasswordStrength_ShouldKeepAnEditAppendedMeanwhile() {
+        // Given
+        VaultEntry entry = entry("Forum");
+        entry.setPasswordFingerprint("fp-weak");
+        store.save(entry);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+
+        // When: the user renames the entry while its strength is being stored
+        transactionTemplate.executeWithoutResult(status -> {
+            store.updatePasswordStrength(7L, "fp-weak", 0, 0.5, 1);
+            inOtherThread(() -> {
+                VaultEntry edited = store.findById(entry.getId()).orElseThrow();
+                edited.setName("Forum (renamed)");
+                return store.save(edited);
+            });
+        });
+
+        // Then
+        VaultEntry stored = store.findById(entry.getId()).orElseThrow();
+        assertEquals("Forum (renamed)", stored.getName());
+        assertEquals(1L, stored.getVersion());
+        assertEquals(0, stored.getPasswordScore());
+        assertEquals(1, stored.getPasswordScoreVersion());
+    }
+
+    @Test
+    void reopen_ShouldRecoverIndexAndIdSequence() {
+        // Given
+        VaultEntry kept = store.save(entry("Bank"));
+        store.savePayload(new VaultEntryPayload(kept.getId(), "encrypted_notes"));
+        VaultEntry deleted = store.save(entry("Mail"));
+        store.delete(deleted);
+
+        // When
+        store.close();
+        store = open();
+
+        // Then
+        assertEquals(List.of(kept.getId()), store.findByUserId(7L).stream().map(VaultEntry::getId).toList());
+        assertEquals("encrypted_notes", store.findPayload(kept.getId()).orElseThrow().getNotes());
+        assertEquals(3L, store.save(entry("New")).getId());
+    }
+
+    @Test
+    void reopen_ShouldDiscardTornRecord() throws IOException {
+        // Given
+        VaultEntry kept = store.save(entry("Bank"));
+        store.save(entry("Torn"));
+        store.close();
+        corruptLastRecord();
+
+        // When
+        store = open();
+
+        // Then
+        assertEquals(List.of(kept.getId()), store.findByUserId(7L).stream().map(VaultEntry::getId).toList());
+        VaultEntry next = store.save(entry("After crash"));
+        store.close();
+        store = open();
+        assertEquals(List.of("Bank", "After crash"), store.findByUserId(7L).stream().map(VaultEntry::getName).toList());
+        assertEquals(next.getId(), store.findByUserId(7L).get(1).getId());
+    }
+
+    @Test
+    void compact_ShouldReclaimOverwrittenSegments() throws IOException {
+        // Given
+        VaultEntry entry = store.save(entry("Bank"));
+        VaultEntry removed = store.save(entry("Removed"));
+        store.delete(removed);
+        for (int i = 0; i < 200; i++) {
+            entry.setName("Bank " + i);
+            store.save(entry);
+        }
+        long segmentsBefore = segmentFiles();
+        assertTrue(segmentsBefore > 2);
+
+        // When
+        int reclaimed = store.compact();
+
+        // Then
+        assertTrue(reclaimed > 0);
+        assertEquals(segmentsBefore - reclaimed, segmentFiles());
+        assertEquals("Bank 199", store.findById(entry.getId()).orElseThrow().getName());
+
+        store.close();
+        store = open();
+        assertEquals(List.of("Bank 199"), store.findByUserId(7L).stream().map(VaultEntry::getName).toList());
+        assertTrue(store.findById(removed.getId()).isEmpty());
+    }
+
+    private LogStructuredVaultEntryStore open() {
+        return new LogStructuredVaultEntryStore(directory, SEGMENT_SIZE, false, 0.5, Duration.ZERO);
+    }
+
+    private VaultEntry entry(String name) {
+        return VaultEntry.builder()
+                .name(name)
+                .username("user")
+                .password("encrypted_password")
+                .type(VaultEntryType.LOGIN)
+                .user(owner)
+                .build();
+    }
+
+    /**
+     * Runs outside the calling thread's transaction, as a concurrent request
+     * would.
+     */
+    private static <T> T inOtherThread(Callable<T> task) {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(task).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    /**
+     * A transaction manager with nothing to commit, so that only the store's
+     * transaction synchronization is exercised. {@code onCommit} runs where
+     * the database would commit.
+     */
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        private final Runnable onCommit;
+
+        NoOpTransactionManager() {
+            this(() -> {
+            });
+        }
+
+        NoOpTransactionManager(Runnable onCommit) {
+            this.onCommit = onCommit;
+        }
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            onCommit.run();
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+
+    /**
+     * Flips a byte inside the last written record, as a crash mid-append would
+     * leave it.
+     */
+    private void corruptLastRecord() throws IOException {
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.sorted().reduce((first, second) -> second).orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int lastEnd = 0;
+            while (buffer.getInt(lastEnd) != 0) {
+                lastEnd += LogRecord.HEADER_SIZE + buffer.getInt(lastEnd);
+            }
+            buffer.put(lastEnd - 1, (byte) (buffer.get(lastEnd - 1) ^ 0xFF));
+        }
+    }
+}
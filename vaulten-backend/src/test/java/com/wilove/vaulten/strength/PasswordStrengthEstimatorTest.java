@@ -0,0 +1,52 @@
+package com.wilove.vaulten.strength;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordStrengthEstimatorTest {
+
+    private final PasswordStrengthEstimator estimator = new PasswordStrengthEstimator(
+            new ClassPathResource("common_passwords.txt"));
+
+    @Test
+    void estimate_ShouldSeeThroughCommonDisguises() {
+        assertEquals(0, estimator.estimate("password").score());
+        assertEquals(0, estimator.estimate("P4ssw0rd").score());
+        assertEquals(0, estimator.estimate("drowssap").score());
+        assertEquals(0, estimator.estimate("qwerty123").score());
+        assertEquals(0, estimator.estimate("zxcvbnm").score());
+        assertEquals(0, estimator.estimate("abcabcabcabc").score());
+        assertEquals(1, estimator.estimate("abcdefgh12").score());
+        assertEquals(1, estimator.estimate("john1987").score());
+        assertEquals(1, estimator.estimate("12/05/1987").score());
+    }
+
+    @Test
+    void estimate_ShouldRateLongAndRandomPasswordsStrong() {
+        assertEquals(4, estimator.estimate("correcthorsebatterystaple").score());
+        assertEquals(4, estimator.estimate("xK9#mQ2$vL7!").score());
+        assertEquals(4, estimator.estimate("Unlikely-To-Be-Breached-42").score());
+    }
+
+    @Test
+    void estimate_ShouldGrowWithLengthAndTranslateToCrackTime() {
+        PasswordStrength shorter = estimator.estimate("k7Rq");
+        PasswordStrength longer = estimator.estimate("k7Rq2x");
+
+        assertTrue(longer.guesses() > shorter.guesses());
+        assertEquals(longer.guesses() / 1e4, longer.crackSeconds(), 1e-9);
+        assertEquals(0, estimator.estimate("").score());
+        assertTrue(estimator.estimate("x".repeat(500)).guesses() < 1e4);
+    }
+
+    @Test
+    void describe_ShouldUseTheLargestWholeUnit() {
+        assertEquals("less than a second", PasswordStrength.describe(0.2));
+        assertEquals("1 second", PasswordStrength.describe(1.5));
+        assertEquals("3 hours", PasswordStrength.describe(3 * 3600 + 59));
+        assertEquals("2 years", PasswordStrength.describe(2.5 * 12 * 31 * 86400));
+        assertEquals("centuries", PasswordStrength.describe(1e12));
+    }
+}
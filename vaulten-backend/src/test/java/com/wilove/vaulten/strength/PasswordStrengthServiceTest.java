@@ -0,0 +1,169 @@
+package com.wilove.vaulten.strength;
+
+import com.wilove.vaulten.datasource.ShardRouter;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.repository.VaultRevisionRepository;
+import com.wilove.vaulten.service.EncryptionService;
+import com.wilove.vaulten.service.VaultRevisionService;
+import com.wilove.vaulten.service.VaultStatsService;
+import com.wilove.vaulten.store.VaultEntryStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PasswordStrengthServiceTest {
+
+    @Mock
+    private VaultStatsService vaultStatsService;
+
+    @Mock(answer = Answers.RETURNS_SELF)
+    private VaultStatsService.Tally tally;
+
+    @Mock
+    private VaultRevisionRepository revisionRepository;
+
+    @Mock
+    private VaultRevisionService vaultRevisionService;
+
+    @Mock
+    private VaultEntryStore vaultEntryStore;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final EncryptionService encryptionService =
+            new EncryptionService("RW5jcnlwdGlvbktleTMyQnl0ZXNGb3JBRVMyNTYhISE=");
+    private final PasswordStrengthEstimator estimator =
+            new PasswordStrengthEstimator(new ClassPathResource("common_passwords.txt"));
+    private final List<Runnable> tasks = new ArrayList<>();
+    private PasswordStrengthService passwordStrengthService;
+
+    @BeforeEach
+    void setUp() {
+        passwordStrengthService = new PasswordStrengthService(estimator, vaultStatsService, revisionRepository,
+                vaultRevisionService, vaultEntryStore, encryptionService, shardRouter, transactionManager, 100,
+                tasks::add);
+        lenient().when(vaultStatsService.tally()).thenReturn(tally);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void scoreAfterCommit_ShouldQueueFingerprintsOnly() {
+        // Given
+        VaultEntry weak = entry("fp-weak", "password");
+        when(vaultEntryStore.findByUserIdAndPasswordFingerprintIn(1L, Set.of("fp-weak")))
+                .thenReturn(List.of(encrypted(weak)));
+
+        // When
+        passwordStrengthService.scoreAfterCommit(1L, List.of(weak, VaultEntry.builder().build()));
+
+        // Then: nothing is scored on the calling thread
+        verifyNoInteractions(vaultEntryStore, vaultStatsService);
+        tasks.forEach(Runnable::run);
+        verify(vaultRevisionService).reserveRevisions(1L, 0);
+        verify(vaultEntryStore).updatePasswordStrength(eq(1L), eq("fp-weak"), eq(0), anyDouble(),
+                eq(PasswordStrengthEstimator.VERSION));
+    }
+
+    @Test
+    void score_ShouldMoveEveryEntryWithThePasswordIntoTheWeakCount() {
+        // Given
+        VaultEntry first = encrypted(entry("fp-weak", "letmein"));
+        VaultEntry second = encrypted(entry("fp-weak", "letmein"));
+        VaultEntry strong = encrypted(entry("fp-strong", "Unlikely-To-Be-Breached-42"));
+        when(vaultEntryStore.findByUserIdAndPasswordFingerprintIn(eq(1L), any()))
+                .thenReturn(List.of(first, second, strong));
+
+        // When
+        int scored = passwordStrengthService.score(1L, List.of("fp-weak", "fp-strong"));
+
+        // Then
+        assertEquals(2, scored);
+        verify(tally).remove(first);
+        verify(tally).remove(second);
+        verify(tally, times(2)).add(argThat(entry -> Integer.valueOf(0).equals(entry.getPasswordScore())));
+        verify(vaultEntryStore).updatePasswordStrength(eq(1L), eq("fp-strong"), eq(4), anyDouble(),
+                eq(PasswordStrengthEstimator.VERSION));
+        verify(vaultStatsService).apply(1L, tally);
+        // The loaded entries are left as they were, so nothing is written back through them
+        assertNull(first.getPasswordScore());
+    }
+
+    @Test
+    void score_ShouldSkipPasswordsScoredByThisVersion() {
+        // Given
+        VaultEntry scored = encrypted(entry("fp-weak", "letmein"));
+        scored.setPasswordScore(0);
+        scored.setPasswordScoreVersion(PasswordStrengthEstimator.VERSION);
+        when(vaultEntryStore.findByUserIdAndPasswordFingerprintIn(eq(1L), any())).thenReturn(List.of(scored));
+
+        // When
+        int count = passwordStrengthService.score(1L, List.of("fp-weak"));
+
+        // Then
+        assertEquals(0, count);
+        verify(vaultEntryStore, never()).updatePasswordStrength(any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void rescoreAll_ShouldScoreUsersWithPasswordsFromOlderVersions() {
+        // Given
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(shardRouter).forEachShard(any());
+        when(revisionRepository.findUserIdsAfter(eq(0L), any())).thenReturn(List.of(1L, 2L));
+        when(revisionRepository.findUserIdsAfter(eq(2L), any())).thenReturn(List.of());
+        when(vaultEntryStore.findUnscoredFingerprints(1L, PasswordStrengthEstimator.VERSION))
+                .thenReturn(List.of("fp-old"));
+        when(vaultEntryStore.findUnscoredFingerprints(2L, PasswordStrengthEstimator.VERSION)).thenReturn(List.of());
+        VaultEntry old = encrypted(entry("fp-old", "dragon"));
+        old.setPasswordScore(3);
+        old.setPasswordScoreVersion(PasswordStrengthEstimator.VERSION - 1);
+        when(vaultEntryStore.findByUserIdAndPasswordFingerprintIn(1L, List.of("fp-old"))).thenReturn(List.of(old));
+
+        // When
+        passwordStrengthService.rescoreAll();
+
+        // Then
+        verify(vaultEntryStore).updatePasswordStrength(eq(1L), eq("fp-old"), eq(0), anyDouble(),
+                eq(PasswordStrengthEstimator.VERSION));
+        verify(vaultRevisionService, never()).reserveRevisions(eq(2L), anyInt());
+    }
+
+    private VaultEntry entry(String fingerprint, String password) {
+        return VaultEntry.builder().name(fingerprint).password(password).passwordFingerprint(fingerprint).build();
+    }
+
+    private VaultEntry encrypted(VaultEntry entry) {
+        return entry.toBuilder().password(encryptionService.encrypt(entry.getPassword())).build();
+    }
+}
@@ -0,0 +1,45 @@
+package com.wilove.vaulten.transfer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvRecordReaderTest {
+
+    @Test
+    void next_ShouldReadQuotedFieldsWithSeparatorsQuotesAndLineBreaks() throws IOException {
+        // Given
+        CsvRecordReader reader = new CsvRecordReader(new StringReader(
+                "﻿Name,Login Username,Password\r\n"
+                        + "\"My Bank\",bankuser,\"p\"\"ss,word\"\r\n"
+                        + "\r\n"
+                        + "Notes,,\"line one\nline two\"\n"));
+
+        // When
+        Map<String, String> first = reader.next();
+        Map<String, String> second = reader.next();
+
+        // Then
+        assertEquals(Map.of("name", "My Bank", "loginusername", "bankuser", "password", "p\"ss,word"), first);
+        assertEquals("line one\nline two", second.get("password"));
+        assertEquals("", second.get("loginusername"));
+        assertNull(reader.next());
+    }
+
+    @Test
+    void next_ShouldIgnoreColumnsMissingFromShortRows() throws IOException {
+        // Given
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("name,url,notes\nWifi"));
+
+        // When
+        Map<String, String> record = reader.next();
+
+        // Then
+        assertEquals(Map.of("name", "Wifi"), record);
+        assertNull(reader.next());
+    }
+}
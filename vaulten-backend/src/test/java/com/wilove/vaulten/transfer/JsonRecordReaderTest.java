@@ -0,0 +1,67 @@
+package com.wilove.vaulten.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonRecordReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void next_ShouldFlattenBitwardenLoginItems() throws IOException {
+        // Given
+        JsonRecordReader reader = reader("{\"encrypted\":false,\"folders\":[{\"id\":\"f1\"}],\"items\":["
+                + "{\"type\":1,\"name\":\"GitHub\",\"notes\":null,\"login\":{\"username\":\"octo\","
+                + "\"password\":\"secret\",\"uris\":[{\"uri\":\"https://github.com\"},{\"uri\":\"https://gist.github.com\"}]}},"
+                + "{\"type\":2,\"name\":\"Wifi\",\"notes\":\"router\"}]}");
+
+        // When
+        Map<String, String> login = reader.next();
+        Map<String, String> note = reader.next();
+
+        // Then
+        assertEquals("GitHub", login.get("name"));
+        assertEquals("octo", login.get("username"));
+        assertEquals("secret", login.get("password"));
+        assertEquals("https://github.com", login.get("url"));
+        assertEquals("login", login.get("type"));
+        assertFalse(login.containsKey("notes"));
+        assertEquals("note", note.get("type"));
+        assertNull(reader.next());
+    }
+
+    @Test
+    void next_ShouldReadVaultenExportsAndTopLevelArrays() throws IOException {
+        // Given
+        JsonRecordReader export = reader("{\"exportedAt\":\"2024-01-01T00:00:00\","
+                + "\"entries\":[{\"name\":\"My Bank\",\"type\":\"LOGIN\"}]}");
+        JsonRecordReader array = reader("[{\"title\":\"My Bank\",\"website\":\"bank.example\"}, 42]");
+
+        // When / Then
+        assertEquals(Map.of("name", "My Bank", "type", "LOGIN"), export.next());
+        assertNull(export.next());
+        assertEquals(Map.of("title", "My Bank", "website", "bank.example"), array.next());
+        assertNull(array.next());
+    }
+
+    @Test
+    void next_ShouldFailOnTruncatedFile() throws IOException {
+        // Given
+        JsonRecordReader reader = reader("[{\"name\":\"My Bank\"},");
+
+        // When / Then
+        assertNotNull(reader.next());
+        assertThrows(IOException.class, reader::next);
+    }
+
+    private JsonRecordReader reader(String json) throws IOException {
+        return new JsonRecordReader(objectMapper, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
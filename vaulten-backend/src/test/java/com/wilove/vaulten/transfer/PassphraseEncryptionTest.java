@@ -0,0 +1,89 @@
+package com.wilove.vaulten.transfer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PassphraseEncryptionTest {
+
+    private static final String PASSPHRASE = "correct horse battery";
+
+    @Test
+    void encrypt_ShouldRoundTripAcrossSegments() throws IOException {
+        // Given
+        byte[] content = random(3 * PassphraseEncryption.SEGMENT_SIZE + 17);
+
+        // When
+        byte[] sealed = seal(content);
+
+        // Then
+        assertArrayEquals(content, open(sealed, PASSPHRASE));
+        assertEquals(-1, indexOf(sealed, Arrays.copyOfRange(content, 0, 64)));
+    }
+
+    @Test
+    void encrypt_ShouldRoundTripEmptyAndSegmentSizedContent() throws IOException {
+        // Given
+        byte[] exact = random(PassphraseEncryption.SEGMENT_SIZE);
+
+        // When & Then
+        assertArrayEquals(new byte[0], open(seal(new byte[0]), PASSPHRASE));
+        assertArrayEquals(exact, open(seal(exact), PASSPHRASE));
+    }
+
+    @Test
+    void decrypt_ShouldFail_WhenPassphraseIsWrong() throws IOException {
+        // Given
+        byte[] sealed = seal(random(100));
+
+        // When & Then
+        assertThrows(IOException.class, () -> open(sealed, "wrong passphrase"));
+    }
+
+    @Test
+    void decrypt_ShouldFail_WhenLastSegmentIsMissing() throws IOException {
+        // Given: two segments, cut right after the first one
+        byte[] sealed = seal(random(PassphraseEncryption.SEGMENT_SIZE + 10));
+        byte[] truncated = Arrays.copyOf(sealed, sealed.length - (10 + 16 + 5));
+
+        // When & Then
+        assertThrows(IOException.class, () -> open(truncated, PASSPHRASE));
+    }
+
+    private byte[] seal(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream encrypted = PassphraseEncryption.encrypt(out, PASSPHRASE)) {
+            encrypted.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] open(byte[] sealed, String passphrase) throws IOException {
+        try (InputStream in = PassphraseEncryption.decrypt(new ByteArrayInputStream(sealed), passphrase)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private int indexOf(byte[] haystack, byte[] needle) {
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            if (Arrays.equals(haystack, i, i + needle.length, needle, 0, needle.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
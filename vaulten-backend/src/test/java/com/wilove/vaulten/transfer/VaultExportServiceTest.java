@@ -0,0 +1,100 @@
+package com.wilove.vaulten.transfer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryType;
+import com.wilove.vaulten.service.VaultService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class VaultExportServiceTest {
+
+    @Mock
+    private VaultService vaultService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private VaultExportService vaultExportService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        vaultExportService = new VaultExportService(vaultService, objectMapper);
+        user = User.builder().id(1L).build();
+
+        doAnswer(invocation -> {
+            Consumer<List<VaultEntry>> action = invocation.getArgument(2);
+            action.accept(List.of(VaultEntry.builder()
+                    .id(1L)
+                    .name("My Bank")
+                    .username("bankuser")
+                    .password("p\"ss,word")
+                    .notes("line one\nline two")
+                    .type(VaultEntryType.LOGIN)
+                    .build()));
+            action.accept(List.of(VaultEntry.builder().id(2L).name("Wifi").type(VaultEntryType.NOTE).build()));
+            return null;
+        }).when(vaultService).forEachEntryChunk(eq(user), eq(VaultExportService.CHUNK_SIZE), any());
+    }
+
+    @Test
+    void export_ShouldWriteJsonEntriesWithoutInternalFields() throws IOException {
+        // When
+        JsonNode export = objectMapper.readTree(export(TransferFormat.JSON, null));
+
+        // Then
+        JsonNode entries = export.get("entries");
+        assertEquals(2, entries.size());
+        assertEquals("p\"ss,word", entries.get(0).get("password").asText());
+        assertEquals("LOGIN", entries.get(0).get("type").asText());
+        assertFalse(entries.get(0).has("id"));
+        assertFalse(entries.get(1).has("username"));
+    }
+
+    @Test
+    void export_ShouldQuoteCsvFields() throws IOException {
+        // When
+        String csv = new String(export(TransferFormat.CSV, null), StandardCharsets.UTF_8);
+
+        // Then
+        assertEquals("\"name\",\"username\",\"password\",\"url\",\"notes\",\"type\",\"category\"\r\n"
+                + "\"My Bank\",\"bankuser\",\"p\"\"ss,word\",,\"line one\nline two\",\"LOGIN\",\r\n"
+                + "\"Wifi\",,,,,\"NOTE\",\r\n", csv);
+    }
+
+    @Test
+    void export_ShouldEncryptWithPassphrase() throws IOException {
+        // When
+        byte[] sealed = export(TransferFormat.JSON, "export passphrase");
+
+        // Then
+        assertFalse(new String(sealed, StandardCharsets.ISO_8859_1).contains("My Bank"));
+        try (InputStream in = PassphraseEncryption.decrypt(new ByteArrayInputStream(sealed), "export passphrase")) {
+            assertEquals("My Bank", objectMapper.readTree(in).get("entries").get(0).get("name").asText());
+        }
+    }
+
+    private byte[] export(TransferFormat format, String passphrase) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        vaultExportService.export(user, format, passphrase, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,163 @@
+package com.wilove.vaulten.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wilove.vaulten.model.User;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryType;
+import com.wilove.vaulten.service.VaultService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class VaultImportServiceTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    @Mock
+    private VaultService vaultService;
+
+    @TempDir
+    private Path directory;
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final List<List<VaultEntry>> batches = new ArrayList<>();
+    private VaultImportService vaultImportService;
+    private User user;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Executor executor = tasks::add;
+        vaultImportService = new VaultImportService(vaultService, new ObjectMapper(), directory, BATCH_SIZE,
+                Duration.ofHours(1), executor);
+        user = User.builder().id(1L).build();
+
+        lenient().doAnswer(invocation -> {
+            Consumer<List<VaultEntry>> action = invocation.getArgument(2);
+            action.accept(List.of(VaultEntry.builder()
+                    .name("My Bank")
+                    .username("bankuser")
+                    .url("https://bank.example")
+                    .type(VaultEntryType.LOGIN)
+                    .build()));
+            return null;
+        }).when(vaultService).forEachEntryChunk(eq(user), eq(BATCH_SIZE), any());
+    }
+
+    @Test
+    void start_ShouldImportInBatchesSkippingDuplicatesAndInvalidRecords() throws IOException {
+        // Given
+        when(vaultService.createEntries(anyList(), eq(user))).thenAnswer(invocation -> {
+            List<VaultEntry> batch = invocation.getArgument(0);
+            batches.add(List.copyOf(batch));
+            return batch;
+        });
+        String csv = "title,login,password,url,extra,type\n"
+                + "my bank,BankUser,x,https://bank.example,,\n"
+                + "GitHub,octo,secret,https://github.com,,\n"
+                + ",,,,orphan note,\n"
+                + ",jane,pw,mail.example.com/login,,\n"
+                + "Wifi,,,,router,Secure Note\n"
+                + "github,OCTO,other,https://github.com,,\n";
+
+        // When
+        ImportJob job = vaultImportService.start(user, stream(csv), TransferFormat.CSV, null);
+        assertEquals(ImportJob.Status.RUNNING, job.getStatus());
+        tasks.forEach(Runnable::run);
+
+        // Then
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(100, job.getProgress());
+        assertEquals(3, job.getImported());
+        assertEquals(2, job.getDuplicates());
+        assertEquals(1, job.getInvalid());
+        assertEquals(List.of(2, 1), batches.stream().map(List::size).toList());
+        VaultEntry jane = batches.get(0).get(1);
+        assertEquals("mail.example.com", jane.getName());
+        assertEquals(VaultEntryType.NOTE, batches.get(1).get(0).getType());
+        assertEquals("router", batches.get(1).get(0).getNotes());
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    void start_ShouldReadPassphraseEncryptedExports() throws Exception {
+        // Given
+        when(vaultService.createEntries(anyList(), eq(user))).thenAnswer(invocation -> invocation.getArgument(0));
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        try (OutputStream out = PassphraseEncryption.encrypt(encrypted, "correct horse")) {
+            out.write("{\"entries\":[{\"name\":\"Wifi\",\"type\":\"NOTE\"}]}".getBytes(StandardCharsets.UTF_8));
+        }
+
+        // When
+        ImportJob job = vaultImportService.start(user, new ByteArrayInputStream(encrypted.toByteArray()),
+                TransferFormat.JSON, "correct horse");
+        tasks.forEach(Runnable::run);
+
+        // Then
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(1, job.getImported());
+    }
+
+    @Test
+    void start_ShouldFailJobOnMalformedFileKeepingEarlierBatches() throws IOException {
+        // Given
+        when(vaultService.createEntries(anyList(), eq(user))).thenAnswer(invocation -> invocation.getArgument(0));
+        String json = "[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"";
+
+        // When
+        ImportJob job = vaultImportService.start(user, stream(json), TransferFormat.JSON, null);
+        tasks.forEach(Runnable::run);
+
+        // Then
+        assertEquals(ImportJob.Status.FAILED, job.getStatus());
+        assertEquals(2, job.getImported());
+        assertNotNull(job.getError());
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    void start_ShouldRejectSecondImportWhileOneIsRunning() throws IOException {
+        // Given
+        ImportJob job = vaultImportService.start(user, stream("name\nWifi\n"), TransferFormat.CSV, null);
+
+        // When / Then
+        assertThrows(IllegalStateException.class,
+                () -> vaultImportService.start(user, stream("name\nMail\n"), TransferFormat.CSV, null));
+        assertEquals(1, countFiles());
+        assertTrue(vaultImportService.getJob(user, job.getId()).isPresent());
+        assertTrue(vaultImportService.getJob(User.builder().id(2L).build(), job.getId()).isEmpty());
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long countFiles() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
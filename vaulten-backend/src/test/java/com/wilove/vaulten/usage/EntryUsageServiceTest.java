@@ -0,0 +1,210 @@
+package com.wilove.vaulten.usage;
+
+import com.wilove.vaulten.datasource.ShardRouter;
+import com.wilove.vaulten.model.VaultEntry;
+import com.wilove.vaulten.model.VaultEntryUsage;
+import com.wilove.vaulten.repository.VaultEntryUsageRepository;
+import com.wilove.vaulten.store.VaultEntryStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EntryUsageServiceTest {
+
+    private static final Duration HALF_LIFE = Duration.ofDays(14);
+    private static final Instant NOW = Instant.parse("2026-03-01T12:00:00Z");
+
+    @Mock
+    private VaultEntryUsageRepository usageRepository;
+
+    @Mock
+    private VaultEntryStore vaultEntryStore;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final Clock clock = Clock.fixed(NOW, ZoneId.systemDefault());
+    private EntryUsageService entryUsageService;
+
+    @BeforeEach
+    void setUp() {
+        entryUsageService = new EntryUsageService(usageRepository, vaultEntryStore, shardRouter, transactionManager,
+                HALF_LIFE, 500, clock);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        // Every entry still exists unless a test says otherwise
+        lenient().when(vaultEntryStore.findByUserIdAndIdIn(any(), anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(1);
+            return ids.stream().map(id -> VaultEntry.builder().id(id).build()).toList();
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldWriteTheUsesOfEachEntryAsOneRow() {
+        // Given
+        entryUsageService.recordUse(1L, 10L);
+        entryUsageService.recordUse(1L, 10L);
+        entryUsageService.recordUse(1L, 10L);
+        entryUsageService.recordUse(1L, 11L);
+        when(usageRepository.findByEntryIdIn(anyCollection())).thenReturn(List.of());
+
+        // When
+        entryUsageService.flush();
+        entryUsageService.flush();
+
+        // Then: nothing is left for the second flush to write
+        ArgumentCaptor<List<VaultEntryUsage>> saved = ArgumentCaptor.forClass(List.class);
+        verify(usageRepository, times(1)).saveAll(saved.capture());
+        List<VaultEntryUsage> rows = new ArrayList<>(saved.getValue());
+        rows.sort(Comparator.comparing(VaultEntryUsage::getEntryId));
+        assertEquals(2, rows.size());
+        assertEquals(3, rows.get(0).getUseCount());
+        assertEquals(1L, rows.get(0).getUserId());
+        assertEquals(LocalDateTime.ofInstant(NOW, ZoneId.systemDefault()), rows.get(0).getLastUsedAt());
+        assertEquals(1, rows.get(1).getUseCount());
+        assertEquals(rows.get(1).getFrecency() + 1.585, rows.get(0).getFrecency(), 0.001); // log2(3)
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldAddToTheStoredUsage() {
+        // Given
+        double stored = entryUsageService.frecency(5, NOW.minus(HALF_LIFE).toEpochMilli());
+        VaultEntryUsage row = new VaultEntryUsage(10L, 1L, 5,
+                LocalDateTime.ofInstant(NOW.minus(HALF_LIFE), ZoneId.systemDefault()), stored);
+        when(usageRepository.findByEntryIdIn(anyCollection())).thenReturn(List.of(row));
+        entryUsageService.recordUse(1L, 10L);
+
+        // When
+        entryUsageService.flush();
+
+        // Then: five uses a half-life ago weigh 2.5 uses now, plus this one
+        ArgumentCaptor<List<VaultEntryUsage>> saved = ArgumentCaptor.forClass(List.class);
+        verify(usageRepository).saveAll(saved.capture());
+        assertSame(row, saved.getValue().get(0));
+        assertEquals(6, row.getUseCount());
+        assertEquals(LocalDateTime.ofInstant(NOW, ZoneId.systemDefault()), row.getLastUsedAt());
+        assertEquals(entryUsageService.frecency(1, NOW.toEpochMilli()) + Math.log(3.5) / Math.log(2),
+                row.getFrecency(), 1e-9);
+    }
+
+    @Test
+    void flush_ShouldKeepTheUsesOfAFailedWriteForTheNextFlush() {
+        // Given
+        entryUsageService.recordUse(1L, 10L);
+        entryUsageService.recordUse(1L, 10L);
+        when(usageRepository.findByEntryIdIn(anyCollection()))
+                .thenThrow(new CannotAcquireLockException("lock timeout"))
+                .thenReturn(List.of());
+
+        // When
+        entryUsageService.flush();
+        entryUsageService.recordUse(1L, 10L);
+        entryUsageService.flush();
+
+        // Then
+        verify(usageRepository).saveAll(argThat(rows -> {
+            VaultEntryUsage row = rows.iterator().next();
+            return row.getEntryId() == 10L && row.getUseCount() == 3;
+        }));
+    }
+
+    @Test
+    void flush_ShouldSkipUsesOfEntriesDeletedSince() {
+        // Given
+        entryUsageService.recordUse(1L, 10L);
+        entryUsageService.recordUse(1L, 11L);
+        when(usageRepository.findByEntryIdIn(anyCollection())).thenReturn(List.of());
+        when(vaultEntryStore.findByUserIdAndIdIn(eq(1L), anyCollection()))
+                .thenReturn(List.of(VaultEntry.builder().id(11L).build()));
+
+        // When
+        entryUsageService.flush();
+
+        // Then
+        verify(usageRepository).saveAll(argThat(rows -> {
+            List<VaultEntryUsage> written = new ArrayList<>();
+            rows.forEach(written::add);
+            return written.size() == 1 && written.get(0).getEntryId() == 11L;
+        }));
+    }
+
+    @Test
+    void forget_ShouldDropUsesNotWrittenYet_OnlyOnceTheDeleteCommits() {
+        // Given
+        entryUsageService.recordUse(1L, 10L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            entryUsageService.forget(1L, 10L);
+
+            // Then
+            verify(usageRepository).deleteById(10L);
+            assertTrue(entryUsageService.frecencies(1L).containsKey(10L));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertFalse(entryUsageService.frecencies(1L).containsKey(10L));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void frecencies_ShouldIncludeTheUsersUsesNotWrittenYet() {
+        // Given: four uses two half-lives ago weigh as much as one now
+        long twoHalfLivesAgo = NOW.minus(HALF_LIFE.multipliedBy(2)).toEpochMilli();
+        when(usageRepository.findByUserId(1L)).thenReturn(List.of(
+                new VaultEntryUsage(10L, 1L, 3, null, entryUsageService.frecency(3, twoHalfLivesAgo)),
+                new VaultEntryUsage(11L, 1L, 5, null, entryUsageService.frecency(5, twoHalfLivesAgo))));
+        entryUsageService.recordUse(1L, 12L);
+        entryUsageService.recordUse(2L, 20L);
+
+        // When
+        Map<Long, Double> frecencies = entryUsageService.frecencies(1L);
+
+        // Then
+        assertEquals(3, frecencies.size());
+        assertFalse(frecencies.containsKey(20L));
+        assertTrue(frecencies.get(11L) > frecencies.get(12L));
+        assertTrue(frecencies.get(12L) > frecencies.get(10L));
+    }
+
+    @Test
+    void addLog2_ShouldAddWithoutOverflowing() {
+        assertEquals(1001, EntryUsageService.addLog2(1000, 1000), 1e-9);
+        assertEquals(2000, EntryUsageService.addLog2(2000, 0), 1e-9);
+        assertEquals(Math.log(3) / Math.log(2), EntryUsageService.addLog2(1, 0), 1e-9);
+    }
+}